@@ -187,6 +187,17 @@ public void configureInputJobProperties(TableDesc tableDesc, Map<String,String>
       jobProperties.put(AccumuloSerDeParameters.AUTHORIZATIONS_KEY, authValue);
     }
 
+    String batchScannerThreads = props.getProperty(
+        AccumuloSerDeParameters.BATCH_SCANNER_THREADS_KEY);
+    if (null != batchScannerThreads) {
+      jobProperties.put(AccumuloSerDeParameters.BATCH_SCANNER_THREADS_KEY, batchScannerThreads);
+    }
+
+    String columnProjection = props.getProperty(AccumuloSerDeParameters.COLUMN_PROJECTION_KEY);
+    if (null != columnProjection) {
+      jobProperties.put(AccumuloSerDeParameters.COLUMN_PROJECTION_KEY, columnProjection);
+    }
+
     log.info("Computed input job properties of " + jobProperties);
   }
 
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.accumulo.mr;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.core.util.PeekingIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.RecordReader;
+
+/**
+ * Reads the rows of several ranges with a single {@link BatchScanner}, which scans them in
+ * parallel, in place of the sequential Scanner of
+ * {@link org.apache.accumulo.core.client.mapred.AccumuloRowInputFormat}.
+ *
+ * <p>
+ * A BatchScanner interleaves the entries of the ranges it reads, so a {@link WholeRowIterator} is
+ * set above the other iterators of the scan to receive every row as a single entry. Each row is
+ * handed out as an iterator over its entries, as the readers of AccumuloRowInputFormat do. Rows
+ * do not come in key order.
+ */
+public class BatchScannerRecordReader implements
+    RecordReader<Text,PeekingIterator<Entry<Key,Value>>> {
+  private final BatchScanner scanner;
+  private final Iterator<Entry<Key,Value>> rows;
+  private long rowsRead = 0;
+  private volatile boolean done = false;
+
+  /**
+   * @param scanner
+   *          BatchScanner on the table, with the authorizations of the scan
+   * @param ranges
+   *          Ranges to read
+   * @param fetchedColumns
+   *          Columns to read, all the columns when empty
+   * @param iterators
+   *          Iterators of the scan
+   */
+  public BatchScannerRecordReader(BatchScanner scanner, List<Range> ranges,
+      Set<Pair<Text,Text>> fetchedColumns, List<IteratorSetting> iterators) {
+    this.scanner = scanner;
+    scanner.setRanges(ranges);
+    for (Pair<Text,Text> column : fetchedColumns) {
+      if (null == column.getSecond()) {
+        scanner.fetchColumnFamily(column.getFirst());
+      } else {
+        scanner.fetchColumn(column.getFirst(), column.getSecond());
+      }
+    }
+
+    int priority = 0;
+    for (IteratorSetting is : iterators) {
+      scanner.addScanIterator(is);
+      priority = Math.max(priority, is.getPriority());
+    }
+    scanner.addScanIterator(new IteratorSetting(priority + 1, "batchWholeRow",
+        WholeRowIterator.class));
+    this.rows = scanner.iterator();
+  }
+
+  @Override
+  public boolean next(Text key, PeekingIterator<Entry<Key,Value>> value) throws IOException {
+    if (!rows.hasNext()) {
+      done = true;
+      return false;
+    }
+    Entry<Key,Value> row = rows.next();
+    key.set(row.getKey().getRow());
+    value.initialize(WholeRowIterator.decodeRow(row.getKey(), row.getValue()).entrySet()
+        .iterator());
+    rowsRead++;
+    return true;
+  }
+
+  @Override
+  public Text createKey() {
+    return new Text();
+  }
+
+  @Override
+  public PeekingIterator<Entry<Key,Value>> createValue() {
+    return new PeekingIterator<Entry<Key,Value>>();
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return rowsRead;
+  }
+
+  @Override
+  public void close() throws IOException {
+    scanner.close();
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    // The BatchScanner does not tell how far it is in its ranges
+    return done ? 1.0f : 0.0f;
+  }
+}
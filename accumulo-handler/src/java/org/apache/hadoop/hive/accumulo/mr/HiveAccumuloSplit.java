@@ -21,8 +21,12 @@
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.accumulo.core.client.mapred.RangeInputSplit;
+import org.apache.accumulo.core.data.Range;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.io.HiveInputFormat.HiveInputSplit;
 import org.apache.hadoop.mapred.FileSplit;
@@ -38,45 +42,106 @@
  * If the {@link RangeInputSplit} is used directly, it will hit a branch of code in
  * {@link HiveInputSplit} which generates an invalid Path. Wrap it ourselves so that it doesn't
  * error
+ *
+ * <p>
+ * A split may also carry several ranges of the same tablet server, read together with a
+ * BatchScanner. The other properties of the scan are then those of the wrapped split.
  */
 public class HiveAccumuloSplit extends FileSplit implements InputSplit {
   private static final Logger log = Logger.getLogger(HiveAccumuloSplit.class);
 
   private RangeInputSplit split;
+  // Ranges read with a BatchScanner, empty when only the range of the split is read
+  private List<Range> ranges;
+  private long length;
 
   public HiveAccumuloSplit() {
     super((Path) null, 0, 0, (String[]) null);
     split = new RangeInputSplit();
+    ranges = new ArrayList<Range>();
   }
 
   public HiveAccumuloSplit(RangeInputSplit split, Path dummyPath) {
+    this(split, Collections.<Range> emptyList(), -1, dummyPath);
+  }
+
+  /**
+   * @param split
+   *          The scan properties, and the location, of the ranges
+   * @param ranges
+   *          The ranges to read, in place of the range of the split
+   * @param length
+   *          The estimated length of the ranges, or -1 for the length of the split
+   * @param dummyPath
+   *          The path of the split
+   */
+  public HiveAccumuloSplit(RangeInputSplit split, List<Range> ranges, long length,
+      Path dummyPath) {
     super(dummyPath, 0, 0, (String[]) null);
     this.split = split;
+    this.ranges = new ArrayList<Range>(ranges);
+    this.length = length;
   }
 
   public RangeInputSplit getSplit() {
     return this.split;
   }
 
+  /**
+   * @return whether several ranges are read, with a BatchScanner
+   */
+  public boolean hasMultipleRanges() {
+    return ranges.size() > 1;
+  }
+
+  /**
+   * @return the ranges read by the split
+   */
+  public List<Range> getRanges() {
+    if (ranges.isEmpty()) {
+      return Collections.singletonList(split.getRange());
+    }
+    return ranges;
+  }
+
   @Override
   public void readFields(DataInput in) throws IOException {
     super.readFields(in);
     split.readFields(in);
+    int numRanges = in.readInt();
+    ranges = new ArrayList<Range>(numRanges);
+    for (int i = 0; i < numRanges; i++) {
+      Range range = new Range();
+      range.readFields(in);
+      ranges.add(range);
+    }
+    length = in.readLong();
   }
 
   @Override
   public String toString() {
-    return "HiveAccumuloSplit: " + split;
+    if (ranges.isEmpty()) {
+      return "HiveAccumuloSplit: " + split;
+    }
+    return "HiveAccumuloSplit: " + split + " ranges: " + ranges;
   }
 
   @Override
   public void write(DataOutput out) throws IOException {
     super.write(out);
     split.write(out);
+    out.writeInt(ranges.size());
+    for (Range range : ranges) {
+      range.write(out);
+    }
+    out.writeLong(length);
   }
 
   @Override
   public long getLength() {
+    if (length >= 0) {
+      return length;
+    }
     int len = 0;
     try {
       return split.getLength();
@@ -23,16 +23,21 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.Instance;
 import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.mapred.AccumuloInputFormat;
 import org.apache.accumulo.core.client.mapred.AccumuloRowInputFormat;
 import org.apache.accumulo.core.client.mapred.RangeInputSplit;
@@ -56,6 +61,7 @@
 import org.apache.hadoop.hive.accumulo.predicate.AccumuloPredicateHandler;
 import org.apache.hadoop.hive.accumulo.serde.AccumuloSerDeParameters;
 import org.apache.hadoop.hive.accumulo.serde.TooManyAccumuloColumnsException;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.SerDeException;
@@ -129,6 +135,11 @@ public InputSplit[] getSplits(JobConf jobConf, int numSplits) throws IOException
       // get splits from Accumulo
       InputSplit[] splits = accumuloInputFormat.getSplits(jobConf, numSplits);
 
+      if (jobConf.getInt(AccumuloSerDeParameters.BATCH_SCANNER_THREADS_KEY,
+          AccumuloSerDeParameters.BATCH_SCANNER_THREADS_DEFAULT) > 0) {
+        return groupSplits(splits, numSplits, tablePaths[0]);
+      }
+
       HiveAccumuloSplit[] hiveSplits = new HiveAccumuloSplit[splits.length];
       for (int i = 0; i < splits.length; i++) {
         RangeInputSplit ris = (RangeInputSplit) splits[i];
@@ -199,8 +210,12 @@ public RecordReader<Text,AccumuloHiveRow> getRecordReader(InputSplit inputSplit,
         setTableName(rangeSplit, accumuloParams.getAccumuloTableName());
       }
 
-      final RecordReader<Text,PeekingIterator<Map.Entry<Key,Value>>> recordReader = accumuloInputFormat
-          .getRecordReader(rangeSplit, jobConf, reporter);
+      final RecordReader<Text,PeekingIterator<Map.Entry<Key,Value>>> recordReader;
+      if (hiveSplit.hasMultipleRanges()) {
+        recordReader = getBatchScannerRecordReader(hiveSplit, jobConf);
+      } else {
+        recordReader = accumuloInputFormat.getRecordReader(rangeSplit, jobConf, reporter);
+      }
 
       return new HiveAccumuloRecordReader(recordReader, iterators.size());
     } catch (SerDeException e) {
@@ -208,6 +223,116 @@ public RecordReader<Text,AccumuloHiveRow> getRecordReader(InputSplit inputSplit,
     }
   }
 
+  /**
+   * Packs the ranges of the splits from Accumulo into splits read with a BatchScanner. The ranges
+   * of a tablet server are packed together until their estimated length reaches the total length
+   * divided by the requested number of splits.
+   *
+   * @param splits
+   *          The splits from Accumulo, one per range and tablet
+   * @param numSplits
+   *          The requested number of splits
+   * @param tablePath
+   *          The path of the splits
+   * @return the packed splits
+   * @throws IOException
+   */
+  protected HiveAccumuloSplit[] groupSplits(InputSplit[] splits, int numSplits, Path tablePath)
+      throws IOException {
+    Map<String,List<RangeInputSplit>> splitsByLocation =
+        new LinkedHashMap<String,List<RangeInputSplit>>();
+    long totalLength = 0;
+    for (InputSplit split : splits) {
+      RangeInputSplit ris = (RangeInputSplit) split;
+      String[] locations = ris.getLocations();
+      String location = (null == locations || 0 == locations.length) ? "" : locations[0];
+      List<RangeInputSplit> locationSplits = splitsByLocation.get(location);
+      if (null == locationSplits) {
+        locationSplits = new ArrayList<RangeInputSplit>();
+        splitsByLocation.put(location, locationSplits);
+      }
+      locationSplits.add(ris);
+      totalLength += getEstimatedLength(ris);
+    }
+
+    final long targetLength = (totalLength + Math.max(numSplits, 1) - 1) / Math.max(numSplits, 1);
+    List<HiveAccumuloSplit> hiveSplits = new ArrayList<HiveAccumuloSplit>();
+    for (List<RangeInputSplit> locationSplits : splitsByLocation.values()) {
+      List<Range> ranges = new ArrayList<Range>();
+      RangeInputSplit first = null;
+      long length = 0;
+      for (RangeInputSplit ris : locationSplits) {
+        if (null == first) {
+          first = ris;
+        }
+        ranges.add(ris.getRange());
+        length += getEstimatedLength(ris);
+        if (length >= targetLength) {
+          hiveSplits.add(new HiveAccumuloSplit(first, ranges, length, tablePath));
+          ranges = new ArrayList<Range>();
+          first = null;
+          length = 0;
+        }
+      }
+      if (null != first) {
+        hiveSplits.add(new HiveAccumuloSplit(first, ranges, length, tablePath));
+      }
+    }
+
+    log.info("Packed " + splits.length + " ranges into " + hiveSplits.size() + " splits");
+
+    return hiveSplits.toArray(new HiveAccumuloSplit[hiveSplits.size()]);
+  }
+
+  private long getEstimatedLength(RangeInputSplit split) throws IOException {
+    // Count every range, as Accumulo estimates some of them to be empty
+    return Math.max(split.getLength(), 1);
+  }
+
+  /**
+   * Reads the ranges of a split with a BatchScanner, with the scan properties of the split.
+   *
+   * @param split
+   *          A split with several ranges
+   * @param jobConf
+   *          Job configuration
+   * @return a RecordReader returning the entries of each row
+   * @throws IOException
+   */
+  protected RecordReader<Text,PeekingIterator<Map.Entry<Key,Value>>> getBatchScannerRecordReader(
+      HiveAccumuloSplit split, JobConf jobConf) throws IOException {
+    final AccumuloConnectionParameters accumuloParams = new AccumuloConnectionParameters(jobConf);
+    final RangeInputSplit rangeSplit = split.getSplit();
+    final int numThreads = Math.max(1, jobConf.getInt(
+        AccumuloSerDeParameters.BATCH_SCANNER_THREADS_KEY,
+        AccumuloSerDeParameters.BATCH_SCANNER_THREADS_DEFAULT));
+
+    try {
+      final Connector connector = accumuloParams.getConnector();
+      Authorizations auths = rangeSplit.getAuths();
+      if (null == auths) {
+        auths = connector.securityOperations().getUserAuthorizations(
+            accumuloParams.getAccumuloUserName());
+      }
+
+      Set<Pair<Text,Text>> fetchedColumns = rangeSplit.getFetchedColumns();
+      if (null == fetchedColumns) {
+        fetchedColumns = Collections.emptySet();
+      }
+
+      BatchScanner scanner = connector.createBatchScanner(getTableName(rangeSplit), auths,
+          numThreads);
+      return new BatchScannerRecordReader(scanner, split.getRanges(), fetchedColumns,
+          rangeSplit.getIterators());
+    } catch (AccumuloException e) {
+      throw new IOException(StringUtils.stringifyException(e));
+    } catch (AccumuloSecurityException e) {
+      throw new IOException(StringUtils.stringifyException(e));
+    } catch (TableNotFoundException e) {
+      throw new IOException(StringUtils.stringifyException(e));
+    }
+  }
+
   protected ColumnMapper getColumnMapper(Configuration conf) throws IOException,
       TooManyAccumuloColumnsException {
     final String defaultStorageType = conf.get(AccumuloSerDeParameters.DEFAULT_STORAGE_TYPE);
@@ -293,7 +418,8 @@ protected void configure(JobConf conf, Instance instance, Connector connector,
     }
 
     // Restrict the set of columns that we want to read from the Accumulo table
-    HashSet<Pair<Text,Text>> pairs = getPairCollection(columnMapper.getColumnMappings());
+    HashSet<Pair<Text,Text>> pairs = getPairCollection(getFetchedColumnMappings(conf,
+        columnMapper));
     if (null != pairs && !pairs.isEmpty()) {
       fetchColumns(conf, pairs);
     }
@@ -356,6 +482,55 @@ protected void fetchColumns(JobConf conf, Set<Pair<Text,Text>> cfCqPairs) {
     AccumuloInputFormat.fetchColumns(conf, cfCqPairs);
   }
 
+  /**
+   * Compute the columns a query reads: the columns it projects and those compared by the
+   * predicates pushed to Accumulo, or all of them when the query does not project its columns.
+   * Rows missing all of these columns are not returned, so the columns are only restricted when
+   * {@link AccumuloSerDeParameters#COLUMN_PROJECTION_KEY} is enabled.
+   *
+   * @param conf
+   *          Job configuration
+   * @param columnMapper
+   *          Configuration of Hive to Accumulo columns
+   * @return the mappings of the columns to fetch
+   */
+  private List<ColumnMapping> getFetchedColumnMappings(Configuration conf,
+      ColumnMapper columnMapper) {
+    final List<ColumnMapping> columnMappings = columnMapper.getColumnMappings();
+    if (!conf.getBoolean(AccumuloSerDeParameters.COLUMN_PROJECTION_KEY,
+        AccumuloSerDeParameters.COLUMN_PROJECTION_DEFAULT)
+        || ColumnProjectionUtils.isReadAllColumns(conf)) {
+      return columnMappings;
+    }
+
+    TreeSet<Integer> columnIds = new TreeSet<Integer>(ColumnProjectionUtils.getReadColumnIDs(conf));
+    String[] hiveColumnNames = conf.getStrings(serdeConstants.LIST_COLUMNS);
+    if (null != hiveColumnNames) {
+      List<String> columnNames = Arrays.asList(hiveColumnNames);
+      for (IndexSearchCondition sc : predicateHandler.getSearchConditions(conf)) {
+        int columnId = columnNames.indexOf(sc.getColumnDesc().getColumn());
+        if (columnId >= 0) {
+          columnIds.add(columnId);
+        }
+      }
+    }
+
+    List<ColumnMapping> fetchedMappings = new ArrayList<ColumnMapping>();
+    for (int columnId : columnIds) {
+      if (columnId < columnMappings.size()) {
+        fetchedMappings.add(columnMappings.get(columnId));
+      }
+    }
+
+    // A row is only seen through its columns, when only the rowID is read all of them must be
+    // fetched to not lose the rows missing the column that would be picked
+    if (getPairCollection(fetchedMappings).isEmpty()) {
+      return columnMappings;
+    }
+
+    return fetchedMappings;
+  }
+
   /**
    * Create col fam/qual pairs from pipe separated values, usually from config object. Ignores
    * rowID.
@@ -58,6 +58,21 @@ public class AccumuloSerDeParameters extends AccumuloConnectionParameters {
   public static final String COMPOSITE_ROWID_FACTORY = "accumulo.composite.rowid.factory";
   public static final String COMPOSITE_ROWID_CLASS = "accumulo.composite.rowid";
 
+  /**
+   * Number of threads of the BatchScanner reading a split. When positive, the ranges of a query
+   * are packed into at most as many splits as requested, each read by a single BatchScanner.
+   */
+  public static final String BATCH_SCANNER_THREADS_KEY = "accumulo.batch.scanner.threads";
+  public static final int BATCH_SCANNER_THREADS_DEFAULT = 0;
+
+  /**
+   * Whether to fetch only the columns a query reads. Accumulo only returns a row through its
+   * entries, so a row with none of the fetched columns is not returned at all: enable it only
+   * when every row has a value in each column, or when such rows may be skipped.
+   */
+  public static final String COLUMN_PROJECTION_KEY = "accumulo.column.projection";
+  public static final boolean COLUMN_PROJECTION_DEFAULT = false;
+
   protected final ColumnMapper columnMapper;
 
   private Properties tableProperties;
@@ -21,7 +21,9 @@
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -72,6 +74,7 @@
 import org.apache.hadoop.hive.accumulo.serde.AccumuloSerDeParameters;
 import org.apache.hadoop.hive.accumulo.serde.TooManyAccumuloColumnsException;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.io.Text;
@@ -431,6 +434,96 @@ public void testIteratorNotInSplitsCompensation() throws Exception {
     assertEquals(is, settingsOnSplit.get(0));
   }
 
+  @Test
+  public void testBatchScannerOverPackedRanges() throws Exception {
+    FileInputFormat.addInputPath(conf, new Path("unused"));
+    conf.setInt(AccumuloSerDeParameters.BATCH_SCANNER_THREADS_KEY, 2);
+
+    AccumuloPredicateHandler predicateHandler = Mockito.mock(AccumuloPredicateHandler.class);
+    Mockito.when(
+        predicateHandler.getRanges(Mockito.any(JobConf.class), Mockito.any(ColumnMapper.class)))
+        .thenReturn(Arrays.asList(new Range("r1"), new Range("r3")));
+    inputformat.predicateHandler = predicateHandler;
+
+    InputSplit[] splits = inputformat.getSplits(conf, 1);
+    assertEquals(1, splits.length);
+
+    // The ranges survive the serialization of the split
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    splits[0].write(out);
+    out.close();
+    HiveAccumuloSplit split = new HiveAccumuloSplit();
+    split.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    assertTrue(split.hasMultipleRanges());
+    assertEquals(Arrays.asList(new Range("r1"), new Range("r3")), split.getRanges());
+
+    RecordReader<Text,AccumuloHiveRow> reader = inputformat.getRecordReader(split, conf, null);
+    Text rowId = new Text();
+    AccumuloHiveRow row = new AccumuloHiveRow();
+    Set<String> rowIds = new HashSet<String>();
+    while (reader.next(rowId, row)) {
+      rowIds.add(row.getRowId());
+      assertTrue(row.hasFamAndQual(COLUMN_FAMILY, NAME));
+      assertTrue(row.hasFamAndQual(COLUMN_FAMILY, MILLIS));
+    }
+    reader.close();
+
+    // The rows of a BatchScanner come in no particular order
+    assertEquals(Sets.newHashSet("r1", "r3"), rowIds);
+  }
+
+  @Test
+  public void testFetchOnlyProjectedColumns() throws Exception {
+    FileInputFormat.addInputPath(conf, new Path("unused"));
+    conf.setBoolean(AccumuloSerDeParameters.COLUMN_PROJECTION_KEY, true);
+    ColumnProjectionUtils.appendReadColumns(conf, Arrays.asList(0));
+
+    InputSplit[] splits = inputformat.getSplits(conf, 0);
+    assertEquals(1, splits.length);
+    RecordReader<Text,AccumuloHiveRow> reader = inputformat.getRecordReader(splits[0], conf, null);
+    Text rowId = new Text();
+    AccumuloHiveRow row = new AccumuloHiveRow();
+    assertTrue(reader.next(rowId, row));
+    assertEquals("r1", row.getRowId());
+    assertArrayEquals("brian".getBytes(), row.getValue(COLUMN_FAMILY, NAME));
+    assertFalse(row.hasFamAndQual(COLUMN_FAMILY, SID));
+    assertFalse(row.hasFamAndQual(COLUMN_FAMILY, MILLIS));
+  }
+
+  private Set<String> readRowIds() throws Exception {
+    InputSplit[] splits = inputformat.getSplits(conf, 0);
+    Set<String> rowIds = new HashSet<String>();
+    for (InputSplit split : splits) {
+      RecordReader<Text,AccumuloHiveRow> reader = inputformat.getRecordReader(split, conf, null);
+      Text rowId = new Text();
+      AccumuloHiveRow row = new AccumuloHiveRow();
+      while (reader.next(rowId, row)) {
+        rowIds.add(row.getRowId());
+      }
+      reader.close();
+    }
+    return rowIds;
+  }
+
+  @Test
+  public void testSparseRowsWithProjectedColumns() throws Exception {
+    // A row without a name
+    BatchWriter writer = con.createBatchWriter(TEST_TABLE, new BatchWriterConfig());
+    Mutation m4 = new Mutation(new Text("r4"));
+    m4.put(COLUMN_FAMILY, SID, new Value(parseIntBytes("4")));
+    writer.addMutation(m4);
+    writer.close();
+
+    FileInputFormat.addInputPath(conf, new Path("unused"));
+    ColumnProjectionUtils.appendReadColumns(conf, Arrays.asList(0));
+    assertEquals(Sets.newHashSet("r1", "r2", "r3", "r4"), readRowIds());
+
+    // Only the rows with one of the projected columns once projection is enabled
+    conf.setBoolean(AccumuloSerDeParameters.COLUMN_PROJECTION_KEY, true);
+    assertEquals(Sets.newHashSet("r1", "r2", "r3"), readRowIds());
+  }
+
   @Test
   public void testColumnMappingsToPairs() {
     List<ColumnMapping> mappings = new ArrayList<ColumnMapping>();
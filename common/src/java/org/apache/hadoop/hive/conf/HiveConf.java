@@ -367,6 +367,22 @@ public static enum ConfVars {
     METASTORE_CLIENT_SOCKET_TIMEOUT("hive.metastore.client.socket.timeout", "600s",
         new TimeValidator(TimeUnit.SECONDS),
         "MetaStore Client socket timeout in seconds"),
+    METASTORE_CLIENT_CACHE_ENABLED("hive.metastore.client.cache.enabled", false,
+        "Whether the metastore client should cache tables, partitions and column statistics.\n" +
+        "The cache is shared by all clients in the same JVM (e.g. all HiveServer2 sessions) and\n" +
+        "is invalidated on DDL issued through any of them. Changes made by other processes are\n" +
+        "only picked up when entries expire, see hive.metastore.client.cache.ttl. Objects are\n" +
+        "cached per user and groups, so that they are only served to users the metastore\n" +
+        "already allowed to read them."),
+    METASTORE_CLIENT_CACHE_MAX_SIZE("hive.metastore.client.cache.max.size", 10000,
+        "Maximum number of objects of each kind (tables, partitions, column statistics) kept\n" +
+        "in the metastore client cache. Read from the configuration of the process, such as\n" +
+        "hive-site.xml, not from the session."),
+    METASTORE_CLIENT_CACHE_TTL("hive.metastore.client.cache.ttl", "60s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "Time after which an entry of the metastore client cache expires and is re-fetched\n" +
+        "from the metastore, which bounds how long a revoked privilege is not enforced. Read\n" +
+        "from the configuration of the process, such as hive-site.xml, not from the session."),
     METASTOREPWD("javax.jdo.option.ConnectionPassword", "mine",
         "password to use against metastore database"),
     METASTORECONNECTURLHOOK("hive.metastore.ds.connection.url.hook", "",
@@ -463,6 +479,9 @@ public static enum ConfVars {
     METASTORE_USE_LEGACY_VALUE_STRATEGY("datanucleus.rdbms.useLegacyNativeValueStrategy", true, ""),
     METASTORE_PLUGIN_REGISTRY_BUNDLE_CHECK("datanucleus.plugin.pluginRegistryBundleCheck", "LOG",
         "Defines what happens when plugin bundles are found and are duplicated [EXCEPTION|LOG|NONE]"),
+    METASTORE_FS_HANDLER_THREADS_COUNT("hive.metastore.fshandler.threads", 15,
+        "Maximum number of threads a bulk add or drop of partitions uses to create, check and\n" +
+        "delete the partition directories."),
     METASTORE_BATCH_RETRIEVE_MAX("hive.metastore.batch.retrieve.max", 300,
         "Maximum number of objects (tables/partitions) can be retrieved from metastore in one batch. \n" +
         "The higher the number, the less the number of round trips is needed to the Hive metastore server, \n" +
@@ -745,6 +764,11 @@ public static enum ConfVars {
         "Default file format for CREATE TABLE statement. Users can explicitly override it by CREATE TABLE ... STORED AS [FORMAT]"),
     HIVEQUERYRESULTFILEFORMAT("hive.query.result.fileformat", "TextFile", new StringSet("TextFile", "SequenceFile", "RCfile"),
         "Default file format for storing result of the query."),
+    HIVEQUERYRESULTBINARYCOLUMNAR("hive.query.result.binary.columnar", false,
+        "Whether the final file sink of a query writes its result in a binary columnar format\n" +
+        "(RCFile with LazyBinaryColumnarSerDe) instead of delimited text. Fetching such results,\n" +
+        "e.g. into HiveServer2 row sets, needs no text parsing. Overrides\n" +
+        "hive.query.result.fileformat."),
     HIVECHECKFILEFORMAT("hive.fileformat.check", true, "Whether to check file format or not when loading data files"),
 
     // default serde for rcfile
@@ -918,6 +942,10 @@ public static enum ConfVars {
 
     HIVE_ORC_ZEROCOPY("hive.exec.orc.zerocopy", false,
         "Use zerocopy reads with ORC. (This requires Hadoop 2.3 or later.)"),
+    HIVE_ORC_COLUMN_CACHE_SIZE("hive.exec.orc.column.cache.size", 0L,
+        "Maximum size in bytes of the decompressed ORC column streams cached out of the heap by\n" +
+        "each task process, and shared by the tasks it runs. The cache is disabled when 0. The\n" +
+        "direct memory of the tasks (-XX:MaxDirectMemorySize) must be large enough to hold it."),
 
     HIVE_LAZYSIMPLE_EXTENDED_BOOLEAN_LITERAL("hive.lazysimple.extended_boolean_literal", false,
         "LazySimpleSerde uses this property to determine if it treats 'T', 't', 'F', 'f',\n" +
@@ -1078,6 +1106,33 @@ public static enum ConfVars {
     HIVENULLSCANOPTIMIZE("hive.optimize.null.scan", true, "Dont scan relations which are guaranteed to not generate any rows"),
     HIVEOPTPPD_STORAGE("hive.optimize.ppd.storage", true,
         "Whether to push predicates down to storage handlers"),
+    HIVE_PARTITION_PRUNER_THREADS("hive.optimize.ppr.eval.threads", 1,
+        "Number of threads used to evaluate a partition pruning expression over the list of\n" +
+        "partition names, when this is done outside of the metastore SQL filter (on the client\n" +
+        "for expressions with user functions, or inside the metastore). The threads come from\n" +
+        "a pool shared by all queries, bounded by the number of processors."),
+    HIVE_PARTITION_PRUNER_THREAD_MIN_PARTITIONS("hive.optimize.ppr.eval.thread.min.partitions",
+        5000,
+        "Minimum number of partition names each thread evaluating a pruning expression gets;\n" +
+        "smaller lists are evaluated by the calling thread alone."),
+    HIVE_PARTITION_PRUNER_CACHE_SIZE("hive.optimize.ppr.cache.size", 0,
+        "Number of partition pruning results kept in a cache shared by all the sessions in\n" +
+        "the process, keyed by table, pruning expression and table version. Pruning results are\n" +
+        "invalidated by partition DDL done through this process; changes made by other\n" +
+        "processes are picked up when entries expire. 0 disables the cache."),
+    HIVE_PARTITION_PRUNER_CACHE_TTL("hive.optimize.ppr.cache.ttl", "60s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "Time after which a cached partition pruning result expires."),
+    HIVE_COMPILED_PLAN_CACHE_SIZE("hive.compiled.plan.cache.size", 0,
+        "Maximum number of compiled query plans cached by the process so that repeated\n" +
+        "statements skip compilation. Only queries that compile to a single fetch task reading\n" +
+        "unpartitioned tables are cached, and not while authorization or semantic analyzer\n" +
+        "hooks are enabled. A plan is compiled again once the DDL time of a table it reads\n" +
+        "changes.\n" +
+        "0 disables the cache."),
+    HIVE_COMPILED_PLAN_CACHE_TTL("hive.compiled.plan.cache.ttl", "600s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "Time after which a cached compiled plan expires."),
     HIVEOPTGROUPBY("hive.optimize.groupby", true,
         "Whether to enable the bucketed group by from bucketed partitions/tables."),
     HIVEOPTBUCKETMAPJOIN("hive.optimize.bucketmapjoin", false,
@@ -1364,6 +1419,12 @@ public static enum ConfVars {
         "has had a transaction done on it since the last major compaction. So decreasing this\n" +
         "value will increase the load on the NameNode."),
 
+    HIVE_COMPACTOR_INITIATOR_THREADS("hive.compactor.initiator.threads", 1,
+        "Number of threads the initiator uses to check tables and partitions for compaction.\n" +
+        "Each check lists the table or partition directory, so with many transactional tables\n" +
+        "or partitions increasing this shortens the time each check cycle takes, at the cost\n" +
+        "of more concurrent calls to the NameNode."),
+
     HIVE_COMPACTOR_DELTA_NUM_THRESHOLD("hive.compactor.delta.num.threshold", 10,
         "Number of delta directories in a table or partition that will trigger a minor\n" +
         "compaction."),
@@ -1409,6 +1470,11 @@ public static enum ConfVars {
         "Input threshold for applying hive.fetch.task.conversion. If target table is native, input length\n" +
         "is calculated by summation of file lengths. If it's not native, storage handler for the table\n" +
         "can optionally implement org.apache.hadoop.hive.ql.metadata.InputEstimator interface."),
+    HIVEFETCHTASKREADERTHREADS("hive.fetch.task.reader.threads", 1,
+        "Number of threads a fetch task reads the splits of a table or partition with. When more\n" +
+        "than 1, as many splits are read ahead of the fetch at the same time, and their rows are\n" +
+        "still returned in the order of the splits. Not used for tables with header or footer\n" +
+        "lines, with virtual columns or TABLESAMPLE."),
 
     HIVEFETCHTASKAGGR("hive.fetch.task.aggr", false,
         "Aggregation queries with no group-by clause (for example, select count(*) from src) execute\n" +
@@ -1548,6 +1614,12 @@ public static enum ConfVars {
         "Top level directory where operation logs are stored if logging functionality is enabled"),
     HIVE_SERVER2_LOGGING_OPERATION_VERBOSE("hive.server2.logging.operation.verbose", false,
             "When true, HS2 operation logs available for clients will be verbose"),
+    HIVE_SERVER2_LOGGING_OPERATION_BUFFER_SIZE("hive.server2.logging.operation.buffer.size",
+        65536,
+        "Number of characters of the log of an operation that HS2 keeps in memory. Beyond that,\n" +
+        "the log is spilled to the log file of the operation in the background, and the file is\n" +
+        "only created then. While the spill is behind, the thread logging writes the file itself\n" +
+        "once the buffer holds 4 times as many characters."),
     // logging configuration
     HIVE_LOG4J_FILE("hive.log4j.file", "",
         "Hive log4j configuration file.\n" +
@@ -1632,6 +1704,13 @@ public static enum ConfVars {
         "Path component of URL endpoint when in HTTP mode."),
     HIVE_SERVER2_THRIFT_MAX_MESSAGE_SIZE("hive.server2.thrift.max.message.size", 100*1024*1024,
         "Maximum message size in bytes a HS2 server will accept."),
+    HIVE_SERVER2_THRIFT_RESULTSET_COMPRESSORS("hive.server2.thrift.resultset.compressors",
+        "org.apache.hadoop.io.compress.DefaultCodec,org.apache.hadoop.io.compress.GzipCodec",
+        "Comma separated list of compression codec classes a client may ask HS2 to compress the\n" +
+        "query results it fetches with. The codec is negotiated when the session is opened;\n" +
+        "clients that do not ask for one get uncompressed results. Empty disables compression.\n" +
+        "The default only lists codecs that work without native libraries, which JDBC clients\n" +
+        "usually do not have; codecs such as SnappyCodec may be added when they do."),
     HIVE_SERVER2_THRIFT_HTTP_MIN_WORKER_THREADS("hive.server2.thrift.http.min.worker.threads", 5,
         "Minimum number of worker threads when in HTTP mode."),
     HIVE_SERVER2_THRIFT_HTTP_MAX_WORKER_THREADS("hive.server2.thrift.http.max.worker.threads", 500,
@@ -1673,6 +1752,34 @@ public static enum ConfVars {
         new TimeValidator(TimeUnit.SECONDS),
         "Keepalive time (in seconds) for an idle worker thread. When the number of workers exceeds min workers, " +
         "excessive threads are killed after this time interval."),
+    HIVE_SERVER2_QUERY_RESULT_CACHE_ENABLED("hive.server2.query.result.cache.enabled", false,
+        "Whether HiveServer2 caches the results of deterministic queries and serves repeated\n" +
+        "queries from the cache. A query is repeated if it normalizes to the same syntax tree and\n" +
+        "is run by the same user against the same current database with the same session\n" +
+        "settings, and none of the tables and partitions it reads has been altered or had its\n" +
+        "files changed since. Queries reading transactional tables are not cached. A cached query\n" +
+        "is still compiled and run without its tasks, so authorization, locks and hooks apply."),
+    HIVE_SERVER2_QUERY_RESULT_CACHE_MAX_ROWS("hive.server2.query.result.cache.max.rows", 1000000,
+        "Maximum total number of rows held by the HiveServer2 query result cache."),
+    HIVE_SERVER2_QUERY_RESULT_CACHE_MAX_ENTRY_ROWS("hive.server2.query.result.cache.max.entry.rows",
+        10000,
+        "Maximum number of rows of a query result that is put in the HiveServer2 query result cache."),
+    HIVE_SERVER2_QUERY_RESULT_CACHE_TTL("hive.server2.query.result.cache.ttl", "3600s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "How long a query result stays in the HiveServer2 query result cache."),
+    HIVE_SERVER2_RESULTSET_STREAMING("hive.server2.resultset.streaming", false,
+        "Whether the rows of an async query can be fetched while it is still running. The output\n" +
+        "files of the tasks of the last job are read as soon as they are committed; fetches return\n" +
+        "no row until the first one is, and an empty result only ends the rows once the query\n" +
+        "has finished. Assumes tasks run more than once produce the same rows."),
+    HIVE_SERVER2_PARALLEL_COMPILATION("hive.driver.parallel.compilation", false,
+        "Whether queries from different sessions may be compiled at the same time. When false,\n" +
+        "compilation is serialized across the whole process. This is a server-wide setting and\n" +
+        "should not be changed per session."),
+    HIVE_SERVER2_PARALLEL_COMPILATION_LIMIT("hive.driver.parallel.compilation.global.limit", -1,
+        "Maximum number of queries compiled at the same time when\n" +
+        "hive.driver.parallel.compilation is true. Further compilations wait for a slot.\n" +
+        "A value of 0 or less means no limit. Read once, when the first query is compiled."),
     // Configuration for async thread pool in SessionManager
     HIVE_SERVER2_ASYNC_EXEC_THREADS("hive.server2.async.exec.threads", 100,
         "Number of threads in the async thread pool for HiveServer2"),
@@ -1686,6 +1793,25 @@ public static enum ConfVars {
         new TimeValidator(TimeUnit.SECONDS),
         "Time that an idle HiveServer2 async thread (from the thread pool) will wait for a new task\n" +
         "to arrive before terminating"),
+    HIVE_SERVER2_ASYNC_EXEC_POOLS("hive.server2.async.exec.pools", "",
+        "Comma separated list of additional pools running the async operations of HiveServer2,\n" +
+        "each as name:threads, for instance etl:10,interactive:50. Every pool has its own wait queue\n" +
+        "of hive.server2.async.exec.wait.queue.size operations. Operations of users not mapped to\n" +
+        "any pool run in the 'default' pool of hive.server2.async.exec.threads threads."),
+    HIVE_SERVER2_ASYNC_EXEC_POOL_MAPPING("hive.server2.async.exec.pool.mapping", "",
+        "Comma separated list of user:name=pool and group:name=pool entries mapping users and groups\n" +
+        "to the pools of hive.server2.async.exec.pools. A user mapping has precedence over the\n" +
+        "mappings of the groups of the user."),
+    HIVE_SERVER2_ASYNC_EXEC_USER_LIMIT("hive.server2.async.exec.user.limit", 0,
+        "Maximum number of async operations a user can run at the same time in a pool. Further\n" +
+        "operations of the user wait in the queue of the pool. A value of 0 or less means no limit."),
+    HIVE_SERVER2_ASYNC_EXEC_PRIORITY_MAPPING("hive.server2.async.exec.priority.mapping", "",
+        "Comma separated list of user:name=priority and group:name=priority entries giving the\n" +
+        "priority of the async operations of users in the queue of their pool. A user mapping has\n" +
+        "precedence over the mappings of the groups of the user, of which the highest applies.\n" +
+        "Operations of higher priority start first; operations of the same priority start in\n" +
+        "submission order. The default priority is 0. Only read from the configuration of the\n" +
+        "server."),
     HIVE_SERVER2_LONG_POLLING_TIMEOUT("hive.server2.long.polling.timeout", "5000ms",
         new TimeValidator(TimeUnit.MILLISECONDS),
         "Time that HiveServer2 will wait before responding to asynchronous calls that use long polling"),
@@ -1784,7 +1910,8 @@ public static enum ConfVars {
         "  With negative value, it's checked for all of the operations regardless of state."),
 
     HIVE_CONF_RESTRICTED_LIST("hive.conf.restricted.list",
-        "hive.security.authenticator.manager,hive.security.authorization.manager,hive.users.in.admin.role",
+        "hive.security.authenticator.manager,hive.security.authorization.manager,hive.users.in.admin.role," +
+        "hive.driver.parallel.compilation,hive.driver.parallel.compilation.global.limit",
         "Comma separated list of configuration options which are immutable at runtime"),
 
     // If this is set all move tasks at the end of a multi-insert query will only begin once all
@@ -1858,6 +1985,13 @@ public static enum ConfVars {
     HIVE_VECTORIZATION_REDUCE_GROUPBY_ENABLED("hive.vectorized.execution.reduce.groupby.enabled", true,
             "This flag should be set to true to enable vectorized mode of the reduce-side GROUP BY query execution.\n" +
             "The default value is true."),
+    HIVE_VECTORIZATION_TEXT_ENABLED("hive.vectorized.execution.text.enabled", false,
+        "Whether to vectorize the map side of queries reading TEXTFILE tables of LazySimpleSerDe,\n" +
+        "whose columns are of boolean, integer, float, double, string or date types. Tables with\n" +
+        "escaped fields, header or footer lines or another encoding than UTF-8 are not vectorized."),
+    HIVE_VECTORIZATION_AVRO_ENABLED("hive.vectorized.execution.avro.enabled", false,
+        "Whether to vectorize the map side of queries reading Avro tables whose fields are of\n" +
+        "boolean, int, long, float, double, string, enum or bytes types, or nullable unions of them."),
     HIVE_VECTORIZATION_GROUPBY_CHECKINTERVAL("hive.vectorized.groupby.checkinterval", 100000,
         "Number of entries added to the group by aggregation hash before a recomputation of average entry size is performed."),
     HIVE_VECTORIZATION_GROUPBY_MAXENTRIES("hive.vectorized.groupby.maxentries", 1000000,
@@ -1893,6 +2027,17 @@ public static enum ConfVars {
         "A positive integer that determines the number of Tez sessions that should be\n" +
         "launched on each of the queues specified by \"hive.server2.tez.default.queues\".\n" +
         "Determines the parallelism on each queue."),
+    HIVE_SERVER2_TEZ_MAX_SESSIONS_PER_DEFAULT_QUEUE("hive.server2.tez.max.sessions.per.default.queue",
+        0,
+        "Maximum number of Tez sessions on each of the queues specified by\n" +
+        "\"hive.server2.tez.default.queues\". When all the sessions of a queue are in use, HiveServer2\n" +
+        "starts new ones in the background up to this number, so that further queries find an open\n" +
+        "AM. With \"hive.prewarm.enabled\" the new sessions also prewarm their containers. Values\n" +
+        "below \"hive.server2.tez.sessions.per.default.queue\" mean the pool does not grow."),
+    HIVE_SERVER2_TEZ_SESSION_POOL_IDLE_TIMEOUT("hive.server2.tez.session.pool.idle.timeout", "600s",
+        new TimeValidator(TimeUnit.SECONDS),
+        "Time after which idle Tez sessions a queue has above \"hive.server2.tez.sessions.per.default.queue\"\n" +
+        "are closed. A value of 0 keeps them open."),
     HIVE_SERVER2_TEZ_INITIALIZE_DEFAULT_SESSIONS("hive.server2.tez.initialize.default.sessions", false,
         "This flag is used in HiveServer2 to enable a user to use HiveServer2 without\n" +
         "turning on Tez for HiveServer2. The user could potentially want to run queries\n" +
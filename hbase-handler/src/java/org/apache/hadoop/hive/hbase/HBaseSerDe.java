@@ -64,6 +64,8 @@
     HBaseSerDe.HBASE_SCAN_CACHE,
     HBaseSerDe.HBASE_SCAN_CACHEBLOCKS,
     HBaseSerDe.HBASE_SCAN_BATCH,
+    HBaseSerDe.HBASE_SCAN_CACHE_CELLS,
+    HBaseSerDe.HBASE_SCAN_PARALLELISM,
     HBaseSerDe.HBASE_AUTOGENERATE_STRUCT})
 public class HBaseSerDe extends AbstractSerDe {
   public static final Log LOG = LogFactory.getLog(HBaseSerDe.class);
@@ -81,6 +83,16 @@ public class HBaseSerDe extends AbstractSerDe {
   public static final String HBASE_SCAN_CACHE = "hbase.scan.cache";
   public static final String HBASE_SCAN_CACHEBLOCKS = "hbase.scan.cacheblock";
   public static final String HBASE_SCAN_BATCH = "hbase.scan.batch";
+  /**
+   * Number of cells to fetch per scanner RPC when hbase.scan.cache is not set: the number of
+   * rows cached is derived from it and the number of columns read.
+   */
+  public static final String HBASE_SCAN_CACHE_CELLS = "hbase.scan.cache.cells";
+  /**
+   * Number of concurrent scanners reading a split, each one a sub-range of its row keys.
+   * Defaults to 1.
+   */
+  public static final String HBASE_SCAN_PARALLELISM = "hbase.scan.parallelism";
   public static final String HBASE_AUTOGENERATE_STRUCT = "hbase.struct.autogenerate";
   /**
    * Determines whether a regex matching should be done on the columns or not. Defaults to true.
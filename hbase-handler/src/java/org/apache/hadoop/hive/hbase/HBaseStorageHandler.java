@@ -352,6 +352,14 @@ public void configureTableJobProperties(
     if (scanBatch != null) {
       jobProperties.put(HBaseSerDe.HBASE_SCAN_BATCH, scanBatch);
     }
+    String scanCacheCells = tableProperties.getProperty(HBaseSerDe.HBASE_SCAN_CACHE_CELLS);
+    if (scanCacheCells != null) {
+      jobProperties.put(HBaseSerDe.HBASE_SCAN_CACHE_CELLS, scanCacheCells);
+    }
+    String scanParallelism = tableProperties.getProperty(HBaseSerDe.HBASE_SCAN_PARALLELISM);
+    if (scanParallelism != null) {
+      jobProperties.put(HBaseSerDe.HBASE_SCAN_PARALLELISM, scanParallelism);
+    }
 
     String tableName =
       tableProperties.getProperty(HBaseSerDe.HBASE_TABLE_NAME);
@@ -562,8 +570,16 @@ public static DecomposedPredicate decomposePredicate(
       }
     }
 
+    // The comparisons with the other columns are also pushed, to be evaluated by HBase
+    // filters, but are kept in the residual: Hive still evaluates them
+    List<IndexSearchCondition> pushedConditions = new ArrayList<IndexSearchCondition>(conditions);
+    if (residualPredicate != null) {
+      pushedConditions.addAll(HBaseValueFilters.getConditions(residualPredicate,
+          hBaseSerDe.getHBaseSerdeParam().getColumnMappings()));
+    }
+
     DecomposedPredicate decomposedPredicate = new DecomposedPredicate();
-    decomposedPredicate.pushedPredicate = analyzer.translateSearchConditions(conditions);
+    decomposedPredicate.pushedPredicate = analyzer.translateSearchConditions(pushedConditions);
     decomposedPredicate.residualPredicate = residualPredicate;
     return decomposedPredicate;
   }
@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hive.hbase.ColumnMappings.ColumnMapping;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * Pushes the comparisons of Hive columns mapped to HBase columns with constants down to the
+ * region servers, as {@link SingleColumnValueFilter}s, so that the rows they reject are not
+ * transferred to Hive.
+ *
+ * The comparisons are still evaluated by Hive, the filters only need to keep every row Hive
+ * keeps. Only the comparisons for which the byte order of HBase is the order of Hive are pushed:
+ * those of string columns with string constants, and the equalities of integer columns stored
+ * in binary with constants of their type.
+ */
+class HBaseValueFilters {
+
+  private static final String EQUAL = "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual";
+  private static final String EQUAL_OR_GREATER_THAN =
+      "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan";
+  private static final String EQUAL_OR_LESS_THAN =
+      "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan";
+  private static final String LESS_THAN =
+      "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan";
+  private static final String GREATER_THAN =
+      "org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan";
+
+  private HBaseValueFilters() {
+  }
+
+  /**
+   * @param columnMappings the mappings of the table, with their Hive types and storage
+   * @return the comparisons of the predicate which can be evaluated by HBase filters
+   */
+  static List<IndexSearchCondition> getConditions(ExprNodeDesc predicate,
+      ColumnMappings columnMappings) {
+    IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+    for (ColumnMapping colMap : columnMappings) {
+      if (!colMap.hbaseRowKey && !colMap.hbaseTimestamp && colMap.qualifierName != null
+          && colMap.isCategory(ObjectInspector.Category.PRIMITIVE)) {
+        analyzer.addComparisonOp(colMap.columnName, EQUAL, EQUAL_OR_GREATER_THAN,
+            EQUAL_OR_LESS_THAN, LESS_THAN, GREATER_THAN);
+      }
+    }
+    List<IndexSearchCondition> conditions = new ArrayList<IndexSearchCondition>();
+    analyzer.analyzePredicate(predicate, conditions);
+
+    List<IndexSearchCondition> result = new ArrayList<IndexSearchCondition>();
+    for (IndexSearchCondition sc : conditions) {
+      if (isPushable(sc, getColumnMapping(columnMappings, sc.getColumnDesc().getColumn()))) {
+        result.add(sc);
+      }
+    }
+    return result;
+  }
+
+  private static boolean isPushable(IndexSearchCondition sc, ColumnMapping colMap) {
+    // A cast of the column may have been peeled off by the analyzer
+    if (sc.getFields() != null || sc.getConstantDesc().getValue() == null
+        || !colMap.columnType.equals(sc.getConstantDesc().getTypeInfo())) {
+      return false;
+    }
+    if (colMap.isCategory(PrimitiveCategory.STRING)) {
+      return true;
+    }
+    // Negative numbers sort after positive ones in binary, and a number has several string
+    // representations
+    return colMap.binaryStorage.get(0) && EQUAL.equals(sc.getComparisonOp())
+        && (colMap.isCategory(PrimitiveCategory.BYTE) || colMap.isCategory(PrimitiveCategory.SHORT)
+        || colMap.isCategory(PrimitiveCategory.INT) || colMap.isCategory(PrimitiveCategory.LONG));
+  }
+
+  /**
+   * @return a filter of the rows satisfying all the given comparisons, as returned by
+   *         getConditions.
+   */
+  static Filter createFilter(List<IndexSearchCondition> conditions,
+      ColumnMappings columnMappings) throws IOException {
+    List<Filter> filters = new ArrayList<Filter>();
+    for (IndexSearchCondition sc : conditions) {
+      ColumnMapping colMap = getColumnMapping(columnMappings, sc.getColumnDesc().getColumn());
+      SingleColumnValueFilter filter = new SingleColumnValueFilter(
+          colMap.familyNameBytes, colMap.qualifierNameBytes, getCompareOp(sc.getComparisonOp()),
+          getConstantVal(sc.getConstantDesc().getValue(), colMap));
+      // A missing column is null for Hive, which satisfies no comparison
+      filter.setFilterIfMissing(true);
+      filter.setLatestVersionOnly(true);
+      filters.add(filter);
+    }
+    return filters.size() == 1 ? filters.get(0)
+        : new FilterList(FilterList.Operator.MUST_PASS_ALL, filters);
+  }
+
+  /**
+   * Sets the filter of the comparisons pushed down to the table scan, if any, on the scan. The
+   * columns compared are added to the scan, as the filters only see the columns it returns.
+   */
+  static void setupScan(Scan scan, JobConf jobConf, ColumnMappings columnMappings)
+      throws IOException {
+    String filterExprSerialized = jobConf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    String columnNames = jobConf.get(serdeConstants.LIST_COLUMNS);
+    String columnTypes = jobConf.get(serdeConstants.LIST_COLUMN_TYPES);
+    // Filters testing whole rows can not be used with batches of partial rows
+    if (filterExprSerialized == null || columnNames == null || columnTypes == null
+        || scan.getBatch() > 0) {
+      return;
+    }
+    try {
+      columnMappings.setHiveColumnDescription(HBaseSerDe.class.getName(),
+          Arrays.asList(columnNames.split(",")),
+          TypeInfoUtils.getTypeInfosFromTypeString(columnTypes));
+      columnMappings.parseColumnStorageTypes(
+          jobConf.get(HBaseSerDe.HBASE_TABLE_DEFAULT_STORAGE_TYPE, "string"));
+    } catch (SerDeException e) {
+      throw new IOException(e);
+    }
+
+    List<IndexSearchCondition> conditions = getConditions(
+        Utilities.deserializeExpression(filterExprSerialized), columnMappings);
+    if (conditions.isEmpty()) {
+      return;
+    }
+    scan.setFilter(createFilter(conditions, columnMappings));
+    if (scan.hasFamilies()) {
+      for (IndexSearchCondition sc : conditions) {
+        ColumnMapping colMap = getColumnMapping(columnMappings, sc.getColumnDesc().getColumn());
+        NavigableSet<byte[]> qualifiers = scan.getFamilyMap().get(colMap.familyNameBytes);
+        // A family without qualifiers is read as a whole
+        if (qualifiers != null || !scan.getFamilyMap().containsKey(colMap.familyNameBytes)) {
+          scan.addColumn(colMap.familyNameBytes, colMap.qualifierNameBytes);
+        }
+      }
+    }
+  }
+
+  private static ColumnMapping getColumnMapping(ColumnMappings columnMappings, String column) {
+    for (ColumnMapping colMap : columnMappings) {
+      if (colMap.columnName.equals(column)) {
+        return colMap;
+      }
+    }
+    throw new IllegalArgumentException("Column " + column + " is not mapped");
+  }
+
+  private static CompareOp getCompareOp(String comparisonOp) {
+    if (EQUAL.equals(comparisonOp)) {
+      return CompareOp.EQUAL;
+    } else if (EQUAL_OR_GREATER_THAN.equals(comparisonOp)) {
+      return CompareOp.GREATER_OR_EQUAL;
+    } else if (EQUAL_OR_LESS_THAN.equals(comparisonOp)) {
+      return CompareOp.LESS_OR_EQUAL;
+    } else if (LESS_THAN.equals(comparisonOp)) {
+      return CompareOp.LESS;
+    } else if (GREATER_THAN.equals(comparisonOp)) {
+      return CompareOp.GREATER;
+    }
+    throw new IllegalArgumentException(comparisonOp + " is not a supported comparison operator");
+  }
+
+  private static byte[] getConstantVal(Object value, ColumnMapping colMap) {
+    PrimitiveCategory pc = ((PrimitiveTypeInfo) colMap.columnType).getPrimitiveCategory();
+    switch (pc) {
+    case STRING:
+      return Bytes.toBytes(value.toString());
+    case BYTE:
+      return new byte[] {((Number) value).byteValue()};
+    case SHORT:
+      return Bytes.toBytes(((Number) value).shortValue());
+    case INT:
+      return Bytes.toBytes(((Number) value).intValue());
+    case LONG:
+      return Bytes.toBytes(((Number) value).longValue());
+    default:
+      throw new IllegalArgumentException("Type not supported " + pc);
+    }
+  }
+}
@@ -69,6 +69,7 @@ public static Scan getScan(JobConf jobConf) throws IOException {
     boolean readAllColumns = ColumnProjectionUtils.isReadAllColumns(jobConf);
     Scan scan = new Scan();
     boolean empty = true;
+    int projectedColumns = 0;
 
     // The list of families that have been added to the scan
     List<String> addedFamilies = new ArrayList<String>();
@@ -92,6 +93,7 @@ public static Scan getScan(JobConf jobConf) throws IOException {
         }
 
         empty = false;
+        projectedColumns++;
       }
     }
 
@@ -111,6 +113,7 @@ public static Scan getScan(JobConf jobConf) throws IOException {
         } else {
           scan.addColumn(colMap.familyNameBytes, colMap.qualifierNameBytes);
         }
+        projectedColumns++;
 
         if (!readAllColumns) {
           break;
@@ -119,8 +122,14 @@ public static Scan getScan(JobConf jobConf) throws IOException {
     }
 
     String scanCache = jobConf.get(HBaseSerDe.HBASE_SCAN_CACHE);
+    String scanCacheCells = jobConf.get(HBaseSerDe.HBASE_SCAN_CACHE_CELLS);
     if (scanCache != null) {
       scan.setCaching(Integer.valueOf(scanCache));
+    } else if (scanCacheCells != null) {
+      // Fetch as many rows per RPC as fit in the budget of cells, a whole column family
+      // counting as one cell
+      int cells = Integer.valueOf(scanCacheCells);
+      scan.setCaching(Math.max(1, cells / Math.max(1, projectedColumns)));
     }
     String scanCacheBlocks = jobConf.get(HBaseSerDe.HBASE_SCAN_CACHEBLOCKS);
     if (scanCacheBlocks != null) {
@@ -130,6 +139,7 @@ public static Scan getScan(JobConf jobConf) throws IOException {
     if (scanBatch != null) {
       scan.setBatch(Integer.valueOf(scanBatch));
     }
+    HBaseValueFilters.setupScan(scan, jobConf, columnMappings);
     return scan;
   }
 
@@ -102,8 +102,14 @@ public RecordReader<ImmutableBytesWritable, ResultWritable> getRecordReader(
     TaskAttemptContext tac = ShimLoader.getHadoopShims().newTaskAttemptContext(
         job.getConfiguration(), reporter);
 
-    final org.apache.hadoop.mapreduce.RecordReader<ImmutableBytesWritable, Result>
-    recordReader = createRecordReader(tableSplit, tac);
+    int parallelism = jobConf.getInt(HBaseSerDe.HBASE_SCAN_PARALLELISM, 1);
+    final org.apache.hadoop.mapreduce.RecordReader<ImmutableBytesWritable, Result> recordReader;
+    if (parallelism > 1) {
+      recordReader = new ParallelScanRecordReader(HBaseConfiguration.create(jobConf),
+          Bytes.toBytes(jobConf.get(HBaseSerDe.HBASE_TABLE_NAME)), getScan(), parallelism);
+    } else {
+      recordReader = createRecordReader(tableSplit, tac);
+    }
     try {
       recordReader.initialize(tableSplit, tac);
     } catch (InterruptedException e) {
@@ -0,0 +1,280 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableSplit;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reads a split of an HBase table with several concurrent scanners, each one scanning a
+ * sub-range of the row keys of the split, so that the scanner RPCs of a split overlap.
+ *
+ * The rows are still returned in row key order: the rows of a sub-range are buffered until
+ * those of the sub-ranges before it are read, up to the caching of the scan. Sub-ranges whose
+ * buffer is full release their scanner until the reader gets to them.
+ */
+class ParallelScanRecordReader extends RecordReader<ImmutableBytesWritable, Result> {
+  private static final Log LOG = LogFactory.getLog(ParallelScanRecordReader.class);
+
+  /** Marks the end of the rows of a sub-range. */
+  private static final Result END = new Result();
+  private static final int DEFAULT_BUFFER_SIZE = 100;
+
+  private final Configuration conf;
+  private final byte[] tableName;
+  private final Scan scan;
+  private final int parallelism;
+
+  private final ImmutableBytesWritable key = new ImmutableBytesWritable();
+  private Result value;
+  private ExecutorService executor;
+  private final List<SubRange> subRanges = new ArrayList<SubRange>();
+  private int current;
+
+  ParallelScanRecordReader(Configuration conf, byte[] tableName, Scan scan, int parallelism) {
+    this.conf = conf;
+    this.tableName = tableName;
+    this.scan = scan;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    TableSplit tableSplit = (TableSplit) split;
+    List<byte[]> boundaries =
+        splitRange(tableSplit.getStartRow(), tableSplit.getEndRow(), parallelism);
+    int bufferSize = scan.getCaching() > 0 ? scan.getCaching() : DEFAULT_BUFFER_SIZE;
+    executor = Executors.newFixedThreadPool(boundaries.size() - 1, new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("HBase-Scanner-" + Bytes.toString(tableName) + "-%d")
+        .build());
+    for (int i = 0; i < boundaries.size() - 1; i++) {
+      Scan subRangeScan = new Scan(scan);
+      subRangeScan.setStartRow(boundaries.get(i));
+      subRangeScan.setStopRow(boundaries.get(i + 1));
+      SubRange subRange = new SubRange(subRangeScan, bufferSize);
+      subRanges.add(subRange);
+      executor.execute(subRange);
+    }
+    LOG.info("Scanning " + tableSplit + " with " + subRanges.size() + " scanners");
+  }
+
+  /**
+   * Splits the range of row keys [startRow, stopRow) in at most count sub-ranges of about the
+   * same size. An empty row is the start, or the end, of the table.
+   *
+   * @return the boundaries of the sub-ranges, from startRow to stopRow
+   */
+  static List<byte[]> splitRange(byte[] startRow, byte[] stopRow, int count) {
+    List<byte[]> boundaries = new ArrayList<byte[]>();
+    boundaries.add(startRow);
+    if (count > 1) {
+      byte[] end = stopRow;
+      if (end.length == 0) {
+        // Keys are assumed to be spread up to the largest key of the length of the start row
+        end = new byte[Math.max(startRow.length, 1)];
+        Arrays.fill(end, (byte) 0xff);
+      }
+      byte[][] splits = null;
+      try {
+        splits = Bytes.split(startRow, end, count - 1);
+      } catch (IllegalArgumentException e) {
+        // The end is not after the start row
+      }
+      // Null if the range is too narrow to be split
+      if (splits != null) {
+        for (int i = 1; i < splits.length - 1; i++) {
+          if (Bytes.compareTo(splits[i], boundaries.get(boundaries.size() - 1)) > 0
+              && (stopRow.length == 0 || Bytes.compareTo(splits[i], stopRow) < 0)) {
+            boundaries.add(splits[i]);
+          }
+        }
+      }
+    }
+    boundaries.add(stopRow);
+    return boundaries;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    while (current < subRanges.size()) {
+      Result result = subRanges.get(current).take();
+      if (result != null) {
+        key.set(result.getRow());
+        value = result;
+        return true;
+      }
+      current++;
+    }
+    return false;
+  }
+
+  @Override
+  public ImmutableBytesWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public Result getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() {
+    return subRanges.isEmpty() ? 0 : (float) current / subRanges.size();
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      // Interrupts the scanners still waiting for their rows to be read
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A scanner of a sub-range, queueing its rows for the reader.
+   *
+   * At most bufferSize results of a sub-range are queued. A scanner whose queue is full is
+   * closed while it waits for the reader, as its lease would expire otherwise, and the
+   * sub-range is scanned again from the last row queued once there is room.
+   */
+  private class SubRange implements Runnable {
+    private final Scan scan;
+    private final BlockingQueue<Result> results;
+    private Throwable error;
+    /** The row of the last result queued, and the number of results queued for it. */
+    private byte[] lastRow;
+    private int lastRowResults;
+
+    SubRange(Scan scan, int bufferSize) {
+      this.scan = scan;
+      this.results = new ArrayBlockingQueue<Result>(bufferSize);
+    }
+
+    @Override
+    public void run() {
+      boolean closed = false;
+      try {
+        scan();
+      } catch (InterruptedException e) {
+        // The reader is closed, nobody waits for the end of the rows
+        closed = true;
+      } catch (Throwable t) {
+        error = t;
+      } finally {
+        if (!closed) {
+          try {
+            results.put(END);
+          } catch (InterruptedException e) {
+            // The reader is closed
+          }
+        }
+      }
+    }
+
+    private void scan() throws IOException, InterruptedException {
+      HTable table = new HTable(conf, tableName);
+      try {
+        Scan next = scan;
+        int skip = 0;
+        while (next != null) {
+          Result blocked = null;
+          ResultScanner scanner = table.getScanner(next);
+          try {
+            for (Result result = scanner.next(); result != null; result = scanner.next()) {
+              if (skip > 0) {
+                // Already queued before the scanner was reopened
+                skip--;
+              } else if (results.offer(result)) {
+                queued(result);
+              } else {
+                blocked = result;
+                break;
+              }
+            }
+          } finally {
+            scanner.close();
+          }
+          next = null;
+          if (blocked != null) {
+            results.put(blocked);
+            queued(blocked);
+            // Scans from the row of the last result, which may have more when the scan has a
+            // batch size
+            next = new Scan(scan);
+            next.setStartRow(lastRow);
+            skip = lastRowResults;
+          }
+        }
+      } finally {
+        try {
+          table.close();
+        } catch (IOException e) {
+          LOG.warn("Unable to close " + Bytes.toString(tableName), e);
+        }
+      }
+    }
+
+    private void queued(Result result) {
+      if (lastRow != null && Bytes.equals(lastRow, result.getRow())) {
+        lastRowResults++;
+      } else {
+        lastRow = result.getRow();
+        lastRowResults = 1;
+      }
+    }
+
+    /**
+     * @return the next row of the sub-range, or null once all are read
+     */
+    Result take() throws IOException, InterruptedException {
+      Result result = results.take();
+      if (result != END) {
+        return result;
+      }
+      if (error != null) {
+        throw new IOException("Unable to scan " + Bytes.toStringBinary(scan.getStartRow())
+            + " ~ " + Bytes.toStringBinary(scan.getStopRow()), error);
+      }
+      return null;
+    }
+  }
+}
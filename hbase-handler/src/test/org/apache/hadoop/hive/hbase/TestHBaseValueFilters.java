@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * Tests the HBase filters of the comparisons of non-key columns.
+ */
+public class TestHBaseValueFilters extends TestCase {
+
+  private static final String MAPPING = ":key,cf:s,cf:i#b,cf:j,cf2:";
+  private static final String NAMES = "key,s,i,j,m";
+  private static final String TYPES = "string,string,int,int,map<string,string>";
+
+  private static final byte[] CF = Bytes.toBytes("cf");
+
+  private ColumnMappings getColumnMappings() throws Exception {
+    ColumnMappings columnMappings = HBaseSerDe.parseColumnsMapping(MAPPING);
+    columnMappings.setHiveColumnDescription("test", Arrays.asList(NAMES.split(",")),
+        TypeInfoUtils.getTypeInfosFromTypeString(TYPES));
+    columnMappings.parseColumnStorageTypes("string");
+    return columnMappings;
+  }
+
+  private static ExprNodeDesc compare(GenericUDF udf, String column, TypeInfo columnType,
+      TypeInfo constantType, Object constant) {
+    List<ExprNodeDesc> children = new ArrayList<ExprNodeDesc>();
+    children.add(new ExprNodeColumnDesc(columnType, column, "t", false));
+    children.add(new ExprNodeConstantDesc(constantType, constant));
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf, children);
+  }
+
+  private static ExprNodeDesc and(ExprNodeDesc... exprs) {
+    ExprNodeDesc result = exprs[0];
+    for (int i = 1; i < exprs.length; i++) {
+      List<ExprNodeDesc> children = new ArrayList<ExprNodeDesc>();
+      children.add(result);
+      children.add(exprs[i]);
+      result = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+          FunctionRegistry.getGenericUDFForAnd(), children);
+    }
+    return result;
+  }
+
+  private static ExprNodeDesc getPredicate() {
+    return and(
+        compare(new GenericUDFOPEqualOrGreaterThan(), "s",
+            TypeInfoFactory.stringTypeInfo, TypeInfoFactory.stringTypeInfo, "b"),
+        compare(new GenericUDFOPEqual(), "i",
+            TypeInfoFactory.intTypeInfo, TypeInfoFactory.intTypeInfo, 5),
+        // Binary integers do not sort as Hive does
+        compare(new GenericUDFOPGreaterThan(), "i",
+            TypeInfoFactory.intTypeInfo, TypeInfoFactory.intTypeInfo, 3),
+        // "07" is 7 too for Hive
+        compare(new GenericUDFOPEqual(), "j",
+            TypeInfoFactory.intTypeInfo, TypeInfoFactory.intTypeInfo, 7),
+        // Compared as numbers by Hive
+        compare(new GenericUDFOPEqual(), "s",
+            TypeInfoFactory.stringTypeInfo, TypeInfoFactory.intTypeInfo, 1),
+        compare(new GenericUDFOPEqual(), "key",
+            TypeInfoFactory.stringTypeInfo, TypeInfoFactory.stringTypeInfo, "k"));
+  }
+
+  private static boolean filterRow(Filter filter, byte[] qualifier, byte[] value)
+      throws Exception {
+    filter.reset();
+    filter.filterKeyValue(new KeyValue(Bytes.toBytes("row"), CF, qualifier, value));
+    return filter.filterRow();
+  }
+
+  public void testPushableConditions() throws Exception {
+    ColumnMappings columnMappings = getColumnMappings();
+    List<IndexSearchCondition> conditions =
+        HBaseValueFilters.getConditions(getPredicate(), columnMappings);
+    assertEquals(2, conditions.size());
+    assertEquals("s", conditions.get(0).getColumnDesc().getColumn());
+    assertEquals("i", conditions.get(1).getColumnDesc().getColumn());
+
+    Filter filter = HBaseValueFilters.createFilter(conditions, columnMappings);
+    List<Filter> filters = ((FilterList) filter).getFilters();
+    assertEquals(2, filters.size());
+    SingleColumnValueFilter sFilter = (SingleColumnValueFilter) filters.get(0);
+    assertEquals(CompareOp.GREATER_OR_EQUAL, sFilter.getOperator());
+    assertTrue(sFilter.getFilterIfMissing());
+    assertFalse(filterRow(sFilter, Bytes.toBytes("s"), Bytes.toBytes("c")));
+    assertTrue(filterRow(sFilter, Bytes.toBytes("s"), Bytes.toBytes("a")));
+
+    SingleColumnValueFilter iFilter = (SingleColumnValueFilter) filters.get(1);
+    assertEquals(CompareOp.EQUAL, iFilter.getOperator());
+    assertFalse(filterRow(iFilter, Bytes.toBytes("i"), Bytes.toBytes(5)));
+    assertTrue(filterRow(iFilter, Bytes.toBytes("i"), Bytes.toBytes(6)));
+  }
+
+  public void testScanReadsFilteredColumns() throws Exception {
+    JobConf jobConf = new JobConf();
+    jobConf.set(serdeConstants.LIST_COLUMNS, NAMES);
+    jobConf.set(serdeConstants.LIST_COLUMN_TYPES, TYPES);
+    jobConf.set(TableScanDesc.FILTER_EXPR_CONF_STR,
+        Utilities.serializeExpression((ExprNodeGenericFuncDesc) getPredicate()));
+
+    Scan scan = new Scan();
+    scan.addColumn(CF, Bytes.toBytes("j"));
+    HBaseValueFilters.setupScan(scan, jobConf, HBaseSerDe.parseColumnsMapping(MAPPING));
+    assertTrue(scan.getFilter() instanceof FilterList);
+    assertEquals(3, scan.getFamilyMap().get(CF).size());
+
+    // Rows split in batches can not be filtered
+    scan = new Scan();
+    scan.setBatch(10);
+    HBaseValueFilters.setupScan(scan, jobConf, HBaseSerDe.parseColumnsMapping(MAPPING));
+    assertNull(scan.getFilter());
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.mapreduce.TableSplit;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Reads an HBase table of a mini cluster with ParallelScanRecordReader.
+ */
+public class TestParallelScanMiniCluster extends TestCase {
+  private static final byte[] TABLE = Bytes.toBytes("parallel_scan");
+  private static final byte[] FAMILY = Bytes.toBytes("cf");
+  private static final byte[][] QUALIFIERS = {Bytes.toBytes("a"), Bytes.toBytes("b")};
+  private static final int ROWS = 1000;
+
+  private HBaseTestingUtility util;
+  private HTable table;
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%04d", i));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    util = new HBaseTestingUtility();
+    util.startMiniCluster();
+    table = util.createTable(TABLE, FAMILY);
+    table.setAutoFlush(false, true);
+    for (int i = 0; i < ROWS; i++) {
+      Put put = new Put(row(i));
+      for (byte[] qualifier : QUALIFIERS) {
+        put.add(FAMILY, qualifier, Bytes.toBytes(i));
+      }
+      table.put(put);
+    }
+    table.flushCommits();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (table != null) {
+      table.close();
+    }
+    util.shutdownMiniCluster();
+  }
+
+  /**
+   * Reads the split with 4 scanners, each buffering few results so that they have to release
+   * their scanner while the sub-ranges before theirs are read.
+   */
+  private void assertScannedInOrder(Scan scan, int resultsPerRow) throws Exception {
+    ParallelScanRecordReader reader =
+        new ParallelScanRecordReader(util.getConfiguration(), TABLE, scan, 4);
+    reader.initialize(new TableSplit(TABLE, row(0), row(ROWS), ""), null);
+    try {
+      // Gives the scanners the time to fill their buffers
+      Thread.sleep(1000);
+      int count = 0;
+      byte[] previous = HConstants.EMPTY_START_ROW;
+      while (reader.nextKeyValue()) {
+        Result result = reader.getCurrentValue();
+        byte[] row = result.getRow();
+        assertTrue(Bytes.compareTo(previous, row) <= 0);
+        assertTrue(Bytes.equals(row(count / resultsPerRow), row));
+        assertEquals(QUALIFIERS.length / resultsPerRow, result.size());
+        previous = row;
+        count++;
+      }
+      assertEquals(ROWS * resultsPerRow, count);
+    } finally {
+      reader.close();
+    }
+  }
+
+  public void testScanInOrder() throws Exception {
+    Scan scan = new Scan();
+    scan.setCaching(10);
+    assertScannedInOrder(scan, 1);
+
+    // Every row is returned in one result per column
+    scan = new Scan();
+    scan.setCaching(10);
+    scan.setBatch(1);
+    assertScannedInOrder(scan, QUALIFIERS.length);
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.hbase;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Tests the sub-ranges scanned by ParallelScanRecordReader.
+ */
+public class TestParallelScanRecordReader extends TestCase {
+
+  private static void assertIncreasing(List<byte[]> boundaries) {
+    for (int i = 1; i < boundaries.size() - 1; i++) {
+      assertTrue(Bytes.compareTo(boundaries.get(i - 1), boundaries.get(i)) < 0);
+    }
+  }
+
+  public void testSplitRange() {
+    byte[] start = Bytes.toBytes("a");
+    byte[] stop = Bytes.toBytes("z");
+    List<byte[]> boundaries = ParallelScanRecordReader.splitRange(start, stop, 4);
+    assertEquals(5, boundaries.size());
+    assertSame(start, boundaries.get(0));
+    assertSame(stop, boundaries.get(4));
+    assertIncreasing(boundaries);
+    assertTrue(Bytes.compareTo(boundaries.get(3), stop) < 0);
+
+    assertEquals(2, ParallelScanRecordReader.splitRange(start, stop, 1).size());
+  }
+
+  public void testSplitWholeTable() {
+    List<byte[]> boundaries = ParallelScanRecordReader.splitRange(
+        HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW, 3);
+    assertEquals(4, boundaries.size());
+    assertEquals(0, boundaries.get(0).length);
+    assertEquals(0, boundaries.get(3).length);
+    assertIncreasing(boundaries);
+  }
+
+  public void testRangeTooNarrow() {
+    byte[] start = Bytes.toBytes("a");
+    // The first key after start
+    byte[] stop = new byte[] {'a', 0};
+    List<byte[]> boundaries = ParallelScanRecordReader.splitRange(start, stop, 4);
+    for (byte[] boundary : boundaries.subList(1, boundaries.size() - 1)) {
+      assertTrue(Bytes.compareTo(start, boundary) < 0 && Bytes.compareTo(boundary, stop) < 0);
+    }
+    assertSame(stop, boundaries.get(boundaries.size() - 1));
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io.orc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hive.benchmark.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encodes and decodes integer streams with the run length encoding version 2 of ORC.
+ *
+ * The encoding picked for a run depends on the values, so the values follow one of several
+ * patterns: increasing sequences (delta), repeated values (short repeat), values with few
+ * distinct values (direct, narrow) and random values (patched base or direct, wide).
+ *
+ * This lives in the package of ORC, whose stream classes are package private.
+ *
+ * Run with: java -jar target/benchmarks.jar IntegerEncodingBench -p pattern=sequence
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class IntegerEncodingBench {
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  @Param({"sequence", "repeat", "narrow", "random"})
+  public String pattern;
+
+  @Param({"true"})
+  public boolean signed;
+
+  @Param({"10000"})
+  public int values;
+
+  @Param({"1000"})
+  public int cardinality;
+
+  private long[] input;
+  private ByteBuffer encoded;
+  private Configuration conf;
+
+  @Setup
+  public void setup() throws IOException {
+    DataGenerator generator = new DataGenerator(42, cardinality, 0, 0);
+    DataGenerator randomGenerator = new DataGenerator(42, 0, 0, 0);
+    input = new long[values];
+    for (int i = 0; i < values; i++) {
+      if ("sequence".equals(pattern)) {
+        input[i] = 1000 + 3L * i;
+      } else if ("repeat".equals(pattern)) {
+        // Runs of 8 values, the longest short repeat
+        input[i] = i / 8 % cardinality;
+      } else if ("narrow".equals(pattern)) {
+        input[i] = generator.nextLong();
+      } else if ("random".equals(pattern)) {
+        long value = randomGenerator.nextLong();
+        input[i] = signed ? value : value & Long.MAX_VALUE;
+      } else {
+        throw new IllegalArgumentException("Unknown pattern " + pattern);
+      }
+    }
+    conf = new Configuration();
+    OutputCollector collector = encode();
+    encoded = ByteBuffer.allocate(collector.buffer.size());
+    collector.buffer.setByteBuffer(encoded, 0, collector.buffer.size());
+    encoded.flip();
+  }
+
+  private OutputCollector encode() throws IOException {
+    OutputCollector collector = new OutputCollector();
+    RunLengthIntegerWriterV2 writer = new RunLengthIntegerWriterV2(
+        new OutStream("bench", BUFFER_SIZE, null, collector), signed);
+    for (long value : input) {
+      writer.write(value);
+    }
+    writer.flush();
+    return collector;
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    return encode().buffer.size();
+  }
+
+  @Benchmark
+  public void read(Blackhole bh) throws IOException {
+    InStream in = InStream.create("bench", new ByteBuffer[]{encoded.duplicate()},
+        new long[]{0}, encoded.remaining(), null, BUFFER_SIZE);
+    RunLengthIntegerReaderV2 reader = new RunLengthIntegerReaderV2(in, signed, conf);
+    for (int i = 0; i < values; i++) {
+      bh.consume(reader.next());
+    }
+  }
+
+  private static class OutputCollector implements OutStream.OutputReceiver {
+    private final DynamicByteArray buffer = new DynamicByteArray();
+
+    @Override
+    public void output(ByteBuffer buffer) throws IOException {
+      this.buffer.add(buffer.array(), buffer.arrayOffset() + buffer.position(),
+          buffer.remaining());
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * Generates the synthetic values of the benchmarks, the same for a given seed.
+ *
+ * The shape of the data is set by the number of distinct values of each column, the fraction of
+ * null values and the length of the strings, so that a benchmark can be run against
+ * low-cardinality, sparse or wide data from its parameters.
+ */
+public class DataGenerator {
+  private final Random random;
+  private final int cardinality;
+  private final double nullFraction;
+  private final int stringLength;
+
+  /**
+   * @param seed seed of the values
+   * @param cardinality number of distinct values of a column, or 0 for random values
+   * @param nullFraction fraction of null values, from 0 to 1
+   * @param stringLength length of the strings
+   */
+  public DataGenerator(long seed, int cardinality, double nullFraction, int stringLength) {
+    this.random = new Random(seed);
+    this.cardinality = cardinality;
+    this.nullFraction = nullFraction;
+    this.stringLength = stringLength;
+  }
+
+  public boolean nextNull() {
+    return nullFraction > 0 && random.nextDouble() < nullFraction;
+  }
+
+  public long nextLong() {
+    return cardinality > 0 ? random.nextInt(cardinality) : random.nextLong();
+  }
+
+  public int nextInt() {
+    return cardinality > 0 ? random.nextInt(cardinality) : random.nextInt();
+  }
+
+  public double nextDouble() {
+    return cardinality > 0 ? random.nextInt(cardinality) / 4.0 : random.nextDouble() * 1e6;
+  }
+
+  public String nextString() {
+    StringBuilder sb = new StringBuilder(stringLength);
+    if (cardinality > 0) {
+      // The distinct values share their prefix, as keys or codes often do
+      String suffix = Integer.toString(random.nextInt(cardinality));
+      for (int i = suffix.length(); i < stringLength; i++) {
+        sb.append('k');
+      }
+      sb.append(suffix);
+    } else {
+      for (int i = 0; i < stringLength; i++) {
+        sb.append((char) ('a' + random.nextInt(26)));
+      }
+    }
+    return sb.toString();
+  }
+
+  public byte[] nextBytes() {
+    byte[] bytes = new byte[stringLength];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * @return a value of the given type, as a Java object, or null
+   */
+  public Object nextValue(PrimitiveTypeInfo type) {
+    if (nextNull()) {
+      return null;
+    }
+    switch (type.getPrimitiveCategory()) {
+    case BOOLEAN:
+      return random.nextBoolean();
+    case BYTE:
+      return (byte) nextInt();
+    case SHORT:
+      return (short) nextInt();
+    case INT:
+      return nextInt();
+    case LONG:
+      return nextLong();
+    case FLOAT:
+      return (float) nextDouble();
+    case DOUBLE:
+      return nextDouble();
+    case STRING:
+      return nextString();
+    case BINARY:
+      return nextBytes();
+    default:
+      throw new IllegalArgumentException("No synthetic values for " + type.getTypeName());
+    }
+  }
+
+  /**
+   * @param types comma separated primitive type names, such as "int,bigint,string,double"
+   * @return the types of the columns
+   */
+  public static List<PrimitiveTypeInfo> parseTypes(String types) {
+    List<PrimitiveTypeInfo> result = new ArrayList<PrimitiveTypeInfo>();
+    for (TypeInfo type : TypeInfoUtils.getTypeInfosFromTypeString(types)) {
+      result.add((PrimitiveTypeInfo) type);
+    }
+    return result;
+  }
+
+  /**
+   * @return rows of values of the given types, as lists of Java objects
+   */
+  public List<Object>[] rows(List<PrimitiveTypeInfo> types, int count) {
+    @SuppressWarnings("unchecked")
+    List<Object>[] rows = new List[count];
+    for (int i = 0; i < count; i++) {
+      List<Object> row = new ArrayList<Object>(types.size());
+      for (PrimitiveTypeInfo type : types) {
+        row.add(nextValue(type));
+      }
+      rows[i] = row;
+    }
+    return rows;
+  }
+}
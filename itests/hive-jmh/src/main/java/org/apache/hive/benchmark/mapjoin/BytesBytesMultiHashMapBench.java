@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark.mapjoin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.exec.persistence.BytesBytesMultiHashMap;
+import org.apache.hadoop.hive.serde2.ByteStream.RandomAccessOutput;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.WriteBuffers;
+import org.apache.hive.benchmark.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loads and probes the hash table of the small table of a map join.
+ *
+ * The rows have string keys; with a cardinality lower than the number of rows, keys have several
+ * values. Probes look up the keys of the rows, and as many keys missing from the table.
+ *
+ * Run with: java -jar target/benchmarks.jar BytesBytesMultiHashMapBench -p cardinality=1000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class BytesBytesMultiHashMapBench {
+  private static final int WB_SIZE = 1024 * 1024;
+
+  @Param({"100000"})
+  public int rows;
+
+  @Param({"0"})
+  public int cardinality;
+
+  @Param({"16"})
+  public int stringLength;
+
+  @Param({"64"})
+  public int valueLength;
+
+  private byte[][] keys;
+  private byte[][] values;
+  private byte[][] probes;
+  private BytesBytesMultiHashMap loaded;
+
+  @Setup
+  public void setup() throws SerDeException {
+    DataGenerator generator = new DataGenerator(42, cardinality, 0, stringLength);
+    DataGenerator valueGenerator = new DataGenerator(43, 0, 0, valueLength);
+    keys = new byte[rows][];
+    values = new byte[rows][];
+    probes = new byte[2 * rows][];
+    for (int i = 0; i < rows; i++) {
+      keys[i] = generator.nextString().getBytes();
+      values[i] = valueGenerator.nextBytes();
+      probes[2 * i] = keys[i];
+      // Strings of other lengths are never keys
+      probes[2 * i + 1] = (generator.nextString() + "-").getBytes();
+    }
+    loaded = load();
+  }
+
+  private BytesBytesMultiHashMap load() throws SerDeException {
+    BytesBytesMultiHashMap map = new BytesBytesMultiHashMap(1024, 0.75f, WB_SIZE, -1, 100000);
+    RowSource source = new RowSource();
+    for (int i = 0; i < rows; i++) {
+      source.key = keys[i];
+      source.value = values[i];
+      map.put(source);
+    }
+    map.seal();
+    return map;
+  }
+
+  @Benchmark
+  public BytesBytesMultiHashMap put() throws SerDeException {
+    return load();
+  }
+
+  @Benchmark
+  public void get(Blackhole bh) {
+    List<WriteBuffers.ByteSegmentRef> result = new ArrayList<WriteBuffers.ByteSegmentRef>();
+    for (byte[] probe : probes) {
+      bh.consume(loaded.getValueRefs(probe, probe.length, result));
+    }
+  }
+
+  private static class RowSource implements BytesBytesMultiHashMap.KvSource {
+    private byte[] key;
+    private byte[] value;
+
+    @Override
+    public void writeKey(RandomAccessOutput dest) throws SerDeException {
+      dest.write(key, 0, key.length);
+    }
+
+    @Override
+    public void writeValue(RandomAccessOutput dest) throws SerDeException {
+      dest.write(value, 0, value.length);
+    }
+
+    @Override
+    public byte updateStateByte(Byte previousValue) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark.serde;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ConverterCompiler;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Converts rows from the schema of a partition to the schema of its table, with the converters
+ * of ObjectInspectorConverters and with those of ConverterCompiler.
+ *
+ * The partition rows are struct&lt;a:int,b:bigint,c:string,d:float&gt;, with Java integers and
+ * floats, as deserialized by SerDes producing Java objects. The table has the same types with the
+ * Writable ObjectInspectors for the "same" shape, and struct&lt;a:bigint,b:double,c:string,
+ * d:double&gt; for the "widened" shape.
+ *
+ * Run with: java -jar target/benchmarks.jar ConverterBench
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class ConverterBench {
+
+  @Param({"same", "widened"})
+  public String shape;
+
+  @Param({"1024"})
+  public int rows;
+
+  private Object[] input;
+  private Converter current;
+  private Converter compiled;
+
+  @Setup
+  public void setup() {
+    List<String> names = Arrays.asList("a", "b", "c", "d");
+    StructObjectInspector partitionOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        names, Arrays.<ObjectInspector>asList(
+            PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+            PrimitiveObjectInspectorFactory.javaLongObjectInspector,
+            PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+            PrimitiveObjectInspectorFactory.javaFloatObjectInspector));
+    StructObjectInspector tableOI;
+    if ("same".equals(shape)) {
+      tableOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+          names, Arrays.<ObjectInspector>asList(
+              PrimitiveObjectInspectorFactory.writableIntObjectInspector,
+              PrimitiveObjectInspectorFactory.writableLongObjectInspector,
+              PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+              PrimitiveObjectInspectorFactory.writableFloatObjectInspector));
+    } else {
+      tableOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+          names, Arrays.<ObjectInspector>asList(
+              PrimitiveObjectInspectorFactory.writableLongObjectInspector,
+              PrimitiveObjectInspectorFactory.writableDoubleObjectInspector,
+              PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+              PrimitiveObjectInspectorFactory.writableDoubleObjectInspector));
+    }
+
+    Random random = new Random(42);
+    input = new Object[rows];
+    for (int i = 0; i < rows; i++) {
+      input[i] = Arrays.<Object>asList(random.nextInt(), random.nextLong(),
+          new Text("value" + random.nextInt(1000)), random.nextFloat());
+    }
+
+    current = ObjectInspectorConverters.getConverter(partitionOI, tableOI);
+    compiled = ConverterCompiler.compile(partitionOI, tableOI);
+  }
+
+  @Benchmark
+  public void objectInspectorConverters(Blackhole bh) {
+    for (Object row : input) {
+      bh.consume(current.convert(row));
+    }
+  }
+
+  @Benchmark
+  public void compiledConverters(Blackhole bh) {
+    for (Object row : input) {
+      bh.consume(compiled.convert(row));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(".*" + ConverterBench.class.getSimpleName() + ".*")
+        .build()).run();
+  }
+}
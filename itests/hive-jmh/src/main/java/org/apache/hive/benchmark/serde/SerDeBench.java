@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark.serde;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.AbstractSerDe;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
+import org.apache.hadoop.hive.serde2.lazybinary.LazyBinarySerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hive.benchmark.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializes and deserializes rows of synthetic data with LazySimpleSerDe, LazyBinarySerDe and
+ * BinarySortableSerDe.
+ *
+ * The deserialize benchmark reads every field of the rows, as the operators of a query reading
+ * all the columns would, so that the lazy SerDes are measured with their parsing.
+ *
+ * Run with: java -jar target/benchmarks.jar SerDeBench -p serde=lazybinary -p nullFraction=0.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class SerDeBench {
+
+  @Param({"lazysimple", "lazybinary", "binarysortable"})
+  public String serde;
+
+  @Param({"int,bigint,string,double"})
+  public String types;
+
+  @Param({"1024"})
+  public int rows;
+
+  @Param({"0"})
+  public int cardinality;
+
+  @Param({"0.0"})
+  public double nullFraction;
+
+  @Param({"16"})
+  public int stringLength;
+
+  private AbstractSerDe serDe;
+  private StructObjectInspector rowOI;
+  private StructObjectInspector serDeOI;
+  private List<? extends StructField> serDeFields;
+  private List<Object>[] input;
+  private Writable[] serialized;
+
+  @Setup
+  public void setup() throws SerDeException {
+    List<PrimitiveTypeInfo> columnTypes = DataGenerator.parseTypes(types);
+    StringBuilder columnNames = new StringBuilder();
+    StringBuilder columnTypeNames = new StringBuilder();
+    for (int i = 0; i < columnTypes.size(); i++) {
+      if (i > 0) {
+        columnNames.append(',');
+        columnTypeNames.append(':');
+      }
+      columnNames.append("col").append(i);
+      columnTypeNames.append(columnTypes.get(i).getTypeName());
+    }
+    Properties props = new Properties();
+    props.setProperty(serdeConstants.LIST_COLUMNS, columnNames.toString());
+    props.setProperty(serdeConstants.LIST_COLUMN_TYPES, columnTypeNames.toString());
+
+    if ("lazysimple".equals(serde)) {
+      serDe = new LazySimpleSerDe();
+    } else if ("lazybinary".equals(serde)) {
+      serDe = new LazyBinarySerDe();
+    } else if ("binarysortable".equals(serde)) {
+      serDe = new BinarySortableSerDe();
+    } else {
+      throw new IllegalArgumentException("Unknown SerDe " + serde);
+    }
+    Configuration conf = new Configuration();
+    SerDeUtils.initializeSerDe(serDe, conf, props, null);
+    serDeOI = (StructObjectInspector) serDe.getObjectInspector();
+    serDeFields = serDeOI.getAllStructFieldRefs();
+
+    // Rows of Java objects, as produced by the operators
+    rowOI = (StructObjectInspector) TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(
+        TypeInfoUtils.getTypeInfoFromObjectInspector(serDeOI));
+    input = new DataGenerator(42, cardinality, nullFraction, stringLength).rows(columnTypes, rows);
+
+    // The SerDes reuse their output, keep a copy of every row
+    serialized = new Writable[rows];
+    for (int i = 0; i < rows; i++) {
+      serialized[i] = WritableUtils.clone(serDe.serialize(input[i], rowOI), conf);
+    }
+  }
+
+  @Benchmark
+  public void serialize(Blackhole bh) throws SerDeException {
+    for (List<Object> row : input) {
+      bh.consume(serDe.serialize(row, rowOI));
+    }
+  }
+
+  @Benchmark
+  public void deserialize(Blackhole bh) throws SerDeException {
+    for (Writable writable : serialized) {
+      Object row = serDe.deserialize(writable);
+      for (StructField field : serDeFields) {
+        Object value = serDeOI.getStructFieldData(row, field);
+        if (value != null) {
+          ObjectInspector fieldOI = field.getFieldObjectInspector();
+          bh.consume(((PrimitiveObjectInspector) fieldOI).getPrimitiveWritableObject(value));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.CompressionKind;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.ql.io.orc.RecordReader;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hive.benchmark.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes and reads ORC files of synthetic rows on the local file system.
+ *
+ * The files are small enough to stay in the page cache, so that the encoding and compression of
+ * the columns are measured rather than the disk.
+ *
+ * Run with: java -jar target/benchmarks.jar OrcFileBench -p compression=ZLIB -p cardinality=100
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class OrcFileBench {
+
+  @Param({"NONE", "ZLIB", "SNAPPY"})
+  public String compression;
+
+  @Param({"int,bigint,string,double"})
+  public String types;
+
+  @Param({"100000"})
+  public int rows;
+
+  @Param({"0"})
+  public int cardinality;
+
+  @Param({"0.0"})
+  public double nullFraction;
+
+  @Param({"16"})
+  public int stringLength;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private File dir;
+  private Path writePath;
+  private Path readPath;
+  private ObjectInspector rowOI;
+  private List<Object>[] input;
+
+  @Setup
+  public void setup() throws IOException {
+    List<PrimitiveTypeInfo> columnTypes = DataGenerator.parseTypes(types);
+    List<String> columnNames = new ArrayList<String>();
+    List<ObjectInspector> columnOIs = new ArrayList<ObjectInspector>();
+    for (int i = 0; i < columnTypes.size(); i++) {
+      columnNames.add("col" + i);
+      columnOIs.add(PrimitiveObjectInspectorFactory.getPrimitiveJavaObjectInspector(
+          columnTypes.get(i)));
+    }
+    rowOI = ObjectInspectorFactory.getStandardStructObjectInspector(columnNames, columnOIs);
+    input = new DataGenerator(42, cardinality, nullFraction, stringLength).rows(columnTypes, rows);
+
+    conf = new Configuration();
+    fs = FileSystem.getLocal(conf);
+    dir = new File(System.getProperty("java.io.tmpdir"), "OrcFileBench-" + System.nanoTime());
+    writePath = new Path(dir.getAbsolutePath(), "write.orc");
+    readPath = new Path(dir.getAbsolutePath(), "read.orc");
+    write(readPath);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    fs.delete(new Path(dir.getAbsolutePath()), true);
+  }
+
+  private long write(Path path) throws IOException {
+    fs.delete(path, false);
+    Writer writer = OrcFile.createWriter(path, OrcFile.writerOptions(conf)
+        .fileSystem(fs)
+        .inspector(rowOI)
+        .compress(CompressionKind.valueOf(compression)));
+    for (List<Object> row : input) {
+      writer.addRow(row);
+    }
+    writer.close();
+    return writer.getRawDataSize();
+  }
+
+  @Benchmark
+  public long write() throws IOException {
+    return write(writePath);
+  }
+
+  @Benchmark
+  public void read(Blackhole bh) throws IOException {
+    Reader reader = OrcFile.createReader(readPath, OrcFile.readerOptions(conf).filesystem(fs));
+    RecordReader records = reader.rows();
+    Object row = null;
+    while (records.hasNext()) {
+      row = records.next(row);
+      bh.consume(row);
+    }
+    records.close();
+  }
+}
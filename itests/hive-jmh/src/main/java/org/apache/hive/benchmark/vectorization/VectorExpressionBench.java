@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.benchmark.vectorization;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.gen.DoubleColMultiplyDoubleColumn;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.gen.FilterLongColGreaterLongScalar;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.gen.FilterStringGroupColEqualStringScalar;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.gen.LongColAddLongColumn;
+import org.apache.hive.benchmark.DataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates vectorized expressions generated by GenVectorCode on a batch of synthetic data.
+ *
+ * The batch has two long, two double and one string input columns, followed by their output
+ * columns. Filters are evaluated on the whole batch every time.
+ *
+ * Run with: java -jar target/benchmarks.jar VectorExpressionBench -p nullFraction=0.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorExpressionBench {
+  private static final int LONG_1 = 0;
+  private static final int LONG_2 = 1;
+  private static final int DOUBLE_1 = 2;
+  private static final int DOUBLE_2 = 3;
+  private static final int STRING_1 = 4;
+  private static final int LONG_OUT = 5;
+  private static final int DOUBLE_OUT = 6;
+
+  @Param({"longAdd", "doubleMultiply", "longFilter", "stringFilter"})
+  public String expression;
+
+  @Param({"0"})
+  public int cardinality;
+
+  @Param({"0.0"})
+  public double nullFraction;
+
+  @Param({"16"})
+  public int stringLength;
+
+  private VectorizedRowBatch batch;
+  private VectorExpression vectorExpression;
+
+  @Setup
+  public void setup() {
+    DataGenerator generator = new DataGenerator(42, cardinality, nullFraction, stringLength);
+    batch = new VectorizedRowBatch(7, VectorizedRowBatch.DEFAULT_SIZE);
+    batch.cols[LONG_1] = longColumn(generator);
+    batch.cols[LONG_2] = longColumn(generator);
+    batch.cols[DOUBLE_1] = doubleColumn(generator);
+    batch.cols[DOUBLE_2] = doubleColumn(generator);
+    BytesColumnVector strings = new BytesColumnVector(VectorizedRowBatch.DEFAULT_SIZE);
+    for (int i = 0; i < VectorizedRowBatch.DEFAULT_SIZE; i++) {
+      byte[] value = generator.nextString().getBytes();
+      strings.setRef(i, value, 0, value.length);
+    }
+    setNulls(strings, generator);
+    batch.cols[STRING_1] = strings;
+    batch.cols[LONG_OUT] = new LongColumnVector(VectorizedRowBatch.DEFAULT_SIZE);
+    batch.cols[DOUBLE_OUT] = new DoubleColumnVector(VectorizedRowBatch.DEFAULT_SIZE);
+
+    if ("longAdd".equals(expression)) {
+      vectorExpression = new LongColAddLongColumn(LONG_1, LONG_2, LONG_OUT);
+    } else if ("doubleMultiply".equals(expression)) {
+      vectorExpression = new DoubleColMultiplyDoubleColumn(DOUBLE_1, DOUBLE_2, DOUBLE_OUT);
+    } else if ("longFilter".equals(expression)) {
+      // Selects about half of the rows
+      vectorExpression = new FilterLongColGreaterLongScalar(LONG_1,
+          cardinality > 0 ? cardinality / 2 : 0);
+    } else if ("stringFilter".equals(expression)) {
+      vectorExpression = new FilterStringGroupColEqualStringScalar(STRING_1,
+          generator.nextString().getBytes());
+    } else {
+      throw new IllegalArgumentException("Unknown expression " + expression);
+    }
+  }
+
+  private LongColumnVector longColumn(DataGenerator generator) {
+    LongColumnVector column = new LongColumnVector(VectorizedRowBatch.DEFAULT_SIZE);
+    for (int i = 0; i < VectorizedRowBatch.DEFAULT_SIZE; i++) {
+      column.vector[i] = generator.nextLong();
+    }
+    setNulls(column, generator);
+    return column;
+  }
+
+  private DoubleColumnVector doubleColumn(DataGenerator generator) {
+    DoubleColumnVector column = new DoubleColumnVector(VectorizedRowBatch.DEFAULT_SIZE);
+    for (int i = 0; i < VectorizedRowBatch.DEFAULT_SIZE; i++) {
+      column.vector[i] = generator.nextDouble();
+    }
+    setNulls(column, generator);
+    return column;
+  }
+
+  private void setNulls(ColumnVector column, DataGenerator generator) {
+    column.noNulls = true;
+    for (int i = 0; i < VectorizedRowBatch.DEFAULT_SIZE; i++) {
+      column.isNull[i] = generator.nextNull();
+      if (column.isNull[i]) {
+        column.noNulls = false;
+      }
+    }
+  }
+
+  @Benchmark
+  public VectorizedRowBatch evaluate() {
+    // Undo the selection of the previous filter
+    batch.size = VectorizedRowBatch.DEFAULT_SIZE;
+    batch.selectedInUse = false;
+    vectorExpression.evaluate(batch);
+    return batch;
+  }
+}
@@ -271,6 +271,18 @@ private void checkBadUrl(String url) throws SQLException {
     }
   }
 
+  @Test
+  public void testBadFetchSize() throws Exception {
+    for (String fetchSize : new String[] {"abc", "0"}) {
+      try {
+        DriverManager.getConnection("jdbc:hive2:///default;fetchSize=" + fetchSize, "", "");
+        fail("Should have thrown SQLException for fetchSize " + fetchSize);
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("Invalid fetchSize parameter"));
+      }
+    }
+  }
+
   @Test
   public void testParentReferences() throws Exception {
     /* Test parent references from Statement */
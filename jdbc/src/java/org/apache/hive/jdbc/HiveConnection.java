@@ -59,6 +59,7 @@
 import org.apache.hive.service.auth.KerberosSaslHelper;
 import org.apache.hive.service.auth.PlainSaslHelper;
 import org.apache.hive.service.auth.SaslQOP;
+import org.apache.hive.service.cli.RowSetCompressor;
 import org.apache.hive.service.cli.thrift.EmbeddedThriftBinaryCLIService;
 import org.apache.hive.service.cli.thrift.TCLIService;
 import org.apache.hive.service.cli.thrift.TCancelDelegationTokenReq;
@@ -109,6 +110,8 @@ public class HiveConnection implements java.sql.Connection {
   private final List<TProtocolVersion> supportedProtocols = new LinkedList<TProtocolVersion>();
   private int loginTimeout = 0;
   private TProtocolVersion protocol;
+  private RowSetCompressor rowSetCompressor;
+  private int defaultFetchSize = 50;
 
   public HiveConnection(String uri, Properties info) throws SQLException {
     setupLoginTimeout();
@@ -129,6 +132,20 @@ public HiveConnection(String uri, Properties info) throws SQLException {
     sessConfMap = connParams.getSessionVars();
     hiveConfMap = connParams.getHiveConfs();
 
+    String fetchSize = sessConfMap.get(JdbcConnectionParams.FETCH_SIZE);
+    if (fetchSize != null) {
+      try {
+        defaultFetchSize = Integer.parseInt(fetchSize);
+      } catch (NumberFormatException e) {
+        throw new SQLException("Invalid " + JdbcConnectionParams.FETCH_SIZE +
+            " parameter: " + fetchSize, "42000", e);
+      }
+      if (defaultFetchSize <= 0) {
+        throw new SQLException("Invalid " + JdbcConnectionParams.FETCH_SIZE +
+            " parameter: " + fetchSize + " is not positive", "42000");
+      }
+    }
+
     hiveVarMap = connParams.getHiveVars();
     for (Map.Entry<Object, Object> kv : info.entrySet()) {
       if ((kv.getKey() instanceof String)) {
@@ -443,6 +460,14 @@ private void openSession() throws SQLException {
       openConf.put(HiveAuthFactory.HS2_PROXY_USER,
           sessVars.get(HiveAuthFactory.HS2_PROXY_USER));
     }
+    if (sessVars.containsKey(JdbcConnectionParams.RESULTSET_COMPRESSOR)) {
+      openConf.put(RowSetCompressor.COMPRESSOR_KEY,
+          sessVars.get(JdbcConnectionParams.RESULTSET_COMPRESSOR));
+    }
+    if (isResultStreamingEnabled()) {
+      openConf.put("set:hiveconf:" + HiveConf.ConfVars.HIVE_SERVER2_RESULTSET_STREAMING.varname,
+          "true");
+    }
     openReq.setConfiguration(openConf);
 
     // Store the user name in the open request in case no non-sasl authentication
@@ -461,10 +486,19 @@ private void openSession() throws SQLException {
       }
       protocol = openResp.getServerProtocolVersion();
       sessHandle = openResp.getSessionHandle();
+      // The server only compresses results if it echoes the compressor back
+      String compressor = openResp.getConfiguration() == null
+          ? null : openResp.getConfiguration().get(RowSetCompressor.COMPRESSOR_KEY);
+      if (compressor != null) {
+        rowSetCompressor = RowSetCompressor.create(compressor, new HiveConf());
+      }
     } catch (TException e) {
       LOG.error("Error opening session", e);
       throw new SQLException("Could not establish connection to "
           + jdbcUriString + ": " + e.getMessage(), " 08S01", e);
+    } catch (ClassNotFoundException e) {
+      throw new SQLException("Could not load result set compressor: " + e.getMessage(),
+          " 08S01", e);
     }
     isClosed = false;
   }
@@ -1230,4 +1264,26 @@ public <T> T unwrap(Class<T> iface) throws SQLException {
   public TProtocolVersion getProtocol() {
     return protocol;
   }
+
+  /**
+   * @return the compressor query results are sent with, or null if they are not compressed.
+   */
+  RowSetCompressor getRowSetCompressor() {
+    return rowSetCompressor;
+  }
+
+  /**
+   * @return the number of rows to fetch per round trip if none is set on a statement.
+   */
+  int getDefaultFetchSize() {
+    return defaultFetchSize;
+  }
+
+  boolean isPrefetchEnabled() {
+    return "true".equalsIgnoreCase(sessConfMap.get(JdbcConnectionParams.PREFETCH));
+  }
+
+  boolean isResultStreamingEnabled() {
+    return "true".equalsIgnoreCase(sessConfMap.get(JdbcConnectionParams.STREAM_RESULTS));
+  }
 }
@@ -28,12 +28,19 @@
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.cli.RowSetCompressor;
 import org.apache.hive.service.cli.RowSetFactory;
 import org.apache.hive.service.cli.TableSchema;
 import org.apache.hive.service.cli.thrift.TCLIService;
@@ -42,6 +49,8 @@
 import org.apache.hive.service.cli.thrift.TFetchOrientation;
 import org.apache.hive.service.cli.thrift.TFetchResultsReq;
 import org.apache.hive.service.cli.thrift.TFetchResultsResp;
+import org.apache.hive.service.cli.thrift.TGetOperationStatusReq;
+import org.apache.hive.service.cli.thrift.TGetOperationStatusResp;
 import org.apache.hive.service.cli.thrift.TGetResultSetMetadataReq;
 import org.apache.hive.service.cli.thrift.TGetResultSetMetadataResp;
 import org.apache.hive.service.cli.thrift.TOperationHandle;
@@ -61,6 +70,19 @@ public class HiveQueryResultSet extends HiveBaseResultSet {
 
   public static final Log LOG = LogFactory.getLog(HiveQueryResultSet.class);
 
+  /**
+   * Runs the background fetches of all the result sets; idle threads go away on their own.
+   */
+  private static final ExecutorService prefetchPool = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "HiveQueryResultSet-prefetch");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+
   private TCLIService.Iface client;
   private TOperationHandle stmtHandle;
   private TSessionHandle sessHandle;
@@ -76,8 +98,15 @@ public class HiveQueryResultSet extends HiveBaseResultSet {
   private boolean fetchFirst = false;
 
   private final TProtocolVersion protocol;
+  private final RowSetCompressor rowSetCompressor;
   private ReentrantLock transportLock;
 
+  /** Whether to fetch the next batch while the current one is being consumed. */
+  private final boolean prefetch;
+  private Future<TRowSet> prefetchedRows;
+  // Whether the query may still be running, in which case an empty batch is not the end
+  private boolean streaming;
+
 
   public static class Builder {
 
@@ -181,6 +210,18 @@ public HiveQueryResultSet build() throws SQLException {
     public TProtocolVersion getProtocolVersion() throws SQLException {
       return ((HiveConnection)connection).getProtocol();
     }
+
+    public RowSetCompressor getRowSetCompressor() {
+      return ((HiveConnection)connection).getRowSetCompressor();
+    }
+
+    public boolean isPrefetchEnabled() {
+      return ((HiveConnection)connection).isPrefetchEnabled();
+    }
+
+    public boolean isResultStreamingEnabled() {
+      return ((HiveConnection)connection).isResultStreamingEnabled();
+    }
   }
 
   protected HiveQueryResultSet(Builder builder) throws SQLException {
@@ -207,6 +248,10 @@ protected HiveQueryResultSet(Builder builder) throws SQLException {
     }
     this.isScrollable = builder.isScrollable;
     this.protocol = builder.getProtocolVersion();
+    this.rowSetCompressor = builder.getRowSetCompressor();
+    // Background fetches must not share the client with other calls unguarded
+    this.prefetch = builder.isPrefetchEnabled() && transportLock != null;
+    this.streaming = builder.isResultStreamingEnabled() && transportLock != null;
   }
 
   /**
@@ -313,6 +358,7 @@ private void setSchema(List<String> colNames, List<String> colTypes,
 
   @Override
   public void close() throws SQLException {
+    discardPrefetchedRows();
     if (this.statement != null && (this.statement instanceof HiveStatement)) {
       HiveStatement s = (HiveStatement) this.statement;
       s.closeClientOperation();
@@ -344,29 +390,36 @@ public boolean next() throws SQLException {
       if (fetchFirst) {
         // If we are asked to start from begining, clear the current fetched resultset
         orientation = TFetchOrientation.FETCH_FIRST;
+        discardPrefetchedRows();
         fetchedRows = null;
         fetchedRowsItr = null;
         fetchFirst = false;
       }
       if (fetchedRows == null || !fetchedRowsItr.hasNext()) {
-        TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle,
-            orientation, fetchSize);
-        TFetchResultsResp fetchResp;
-        if (transportLock == null) {
-          fetchResp = client.FetchResults(fetchReq);
+        TRowSet results;
+        if (prefetchedRows != null) {
+          results = takePrefetchedRows();
         } else {
-          transportLock.lock();
-          try {
-            fetchResp = client.FetchResults(fetchReq);
-          } finally {
-            transportLock.unlock();
-          }
+          results = fetchRows(orientation, fetchSize);
         }
-        Utils.verifySuccessWithInfo(fetchResp.getStatus());
-
-        TRowSet results = fetchResp.getResults();
         fetchedRows = RowSetFactory.create(results, protocol);
+        while (streaming && fetchedRows.numRows() == 0) {
+          // Once the query is complete, one last fetch returns the rest of the rows
+          streaming = !isOperationComplete();
+          fetchedRows = RowSetFactory.create(
+              fetchRows(TFetchOrientation.FETCH_NEXT, fetchSize), protocol);
+        }
         fetchedRowsItr = fetchedRows.iterator();
+        if (prefetch && fetchedRows.numRows() > 0
+            && (maxRows <= 0 || rowsFetched + fetchedRows.numRows() < maxRows)) {
+          final int batchSize = fetchSize;
+          prefetchedRows = prefetchPool.submit(new Callable<TRowSet>() {
+            @Override
+            public TRowSet call() throws Exception {
+              return fetchRows(TFetchOrientation.FETCH_NEXT, batchSize);
+            }
+          });
+        }
       }
 
       String rowStr = "";
@@ -391,6 +444,90 @@ public boolean next() throws SQLException {
     return true;
   }
 
+  /**
+   * @return whether the query is complete.
+   * @throws SQLException if the query failed or was cancelled
+   */
+  private boolean isOperationComplete() throws Exception {
+    TGetOperationStatusReq statusReq = new TGetOperationStatusReq(stmtHandle);
+    TGetOperationStatusResp statusResp;
+    transportLock.lock();
+    try {
+      statusResp = client.GetOperationStatus(statusReq);
+    } finally {
+      transportLock.unlock();
+    }
+    Utils.verifySuccessWithInfo(statusResp.getStatus());
+    switch (statusResp.getOperationState()) {
+    case FINISHED_STATE:
+    case CLOSED_STATE:
+      return true;
+    case CANCELED_STATE:
+      throw new SQLException("Query was cancelled", "01000");
+    case ERROR_STATE:
+      throw new SQLException(statusResp.getErrorMessage(),
+          statusResp.getSqlState(), statusResp.getErrorCode());
+    case UKNOWN_STATE:
+      throw new SQLException("Unknown query", "HY000");
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Fetches a batch of rows from the server, decompressing it if needed.
+   */
+  private TRowSet fetchRows(TFetchOrientation orientation, int batchSize) throws Exception {
+    TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle, orientation, batchSize);
+    TFetchResultsResp fetchResp;
+    if (transportLock == null) {
+      fetchResp = client.FetchResults(fetchReq);
+    } else {
+      transportLock.lock();
+      try {
+        fetchResp = client.FetchResults(fetchReq);
+      } finally {
+        transportLock.unlock();
+      }
+    }
+    Utils.verifySuccessWithInfo(fetchResp.getStatus());
+
+    TRowSet results = fetchResp.getResults();
+    if (rowSetCompressor != null) {
+      results = rowSetCompressor.decompress(results);
+    }
+    return results;
+  }
+
+  private TRowSet takePrefetchedRows() throws Exception {
+    Future<TRowSet> pending = prefetchedRows;
+    prefetchedRows = null;
+    try {
+      return pending.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for an outstanding background fetch and drops its rows. The fetch is not cancelled
+   * as that could leave the transport in the middle of a call.
+   */
+  private void discardPrefetchedRows() {
+    if (prefetchedRows == null) {
+      return;
+    }
+    try {
+      takePrefetchedRows();
+    } catch (Exception e) {
+      LOG.debug("Ignoring error of discarded background fetch", e);
+    }
+  }
+
   @Override
   public ResultSetMetaData getMetaData() throws SQLException {
     if (isClosed) {
@@ -119,6 +119,7 @@ public HiveStatement(HiveConnection connection, TCLIService.Iface client,
     this.client = client;
     this.sessHandle = sessHandle;
     this.isScrollableResultset = isScrollableResultset;
+    this.fetchSize = connection.getDefaultFetchSize();
   }
 
   /*
@@ -297,9 +298,14 @@ public boolean execute(String sql) throws SQLException {
                 statusResp.getSqlState(), statusResp.getErrorCode());
           case UKNOWN_STATE:
             throw new SQLException("Unknown query", "HY000");
+          case RUNNING_STATE:
+            // The rows of a running query can be fetched as they are produced
+            if (stmtHandle.isHasResultSet() && connection.isResultStreamingEnabled()) {
+              operationComplete = true;
+            }
+            break;
           case INITIALIZED_STATE:
           case PENDING_STATE:
-          case RUNNING_STATE:
             break;
           }
         }
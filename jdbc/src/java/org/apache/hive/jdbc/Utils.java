@@ -98,6 +98,14 @@ public static class JdbcConnectionParams {
     // Default namespace value on ZooKeeper.
     // This value is used if the param "zooKeeperNamespace" is not specified in the JDBC Uri.
     static final String ZOOKEEPER_DEFAULT_NAMESPACE = "hiveserver2";
+    // Compression codec class to ask the server to compress query results with
+    static final String RESULTSET_COMPRESSOR = "resultsetCompressor";
+    // Default number of rows fetched per round trip
+    static final String FETCH_SIZE = "fetchSize";
+    // Fetch the next batch of rows in the background while the current one is consumed
+    static final String PREFETCH = "prefetch";
+    // Fetch the rows of a query while it is still running
+    static final String STREAM_RESULTS = "streamResults";
 
     // Non-configurable params:
     // Currently supports JKS keystore format
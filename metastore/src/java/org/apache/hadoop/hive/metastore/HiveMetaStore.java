@@ -24,6 +24,8 @@
 import static org.apache.hadoop.hive.metastore.MetaStoreUtils.validateName;
 
 import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.security.PrivilegedExceptionAction;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.AbstractMap;
@@ -42,6 +44,12 @@
 import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
@@ -217,6 +225,7 @@
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * TODO:pc remove application logic to a separate interface.
@@ -2064,13 +2073,19 @@ private List<Partition> add_partitions_core(
           firePreEvent(new PreAddPartitionEvent(tbl, parts, this));
         }
 
+        Set<PartValEqWrapper> existing = getExistingPartitions(ms, tbl, parts);
+        List<Partition> partsToAdd = new ArrayList<Partition>(parts.size());
         for (Partition part : parts) {
           if (!part.getTableName().equals(tblName) || !part.getDbName().equals(dbName)) {
             throw new MetaException("Partition does not belong to target table "
                 + dbName + "." + tblName + ": " + part);
           }
-          boolean shouldAdd = startAddPartition(ms, part, ifNotExists);
-          if (!shouldAdd) {
+          MetaStoreUtils.validatePartitionNameCharacters(part.getValues(),
+              partitionValidationPattern);
+          if (existing.contains(new PartValEqWrapper(part))) {
+            if (!ifNotExists) {
+              throw new AlreadyExistsException("Partition already exists: " + part);
+            }
             if (existingParts == null) {
               existingParts = new ArrayList<Partition>();
             }
@@ -2078,16 +2093,16 @@ private List<Partition> add_partitions_core(
             LOG.info("Not adding partition " + part + " as it already exists");
             continue;
           }
-          boolean madeDir = createLocationForAddedPartition(tbl, part);
-          if (addedPartitions.put(new PartValEqWrapper(part), madeDir) != null) {
+          if (addedPartitions.put(new PartValEqWrapper(part), false) != null) {
             // Technically, for ifNotExists case, we could insert one and discard the other
             // because the first one now "exists", but it seems better to report the problem
             // upstream as such a command doesn't make sense.
             throw new MetaException("Duplicate partitions in the list: " + part);
           }
-          initializeAddedPartition(tbl, part, madeDir);
-          result.add(part);
+          partsToAdd.add(part);
         }
+        createLocationsForAddedPartitions(tbl, partsToAdd, addedPartitions);
+        result.addAll(partsToAdd);
         if (!result.isEmpty()) {
           success = ms.addPartitions(dbName, tblName, result);
         } else {
@@ -2248,6 +2263,149 @@ private int add_partitions_pspec_core(
       }
     }
 
+    /**
+     * Looks up which of the given partitions already exist, a batch of names at a time.
+     */
+    private Set<PartValEqWrapper> getExistingPartitions(RawStore ms, Table tbl,
+        List<Partition> parts) throws MetaException, NoSuchObjectException {
+      int batchSize = Math.max(1,
+          hiveConf.getIntVar(ConfVars.METASTORE_BATCH_RETRIEVE_TABLE_PARTITION_MAX));
+      Set<PartValEqWrapper> existing = new HashSet<PartValEqWrapper>();
+      List<String> partNames = new ArrayList<String>(Math.min(batchSize, parts.size()));
+      for (int i = 0; i < parts.size(); ++i) {
+        partNames.add(Warehouse.makePartName(tbl.getPartitionKeys(), parts.get(i).getValues()));
+        if (partNames.size() == batchSize || i == parts.size() - 1) {
+          for (Partition part
+              : ms.getPartitionsByNames(tbl.getDbName(), tbl.getTableName(), partNames)) {
+            existing.add(new PartValEqWrapper(part));
+          }
+          partNames.clear();
+        }
+      }
+      return existing;
+    }
+
+    /**
+     * Creates the directories of the partitions being added, then initializes the partitions,
+     * spreading the file system calls over several threads. The directories that were created
+     * are recorded in addedPartitions even if some of the partitions fail, so that the caller
+     * can clean them up.
+     */
+    private void createLocationsForAddedPartitions(final Table tbl, List<Partition> parts,
+        Map<PartValEqWrapper, Boolean> addedPartitions) throws MetaException {
+      List<Callable<Boolean>> mkdirTasks = new ArrayList<Callable<Boolean>>(parts.size());
+      for (final Partition part : parts) {
+        mkdirTasks.add(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            return createLocationForAddedPartition(tbl, part);
+          }
+        });
+      }
+      List<Future<Boolean>> madeDirs = invokeFsTasks(mkdirTasks);
+      MetaException failure = null;
+      for (int i = 0; i < parts.size(); ++i) {
+        try {
+          addedPartitions.put(new PartValEqWrapper(parts.get(i)),
+              getFsTaskResult(madeDirs.get(i)));
+        } catch (MetaException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+
+      List<Callable<Void>> initTasks = new ArrayList<Callable<Void>>(parts.size());
+      for (int i = 0; i < parts.size(); ++i) {
+        final Partition part = parts.get(i);
+        final boolean madeDir = getFsTaskResult(madeDirs.get(i));
+        initTasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            initializeAddedPartition(tbl, part, madeDir);
+            return null;
+          }
+        });
+      }
+      for (Future<Void> future : invokeFsTasks(initTasks)) {
+        getFsTaskResult(future);
+      }
+    }
+
+    /**
+     * Runs file system tasks on a pool as the calling user, and waits for all of them to
+     * complete, successfully or not. The pool only lives for these tasks, since the handler
+     * has no shutdown of its own: HMSHandler.shutdown is also called whenever a remote client
+     * disconnects. A single task is run by the calling thread.
+     * @return the completed tasks, in order; see {@link #getFsTaskResult(Future)}.
+     */
+    private <T> List<Future<T>> invokeFsTasks(List<Callable<T>> tasks) throws MetaException {
+      if (tasks.size() <= 1) {
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+          FutureTask<T> future = new FutureTask<T>(task);
+          future.run();
+          futures.add(future);
+        }
+        return futures;
+      }
+      final UserGroupInformation ugi;
+      try {
+        ugi = UserGroupInformation.getCurrentUser();
+      } catch (IOException e) {
+        throw newMetaException(e);
+      }
+      List<Callable<T>> asUser = new ArrayList<Callable<T>>(tasks.size());
+      for (final Callable<T> task : tasks) {
+        asUser.add(new Callable<T>() {
+          @Override
+          public T call() throws Exception {
+            return ugi.doAs(new PrivilegedExceptionAction<T>() {
+              @Override
+              public T run() throws Exception {
+                return task.call();
+              }
+            });
+          }
+        });
+      }
+      int threads = Math.min(tasks.size(),
+          Math.max(1, hiveConf.getIntVar(ConfVars.METASTORE_FS_HANDLER_THREADS_COUNT)));
+      ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("HMSHandler-FS-%d").build());
+      try {
+        return pool.invokeAll(asUser);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw newMetaException(e);
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+    private static <T> T getFsTaskResult(Future<T> future) throws MetaException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw newMetaException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UndeclaredThrowableException && cause.getCause() != null) {
+          cause = cause.getCause();
+        }
+        if (cause instanceof MetaException) {
+          throw (MetaException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw newMetaException((Exception) cause);
+      }
+    }
+
     private boolean startAddPartition(
         RawStore ms, Partition part, boolean ifNotExists) throws MetaException, TException {
       MetaStoreUtils.validatePartitionNameCharacters(part.getValues(),
@@ -2669,6 +2827,8 @@ public DropPartitionsResult drop_partitions_req(
           }
         }
 
+        // Paths to check for writability, one per distinct parent directory.
+        Map<Path, Path> pathsToVerify = new LinkedHashMap<Path, Path>();
         for (Partition part : parts) {
           if (!ignoreProtection && !MetaStoreUtils.canDropPartition(tbl, part)) {
             throw new MetaException("Table " + tbl.getTableName()
@@ -2683,15 +2843,32 @@ public DropPartitionsResult drop_partitions_req(
           // and even if the table is external. That might not make any sense.
           if (MetaStoreUtils.isArchived(part)) {
             Path archiveParentDir = MetaStoreUtils.getOriginalLocation(part);
-            verifyIsWritablePath(archiveParentDir);
+            if (!pathsToVerify.containsKey(archiveParentDir.getParent())) {
+              pathsToVerify.put(archiveParentDir.getParent(), archiveParentDir);
+            }
             archToDelete.add(archiveParentDir);
           }
           if ((part.getSd() != null) && (part.getSd().getLocation() != null)) {
             Path partPath = new Path(part.getSd().getLocation());
-            verifyIsWritablePath(partPath);
+            if (!pathsToVerify.containsKey(partPath.getParent())) {
+              pathsToVerify.put(partPath.getParent(), partPath);
+            }
             dirsToDelete.add(new PathAndPartValSize(partPath, part.getValues().size()));
           }
         }
+        List<Callable<Void>> verifyTasks = new ArrayList<Callable<Void>>(pathsToVerify.size());
+        for (final Path path : pathsToVerify.values()) {
+          verifyTasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              verifyIsWritablePath(path);
+              return null;
+            }
+          });
+        }
+        for (Future<Void> future : invokeFsTasks(verifyTasks)) {
+          getFsTaskResult(future);
+        }
 
         ms.dropPartitions(dbName, tblName, partNames);
         success = ms.commitTransaction();
@@ -2706,11 +2883,29 @@ public DropPartitionsResult drop_partitions_req(
         } else if (deleteData && !isExternal(tbl)) {
           // Archived partitions have har:/to_har_file as their location.
           // The original directory was saved in params
-          for (Path path : archToDelete) {
-            wh.deleteDir(path, true);
+          List<Callable<Boolean>> deleteTasks =
+              new ArrayList<Callable<Boolean>>(archToDelete.size() + dirsToDelete.size());
+          for (final Path path : archToDelete) {
+            deleteTasks.add(new Callable<Boolean>() {
+              @Override
+              public Boolean call() throws Exception {
+                return wh.deleteDir(path, true);
+              }
+            });
+          }
+          for (final PathAndPartValSize p : dirsToDelete) {
+            deleteTasks.add(new Callable<Boolean>() {
+              @Override
+              public Boolean call() throws Exception {
+                return wh.deleteDir(p.path, true);
+              }
+            });
           }
+          for (Future<Boolean> future : invokeFsTasks(deleteTasks)) {
+            getFsTaskResult(future);
+          }
+          // Parents are shared between partitions, so they are cleaned up one at a time.
           for (PathAndPartValSize p : dirsToDelete) {
-            wh.deleteDir(p.path, true);
             try {
               deleteParentRecursive(p.path.getParent(), p.partValSize - 1);
             } catch (IOException ex) {
@@ -5573,9 +5768,42 @@ public AggrStats get_aggr_stats_for(PartitionsStatsRequest request)
     public boolean set_aggr_stats_for(SetPartitionsStatsRequest request)
         throws NoSuchObjectException, InvalidObjectException, MetaException, InvalidInputException,
         TException {
-      boolean ret = true;
+      // Group the statistics by table, so that each table is written in one transaction
+      // instead of one per partition.
+      Map<String, List<ColumnStatistics>> statsByTable =
+          new LinkedHashMap<String, List<ColumnStatistics>>();
+      long time = System.currentTimeMillis() / 1000;
       for (ColumnStatistics colStats : request.getColStats()) {
-        ret = ret && update_partition_column_statistics(colStats);
+        ColumnStatisticsDesc statsDesc = colStats.getStatsDesc();
+        statsDesc.setDbName(statsDesc.getDbName().toLowerCase());
+        statsDesc.setTableName(statsDesc.getTableName().toLowerCase());
+        statsDesc.setPartName(lowerCaseConvertPartName(statsDesc.getPartName()));
+        statsDesc.setLastAnalyzed(time);
+        for (ColumnStatisticsObj statsObj : colStats.getStatsObj()) {
+          statsObj.setColName(statsObj.getColName().toLowerCase());
+        }
+        String key = statsDesc.getDbName() + "." + statsDesc.getTableName();
+        List<ColumnStatistics> tableStats = statsByTable.get(key);
+        if (tableStats == null) {
+          tableStats = new ArrayList<ColumnStatistics>();
+          statsByTable.put(key, tableStats);
+        }
+        tableStats.add(colStats);
+      }
+
+      boolean ret = true;
+      for (List<ColumnStatistics> tableStats : statsByTable.values()) {
+        ColumnStatisticsDesc statsDesc = tableStats.get(0).getStatsDesc();
+        String dbName = statsDesc.getDbName(), tableName = statsDesc.getTableName();
+        startFunction("set_aggr_stats_for: db=" + dbName + " table=" + tableName
+            + " partitions=" + tableStats.size());
+        boolean success = false;
+        try {
+          success = getMS().updatePartitionColumnStatistics(dbName, tableName, tableStats);
+          ret = ret && success;
+        } finally {
+          endFunction("set_aggr_stats_for: ", success, null, tableName);
+        }
       }
       return ret;
     }
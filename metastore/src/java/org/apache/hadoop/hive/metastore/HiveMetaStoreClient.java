@@ -150,6 +150,7 @@ public class HiveMetaStoreClient implements IMetaStoreClient {
   private String tokenStrForm;
   private final boolean localMetaStore;
   private final MetaStoreFilterHook filterHook;
+  private final MetaStoreClientCache cache;
 
   private Map<String, String> currentMetaVars;
 
@@ -173,6 +174,7 @@ public HiveMetaStoreClient(HiveConf conf, HiveMetaHookLoader hookLoader)
     }
     this.conf = conf;
     filterHook = loadFilterHooks();
+    cache = MetaStoreClientCache.getInstance(conf);
 
     String msUri = conf.getVar(HiveConf.ConfVars.METASTOREURIS);
     localMetaStore = HiveConfUtil.isEmbeddedMetaStore(msUri);
@@ -315,12 +317,20 @@ public void alter_table(String dbname, String tbl_name, Table new_tbl)
   @Override
   public void alter_table(String dbname, String tbl_name, Table new_tbl, boolean cascade)
       throws InvalidOperationException, MetaException, TException {
-    client.alter_table_with_cascade(dbname, tbl_name, new_tbl, cascade);
+    try {
+      client.alter_table_with_cascade(dbname, tbl_name, new_tbl, cascade);
+    } finally {
+      invalidateCachedTable(dbname, tbl_name);
+    }
   }
 
   public void alter_table(String dbname, String tbl_name, Table new_tbl,
       EnvironmentContext envContext) throws InvalidOperationException, MetaException, TException {
-    client.alter_table_with_environment_context(dbname, tbl_name, new_tbl, envContext);
+    try {
+      client.alter_table_with_environment_context(dbname, tbl_name, new_tbl, envContext);
+    } finally {
+      invalidateCachedTable(dbname, tbl_name);
+    }
   }
 
   /**
@@ -337,7 +347,11 @@ public void alter_table(String dbname, String tbl_name, Table new_tbl,
   @Override
   public void renamePartition(final String dbname, final String name, final List<String> part_vals, final Partition newPart)
       throws InvalidOperationException, MetaException, TException {
-    client.rename_partition(dbname, name, part_vals, newPart);
+    try {
+      client.rename_partition(dbname, name, part_vals, newPart);
+    } finally {
+      invalidateCachedTable(dbname, name);
+    }
   }
 
   private void open() throws MetaException {
@@ -502,7 +516,11 @@ public Partition add_partition(Partition new_part)
   public Partition add_partition(Partition new_part, EnvironmentContext envContext)
       throws InvalidObjectException, AlreadyExistsException, MetaException,
       TException {
-    return deepCopy(client.add_partition_with_environment_context(new_part, envContext));
+    try {
+      return deepCopy(client.add_partition_with_environment_context(new_part, envContext));
+    } finally {
+      invalidateCachedTable(new_part.getDbName(), new_part.getTableName());
+    }
   }
 
   /**
@@ -517,7 +535,13 @@ public Partition add_partition(Partition new_part, EnvironmentContext envContext
   public int add_partitions(List<Partition> new_parts)
       throws InvalidObjectException, AlreadyExistsException, MetaException,
       TException {
-    return client.add_partitions(new_parts);
+    try {
+      return client.add_partitions(new_parts);
+    } finally {
+      for (Partition part : new_parts) {
+        invalidateCachedTable(part.getDbName(), part.getTableName());
+      }
+    }
   }
 
   @Override
@@ -528,16 +552,24 @@ public List<Partition> add_partitions(
       return needResults ? new ArrayList<Partition>() : null;
     }
     Partition part = parts.get(0);
-    AddPartitionsRequest req = new AddPartitionsRequest(
-        part.getDbName(), part.getTableName(), parts, ifNotExists);
-    req.setNeedResult(needResults);
-    AddPartitionsResult result = client.add_partitions_req(req);
-    return needResults ? filterHook.filterPartitions(result.getPartitions()) : null;
+    try {
+      AddPartitionsRequest req = new AddPartitionsRequest(
+          part.getDbName(), part.getTableName(), parts, ifNotExists);
+      req.setNeedResult(needResults);
+      AddPartitionsResult result = client.add_partitions_req(req);
+      return needResults ? filterHook.filterPartitions(result.getPartitions()) : null;
+    } finally {
+      invalidateCachedTable(part.getDbName(), part.getTableName());
+    }
   }
 
   @Override
   public int add_partitions_pspec(PartitionSpecProxy partitionSpec) throws TException {
-    return client.add_partitions_pspec(partitionSpec.toPartitionSpec());
+    try {
+      return client.add_partitions_pspec(partitionSpec.toPartitionSpec());
+    } finally {
+      invalidateCachedTable(partitionSpec.getDbName(), partitionSpec.getTableName());
+    }
   }
 
   /**
@@ -562,8 +594,12 @@ public Partition appendPartition(String db_name, String table_name,
   public Partition appendPartition(String db_name, String table_name, List<String> part_vals,
       EnvironmentContext envContext) throws InvalidObjectException, AlreadyExistsException,
       MetaException, TException {
-    return deepCopy(client.append_partition_with_environment_context(db_name, table_name,
-        part_vals, envContext));
+    try {
+      return deepCopy(client.append_partition_with_environment_context(db_name, table_name,
+          part_vals, envContext));
+    } finally {
+      invalidateCachedTable(db_name, table_name);
+    }
   }
 
   @Override
@@ -575,8 +611,12 @@ public Partition appendPartition(String dbName, String tableName, String partNam
   public Partition appendPartition(String dbName, String tableName, String partName,
       EnvironmentContext envContext) throws InvalidObjectException, AlreadyExistsException,
       MetaException, TException {
-    return deepCopy(client.append_partition_by_name_with_environment_context(dbName, tableName,
-        partName, envContext));
+    try {
+      return deepCopy(client.append_partition_by_name_with_environment_context(dbName, tableName,
+          partName, envContext));
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
   }
 
   /**
@@ -591,8 +631,13 @@ public Partition exchange_partition(Map<String, String> partitionSpecs,
       String sourceDb, String sourceTable, String destDb,
       String destinationTableName) throws MetaException,
       NoSuchObjectException, InvalidObjectException, TException {
-    return client.exchange_partition(partitionSpecs, sourceDb, sourceTable,
-        destDb, destinationTableName);
+    try {
+      return client.exchange_partition(partitionSpecs, sourceDb, sourceTable,
+          destDb, destinationTableName);
+    } finally {
+      invalidateCachedTable(sourceDb, sourceTable);
+      invalidateCachedTable(destDb, destinationTableName);
+    }
   }
 
   @Override
@@ -707,7 +752,13 @@ public void dropDatabase(String name, boolean deleteData, boolean ignoreUnknownD
          }
         }
     }
-    client.drop_database(name, deleteData, cascade);
+    try {
+      client.drop_database(name, deleteData, cascade);
+    } finally {
+      if (cache != null) {
+        cache.invalidateDatabase(name);
+      }
+    }
   }
 
 
@@ -741,8 +792,12 @@ public boolean dropPartition(String dbName, String tableName, String partName, b
 
   public boolean dropPartition(String dbName, String tableName, String partName, boolean deleteData,
       EnvironmentContext envContext) throws NoSuchObjectException, MetaException, TException {
-    return client.drop_partition_by_name_with_environment_context(dbName, tableName, partName,
-        deleteData, envContext);
+    try {
+      return client.drop_partition_by_name_with_environment_context(dbName, tableName, partName,
+          deleteData, envContext);
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
   }
 
   /**
@@ -768,8 +823,12 @@ public boolean dropPartition(String db_name, String tbl_name,
   public boolean dropPartition(String db_name, String tbl_name, List<String> part_vals,
       boolean deleteData, EnvironmentContext envContext) throws NoSuchObjectException,
       MetaException, TException {
-    return client.drop_partition_with_environment_context(db_name, tbl_name, part_vals, deleteData,
-        envContext);
+    try {
+      return client.drop_partition_with_environment_context(db_name, tbl_name, part_vals, deleteData,
+          envContext);
+    } finally {
+      invalidateCachedTable(db_name, tbl_name);
+    }
   }
 
   @Override
@@ -790,7 +849,11 @@ public List<Partition> dropPartitions(String dbName, String tblName,
     req.setIgnoreProtection(ignoreProtection);
     req.setNeedResult(true);
     req.setIfExists(ifExists);
-    return client.drop_partitions_req(req).getPartitions();
+    try {
+      return client.drop_partitions_req(req).getPartitions();
+    } finally {
+      invalidateCachedTable(dbName, tblName);
+    }
   }
 
   /**
@@ -896,6 +959,7 @@ public void dropTable(String dbname, String name, boolean deleteData,
         throw e;
       }
     } finally {
+      invalidateCachedTable(dbname, name);
       if (!success && (hook != null)) {
         hook.rollbackDropTable(tbl);
       }
@@ -1092,15 +1156,56 @@ public Database getDatabase(String name) throws NoSuchObjectException,
   @Override
   public Partition getPartition(String db_name, String tbl_name,
       List<String> part_vals) throws NoSuchObjectException, MetaException, TException {
-    return deepCopy(filterHook.filterPartition(
-        client.get_partition(db_name, tbl_name, part_vals)));
+    String cacheUser = getCacheUser();
+    Partition part = cacheUser == null ? null
+        : cache.getPartition(cacheUser, db_name, tbl_name, part_vals);
+    if (part == null) {
+      long version = cacheUser == null ? 0 : cache.getVersion();
+      part = client.get_partition(db_name, tbl_name, part_vals);
+      if (cacheUser != null) {
+        cache.putPartition(cacheUser, part, version);
+      }
+    }
+    return deepCopy(filterHook.filterPartition(part));
   }
 
   @Override
   public List<Partition> getPartitionsByNames(String db_name, String tbl_name,
       List<String> part_names) throws NoSuchObjectException, MetaException, TException {
-    return deepCopyPartitions(filterHook.filterPartitions(
-        client.get_partitions_by_names(db_name, tbl_name, part_names)));
+    String cacheUser = getCacheUser();
+    if (cacheUser == null) {
+      return deepCopyPartitions(filterHook.filterPartitions(
+          client.get_partitions_by_names(db_name, tbl_name, part_names)));
+    }
+    // Partitions by values, to return them in the order of the names
+    Map<List<String>, Partition> found = new HashMap<List<String>, Partition>();
+    List<List<String>> partVals = new ArrayList<List<String>>(part_names.size());
+    List<String> missing = new ArrayList<String>();
+    for (String partName : part_names) {
+      List<String> vals = Warehouse.getPartValuesFromPartName(partName);
+      partVals.add(vals);
+      Partition part = cache.getPartition(cacheUser, db_name, tbl_name, vals);
+      if (part == null) {
+        missing.add(partName);
+      } else {
+        found.put(vals, part);
+      }
+    }
+    if (!missing.isEmpty()) {
+      long version = cache.getVersion();
+      for (Partition part : client.get_partitions_by_names(db_name, tbl_name, missing)) {
+        cache.putPartition(cacheUser, part, version);
+        found.put(part.getValues(), part);
+      }
+    }
+    List<Partition> parts = new ArrayList<Partition>(found.size());
+    for (List<String> vals : partVals) {
+      Partition part = found.remove(vals);
+      if (part != null) {
+        parts.add(part);
+      }
+    }
+    return deepCopyPartitions(filterHook.filterPartitions(parts));
   }
 
   @Override
@@ -1126,7 +1231,16 @@ public Partition getPartitionWithAuthInfo(String db_name, String tbl_name,
   @Override
   public Table getTable(String dbname, String name) throws MetaException,
       TException, NoSuchObjectException {
-    return deepCopy(filterHook.filterTable(client.get_table(dbname, name)));
+    String cacheUser = getCacheUser();
+    Table table = cacheUser == null ? null : cache.getTable(cacheUser, dbname, name);
+    if (table == null) {
+      long version = cacheUser == null ? 0 : cache.getVersion();
+      table = client.get_table(dbname, name);
+      if (cacheUser != null) {
+        cache.putTable(cacheUser, table, version);
+      }
+    }
+    return deepCopy(filterHook.filterTable(table));
   }
 
   /** {@inheritDoc} */
@@ -1223,13 +1337,21 @@ public List<String> listPartitionNames(String db_name, String tbl_name,
   @Override
   public void alter_partition(String dbName, String tblName, Partition newPart)
       throws InvalidOperationException, MetaException, TException {
-    client.alter_partition(dbName, tblName, newPart);
+    try {
+      client.alter_partition(dbName, tblName, newPart);
+    } finally {
+      invalidateCachedTable(dbName, tblName);
+    }
   }
 
   @Override
   public void alter_partitions(String dbName, String tblName, List<Partition> newParts)
   throws InvalidOperationException, MetaException, TException {
-    client.alter_partitions(dbName, tblName, newParts);
+    try {
+      client.alter_partitions(dbName, tblName, newParts);
+    } finally {
+      invalidateCachedTable(dbName, tblName);
+    }
 }
 
   @Override
@@ -1340,7 +1462,12 @@ public List<Index> listIndexes(String dbName, String tblName, short max)
   public boolean updateTableColumnStatistics(ColumnStatistics statsObj)
     throws NoSuchObjectException, InvalidObjectException, MetaException, TException,
     InvalidInputException{
-    return client.update_table_column_statistics(statsObj);
+    try {
+      return client.update_table_column_statistics(statsObj);
+    } finally {
+      invalidateCachedTable(statsObj.getStatsDesc().getDbName(),
+          statsObj.getStatsDesc().getTableName());
+    }
   }
 
   /** {@inheritDoc} */
@@ -1348,7 +1475,12 @@ public boolean updateTableColumnStatistics(ColumnStatistics statsObj)
   public boolean updatePartitionColumnStatistics(ColumnStatistics statsObj)
     throws NoSuchObjectException, InvalidObjectException, MetaException, TException,
     InvalidInputException{
-    return client.update_partition_column_statistics(statsObj);
+    try {
+      return client.update_partition_column_statistics(statsObj);
+    } finally {
+      invalidateCachedTable(statsObj.getStatsDesc().getDbName(),
+          statsObj.getStatsDesc().getTableName());
+    }
   }
 
   /** {@inheritDoc} */
@@ -1356,7 +1488,14 @@ public boolean updatePartitionColumnStatistics(ColumnStatistics statsObj)
   public boolean setPartitionColumnStatistics(SetPartitionsStatsRequest request)
     throws NoSuchObjectException, InvalidObjectException, MetaException, TException,
     InvalidInputException{
-    return client.set_aggr_stats_for(request);
+    try {
+      return client.set_aggr_stats_for(request);
+    } finally {
+      for (ColumnStatistics statsObj : request.getColStats()) {
+        invalidateCachedTable(statsObj.getStatsDesc().getDbName(),
+            statsObj.getStatsDesc().getTableName());
+      }
+    }
   }
 
   /** {@inheritDoc} */
@@ -1364,8 +1503,31 @@ public boolean setPartitionColumnStatistics(SetPartitionsStatsRequest request)
   public List<ColumnStatisticsObj> getTableColumnStatistics(String dbName, String tableName,
       List<String> colNames) throws NoSuchObjectException, MetaException, TException,
       InvalidInputException, InvalidObjectException {
-    return client.get_table_statistics_req(
-        new TableStatsRequest(dbName, tableName, colNames)).getTableStats();
+    String cacheUser = getCacheUser();
+    if (cacheUser == null) {
+      return client.get_table_statistics_req(
+          new TableStatsRequest(dbName, tableName, colNames)).getTableStats();
+    }
+    Map<String, ColumnStatisticsObj> found = new HashMap<String, ColumnStatisticsObj>();
+    List<String> missing = new ArrayList<String>();
+    for (String colName : colNames) {
+      ColumnStatisticsObj statsObj =
+          cache.getColumnStats(cacheUser, dbName, tableName, null, colName);
+      if (statsObj == null) {
+        missing.add(colName);
+      } else {
+        found.put(colName.toLowerCase(), new ColumnStatisticsObj(statsObj));
+      }
+    }
+    if (!missing.isEmpty()) {
+      long version = cache.getVersion();
+      for (ColumnStatisticsObj statsObj : client.get_table_statistics_req(
+          new TableStatsRequest(dbName, tableName, missing)).getTableStats()) {
+        cache.putColumnStats(cacheUser, dbName, tableName, null, statsObj, version);
+        found.put(statsObj.getColName().toLowerCase(), statsObj);
+      }
+    }
+    return inColumnOrder(found, colNames);
   }
 
   /** {@inheritDoc} */
@@ -1373,8 +1535,56 @@ public List<ColumnStatisticsObj> getTableColumnStatistics(String dbName, String
   public Map<String, List<ColumnStatisticsObj>> getPartitionColumnStatistics(
       String dbName, String tableName, List<String> partNames, List<String> colNames)
           throws NoSuchObjectException, MetaException, TException {
-    return client.get_partitions_statistics_req(
-        new PartitionsStatsRequest(dbName, tableName, colNames, partNames)).getPartStats();
+    String cacheUser = getCacheUser();
+    if (cacheUser == null) {
+      return client.get_partitions_statistics_req(
+          new PartitionsStatsRequest(dbName, tableName, colNames, partNames)).getPartStats();
+    }
+    // Partitions with any column missing from the cache are re-fetched as a whole, so that
+    // a single request covers all of them.
+    Map<String, List<ColumnStatisticsObj>> found =
+        new HashMap<String, List<ColumnStatisticsObj>>();
+    List<String> missing = new ArrayList<String>();
+    for (String partName : partNames) {
+      List<ColumnStatisticsObj> partStats = new ArrayList<ColumnStatisticsObj>(colNames.size());
+      for (String colName : colNames) {
+        ColumnStatisticsObj statsObj =
+            cache.getColumnStats(cacheUser, dbName, tableName, partName, colName);
+        if (statsObj == null) {
+          partStats = null;
+          break;
+        }
+        partStats.add(new ColumnStatisticsObj(statsObj));
+      }
+      if (partStats == null) {
+        missing.add(partName);
+      } else {
+        found.put(partName, partStats);
+      }
+    }
+    if (!missing.isEmpty()) {
+      long version = cache.getVersion();
+      Map<String, List<ColumnStatisticsObj>> fetched = client.get_partitions_statistics_req(
+          new PartitionsStatsRequest(dbName, tableName, colNames, missing)).getPartStats();
+      for (Map.Entry<String, List<ColumnStatisticsObj>> entry : fetched.entrySet()) {
+        Map<String, ColumnStatisticsObj> byColumn = new HashMap<String, ColumnStatisticsObj>();
+        for (ColumnStatisticsObj statsObj : entry.getValue()) {
+          cache.putColumnStats(cacheUser, dbName, tableName, entry.getKey(), statsObj, version);
+          byColumn.put(statsObj.getColName().toLowerCase(), statsObj);
+        }
+        found.put(entry.getKey(), inColumnOrder(byColumn, colNames));
+      }
+    }
+    // In the order of the partition names, as the metastore returns them
+    Map<String, List<ColumnStatisticsObj>> stats =
+        new LinkedHashMap<String, List<ColumnStatisticsObj>>();
+    for (String partName : partNames) {
+      List<ColumnStatisticsObj> partStats = found.get(partName);
+      if (partStats != null) {
+        stats.put(partName, partStats);
+      }
+    }
+    return stats;
   }
 
   /** {@inheritDoc} */
@@ -1383,7 +1593,11 @@ public boolean deletePartitionColumnStatistics(String dbName, String tableName,
     String colName) throws NoSuchObjectException, InvalidObjectException, MetaException,
     TException, InvalidInputException
   {
-    return client.delete_partition_column_statistics(dbName, tableName, partName, colName);
+    try {
+      return client.delete_partition_column_statistics(dbName, tableName, partName, colName);
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
   }
 
   /** {@inheritDoc} */
@@ -1392,7 +1606,11 @@ public boolean deleteTableColumnStatistics(String dbName, String tableName, Stri
     throws NoSuchObjectException, InvalidObjectException, MetaException, TException,
     InvalidInputException
   {
-    return client.delete_table_column_statistics(dbName, tableName, colName);
+    try {
+      return client.delete_table_column_statistics(dbName, tableName, colName);
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
   }
 
   /**
@@ -1421,7 +1639,17 @@ public String getConfigValue(String name, String defaultValue)
   @Override
   public Partition getPartition(String db, String tableName, String partName)
       throws MetaException, TException, UnknownTableException, NoSuchObjectException {
-    return deepCopy(filterHook.filterPartition(client.get_partition_by_name(db, tableName, partName)));
+    String cacheUser = getCacheUser();
+    Partition part = cacheUser == null ? null : cache.getPartition(
+        cacheUser, db, tableName, Warehouse.getPartValuesFromPartName(partName));
+    if (part == null) {
+      long version = cacheUser == null ? 0 : cache.getVersion();
+      part = client.get_partition_by_name(db, tableName, partName);
+      if (cacheUser != null) {
+        cache.putPartition(cacheUser, part, version);
+      }
+    }
+    return deepCopy(filterHook.filterPartition(part));
   }
 
   public Partition appendPartitionByName(String dbName, String tableName, String partName)
@@ -1432,8 +1660,12 @@ public Partition appendPartitionByName(String dbName, String tableName, String p
   public Partition appendPartitionByName(String dbName, String tableName, String partName,
       EnvironmentContext envContext) throws InvalidObjectException, AlreadyExistsException,
       MetaException, TException {
-    return deepCopy(client.append_partition_by_name_with_environment_context(dbName, tableName,
-        partName, envContext));
+    try {
+      return deepCopy(client.append_partition_by_name_with_environment_context(dbName, tableName,
+          partName, envContext));
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
   }
 
   public boolean dropPartitionByName(String dbName, String tableName, String partName,
@@ -1444,8 +1676,52 @@ public boolean dropPartitionByName(String dbName, String tableName, String partN
   public boolean dropPartitionByName(String dbName, String tableName, String partName,
       boolean deleteData, EnvironmentContext envContext) throws NoSuchObjectException,
       MetaException, TException {
-    return client.drop_partition_by_name_with_environment_context(dbName, tableName, partName,
-        deleteData, envContext);
+    try {
+      return client.drop_partition_by_name_with_environment_context(dbName, tableName, partName,
+          deleteData, envContext);
+    } finally {
+      invalidateCachedTable(dbName, tableName);
+    }
+  }
+
+  private void invalidateCachedTable(String dbName, String tableName) {
+    if (cache != null) {
+      cache.invalidateTable(dbName, tableName);
+    }
+  }
+
+  /**
+   * The metastore checks read access for the user of the call, with its groups, so the cached
+   * objects are only served to the same user and groups.
+   * @return the user and groups to cache the objects read for, or null to bypass the cache.
+   */
+  private String getCacheUser() {
+    if (cache == null) {
+      return null;
+    }
+    try {
+      UserGroupInformation ugi = Utils.getUGI();
+      StringBuilder sb = new StringBuilder(ugi.getUserName());
+      for (String group : ugi.getGroupNames()) {
+        sb.append(',').append(group);
+      }
+      return sb.toString();
+    } catch (Exception e) {
+      LOG.warn("Unable to get the current user, bypassing the metastore client cache", e);
+      return null;
+    }
+  }
+
+  private static List<ColumnStatisticsObj> inColumnOrder(Map<String, ColumnStatisticsObj> stats,
+      List<String> colNames) {
+    List<ColumnStatisticsObj> result = new ArrayList<ColumnStatisticsObj>(stats.size());
+    for (String colName : colNames) {
+      ColumnStatisticsObj statsObj = stats.remove(colName.toLowerCase());
+      if (statsObj != null) {
+        result.add(statsObj);
+      }
+    }
+    return result;
   }
 
   private HiveMetaHook getHook(Table tbl) throws MetaException {
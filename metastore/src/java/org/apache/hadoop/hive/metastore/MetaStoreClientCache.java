@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.metastore;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Process-wide cache of metastore objects used by {@link HiveMetaStoreClient}. All the
+ * clients in a JVM (e.g. every HiveServer2 session) share one instance, so a table fetched
+ * while compiling one query is reused by the next one. Entries are bounded in number,
+ * expire after a fixed time, and are invalidated by any DDL that goes through a client
+ * in this JVM. The cache holds the objects as returned by the metastore; callers are
+ * expected to copy them and to apply their own filter hooks.
+ *
+ * Every entry belongs to the user, with the groups, it was fetched for: the metastore checks
+ * read access when an object is fetched, so an object is only served again to the same user.
+ * A cached object is not checked again until it expires, hence a revoked privilege takes effect
+ * after at most hive.metastore.client.cache.ttl.
+ *
+ * To not cache what was read before a concurrent invalidation, callers take the
+ * {@link #getVersion() version} of the cache before fetching an object and pass it to the put,
+ * which drops the object if anything was invalidated in between.
+ */
+public class MetaStoreClientCache {
+  private static final Log LOG = LogFactory.getLog(MetaStoreClientCache.class);
+
+  /** Separates the qualified table name from the rest of a key. */
+  private static final char SEP = '\u0001';
+
+  private static MetaStoreClientCache instance;
+
+  private final Cache<String, Table> tables;
+  private final Cache<String, Partition> partitions;
+  private final Cache<String, ColumnStatisticsObj> columnStats;
+  /** Incremented before every invalidation. */
+  private final AtomicLong version = new AtomicLong();
+
+  MetaStoreClientCache(int maxSize, long ttlMs) {
+    tables = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    partitions = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    columnStats = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+  }
+
+  /**
+   * The cache is sized from the configuration of the process (hive-site.xml and system
+   * properties) rather than from the given one, which may be the configuration of any session.
+   * @return the shared cache, or null if caching is disabled in the given configuration.
+   */
+  public static synchronized MetaStoreClientCache getInstance(HiveConf conf) {
+    if (!HiveConf.getBoolVar(conf, HiveConf.ConfVars.METASTORE_CLIENT_CACHE_ENABLED)) {
+      return null;
+    }
+    if (instance == null) {
+      HiveConf processConf = new HiveConf();
+      int maxSize = HiveConf.getIntVar(
+          processConf, HiveConf.ConfVars.METASTORE_CLIENT_CACHE_MAX_SIZE);
+      long ttlMs = HiveConf.getTimeVar(
+          processConf, HiveConf.ConfVars.METASTORE_CLIENT_CACHE_TTL, TimeUnit.MILLISECONDS);
+      LOG.info("Creating metastore client cache with max size " + maxSize
+          + " and TTL " + ttlMs + "ms");
+      instance = new MetaStoreClientCache(maxSize, ttlMs);
+    }
+    return instance;
+  }
+
+  /**
+   * @return the version to pass to the puts of the objects fetched from now on.
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  public Table getTable(String user, String dbName, String tableName) {
+    return tables.getIfPresent(tableKey(user, dbName, tableName));
+  }
+
+  public void putTable(String user, Table table, long version) {
+    String key = tableKey(user, table.getDbName(), table.getTableName());
+    tables.put(key, new Table(table));
+    if (isStale(version)) {
+      tables.invalidate(key);
+    }
+  }
+
+  public Partition getPartition(String user, String dbName, String tableName,
+      List<String> partVals) {
+    return partitions.getIfPresent(partitionKey(user, dbName, tableName, partVals));
+  }
+
+  public void putPartition(String user, Partition part, long version) {
+    String key = partitionKey(user, part.getDbName(), part.getTableName(), part.getValues());
+    partitions.put(key, new Partition(part));
+    if (isStale(version)) {
+      partitions.invalidate(key);
+    }
+  }
+
+  /**
+   * @param partName partition name, or null for table level statistics.
+   */
+  public ColumnStatisticsObj getColumnStats(String user, String dbName, String tableName,
+      String partName, String colName) {
+    return columnStats.getIfPresent(columnStatsKey(user, dbName, tableName, partName, colName));
+  }
+
+  /**
+   * @param partName partition name, or null for table level statistics.
+   */
+  public void putColumnStats(String user, String dbName, String tableName, String partName,
+      ColumnStatisticsObj statsObj, long version) {
+    String key = columnStatsKey(user, dbName, tableName, partName, statsObj.getColName());
+    columnStats.put(key, new ColumnStatisticsObj(statsObj));
+    if (isStale(version)) {
+      columnStats.invalidate(key);
+    }
+  }
+
+  /**
+   * Checked after the put, so that either the put follows the increment of the version by an
+   * invalidation and is undone here, or it precedes it and is dropped by the invalidation.
+   */
+  private boolean isStale(long fetchVersion) {
+    return version.get() != fetchVersion;
+  }
+
+  /**
+   * Drops the table and everything cached for its partitions and columns.
+   */
+  public void invalidateTable(String dbName, String tableName) {
+    version.incrementAndGet();
+    String prefix = tablePrefix(dbName, tableName);
+    invalidatePrefix(tables.asMap().keySet().iterator(), prefix);
+    invalidatePrefix(partitions.asMap().keySet().iterator(), prefix);
+    invalidatePrefix(columnStats.asMap().keySet().iterator(), prefix);
+  }
+
+  /**
+   * Drops everything cached for the tables of the given database.
+   */
+  public void invalidateDatabase(String dbName) {
+    version.incrementAndGet();
+    String prefix = dbName.toLowerCase() + ".";
+    invalidatePrefix(tables.asMap().keySet().iterator(), prefix);
+    invalidatePrefix(partitions.asMap().keySet().iterator(), prefix);
+    invalidatePrefix(columnStats.asMap().keySet().iterator(), prefix);
+  }
+
+  public void invalidateAll() {
+    version.incrementAndGet();
+    tables.invalidateAll();
+    partitions.invalidateAll();
+    columnStats.invalidateAll();
+  }
+
+  private static void invalidatePrefix(Iterator<String> keys, String prefix) {
+    while (keys.hasNext()) {
+      if (keys.next().startsWith(prefix)) {
+        keys.remove();
+      }
+    }
+  }
+
+  private static String tablePrefix(String dbName, String tableName) {
+    return dbName.toLowerCase() + "." + tableName.toLowerCase() + SEP;
+  }
+
+  private static String tableKey(String user, String dbName, String tableName) {
+    return tablePrefix(dbName, tableName) + SEP + user;
+  }
+
+  private static String partitionKey(String user, String dbName, String tableName,
+      List<String> partVals) {
+    StringBuilder sb = new StringBuilder(tablePrefix(dbName, tableName));
+    for (int i = 0; i < partVals.size(); ++i) {
+      if (i > 0) {
+        sb.append('/');
+      }
+      sb.append(FileUtils.escapePathName(partVals.get(i)));
+    }
+    return sb.append(SEP).append(user).toString();
+  }
+
+  private static String columnStatsKey(String user, String dbName, String tableName,
+      String partName, String colName) {
+    StringBuilder sb = new StringBuilder(tablePrefix(dbName, tableName));
+    if (partName != null) {
+      sb.append(partName);
+    }
+    sb.append(SEP).append(colName.toLowerCase());
+    return sb.append(SEP).append(user).toString();
+  }
+}
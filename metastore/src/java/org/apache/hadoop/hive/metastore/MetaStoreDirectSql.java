@@ -22,14 +22,21 @@
 import static org.apache.commons.lang.StringUtils.repeat;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import javax.jdo.JDODataStoreException;
@@ -1353,6 +1360,20 @@ public List<ColumnStatistics> getPartitionStats(String dbName, String tableName,
     if (colNames.isEmpty() || partNames.isEmpty()) {
       return Lists.newArrayList();
     }
+    if (batchSize == NO_BATCHING || batchSize >= partNames.size()) {
+      return getPartitionStatsBatch(dbName, tableName, partNames, colNames);
+    }
+    // Each partition is entirely within one batch, so the results can simply be appended.
+    List<ColumnStatistics> result = new ArrayList<ColumnStatistics>(partNames.size());
+    for (int from = 0; from < partNames.size(); from += batchSize) {
+      List<String> batch = partNames.subList(from, Math.min(from + batchSize, partNames.size()));
+      result.addAll(getPartitionStatsBatch(dbName, tableName, batch, colNames));
+    }
+    return result;
+  }
+
+  private List<ColumnStatistics> getPartitionStatsBatch(String dbName, String tableName,
+      List<String> partNames, List<String> colNames) throws MetaException {
     boolean doTrace = LOG.isDebugEnabled();
     long start = doTrace ? System.nanoTime() : 0;
     String queryText = "select \"PARTITION_NAME\", " + STATS_COLLIST + " from \"PART_COL_STATS\""
@@ -1392,6 +1413,168 @@ public List<ColumnStatistics> getPartitionStats(String dbName, String tableName,
     return result;
   }
 
+  /**
+   * Updates existing partition column statistics rows using a JDBC batch. As with
+   * {@link StatObjectConverter#setFieldsIntoOldStats}, only the values that are set in the
+   * new statistics overwrite the stored ones. Rows that don't exist yet are not inserted,
+   * because their ids are generated by DataNucleus; they are returned to the caller instead.
+   * Must be called inside a transaction.
+   * @param stats Statistics to write; partition names must be normalized.
+   * @return The statistics for which there was no row to update.
+   */
+  public List<MPartitionColumnStatistics> updatePartitionStats(
+      List<MPartitionColumnStatistics> stats) throws MetaException {
+    List<MPartitionColumnStatistics> notUpdated = new ArrayList<MPartitionColumnStatistics>();
+    List<MPartitionColumnStatistics> unknown = new ArrayList<MPartitionColumnStatistics>();
+    if (stats.isEmpty()) {
+      return notUpdated;
+    }
+    doDbSpecificInitializationsBeforeQuery();
+    boolean doTrace = LOG.isDebugEnabled();
+    long start = doTrace ? System.nanoTime() : 0;
+    String queryText = "update \"PART_COL_STATS\" set "
+      + "\"LONG_LOW_VALUE\" = coalesce(?, \"LONG_LOW_VALUE\"), "
+      + "\"LONG_HIGH_VALUE\" = coalesce(?, \"LONG_HIGH_VALUE\"), "
+      + "\"DOUBLE_LOW_VALUE\" = coalesce(?, \"DOUBLE_LOW_VALUE\"), "
+      + "\"DOUBLE_HIGH_VALUE\" = coalesce(?, \"DOUBLE_HIGH_VALUE\"), "
+      + "\"BIG_DECIMAL_LOW_VALUE\" = coalesce(?, \"BIG_DECIMAL_LOW_VALUE\"), "
+      + "\"BIG_DECIMAL_HIGH_VALUE\" = coalesce(?, \"BIG_DECIMAL_HIGH_VALUE\"), "
+      + "\"NUM_NULLS\" = coalesce(?, \"NUM_NULLS\"), "
+      + "\"NUM_DISTINCTS\" = coalesce(?, \"NUM_DISTINCTS\"), "
+      + "\"AVG_COL_LEN\" = coalesce(?, \"AVG_COL_LEN\"), "
+      + "\"MAX_COL_LEN\" = coalesce(?, \"MAX_COL_LEN\"), "
+      + "\"NUM_TRUES\" = coalesce(?, \"NUM_TRUES\"), "
+      + "\"NUM_FALSES\" = coalesce(?, \"NUM_FALSES\"), "
+      + "\"LAST_ANALYZED\" = ? "
+      + "where \"DB_NAME\" = ? and \"TABLE_NAME\" = ? and \"PARTITION_NAME\" = ? "
+      + "and \"COLUMN_NAME\" = ?";
+    int maxBatch = (batchSize == NO_BATCHING) ? stats.size() : batchSize;
+    JDOConnection jdoConn = pm.getDataStoreConnection();
+    PreparedStatement ps = null;
+    try {
+      Connection connection = (Connection)jdoConn.getNativeConnection();
+      ps = connection.prepareStatement(queryText);
+      for (int from = 0; from < stats.size(); from += maxBatch) {
+        List<MPartitionColumnStatistics> batch =
+            stats.subList(from, Math.min(from + maxBatch, stats.size()));
+        for (MPartitionColumnStatistics mStats : batch) {
+          int i = 1;
+          setLong(ps, i++, mStats.getLongLowValue());
+          setLong(ps, i++, mStats.getLongHighValue());
+          setDouble(ps, i++, mStats.getDoubleLowValue());
+          setDouble(ps, i++, mStats.getDoubleHighValue());
+          setString(ps, i++, mStats.getDecimalLowValue());
+          setString(ps, i++, mStats.getDecimalHighValue());
+          setLong(ps, i++, mStats.getNumNulls());
+          setLong(ps, i++, mStats.getNumDVs());
+          setDouble(ps, i++, mStats.getAvgColLen());
+          setLong(ps, i++, mStats.getMaxColLen());
+          setLong(ps, i++, mStats.getNumTrues());
+          setLong(ps, i++, mStats.getNumFalses());
+          ps.setLong(i++, mStats.getLastAnalyzed());
+          ps.setString(i++, mStats.getDbName());
+          ps.setString(i++, mStats.getTableName());
+          ps.setString(i++, mStats.getPartitionName());
+          ps.setString(i++, mStats.getColName());
+          ps.addBatch();
+        }
+        int[] counts = ps.executeBatch();
+        for (int i = 0; i < counts.length; ++i) {
+          if (counts[i] == Statement.SUCCESS_NO_INFO) {
+            // Some drivers don't report per-statement counts; look the row up below.
+            unknown.add(batch.get(i));
+          } else if (counts[i] == 0) {
+            notUpdated.add(batch.get(i));
+          }
+        }
+      }
+      if (!unknown.isEmpty()) {
+        notUpdated.addAll(getMissingPartitionStats(connection, unknown, maxBatch));
+      }
+    } catch (SQLException ex) {
+      LOG.warn("Failed to execute [" + queryText + "]", ex);
+      throw new MetaException("See previous errors; " + ex.getMessage());
+    } finally {
+      if (ps != null) {
+        try {
+          ps.close();
+        } catch (SQLException ex) {
+          LOG.warn("Failed to close statement", ex);
+        }
+      }
+      jdoConn.close(); // We must release the connection before we call other pm methods.
+    }
+    timingTrace(doTrace, queryText, start, doTrace ? System.nanoTime() : 0);
+    return notUpdated;
+  }
+
+  /**
+   * Finds the statistics that have no row in PART_COL_STATS, for the updates whose count
+   * was not reported by the JDBC driver. All the statistics must be for the same table.
+   */
+  private List<MPartitionColumnStatistics> getMissingPartitionStats(Connection connection,
+      List<MPartitionColumnStatistics> stats, int maxBatch) throws SQLException {
+    Set<String> uniqueNames = new LinkedHashSet<String>();
+    for (MPartitionColumnStatistics mStats : stats) {
+      uniqueNames.add(mStats.getPartitionName());
+    }
+    List<String> partNames = new ArrayList<String>(uniqueNames);
+    Set<String> existing = new HashSet<String>();
+    for (int from = 0; from < partNames.size(); from += maxBatch) {
+      List<String> batch = partNames.subList(from, Math.min(from + maxBatch, partNames.size()));
+      String queryText = "select \"PARTITION_NAME\", \"COLUMN_NAME\" from \"PART_COL_STATS\""
+          + " where \"DB_NAME\" = ? and \"TABLE_NAME\" = ? and \"PARTITION_NAME\" in ("
+          + makeParams(batch.size()) + ")";
+      PreparedStatement ps = connection.prepareStatement(queryText);
+      try {
+        int i = 1;
+        ps.setString(i++, stats.get(0).getDbName());
+        ps.setString(i++, stats.get(0).getTableName());
+        for (String partName : batch) {
+          ps.setString(i++, partName);
+        }
+        ResultSet rs = ps.executeQuery();
+        while (rs.next()) {
+          existing.add(rs.getString(1) + "/" + rs.getString(2));
+        }
+        rs.close();
+      } finally {
+        ps.close();
+      }
+    }
+    List<MPartitionColumnStatistics> result = new ArrayList<MPartitionColumnStatistics>();
+    for (MPartitionColumnStatistics mStats : stats) {
+      if (!existing.contains(mStats.getPartitionName() + "/" + mStats.getColName())) {
+        result.add(mStats);
+      }
+    }
+    return result;
+  }
+
+  private static void setLong(PreparedStatement ps, int i, Long value) throws SQLException {
+    if (value == null) {
+      ps.setNull(i, Types.BIGINT);
+    } else {
+      ps.setLong(i, value);
+    }
+  }
+
+  private static void setDouble(PreparedStatement ps, int i, Double value) throws SQLException {
+    if (value == null) {
+      ps.setNull(i, Types.DOUBLE);
+    } else {
+      ps.setDouble(i, value);
+    }
+  }
+
+  private static void setString(PreparedStatement ps, int i, String value) throws SQLException {
+    if (value == null) {
+      ps.setNull(i, Types.VARCHAR);
+    } else {
+      ps.setString(i, value);
+    }
+  }
+
   /** The common query part for table and partition stats */
   private static final String STATS_COLLIST =
       "\"COLUMN_NAME\", \"COLUMN_TYPE\", \"LONG_LOW_VALUE\", \"LONG_HIGH_VALUE\", "
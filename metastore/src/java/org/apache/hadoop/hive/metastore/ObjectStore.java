@@ -287,8 +287,12 @@ private static PartitionExpressionProxy createExpressionProxy(Configuration conf
       @SuppressWarnings("unchecked")
       Class<? extends PartitionExpressionProxy> clazz =
           (Class<? extends PartitionExpressionProxy>)MetaStoreUtils.getClass(className);
-      return MetaStoreUtils.newInstance(
+      PartitionExpressionProxy proxy = MetaStoreUtils.newInstance(
           clazz, new Class<?>[0], new Object[0]);
+      if (proxy instanceof Configurable) {
+        ((Configurable) proxy).setConf(conf);
+      }
+      return proxy;
     } catch (MetaException e) {
       LOG.error("Error loading PartitionExpressionProxy", e);
       throw new RuntimeException("Error loading PartitionExpressionProxy: " + e.getMessage());
@@ -1316,7 +1320,7 @@ public boolean addPartitions(String dbName, String tblName, List<Partition> part
           throw new MetaException("Partition does not belong to target table "
               + dbName + "." + tblName + ": " + part);
         }
-        MPartition mpart = convertToMPart(part, true);
+        MPartition mpart = convertToMPart(part, table, true);
         toPersist.add(mpart);
         int now = (int)(System.currentTimeMillis()/1000);
         if (tabGrants != null) {
@@ -1389,7 +1393,7 @@ public boolean addPartitions(String dbName, String tblName,
         Partition part = iterator.next();
 
         if (isValidPartition(part, ifNotExists)) {
-          MPartition mpart = convertToMPart(part, true);
+          MPartition mpart = convertToMPart(part, table, true);
           pm.makePersistent(mpart);
           if (tabGrants != null) {
             for (MTablePrivilege tab : tabGrants) {
@@ -1540,7 +1544,15 @@ private MPartition convertToMPart(Partition part, boolean useTableCD)
       throw new InvalidObjectException(
           "Partition doesn't have a valid table or database name");
     }
+    return convertToMPart(part, mt, useTableCD);
+  }
 
+  /**
+   * Converts a partition of an already retrieved table; saves a table lookup per partition
+   * when many partitions of the same table are converted.
+   */
+  private MPartition convertToMPart(Partition part, MTable mt, boolean useTableCD)
+      throws InvalidObjectException, MetaException {
     // If this partition's set of columns is the same as the parent table's,
     // use the parent table's, so we do not create a duplicate column descriptor,
     // thereby saving space
@@ -5940,6 +5952,123 @@ public boolean updatePartitionColumnStatistics(ColumnStatistics colStats, List<S
     }
   }
 
+  @Override
+  public boolean updatePartitionColumnStatistics(String dbName, String tableName,
+      List<ColumnStatistics> colStatsList) throws NoSuchObjectException, MetaException {
+    return updatePartitionColumnStatisticsInternal(dbName, tableName, colStatsList, true, true);
+  }
+
+  protected boolean updatePartitionColumnStatisticsInternal(String dbName, String tableName,
+      final List<ColumnStatistics> colStatsList, boolean allowSql, boolean allowJdo)
+          throws NoSuchObjectException, MetaException {
+    if (colStatsList.isEmpty()) {
+      return true;
+    }
+    return new GetHelper<Boolean>(dbName, tableName, allowSql, allowJdo) {
+      @Override
+      protected Boolean getSqlResult(GetHelper<Boolean> ctx) throws MetaException {
+        try {
+          List<MPartitionColumnStatistics> mStats =
+              convertToMPartitionColumnStatistics(dbName, tblName, colStatsList);
+          List<MPartitionColumnStatistics> newStats = directSql.updatePartitionStats(mStats);
+          if (!newStats.isEmpty()) {
+            pm.makePersistentAll(newStats);
+          }
+        } catch (NoSuchObjectException ex) {
+          // Let the ORM path report this.
+          throw new MetaException(ex.getMessage());
+        }
+        return true;
+      }
+      @Override
+      protected Boolean getJdoResult(
+          GetHelper<Boolean> ctx) throws MetaException, NoSuchObjectException {
+        List<MPartitionColumnStatistics> mStats =
+            convertToMPartitionColumnStatistics(dbName, tblName, colStatsList);
+        Set<String> partNames = new HashSet<String>();
+        Set<String> colNames = new HashSet<String>();
+        for (MPartitionColumnStatistics mStatsObj : mStats) {
+          partNames.add(mStatsObj.getPartitionName());
+          colNames.add(mStatsObj.getColName());
+        }
+        Map<String, MPartitionColumnStatistics> oldStats =
+            new HashMap<String, MPartitionColumnStatistics>();
+        for (MPartitionColumnStatistics oldStatsObj : getMPartitionColumnStatistics(getTable(),
+            new ArrayList<String>(partNames), new ArrayList<String>(colNames))) {
+          oldStats.put(oldStatsObj.getPartitionName() + "/" + oldStatsObj.getColName(),
+              oldStatsObj);
+        }
+        List<MPartitionColumnStatistics> newStats = new ArrayList<MPartitionColumnStatistics>();
+        for (MPartitionColumnStatistics mStatsObj : mStats) {
+          MPartitionColumnStatistics oldStatsObj =
+              oldStats.get(mStatsObj.getPartitionName() + "/" + mStatsObj.getColName());
+          if (oldStatsObj != null) {
+            StatObjectConverter.setFieldsIntoOldStats(mStatsObj, oldStatsObj);
+          } else {
+            newStats.add(mStatsObj);
+          }
+        }
+        if (!newStats.isEmpty()) {
+          pm.makePersistentAll(newStats);
+        }
+        return true;
+      }
+      @Override
+      protected String describeResult() {
+        return "Column statistics for " + colStatsList.size() + " partitions";
+      }
+    }.run(true);
+  }
+
+  /**
+   * Converts the statistics for many partitions to model objects, linked to their partitions.
+   * The partitions are fetched with a single query, and each column is checked against the
+   * columns of its partition, which may differ from those of the table.
+   */
+  private List<MPartitionColumnStatistics> convertToMPartitionColumnStatistics(String dbName,
+      String tblName, List<ColumnStatistics> colStatsList)
+          throws MetaException, NoSuchObjectException {
+    Set<String> partNames = new HashSet<String>();
+    for (ColumnStatistics colStats : colStatsList) {
+      partNames.add(colStats.getStatsDesc().getPartName());
+    }
+    Map<String, MPartition> mParts = new HashMap<String, MPartition>();
+    Out<Query> query = new Out<Query>();
+    try {
+      for (MPartition mPart : getMPartitionsViaOrmFilter(
+          dbName, tblName, new ArrayList<String>(partNames), query)) {
+        mParts.put(mPart.getPartitionName(), mPart);
+      }
+    } finally {
+      if (query.val != null) {
+        query.val.closeAll();
+      }
+    }
+
+    List<MPartitionColumnStatistics> result = new ArrayList<MPartitionColumnStatistics>();
+    for (ColumnStatistics colStats : colStatsList) {
+      String partName = colStats.getStatsDesc().getPartName();
+      MPartition mPart = mParts.get(partName);
+      if (mPart == null) {
+        throw new NoSuchObjectException("Partition " + partName
+            + " for which stats is gathered doesn't exist.");
+      }
+      Set<String> partCols = new HashSet<String>();
+      for (MFieldSchema col : mPart.getSd().getCD().getCols()) {
+        partCols.add(col.getName());
+      }
+      for (ColumnStatisticsObj statsObj : colStats.getStatsObj()) {
+        if (!partCols.contains(statsObj.getColName().trim())) {
+          throw new NoSuchObjectException("Column " + statsObj.getColName() + " of partition "
+              + partName + " for which stats gathering is requested doesn't exist.");
+        }
+        result.add(StatObjectConverter.convertToMPartitionColumnStatistics(
+            mPart, colStats.getStatsDesc(), statsObj));
+      }
+    }
+    return result;
+  }
+
   private List<MTableColumnStatistics> getMTableColumnStatistics(
       Table table, List<String> colNames) throws MetaException {
     boolean committed = false;
@@ -381,6 +381,19 @@ public abstract boolean updatePartitionColumnStatistics(ColumnStatistics statsOb
      List<String> partVals)
      throws NoSuchObjectException, MetaException, InvalidObjectException, InvalidInputException;
 
+  /** Persists column statistics for many partitions of one table in a single transaction.
+   *
+   * @param dbName name of the database
+   * @param tableName name of the table
+   * @param colStatsList statistics to persist, one object per partition; partition names
+   *          in the descriptors must be normalized the same way as stored partition names
+   * @return Boolean indicating the outcome of the operation
+   * @throws NoSuchObjectException
+   * @throws MetaException
+   */
+  public abstract boolean updatePartitionColumnStatistics(String dbName, String tableName,
+     List<ColumnStatistics> colStatsList) throws NoSuchObjectException, MetaException;
+
   /**
    * Returns the relevant column statistics for a given column in a given table in a given database
    * if such statistics exist.
@@ -30,6 +30,14 @@ public class CompactionInfo {
   public CompactionType type;
   public String runAs;
   public boolean tooManyAborts = false;
+  /**
+   * Number of entries in COMPLETED_TXN_COMPONENTS and highest transaction id among them, as of
+   * when this potential compaction was found.  Together they change whenever a transaction
+   * touching the table or partition commits or is cleaned up, so they serve as a watermark
+   * to tell whether anything happened since the last check.
+   */
+  public long completedTxnComponents = 0;
+  public long highestCompletedTxnId = 0;
 
   private String fullPartitionName = null;
   private String fullTableName = null;
@@ -58,8 +58,8 @@ public Set<CompactionInfo> findPotentialCompactions(int maxAborted) throws MetaE
     try {
       stmt = dbConn.createStatement();
       // Check for completed transactions
-      String s = "select distinct ctc_database, ctc_table, " +
-          "ctc_partition from COMPLETED_TXN_COMPONENTS";
+      String s = "select ctc_database, ctc_table, ctc_partition, count(*), max(ctc_txnid) " +
+          "from COMPLETED_TXN_COMPONENTS group by ctc_database, ctc_table, ctc_partition";
       LOG.debug("Going to execute query <" + s + ">");
       ResultSet rs = stmt.executeQuery(s);
       while (rs.next()) {
@@ -67,6 +67,8 @@ public Set<CompactionInfo> findPotentialCompactions(int maxAborted) throws MetaE
         info.dbname = rs.getString(1);
         info.tableName = rs.getString(2);
         info.partName = rs.getString(3);
+        info.completedTxnComponents = rs.getLong(4);
+        info.highestCompletedTxnId = rs.getLong(5);
         response.add(info);
       }
 
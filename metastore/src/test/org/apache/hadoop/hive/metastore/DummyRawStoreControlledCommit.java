@@ -604,6 +604,12 @@ public boolean updatePartitionColumnStatistics(ColumnStatistics statsObj,
     return objectStore.updatePartitionColumnStatistics(statsObj, partVals);
   }
 
+  @Override
+  public boolean updatePartitionColumnStatistics(String dbName, String tableName,
+      List<ColumnStatistics> colStatsList) throws NoSuchObjectException, MetaException {
+    return objectStore.updatePartitionColumnStatistics(dbName, tableName, colStatsList);
+  }
+
   @Override
   public boolean addToken(String tokenIdentifier, String delegationToken) {
     return false;
@@ -667,6 +667,12 @@ public boolean updatePartitionColumnStatistics(ColumnStatistics statsObj,List<St
     return false;
   }
 
+  @Override
+  public boolean updatePartitionColumnStatistics(String dbName, String tableName,
+      List<ColumnStatistics> colStatsList) throws NoSuchObjectException, MetaException {
+    return false;
+  }
+
   @Override
   public void verifySchema() throws MetaException {
   }
@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.metastore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.AlreadyExistsException;
+import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.DropPartitionsRequest;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.RequestPartsSpec;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for adding and dropping many partitions at once.
+ */
+public class TestHiveMetaStoreBulkPartitions {
+  private static final String DB = "bulk_parts_db";
+  private static final String TABLE = "bulk_parts_tbl";
+
+  private HiveMetaStore.HMSHandler handler;
+  private File tableDir;
+
+  private static StorageDescriptor sd(String location) {
+    List<FieldSchema> cols = new ArrayList<FieldSchema>();
+    cols.add(new FieldSchema("a", "bigint", ""));
+    SerDeInfo serde = new SerDeInfo(TABLE, "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe",
+        new HashMap<String, String>());
+    return new StorageDescriptor(cols, location,
+        "org.apache.hadoop.mapred.TextInputFormat",
+        "org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat",
+        false, 0, serde, null, null, new HashMap<String, String>());
+  }
+
+  private static Partition partition(String value, String location) {
+    return new Partition(Arrays.asList(value), DB, TABLE, 0, 0, sd(location),
+        new HashMap<String, String>());
+  }
+
+  private void dropDatabase() throws Exception {
+    try {
+      handler.drop_database(DB, true, true);
+    } catch (NoSuchObjectException e) {
+      // Nothing left from an earlier run
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    HiveConf conf = new HiveConf(getClass());
+    handler = new HiveMetaStore.HMSHandler("bulk partitions", conf);
+    dropDatabase();
+    tableDir = new File(System.getProperty("test.tmp.dir",
+        System.getProperty("java.io.tmpdir")), TABLE);
+    FileUtil.fullyDelete(tableDir);
+
+    Database db = new Database();
+    db.setName(DB);
+    handler.create_database(db);
+    Table table = new Table();
+    table.setDbName(DB);
+    table.setTableName(TABLE);
+    table.setSd(sd(tableDir.toURI().toString()));
+    table.setPartitionKeys(Arrays.asList(new FieldSchema("p", "string", "")));
+    table.setParameters(new HashMap<String, String>());
+    handler.create_table(table);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    dropDatabase();
+    handler.shutdown();
+    FileUtil.fullyDelete(tableDir);
+  }
+
+  private List<String> getPartitionNames() throws Exception {
+    return handler.get_partition_names(DB, TABLE, (short) -1);
+  }
+
+  private File partitionDir(String value) {
+    return new File(tableDir, "p=" + value);
+  }
+
+  private void addPartitions(String... values) throws Exception {
+    List<Partition> parts = new ArrayList<Partition>();
+    for (String value : values) {
+      parts.add(partition(value, null));
+    }
+    handler.add_partitions(parts);
+  }
+
+  private static DropPartitionsRequest dropRequest(String... partNames) {
+    DropPartitionsRequest request = new DropPartitionsRequest(DB, TABLE,
+        RequestPartsSpec.names(Arrays.asList(partNames)));
+    request.setDeleteData(true);
+    return request;
+  }
+
+  @Test
+  public void addPartitions() throws Exception {
+    addPartitions("1", "2", "3");
+    Assert.assertEquals(Arrays.asList("p=1", "p=2", "p=3"), getPartitionNames());
+    for (String value : new String[] {"1", "2", "3"}) {
+      Assert.assertTrue(partitionDir(value).isDirectory());
+    }
+  }
+
+  @Test
+  public void failedAddRemovesCreatedDirectories() throws Exception {
+    // The directory of the last partition cannot be created under a file
+    File file = new File(tableDir, "file");
+    Assert.assertTrue(file.createNewFile());
+    List<Partition> parts = new ArrayList<Partition>();
+    parts.add(partition("1", null));
+    parts.add(partition("2", null));
+    parts.add(partition("3", new File(file, "p=3").toURI().toString()));
+    try {
+      handler.add_partitions(parts);
+      Assert.fail("A partition was added without its directory");
+    } catch (MetaException e) {
+      // expected
+    }
+    Assert.assertTrue(getPartitionNames().isEmpty());
+    Assert.assertFalse(partitionDir("1").exists());
+    Assert.assertFalse(partitionDir("2").exists());
+  }
+
+  @Test
+  public void addOfExistingPartitionAddsNothing() throws Exception {
+    addPartitions("1");
+    try {
+      addPartitions("2", "1");
+      Assert.fail("An existing partition was added again");
+    } catch (AlreadyExistsException e) {
+      // expected
+    }
+    Assert.assertEquals(Arrays.asList("p=1"), getPartitionNames());
+    Assert.assertFalse(partitionDir("2").exists());
+  }
+
+  @Test
+  public void dropPartitionsDeletesDirectories() throws Exception {
+    addPartitions("1", "2", "3");
+    Assert.assertEquals(2,
+        handler.drop_partitions_req(dropRequest("p=1", "p=2")).getPartitionsSize());
+    Assert.assertEquals(Arrays.asList("p=3"), getPartitionNames());
+    Assert.assertFalse(partitionDir("1").exists());
+    Assert.assertFalse(partitionDir("2").exists());
+    Assert.assertTrue(partitionDir("3").isDirectory());
+    Assert.assertTrue(tableDir.isDirectory());
+  }
+
+  @Test
+  public void failedDropKeepsPartitionsAndDirectories() throws Exception {
+    addPartitions("1", "2");
+    try {
+      handler.drop_partitions_req(dropRequest("p=1", "p=2", "p=9"));
+      Assert.fail("Partitions were dropped although one of them is missing");
+    } catch (NoSuchObjectException e) {
+      // expected
+    }
+    Assert.assertEquals(Arrays.asList("p=1", "p=2"), getPartitionNames());
+    Assert.assertTrue(partitionDir("1").isDirectory());
+    Assert.assertTrue(partitionDir("2").isDirectory());
+  }
+
+  @Test
+  public void objectStoreAddsAllPartitionsOrNone() throws Exception {
+    ObjectStore store = new ObjectStore();
+    store.setConf(new HiveConf(getClass()));
+    try {
+      Partition other = partition("2", null);
+      other.setTableName("other_tbl");
+      try {
+        store.addPartitions(DB, TABLE, Arrays.asList(partition("1", null), other));
+        Assert.fail("A partition of another table was added");
+      } catch (MetaException e) {
+        // expected
+      }
+      Assert.assertTrue(store.listPartitionNames(DB, TABLE, (short) -1).isEmpty());
+
+      Assert.assertTrue(store.addPartitions(DB, TABLE,
+          Arrays.asList(partition("1", null), partition("2", null))));
+      Assert.assertEquals(Arrays.asList("p=1", "p=2"),
+          store.listPartitionNames(DB, TABLE, (short) -1));
+    } finally {
+      store.shutdown();
+    }
+  }
+}
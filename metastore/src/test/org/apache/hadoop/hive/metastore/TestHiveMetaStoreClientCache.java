@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.metastore;
+
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.ColumnStatistics;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsDesc;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.InvalidOperationException;
+import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.events.PreEventContext;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the metastore client cache, through an embedded metastore.
+ */
+public class TestHiveMetaStoreClientCache {
+  private static final String DB = "client_cache_db";
+  private static final String TABLE = "client_cache_tbl";
+  private static final String DENIED = "denied";
+
+  /**
+   * Counts the reads of tables, and denies them to the user "denied".
+   */
+  public static class ReadCheckingPreListener extends MetaStorePreEventListener {
+    static final AtomicInteger reads = new AtomicInteger();
+
+    public ReadCheckingPreListener(Configuration config) {
+      super(config);
+    }
+
+    @Override
+    public void onEvent(PreEventContext context) throws MetaException, NoSuchObjectException,
+        InvalidOperationException {
+      if (context.getEventType() != PreEventContext.PreEventType.READ_TABLE) {
+        return;
+      }
+      reads.incrementAndGet();
+      try {
+        if (DENIED.equals(UserGroupInformation.getCurrentUser().getShortUserName())) {
+          throw new MetaException("No read access to the table");
+        }
+      } catch (IOException e) {
+        throw new MetaException(e.getMessage());
+      }
+    }
+  }
+
+  private HiveMetaStoreClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    HiveConf conf = new HiveConf(getClass());
+    conf.setVar(HiveConf.ConfVars.METASTOREURIS, "");
+    conf.setVar(HiveConf.ConfVars.METASTORE_PRE_EVENT_LISTENERS,
+        ReadCheckingPreListener.class.getName());
+    conf.setBoolVar(HiveConf.ConfVars.METASTORE_CLIENT_CACHE_ENABLED, true);
+    MetaStoreClientCache.getInstance(conf).invalidateAll();
+    client = new HiveMetaStoreClient(conf);
+    client.dropDatabase(DB, true, true, true);
+
+    Database db = new Database();
+    db.setName(DB);
+    client.createDatabase(db);
+
+    List<FieldSchema> cols = new ArrayList<FieldSchema>();
+    cols.add(new FieldSchema("a", "bigint", ""));
+    cols.add(new FieldSchema("b", "bigint", ""));
+    SerDeInfo serde = new SerDeInfo(TABLE, "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe",
+        new HashMap<String, String>());
+    StorageDescriptor sd = new StorageDescriptor(cols, null,
+        "org.apache.hadoop.mapred.TextInputFormat",
+        "org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat",
+        false, 0, serde, null, null, new HashMap<String, String>());
+    Table table = new Table();
+    table.setDbName(DB);
+    table.setTableName(TABLE);
+    table.setSd(sd);
+    table.setPartitionKeys(Arrays.asList(new FieldSchema("p", "string", "")));
+    table.setParameters(new HashMap<String, String>());
+    client.createTable(table);
+    for (String p : new String[] {"1", "2", "3"}) {
+      client.appendPartition(DB, TABLE, Arrays.asList(p));
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.dropDatabase(DB, true, true, true);
+    client.close();
+  }
+
+  private Table getTableAs(String user) throws Exception {
+    return UserGroupInformation.createRemoteUser(user).doAs(
+        new PrivilegedExceptionAction<Table>() {
+          @Override
+          public Table run() throws Exception {
+            return client.getTable(DB, TABLE);
+          }
+        });
+  }
+
+  @Test
+  public void cachedTablesAreCheckedForOtherUsers() throws Exception {
+    ReadCheckingPreListener.reads.set(0);
+    client.getTable(DB, TABLE);
+    client.getTable(DB, TABLE);
+    Assert.assertEquals(1, ReadCheckingPreListener.reads.get());
+
+    try {
+      getTableAs(DENIED);
+      Assert.fail("The table was served from the cache of another user");
+    } catch (MetaException e) {
+      // expected
+    }
+    Assert.assertEquals(2, ReadCheckingPreListener.reads.get());
+
+    Assert.assertNotNull(getTableAs("other"));
+    Assert.assertEquals(3, ReadCheckingPreListener.reads.get());
+  }
+
+  @Test
+  public void partitionsInRequestedOrder() throws Exception {
+    client.getPartition(DB, TABLE, "p=2");
+    List<Partition> parts =
+        client.getPartitionsByNames(DB, TABLE, Arrays.asList("p=3", "p=2", "p=1"));
+    Assert.assertEquals(3, parts.size());
+    Assert.assertEquals(Arrays.asList("3"), parts.get(0).getValues());
+    Assert.assertEquals(Arrays.asList("2"), parts.get(1).getValues());
+    Assert.assertEquals(Arrays.asList("1"), parts.get(2).getValues());
+  }
+
+  @Test
+  public void columnStatisticsInRequestedOrder() throws Exception {
+    List<ColumnStatisticsObj> statsObjs = new ArrayList<ColumnStatisticsObj>();
+    for (String col : new String[] {"a", "b"}) {
+      ColumnStatisticsData data = new ColumnStatisticsData();
+      data.setLongStats(new LongColumnStatsData(0, 10));
+      statsObjs.add(new ColumnStatisticsObj(col, "bigint", data));
+    }
+    client.updateTableColumnStatistics(
+        new ColumnStatistics(new ColumnStatisticsDesc(true, DB, TABLE), statsObjs));
+
+    client.getTableColumnStatistics(DB, TABLE, Arrays.asList("a"));
+    List<ColumnStatisticsObj> stats =
+        client.getTableColumnStatistics(DB, TABLE, Arrays.asList("b", "a"));
+    Assert.assertEquals(2, stats.size());
+    Assert.assertEquals("b", stats.get(0).getColName());
+    Assert.assertEquals("a", stats.get(1).getColName());
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.metastore;
+
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.Test;
+
+/**
+ * Tests for MetaStoreClientCache.
+ */
+public class TestMetaStoreClientCache {
+  private static final String USER = "user,group";
+
+  private static Table table(String db, String name) {
+    Table t = new Table();
+    t.setDbName(db);
+    t.setTableName(name);
+    return t;
+  }
+
+  private static Partition partition(String db, String table, String... vals) {
+    Partition p = new Partition();
+    p.setDbName(db);
+    p.setTableName(table);
+    p.setValues(Arrays.asList(vals));
+    return p;
+  }
+
+  private static ColumnStatisticsObj stats(String col) {
+    ColumnStatisticsData data = new ColumnStatisticsData();
+    data.setLongStats(new LongColumnStatsData(0, 10));
+    return new ColumnStatisticsObj(col, "bigint", data);
+  }
+
+  @Test
+  public void disabledByDefault() {
+    Assert.assertNull(MetaStoreClientCache.getInstance(new HiveConf()));
+  }
+
+  @Test
+  public void tableLookupIsCaseInsensitive() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    cache.putTable(USER, table("db", "tbl"), cache.getVersion());
+    Assert.assertNotNull(cache.getTable(USER, "DB", "Tbl"));
+    Assert.assertNull(cache.getTable(USER, "db", "other"));
+  }
+
+  @Test
+  public void entriesArePerUser() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    cache.putTable(USER, table("db", "tbl"), cache.getVersion());
+    cache.putPartition(USER, partition("db", "tbl", "1"), cache.getVersion());
+    cache.putColumnStats(USER, "db", "tbl", null, stats("c"), cache.getVersion());
+    Assert.assertNull(cache.getTable("other,group", "db", "tbl"));
+    Assert.assertNull(cache.getPartition("other,group", "db", "tbl", Arrays.asList("1")));
+    Assert.assertNull(cache.getColumnStats("other,group", "db", "tbl", null, "c"));
+    // Same user with other groups
+    Assert.assertNull(cache.getTable("user", "db", "tbl"));
+  }
+
+  @Test
+  public void partitionsByValues() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    cache.putPartition(USER, partition("db", "tbl", "2014-01-01", "a/b"), cache.getVersion());
+    Assert.assertNotNull(
+        cache.getPartition(USER, "db", "tbl", Arrays.asList("2014-01-01", "a/b")));
+    Assert.assertNull(cache.getPartition(USER, "db", "tbl", Arrays.asList("2014-01-01", "a")));
+  }
+
+  @Test
+  public void invalidateTable() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    long version = cache.getVersion();
+    cache.putTable(USER, table("db", "tbl"), version);
+    cache.putTable(USER, table("db", "tbl2"), version);
+    cache.putPartition(USER, partition("db", "tbl", "1"), version);
+    cache.putPartition(USER, partition("db", "tbl2", "1"), version);
+    cache.putColumnStats(USER, "db", "tbl", null, stats("c"), version);
+    cache.putColumnStats(USER, "db", "tbl", "p=1", stats("c"), version);
+
+    cache.invalidateTable("db", "tbl");
+    Assert.assertNull(cache.getTable(USER, "db", "tbl"));
+    Assert.assertNull(cache.getPartition(USER, "db", "tbl", Arrays.asList("1")));
+    Assert.assertNull(cache.getColumnStats(USER, "db", "tbl", null, "c"));
+    Assert.assertNull(cache.getColumnStats(USER, "db", "tbl", "p=1", "c"));
+    // A table whose name shares the prefix must be left alone.
+    Assert.assertNotNull(cache.getTable(USER, "db", "tbl2"));
+    Assert.assertNotNull(cache.getPartition(USER, "db", "tbl2", Arrays.asList("1")));
+  }
+
+  @Test
+  public void invalidateDatabase() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    cache.putTable(USER, table("db", "tbl"), cache.getVersion());
+    cache.putTable(USER, table("db2", "tbl"), cache.getVersion());
+    cache.invalidateDatabase("db");
+    Assert.assertNull(cache.getTable(USER, "db", "tbl"));
+    Assert.assertNotNull(cache.getTable(USER, "db2", "tbl"));
+  }
+
+  @Test
+  public void fetchedBeforeInvalidationIsNotCached() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    long version = cache.getVersion();
+    // The table is altered while it is being fetched
+    cache.invalidateTable("db", "tbl");
+    cache.putTable(USER, table("db", "tbl"), version);
+    cache.putPartition(USER, partition("db", "tbl", "1"), version);
+    cache.putColumnStats(USER, "db", "tbl", null, stats("c"), version);
+    Assert.assertNull(cache.getTable(USER, "db", "tbl"));
+    Assert.assertNull(cache.getPartition(USER, "db", "tbl", Arrays.asList("1")));
+    Assert.assertNull(cache.getColumnStats(USER, "db", "tbl", null, "c"));
+  }
+
+  @Test
+  public void cachedObjectsAreCopies() {
+    MetaStoreClientCache cache = new MetaStoreClientCache(10, 60000);
+    Table t = table("db", "tbl");
+    cache.putTable(USER, t, cache.getVersion());
+    t.setOwner("someone");
+    Assert.assertNull(cache.getTable(USER, "db", "tbl").getOwner());
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.metastore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.ColumnStatistics;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsDesc;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the bulk update of partition column statistics in ObjectStore.
+ */
+public class TestObjectStorePartitionColumnStatistics {
+  private static final String DB = "bulk_stats_db";
+  private static final String TABLE = "bulk_stats_tbl";
+
+  private ObjectStore store;
+
+  private static StorageDescriptor sd(String... colNames) {
+    List<FieldSchema> cols = new ArrayList<FieldSchema>();
+    for (String colName : colNames) {
+      cols.add(new FieldSchema(colName, "bigint", ""));
+    }
+    SerDeInfo serde = new SerDeInfo(TABLE, "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe",
+        new HashMap<String, String>());
+    return new StorageDescriptor(cols, null,
+        "org.apache.hadoop.mapred.TextInputFormat",
+        "org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat",
+        false, 0, serde, null, null, new HashMap<String, String>());
+  }
+
+  private void addPartition(String value, StorageDescriptor sd) throws Exception {
+    store.addPartition(new Partition(Arrays.asList(value), DB, TABLE, 0, 0, sd,
+        new HashMap<String, String>()));
+  }
+
+  private void dropAll() throws Exception {
+    try {
+      store.getDatabase(DB);
+    } catch (NoSuchObjectException e) {
+      return;
+    }
+    if (store.getTable(DB, TABLE) != null) {
+      for (String partName : store.listPartitionNames(DB, TABLE, (short) -1)) {
+        store.dropPartition(DB, TABLE, Warehouse.getPartValuesFromPartName(partName));
+      }
+      store.dropTable(DB, TABLE);
+    }
+    store.dropDatabase(DB);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    store = new ObjectStore();
+    store.setConf(new HiveConf(getClass()));
+    dropAll();
+
+    Database db = new Database();
+    db.setName(DB);
+    store.createDatabase(db);
+    Table table = new Table();
+    table.setDbName(DB);
+    table.setTableName(TABLE);
+    table.setSd(sd("a", "b"));
+    table.setPartitionKeys(Arrays.asList(new FieldSchema("p", "string", "")));
+    table.setParameters(new HashMap<String, String>());
+    store.createTable(table);
+    addPartition("1", sd("a", "b"));
+    addPartition("2", sd("a", "b"));
+    // Created before column b was added to the table
+    addPartition("3", sd("a"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    dropAll();
+    store.shutdown();
+  }
+
+  private static ColumnStatistics stats(String partName, long numDVs, String... colNames) {
+    ColumnStatisticsDesc desc = new ColumnStatisticsDesc(false, DB, TABLE);
+    desc.setPartName(partName);
+    desc.setLastAnalyzed(1);
+    List<ColumnStatisticsObj> statsObjs = new ArrayList<ColumnStatisticsObj>();
+    for (String colName : colNames) {
+      ColumnStatisticsData data = new ColumnStatisticsData();
+      data.setLongStats(new LongColumnStatsData(0, numDVs));
+      statsObjs.add(new ColumnStatisticsObj(colName, "bigint", data));
+    }
+    return new ColumnStatistics(desc, statsObjs);
+  }
+
+  private long getNumDVs(String partName, String colName) throws Exception {
+    List<ColumnStatistics> result = store.getPartitionColumnStatistics(
+        DB, TABLE, Arrays.asList(partName), Arrays.asList(colName));
+    Assert.assertEquals(1, result.size());
+    Assert.assertEquals(1, result.get(0).getStatsObjSize());
+    return result.get(0).getStatsObj().get(0).getStatsData().getLongStats().getNumDVs();
+  }
+
+  private void checkInsertAndUpdate(boolean allowSql, boolean allowJdo) throws Exception {
+    Assert.assertTrue(store.updatePartitionColumnStatisticsInternal(
+        DB, TABLE, Arrays.asList(stats("p=1", 10, "a")), allowSql, allowJdo));
+    // Updates p=1/a, and inserts p=1/b and p=2/a
+    Assert.assertTrue(store.updatePartitionColumnStatisticsInternal(DB, TABLE,
+        Arrays.asList(stats("p=1", 20, "a", "b"), stats("p=2", 30, "a")), allowSql, allowJdo));
+    Assert.assertEquals(20, getNumDVs("p=1", "a"));
+    Assert.assertEquals(20, getNumDVs("p=1", "b"));
+    Assert.assertEquals(30, getNumDVs("p=2", "a"));
+  }
+
+  @Test
+  public void insertAndUpdateWithSql() throws Exception {
+    checkInsertAndUpdate(true, false);
+  }
+
+  @Test
+  public void insertAndUpdateWithJdo() throws Exception {
+    checkInsertAndUpdate(false, true);
+  }
+
+  @Test
+  public void failedSqlFallsBackToJdo() throws Exception {
+    store.updatePartitionColumnStatistics(DB, TABLE, Arrays.asList(stats("p=1", 10, "a")));
+    try {
+      // The missing partition fails direct SQL, then the ORM reports it
+      store.updatePartitionColumnStatistics(DB, TABLE,
+          Arrays.asList(stats("p=1", 20, "a"), stats("p=9", 20, "a")));
+      Assert.fail("Statistics were written for a missing partition");
+    } catch (NoSuchObjectException e) {
+      // expected
+    }
+    Assert.assertEquals(10, getNumDVs("p=1", "a"));
+  }
+
+  @Test
+  public void columnsAreCheckedPerPartition() throws Exception {
+    for (boolean allowSql : new boolean[] {true, false}) {
+      try {
+        store.updatePartitionColumnStatisticsInternal(DB, TABLE,
+            Arrays.asList(stats("p=2", 10, "b"), stats("p=3", 10, "b")), allowSql, !allowSql);
+        Assert.fail("Statistics were written for a column missing from the partition");
+      } catch (NoSuchObjectException e) {
+        // expected with JDO
+      } catch (MetaException e) {
+        // expected with direct SQL only
+      }
+      Assert.assertTrue(store.getPartitionColumnStatistics(
+          DB, TABLE, Arrays.asList("p=2"), Arrays.asList("b")).isEmpty());
+    }
+  }
+}
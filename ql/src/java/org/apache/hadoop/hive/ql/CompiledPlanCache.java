@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.common.ValidTxnList;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.Schema;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.ql.exec.FetchTask;
+import org.apache.hadoop.hive.ql.exec.Task;
+import org.apache.hadoop.hive.ql.exec.TaskFactory;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.hooks.ReadEntity;
+import org.apache.hadoop.hive.ql.hooks.WriteEntity;
+import org.apache.hadoop.hive.ql.metadata.Hive;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.optimizer.ppr.PartitionPrunerCache;
+import org.apache.hadoop.hive.ql.parse.ColumnAccessInfo;
+import org.apache.hadoop.hive.ql.parse.TableAccessInfo;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.session.SessionState;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of compiled plans shared by all the sessions in the process, so that a statement that
+ * is run over and over skips parsing, semantic analysis and optimization.
+ *
+ * Only queries that compile to a single fetch task are cached: their plan reads the table or
+ * partition directories directly and uses no per-query scratch directories, so a copy of it
+ * can be run by any number of queries at the same time. Every hit gets its own copy of the
+ * plan, deserialized from the bytes kept in the cache.
+ *
+ * A plan is cached under the statement text, the user, the current database and every setting
+ * of the session that differs from the defaults, but the ones naming the session, so that plans
+ * are shared by the sessions. Only plans reading unpartitioned tables are cached, as a plan lists
+ * the partitions it reads and checking the partitions of a table would cost as much as pruning
+ * them again, nor are plans reading temporary tables. A plan is reused while the tables it reads
+ * keep their last DDL time and no DDL ran on them in this process; data written since is read by
+ * the plan, as the fetch task lists the files of the tables when it runs. Plans answered from
+ * statistics are not cached. Plans are not cached when authorization or semantic analyzer hooks
+ * are enabled, as both need the semantic analyzer of the query.
+ */
+public class CompiledPlanCache {
+  private static final Log LOG = LogFactory.getLog(CompiledPlanCache.class);
+
+  private static final char SEP = '\u0001';
+
+  /** Settings that change for every query or session; they do not affect the plan. */
+  private static final Set<String> IGNORED_SETTINGS = new HashSet<String>();
+  static {
+    IGNORED_SETTINGS.add(HiveConf.ConfVars.HIVEQUERYID.varname);
+    IGNORED_SETTINGS.add(HiveConf.ConfVars.HIVEQUERYSTRING.varname);
+    IGNORED_SETTINGS.add(HiveConf.ConfVars.HADOOPJOBNAME.varname);
+    IGNORED_SETTINGS.add(ValidTxnList.VALID_TXNS_KEY);
+    IGNORED_SETTINGS.add("mapreduce.workflow.id");
+    IGNORED_SETTINGS.add("mapreduce.workflow.name");
+    IGNORED_SETTINGS.add("mapreduce.workflow.node.name");
+    IGNORED_SETTINGS.add(HiveConf.ConfVars.HIVESESSIONID.varname);
+  }
+
+  /**
+   * Prefix of the settings naming the scratch directories of the session, which the cached
+   * plans do not use.
+   */
+  private static final String SESSION_PATH_PREFIX = "_hive.";
+
+  private static CompiledPlanCache instance;
+
+  /**
+   * A compiled plan and the state of the metadata it was compiled against.
+   */
+  static class CachedPlan {
+    final byte[] fetchWork;
+    final Schema schema;
+    final HashSet<ReadEntity> inputs;
+    final HashSet<WriteEntity> outputs;
+    final HashMap<String, String> idToTableNameMap;
+    final TableAccessInfo tableAccessInfo;
+    final ColumnAccessInfo columnAccessInfo;
+    final QueryProperties queryProperties;
+    final String operationName;
+    /** Per input table: last DDL time and DDL changes in this process. */
+    final Map<String, String> tableStates;
+
+    CachedPlan(byte[] fetchWork, Schema schema, QueryPlan plan, Map<String, String> tableStates) {
+      this.fetchWork = fetchWork;
+      this.schema = schema;
+      this.inputs = new HashSet<ReadEntity>(plan.getInputs());
+      this.outputs = new HashSet<WriteEntity>(plan.getOutputs());
+      this.idToTableNameMap = new HashMap<String, String>(plan.getIdToTableNameMap());
+      this.tableAccessInfo = plan.getTableAccessInfo();
+      this.columnAccessInfo = plan.getColumnAccessInfo();
+      this.queryProperties = plan.getQueryProperties();
+      this.operationName = plan.getOperationName();
+      this.tableStates = tableStates;
+    }
+  }
+
+  private final Cache<String, CachedPlan> plans;
+
+  CompiledPlanCache(int maxSize, long ttlMs) {
+    plans = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+  }
+
+  /**
+   * @return the shared cache, or null if caching is disabled in the given configuration.
+   */
+  public static synchronized CompiledPlanCache getInstance(HiveConf conf) {
+    int maxSize = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_COMPILED_PLAN_CACHE_SIZE);
+    if (maxSize <= 0) {
+      return null;
+    }
+    if (instance == null) {
+      long ttlMs = HiveConf.getTimeVar(
+          conf, HiveConf.ConfVars.HIVE_COMPILED_PLAN_CACHE_TTL, TimeUnit.MILLISECONDS);
+      LOG.info("Creating compiled plan cache with max size " + maxSize
+          + " and TTL " + ttlMs + "ms");
+      instance = new CompiledPlanCache(maxSize, ttlMs);
+    }
+    return instance;
+  }
+
+  /**
+   * Builds the key of a statement, after variable substitution.
+   * @return the key, or null if the plan of the statement can not be cached.
+   */
+  String makeKey(String command, HiveConf conf, String userName) {
+    if (HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVE_AUTHORIZATION_ENABLED)
+        || !HiveConf.getVar(conf, HiveConf.ConfVars.SEMANTIC_ANALYZER_HOOK).trim().isEmpty()) {
+      return null;
+    }
+    return new StringBuilder(command)
+        .append(SEP).append(userName)
+        .append(SEP).append(SessionState.get().getCurrentDatabase())
+        .append(SEP).append(getSessionSettings(conf)).toString();
+  }
+
+  /**
+   * @return the settings of the session that differ from the defaults, except for those the
+   *         driver changes for every query and those naming the session, in an order that only
+   *         depends on the settings.
+   */
+  public static String getSessionSettings(HiveConf conf) {
+    Properties changed = conf.getChangedProperties();
+    TreeMap<String, String> settings = new TreeMap<String, String>();
+    for (String name : changed.stringPropertyNames()) {
+      if (!IGNORED_SETTINGS.contains(name) && !name.startsWith(SESSION_PATH_PREFIX)) {
+        settings.put(name, changed.getProperty(name));
+      }
+    }
+    return settings.toString();
+  }
+
+  /**
+   * Serializes the fetch work of a freshly compiled plan, before it is initialized.
+   * @return the serialized work, or null if the plan can not be cached.
+   */
+  byte[] serializeFetchWork(QueryPlan plan, HiveConf conf) {
+    if (!HiveOperation.QUERY.getOperationName().equals(plan.getOperationName())
+        || !plan.getRootTasks().isEmpty() || plan.getFetchTask() == null
+        || plan.getFetchTask().getWork().getRowsComputedUsingStats() != null) {
+      // The rows computed from statistics are not serialized, and change with the data
+      return null;
+    }
+    for (WriteEntity output : plan.getOutputs()) {
+      if (output.getType() != WriteEntity.Type.DFS_DIR
+          && output.getType() != WriteEntity.Type.LOCAL_DIR) {
+        return null;
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+    Utilities.serializePlan(plan.getFetchTask().getWork(), out, conf);
+    return out.toByteArray();
+  }
+
+  void put(String key, byte[] fetchWork, QueryPlan plan, Schema schema, HiveConf conf) {
+    try {
+      Map<String, String> tableStates = getTableStates(plan.getInputs(), conf);
+      if (tableStates != null) {
+        plans.put(key, new CachedPlan(fetchWork, new Schema(schema), plan, tableStates));
+      }
+    } catch (HiveException e) {
+      LOG.warn("Not caching the plan of " + plan.getQueryId(), e);
+    }
+  }
+
+  /**
+   * @return the plan cached under the key if the metadata it was compiled against is unchanged,
+   *         otherwise null.
+   */
+  CachedPlan get(String key, HiveConf conf) {
+    CachedPlan cached = plans.getIfPresent(key);
+    if (cached == null) {
+      return null;
+    }
+    try {
+      if (cached.tableStates.equals(getTableStates(cached.inputs, conf))) {
+        return cached;
+      }
+    } catch (HiveException e) {
+      LOG.warn("Unable to check the tables of a cached plan", e);
+    }
+    plans.invalidate(key);
+    return null;
+  }
+
+  /**
+   * Builds a new query plan, with its own fetch task, from a cached one.
+   */
+  QueryPlan newQueryPlan(CachedPlan cached, String command, String queryId, Long startTime,
+      HiveConf conf) {
+    FetchWork work = Utilities.deserializePlan(
+        new ByteArrayInputStream(cached.fetchWork), FetchWork.class, conf);
+    QueryPlan plan = new QueryPlan();
+    plan.setQueryString(command);
+    plan.setQueryId(queryId);
+    org.apache.hadoop.hive.ql.plan.api.Query query = new org.apache.hadoop.hive.ql.plan.api.Query();
+    query.setQueryId(queryId);
+    query.putToQueryAttributes("queryString", command);
+    plan.setQuery(query);
+    plan.setRootTasks(new ArrayList<Task<? extends Serializable>>());
+    plan.setFetchTask((FetchTask) TaskFactory.get(work, conf));
+    plan.setInputs(new HashSet<ReadEntity>(cached.inputs));
+    plan.setOutputs(new HashSet<WriteEntity>(cached.outputs));
+    plan.setIdToTableNameMap(new HashMap<String, String>(cached.idToTableNameMap));
+    plan.setTableAccessInfo(cached.tableAccessInfo);
+    plan.setColumnAccessInfo(cached.columnAccessInfo);
+    plan.setQueryProperties(cached.queryProperties);
+    plan.setQueryStartTime(startTime);
+    plan.setOperationName(cached.operationName);
+    return plan;
+  }
+
+  /**
+   * @return the state of every table read, or null if the plan reads something else than
+   *         unpartitioned, non temporary tables.
+   */
+  private static Map<String, String> getTableStates(Set<ReadEntity> inputs, HiveConf conf)
+      throws HiveException {
+    Map<String, String> states = new HashMap<String, String>();
+    Hive db = Hive.get(conf);
+    for (ReadEntity input : inputs) {
+      if (input.getType() != ReadEntity.Type.TABLE) {
+        return null;
+      }
+      Table table = db.getTable(input.getTable().getDbName(), input.getTable().getTableName());
+      // Temporary tables of different sessions share their names
+      if (table.isPartitioned() || table.isTemporary()) {
+        return null;
+      }
+      // The DDL time only has a precision of seconds, the version also catches the DDL run in
+      // the same second by this process
+      String state = table.getParameters().get(hive_metastoreConstants.DDL_TIME) + SEP
+          + PartitionPrunerCache.getVersion(table.getDbName(), table.getTableName());
+      states.put(table.getDbName() + "." + table.getTableName(), state);
+    }
+    return states;
+  }
+}
@@ -32,12 +32,14 @@
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.hive.common.ValidTxnList;
+import org.apache.hadoop.hive.common.metrics.Metrics;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
 import org.apache.hadoop.hive.metastore.MetaStoreUtils;
@@ -126,7 +128,11 @@ public class Driver implements CommandProcessor {
   static final private Log LOG = LogFactory.getLog(CLASS_NAME);
   static final private LogHelper console = new LogHelper(LOG);
 
-  private static final Object compileMonitor = new Object();
+  // Serializes compilation when hive.driver.parallel.compilation is off.
+  private static final Semaphore serialCompileLock = new Semaphore(1, true);
+  // Bounds concurrent compilation otherwise; created on first use, null if unbounded.
+  private static Semaphore parallelCompileLock;
+  private static boolean parallelCompileLockInitialized = false;
 
   private int maxRows = 100;
   ByteStream.Output bos = new ByteStream.Output();
@@ -387,6 +393,24 @@ public int compile(String command, boolean resetTaskIds) {
       ctx.setCmd(command);
       ctx.setHDFSCleanup(true);
 
+      CompiledPlanCache planCache = CompiledPlanCache.getInstance(conf);
+      String planCacheKey = planCache == null ? null : planCache.makeKey(command, conf, userName);
+      if (planCacheKey != null) {
+        CompiledPlanCache.CachedPlan cached = planCache.get(planCacheKey, conf);
+        if (cached != null) {
+          LOG.info("Reusing cached plan for query " + queryId);
+          SessionState.get().initTxnMgr(conf);
+          recordValidTxns();
+          SessionState.get().setCommandType(HiveOperation.QUERY);
+          acidSinks = null;
+          plan = planCache.newQueryPlan(cached, command, queryId,
+              perfLogger.getStartTime(PerfLogger.DRIVER_RUN), conf);
+          initializePlan(queryId);
+          schema = new Schema(cached.schema);
+          return 0;
+        }
+      }
+
       perfLogger.PerfLogBegin(CLASS_NAME, PerfLogger.PARSE);
       ParseDriver pd = new ParseDriver();
       ASTNode tree = pd.parse(command, ctx);
@@ -438,16 +462,11 @@ public int compile(String command, boolean resetTaskIds) {
       plan = new QueryPlan(command, sem, perfLogger.getStartTime(PerfLogger.DRIVER_RUN), queryId,
         SessionState.get().getCommandType());
 
-      String queryStr = plan.getQueryStr();
-      conf.setVar(HiveConf.ConfVars.HIVEQUERYSTRING, queryStr);
+      // Has to be taken before the fetch task is initialized
+      byte[] cacheableFetchWork =
+          planCacheKey == null ? null : planCache.serializeFetchWork(plan, conf);
 
-      conf.set("mapreduce.workflow.id", "hive_" + queryId);
-      conf.set("mapreduce.workflow.name", queryStr);
-
-      // initialize FetchTask right here
-      if (plan.getFetchTask() != null) {
-        plan.getFetchTask().initialize(conf, plan, null);
-      }
+      initializePlan(queryId);
 
       // get the output schema
       schema = getSchema(sem, conf);
@@ -478,6 +497,9 @@ public int compile(String command, boolean resetTaskIds) {
         }
       }
 
+      if (cacheableFetchWork != null) {
+        planCache.put(planCacheKey, cacheableFetchWork, plan, schema, conf);
+      }
       return 0;
     } catch (Exception e) {
       ErrorMsg error = ErrorMsg.getErrorMsg(e.getMessage());
@@ -504,6 +526,19 @@ public int compile(String command, boolean resetTaskIds) {
     }
   }
 
+  private void initializePlan(String queryId) {
+    String queryStr = plan.getQueryStr();
+    conf.setVar(HiveConf.ConfVars.HIVEQUERYSTRING, queryStr);
+
+    conf.set("mapreduce.workflow.id", "hive_" + queryId);
+    conf.set("mapreduce.workflow.name", queryStr);
+
+    // initialize FetchTask right here
+    if (plan.getFetchTask() != null) {
+      plan.getFetchTask().initialize(conf, plan, null);
+    }
+  }
+
   /**
    * Returns EXPLAIN EXTENDED output for a semantically
    * analyzed query.
@@ -1104,8 +1139,16 @@ public CommandProcessorResponse compileAndRespond(String command) {
 
   private int compileInternal(String command) {
     int ret;
-    synchronized (compileMonitor) {
+    Semaphore compileLock = getCompileLock();
+    if (compileLock != null) {
+      acquireCompileLock(compileLock);
+    }
+    try {
       ret = compile(command);
+    } finally {
+      if (compileLock != null) {
+        compileLock.release();
+      }
     }
     if (ret != 0) {
       try {
@@ -1118,6 +1161,53 @@ private int compileInternal(String command) {
     return ret;
   }
 
+  /**
+   * @return the semaphore bounding concurrent compilation, or null if compilation is unbounded.
+   */
+  private Semaphore getCompileLock() {
+    if (!conf.getBoolVar(HiveConf.ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION)) {
+      return serialCompileLock;
+    }
+    synchronized (Driver.class) {
+      if (!parallelCompileLockInitialized) {
+        int limit = conf.getIntVar(HiveConf.ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION_LIMIT);
+        if (limit > 0) {
+          LOG.info("Allowing up to " + limit + " queries to compile at the same time");
+          parallelCompileLock = new Semaphore(limit, true);
+        }
+        parallelCompileLockInitialized = true;
+      }
+      return parallelCompileLock;
+    }
+  }
+
+  private void acquireCompileLock(Semaphore compileLock) {
+    if (compileLock.tryAcquire()) {
+      return;
+    }
+    PerfLogger perfLogger = PerfLogger.getPerfLogger();
+    perfLogger.PerfLogBegin(CLASS_NAME, PerfLogger.WAIT_COMPILE);
+    updateCompileMetric("waiting_compile_ops", 1);
+    long startTime = System.currentTimeMillis();
+    try {
+      compileLock.acquireUninterruptibly();
+    } finally {
+      long waitTime = System.currentTimeMillis() - startTime;
+      updateCompileMetric("waiting_compile_ops", -1);
+      updateCompileMetric("compile_wait_time_total_ms", waitTime);
+      perfLogger.PerfLogEnd(CLASS_NAME, PerfLogger.WAIT_COMPILE);
+      LOG.debug("Waited " + waitTime + "ms to start compiling");
+    }
+  }
+
+  private static void updateCompileMetric(String name, long increment) {
+    try {
+      Metrics.incrementCounter(name, increment);
+    } catch (IOException e) {
+      LOG.warn("Unable to update metric " + name + ": " + e.getMessage());
+    }
+  }
+
   private CommandProcessorResponse runInternal(String command, boolean alreadyCompiled)
       throws CommandNeedRetryException {
     errorMessage = null;
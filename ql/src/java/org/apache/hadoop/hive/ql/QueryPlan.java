@@ -778,6 +778,10 @@ public QueryProperties getQueryProperties() {
     return queryProperties;
   }
 
+  public void setQueryProperties(QueryProperties queryProperties) {
+    this.queryProperties = queryProperties;
+  }
+
   public Long getQueryStartTime() {
     return queryStartTime;
   }
@@ -789,4 +793,8 @@ public void setQueryStartTime(Long queryStartTime) {
   public String getOperationName() {
     return operationName;
   }
+
+  public void setOperationName(String operationName) {
+    this.operationName = operationName;
+  }
 }
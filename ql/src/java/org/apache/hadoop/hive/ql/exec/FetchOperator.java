@@ -51,6 +51,7 @@
 import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ConverterCompiler;
 import org.apache.hadoop.hive.serde2.objectinspector.DelegatedObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -101,6 +102,8 @@ public class FetchOperator implements Serializable {
 
   private transient RecordReader<WritableComparable, Writable> currRecReader;
   private transient FetchInputFormatSplit[] inputSplits;
+  private transient SplitPrefetcher prefetcher;
+  private transient boolean isPrefetching;
   private transient InputFormat inputFormat;
   private transient JobConf job;
   private transient WritableComparable key;
@@ -473,7 +476,7 @@ private RecordReader<WritableComparable, Writable> getRecordReader() throws Exce
           partitionedTableOI == null ? tblSerde.getObjectInspector() : partitionedTableOI,
           oiSettableProperties);
 
-      partTblObjectInspectorConverter = ObjectInspectorConverters.getConverter(
+      partTblObjectInspectorConverter = ConverterCompiler.compile(
           serde.getObjectInspector(), outputOI);
 
       if (LOG.isDebugEnabled()) {
@@ -487,6 +490,19 @@ private RecordReader<WritableComparable, Writable> getRecordReader() throws Exce
       if (currPart != null) {
         getRowInspectorFromPartition(currPart, outputOI);
       }
+
+      isPrefetching = canPrefetch(partDesc.getTableDesc());
+      if (isPrefetching) {
+        if (prefetcher == null) {
+          prefetcher = new SplitPrefetcher(
+              HiveConf.getIntVar(job, HiveConf.ConfVars.HIVEFETCHTASKREADERTHREADS));
+        }
+        InputSplit[] splits = new InputSplit[inputSplits.length];
+        for (int i = 0; i < splits.length; i++) {
+          splits[i] = inputSplits[i].getInputSplit();
+        }
+        prefetcher.setSplits(inputFormat, job, splits);
+      }
     }
 
     if (splitNum >= inputSplits.length) {
@@ -498,6 +514,15 @@ private RecordReader<WritableComparable, Writable> getRecordReader() throws Exce
       return getRecordReader();
     }
 
+    if (isPrefetching) {
+      splitNum++;
+      // The records are read into values of their own, see getNextRow()
+      currRecReader = prefetcher.nextReader();
+      key = null;
+      value = null;
+      return currRecReader;
+    }
+
     final FetchInputFormatSplit target = inputSplits[splitNum];
 
     @SuppressWarnings("unchecked")
@@ -527,6 +552,16 @@ public boolean doNext(WritableComparable key, Writable value) throws IOException
     return currRecReader;
   }
 
+  /**
+   * @return whether the splits of the current path can be read ahead by a SplitPrefetcher
+   */
+  private boolean canPrefetch(TableDesc table) throws IOException {
+    return HiveConf.getIntVar(job, HiveConf.ConfVars.HIVEFETCHTASKREADERTHREADS) > 1
+        && inputSplits.length > 1 && isNativeTable && !hasVC && work.getSplitSample() == null
+        && SplitPrefetcher.canPrefetch(inputFormat.getClass())
+        && Utilities.getHeaderCount(table) == 0 && Utilities.getFooterCount(table, job) == 0;
+  }
+
   private FetchInputFormatSplit[] splitSampling(SplitSample splitSample,
       FetchInputFormatSplit[] splits) {
     long totalSize = 0;
@@ -633,6 +668,9 @@ public InspectableObject getNextRow() throws IOException {
            * and there is no footer lines, read normally.
            */
           opNotEOF = currRecReader.next(key, value);
+          if (opNotEOF && isPrefetching) {
+            value = ((SplitPrefetcher.Reader) currRecReader).getCurrentValue();
+          }
         }
         if (opNotEOF && footerBuffer != null) {
           opNotEOF = footerBuffer.updateBuffer(job, currRecReader, key, value);
@@ -680,6 +718,10 @@ public void clearFetchContext() throws HiveException {
         currRecReader.close();
         currRecReader = null;
       }
+      if (prefetcher != null) {
+        prefetcher.close();
+        prefetcher = null;
+      }
       if (operator != null) {
         operator.close(false);
         operator = null;
@@ -692,9 +692,12 @@ public static Set<String> getFunctionNames() {
   }
 
   private static Set<String> getFunctionNames(boolean searchMetastore) {
-    Set<String> functionNames = mFunctions.keySet();
+    // Copy under the lock; other sessions may register functions while compiling.
+    Set<String> functionNames;
+    synchronized (mFunctions) {
+      functionNames = new HashSet<String>(mFunctions.keySet());
+    }
     if (searchMetastore) {
-      functionNames = new HashSet<String>(functionNames);
       try {
         Hive db = getHive();
         List<String> dbNames = db.getAllDatabases();
@@ -734,7 +737,7 @@ public static Set<String> getFunctionNames(String funcPatternStr) {
     } catch (PatternSyntaxException e) {
       return funcNames;
     }
-    for (String funcName : mFunctions.keySet()) {
+    for (String funcName : getFunctionNames(false)) {
       if (funcPattern.matcher(funcName).matches()) {
         funcNames.add(funcName);
       }
@@ -792,12 +795,14 @@ public static Set<String> getFunctionSynonyms(String funcName) {
     }
 
     Class<?> funcClass = funcInfo.getFunctionClass();
-    for (String name : mFunctions.keySet()) {
-      if (name.equals(funcName)) {
-        continue;
-      }
-      if (mFunctions.get(name).getFunctionClass().equals(funcClass)) {
-        synonyms.add(name);
+    synchronized (mFunctions) {
+      for (Map.Entry<String, FunctionInfo> entry : mFunctions.entrySet()) {
+        if (entry.getKey().equals(funcName)) {
+          continue;
+        }
+        if (entry.getValue().getFunctionClass().equals(funcClass)) {
+          synonyms.add(entry.getKey());
+        }
       }
     }
 
@@ -2058,9 +2063,11 @@ public static void setupPermissionsForBuiltinUDFs(String whiteListStr,
     List<String> blackList = Lists.newArrayList(
         Splitter.on(",").trimResults().omitEmptyStrings().split(blackListStr));
 
-    for ( Entry<String, FunctionInfo> funcEntry : mFunctions.entrySet()) {
-      funcEntry.getValue().setBlockedFunction(
-          isUdfBlocked(funcEntry.getKey(), whiteList, blackList));
+    synchronized (mFunctions) {
+      for (Entry<String, FunctionInfo> funcEntry : mFunctions.entrySet()) {
+        funcEntry.getValue().setBlockedFunction(
+            isUdfBlocked(funcEntry.getKey(), whiteList, blackList));
+      }
     }
   }
 
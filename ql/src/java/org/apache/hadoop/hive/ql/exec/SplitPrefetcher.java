@@ -0,0 +1,270 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileInputFormat;
+import org.apache.hadoop.mapred.TextInputFormat;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reads the splits of a fetch ahead of the {@link FetchOperator}, with a bounded pool of threads.
+ *
+ * As many splits as there are threads are read at the same time, each into a bounded queue of
+ * records, and the readers are handed out in the order of the splits, so the rows of the fetch
+ * come in the same order as when the splits are read one after another. Every record is read
+ * into a new value, which the fetch operator gets with {@link Reader#getCurrentValue()}.
+ *
+ * The records of a split are buffered as the input format returns them, so this is only used
+ * when the fetch neither skips header or footer lines nor needs the IO context of the reader,
+ * and only for the input formats whose values do not refer to buffers their reader reuses.
+ */
+class SplitPrefetcher {
+  private static final Log LOG = LogFactory.getLog(SplitPrefetcher.class);
+
+  /** Number of records read ahead for each split. */
+  static final int QUEUE_SIZE = 1024;
+
+  private static final long POLL_INTERVAL_MS = 100;
+
+  /** Marks the end of the records of a split in its queue. */
+  private static final Object END = new Object();
+
+  /**
+   * Input formats whose readers fill every new value on its own. RCFile, for one, does not: its
+   * values point at the buffers of the current row group, which the next row group overwrites.
+   */
+  private static final Set<Class<?>> SELF_CONTAINED_FORMATS = ImmutableSet.<Class<?>>of(
+      TextInputFormat.class, SequenceFileInputFormat.class, OrcInputFormat.class);
+
+  private final int threads;
+  private ExecutorService executor;
+
+  private final LinkedList<Reader> inFlight = new LinkedList<Reader>();
+  private InputFormat inputFormat;
+  private JobConf job;
+  private InputSplit[] splits;
+  private int nextSplit;
+
+  SplitPrefetcher(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * @return whether the records read with the given input format can be buffered
+   */
+  static boolean canPrefetch(Class<?> inputFormatClass) {
+    return SELF_CONTAINED_FORMATS.contains(inputFormatClass);
+  }
+
+  /**
+   * Starts reading the given splits, cancelling the reads of the previous ones.
+   */
+  void setSplits(InputFormat inputFormat, JobConf job, InputSplit[] splits) {
+    cancelAll();
+    this.inputFormat = inputFormat;
+    this.job = job;
+    this.splits = splits;
+    nextSplit = 0;
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("Fetch-Split-Reader-%d").build());
+    }
+    fillWindow();
+  }
+
+  /**
+   * @return the reader of the next split, or null if all the splits have been handed out
+   */
+  Reader nextReader() {
+    Reader reader = inFlight.poll();
+    fillWindow();
+    return reader;
+  }
+
+  private void fillWindow() {
+    while (inFlight.size() < threads && nextSplit < splits.length) {
+      // Each reader gets its own copy of the configuration, input formats may change it
+      Reader reader = new Reader(splits[nextSplit++], new JobConf(job));
+      inFlight.add(reader);
+      executor.execute(reader);
+    }
+  }
+
+  private void cancelAll() {
+    for (Reader reader : inFlight) {
+      reader.close();
+    }
+    inFlight.clear();
+  }
+
+  void close() {
+    cancelAll();
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Reads a split in the background, and returns its records to the fetch operator.
+   */
+  class Reader implements Runnable, RecordReader<WritableComparable, Writable> {
+    private final InputSplit split;
+    private final JobConf conf;
+    private final BlockingQueue<Object> records = new ArrayBlockingQueue<Object>(QUEUE_SIZE);
+    private volatile boolean closed;
+    private boolean done;
+    private long count;
+    private Writable current;
+
+    Reader(InputSplit split, JobConf conf) {
+      this.split = split;
+      this.conf = conf;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      Object last = END;
+      RecordReader<WritableComparable, Writable> reader = null;
+      try {
+        reader = inputFormat.getRecordReader(split, conf, Reporter.NULL);
+        WritableComparable key = reader.createKey();
+        while (!closed) {
+          Writable value = reader.createValue();
+          if (!reader.next(key, value) || !put(value)) {
+            break;
+          }
+        }
+      } catch (Throwable t) {
+        last = t;
+      } finally {
+        if (reader != null) {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            LOG.warn("Unable to close the reader of " + split, e);
+          }
+        }
+        put(last);
+      }
+    }
+
+    /**
+     * Waits for room in the queue, unless the reader is closed.
+     * @return whether the record was queued
+     */
+    private boolean put(Object record) {
+      try {
+        while (!closed) {
+          if (records.offer(record, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    @Override
+    public boolean next(WritableComparable key, Writable value) throws IOException {
+      if (done) {
+        return false;
+      }
+      Object record;
+      try {
+        record = records.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while reading " + split, e);
+      }
+      if (record == END) {
+        done = true;
+        current = null;
+        return false;
+      }
+      if (record instanceof Throwable) {
+        done = true;
+        current = null;
+        throw new IOException("Unable to read " + split, (Throwable) record);
+      }
+      current = (Writable) record;
+      count++;
+      return true;
+    }
+
+    /**
+     * @return the record of the last successful call to next
+     */
+    Writable getCurrentValue() {
+      return current;
+    }
+
+    /**
+     * The records are read into values of their own, the arguments of next are not used.
+     */
+    @Override
+    public WritableComparable createKey() {
+      return null;
+    }
+
+    @Override
+    public Writable createValue() {
+      return null;
+    }
+
+    @Override
+    public long getPos() throws IOException {
+      return count;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      return done ? 1.0f : 0.0f;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      records.clear();
+    }
+  }
+}
@@ -38,6 +38,7 @@
 import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.WriteBuffers;
 import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
+import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableWriter;
 import org.apache.hadoop.hive.serde2.io.ShortWritable;
 import org.apache.hadoop.hive.serde2.lazy.ByteArrayRef;
 import org.apache.hadoop.hive.serde2.lazybinary.LazyBinaryFactory;
@@ -319,6 +320,8 @@ private class GetAdaptor implements ReusableGetAdaptor {
     private Object[] currentKey;
     private boolean[] nulls;
     private List<ObjectInspector> vectorKeyOIs;
+    private List<ObjectInspector> keyWriterOIs;
+    private BinarySortableWriter keyWriter;
 
     private final ReusableRowContainer currentValue;
     private final Output output;
@@ -346,8 +349,7 @@ public void setFromVector(VectorHashKeyWrapper kw,
         currentKey[i] = keyWrapperBatch.getWritableKeyValue(kw, i, keyOutputWriters[i]);
         nulls[i] = currentKey[i] == null;
       }
-      currentValue.setFromOutput(
-          MapJoinKey.serializeRow(output, currentKey, vectorKeyOIs, sortableSortOrders));
+      currentValue.setFromOutput(serializeKey(vectorKeyOIs));
     }
 
     @Override
@@ -361,8 +363,25 @@ public void setFromRow(Object row, List<ExprNodeEvaluator> fields,
         currentKey[keyIndex] = fields.get(keyIndex).evaluate(row);
         nulls[keyIndex] = currentKey[keyIndex] == null;
       }
-      currentValue.setFromOutput(
-          MapJoinKey.serializeRow(output, currentKey, ois, sortableSortOrders));
+      currentValue.setFromOutput(serializeKey(ois));
+    }
+
+    private Output serializeKey(List<ObjectInspector> keyOIs) throws HiveException {
+      if (sortableSortOrders == null || currentKey.length == 0) {
+        return MapJoinKey.serializeRow(output, currentKey, keyOIs, sortableSortOrders);
+      }
+      if (keyOIs != keyWriterOIs) {
+        // Binary sortable keys are written by writers chosen once for the key columns
+        keyWriter = new BinarySortableWriter(keyOIs, sortableSortOrders);
+        keyWriterOIs = keyOIs;
+      }
+      output.reset();
+      try {
+        keyWriter.writeFields(output, currentKey);
+      } catch (SerDeException e) {
+        throw new HiveException("Serialization error", e);
+      }
+      return output;
     }
 
     @Override
@@ -494,7 +513,9 @@ public List<Object> next() throws HiveException {
       }
       uselessIndirection.setData(ref.getBytes());
       valueStruct.init(uselessIndirection, (int)ref.getOffset(), ref.getLength());
-      return valueStruct.getFieldsAsList(); // TODO: should we unset bytes after that?
+      // Only the fields the join reads are decoded, e.g. not those of the rows it
+      // filters out.
+      return valueStruct.getFieldsAsLazyList(); // TODO: should we unset bytes after that?
     }
 
     @Override
@@ -18,8 +18,18 @@
 
 package org.apache.hadoop.hive.ql.exec.tez;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,19 +40,39 @@
 import org.apache.hadoop.hive.shims.Utils;
 import org.apache.hadoop.security.UserGroupInformation;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * This class is for managing multiple tez sessions particularly when
  * HiveServer2 is being used to submit queries.
  *
- * In case the user specifies a queue explicitly, a new session is created
- * on that queue and assigned to the session state.
+ * The pool keeps open sessions on each of the default queues. Queries that do not name a queue
+ * take the session that has been idle the longest, queries naming one of the default queues
+ * take an idle session of that queue. When a queue runs out of idle sessions, the pool starts
+ * new ones in the background, up to hive.server2.tez.max.sessions.per.default.queue, so that
+ * the next queries find a warm AM; sessions above hive.server2.tez.sessions.per.default.queue
+ * are closed once they have been idle for hive.server2.tez.session.pool.idle.timeout.
+ *
+ * In case the user specifies a queue explicitly which is not a default queue, a new session
+ * is created on that queue and assigned to the session state.
  */
 public class TezSessionPoolManager {
 
   private static final Log LOG = LogFactory.getLog(TezSessionPoolManager.class);
 
-  private BlockingQueue<TezSessionState> defaultQueuePool;
-  private int blockingQueueLength = -1;
+  /** How long a queue does not grow after failing to start a session on it. */
+  private static final long GROW_RETRY_DELAY_MS = 10000;
+
+  // All guarded by this. Idle sessions are kept in the order they were returned.
+  private final LinkedList<TezSessionState> idleSessions = new LinkedList<TezSessionState>();
+  private final Map<TezSessionState, Long> idleSince = new HashMap<TezSessionState, Long>();
+  // Sessions of each default queue, idle, in use or starting
+  private final Map<String, Integer> sessionsPerQueue = new LinkedHashMap<String, Integer>();
+  private final Map<String, Long> lastGrowFailure = new HashMap<String, Long>();
+
+  private int minSessionsPerQueue;
+  private int maxSessionsPerQueue;
+  private ScheduledThreadPoolExecutor poolExecutor;
   private HiveConf initConf = null;
 
   private boolean inited = false;
@@ -62,13 +92,39 @@ protected TezSessionPoolManager() {
   }
 
   public void startPool() throws Exception {
-    this.inited = true;
-    for (int i = 0; i < blockingQueueLength; i++) {
-      HiveConf newConf = new HiveConf(initConf);
-      TezSessionState sessionState = defaultQueuePool.take();
-      newConf.set("tez.queue.name", sessionState.getQueueName());
-      sessionState.open(newConf);
-      defaultQueuePool.put(sessionState);
+    // Start the AMs of all the queues at the same time
+    List<Future<Object>> started = new ArrayList<Future<Object>>();
+    synchronized (this) {
+      for (final TezSessionState sessionState : idleSessions) {
+        started.add(poolExecutor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            openPoolSession(sessionState);
+            return null;
+          }
+        }));
+      }
+    }
+    for (Future<Object> future : started) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+      }
+    }
+    long idleTimeout = HiveConf.getTimeVar(initConf,
+        HiveConf.ConfVars.HIVE_SERVER2_TEZ_SESSION_POOL_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    if (maxSessionsPerQueue > minSessionsPerQueue && idleTimeout > 0) {
+      final long timeout = idleTimeout;
+      poolExecutor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          closeIdleSessions(timeout);
+        }
+      }, timeout, Math.max(timeout / 2, 1000), TimeUnit.MILLISECONDS);
+    }
+    synchronized (this) {
+      this.inited = true;
     }
   }
 
@@ -76,31 +132,177 @@ public void setupPool(HiveConf conf) throws InterruptedException {
 
     String defaultQueues = HiveConf.getVar(conf, HiveConf.ConfVars.HIVE_SERVER2_TEZ_DEFAULT_QUEUES);
     int numSessions = conf.getIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_SESSIONS_PER_DEFAULT_QUEUE);
+    int maxSessions =
+        conf.getIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_MAX_SESSIONS_PER_DEFAULT_QUEUE);
 
     // the list of queues is a comma separated list.
     String defaultQueueList[] = defaultQueues.split(",");
-    defaultQueuePool =
-        new ArrayBlockingQueue<TezSessionState>(numSessions * defaultQueueList.length);
     this.initConf = conf;
+    this.minSessionsPerQueue = numSessions;
+    this.maxSessionsPerQueue = Math.max(numSessions, maxSessions);
+    // One thread per queue, to start the sessions of all the queues in parallel
+    poolExecutor = new ScheduledThreadPoolExecutor(Math.max(1, defaultQueueList.length),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Tez-Session-Pool-%d").build());
     /*
      *  with this the ordering of sessions in the queue will be (with 2 sessions 3 queues)
      *  s1q1, s1q2, s1q3, s2q1, s2q2, s2q3 there by ensuring uniform distribution of
      *  the sessions across queues at least to begin with. Then as sessions get freed up, the list
      *  may change this ordering.
      */
-    blockingQueueLength = 0;
-    for (int i = 0; i < numSessions; i++) {
-      for (String queue : defaultQueueList) {
-        if (queue.length() == 0) {
-          continue;
+    synchronized (this) {
+      for (int i = 0; i < numSessions; i++) {
+        for (String queue : defaultQueueList) {
+          if (queue.length() == 0) {
+            continue;
+          }
+          TezSessionState sessionState = newPoolSession(queue);
+          LOG.info("Created new tez session for queue: " + queue +
+              " with session id: " + sessionState.getSessionId());
+          idleSessions.add(sessionState);
+          idleSince.put(sessionState, System.currentTimeMillis());
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a session of the pool on the given queue, and counts it in the queue.
+   */
+  private synchronized TezSessionState newPoolSession(String queue) {
+    TezSessionState sessionState = createSession(TezSessionState.makeSessionId());
+    sessionState.setQueueName(queue);
+    sessionState.setDefault();
+    Integer count = sessionsPerQueue.get(queue);
+    sessionsPerQueue.put(queue, count == null ? 1 : count + 1);
+    return sessionState;
+  }
+
+  private void openPoolSession(TezSessionState sessionState) throws Exception {
+    HiveConf newConf = new HiveConf(initConf);
+    newConf.set("tez.queue.name", sessionState.getQueueName());
+    sessionState.open(newConf);
+  }
+
+  /**
+   * Takes an idle session of the pool, of the given queue if not null. Waits for a session to be
+   * returned or started if there is none.
+   */
+  private synchronized TezSessionState takePoolSession(String queueName)
+      throws InterruptedException {
+    while (true) {
+      for (Iterator<TezSessionState> it = idleSessions.iterator(); it.hasNext();) {
+        TezSessionState session = it.next();
+        if (queueName == null || queueName.equals(session.getQueueName())) {
+          it.remove();
+          idleSince.remove(session);
+          if (!hasIdleSession(session.getQueueName())) {
+            // Warm up another session for the next query on this queue
+            growPool(session.getQueueName());
+          }
+          return session;
+        }
+      }
+      growPool(queueName != null ? queueName : getSmallestQueue());
+      LOG.info("Waiting for a session of the pool on queue "
+          + (queueName == null ? "<any>" : queueName));
+      wait(GROW_RETRY_DELAY_MS);
+    }
+  }
+
+  private boolean hasIdleSession(String queueName) {
+    for (TezSessionState session : idleSessions) {
+      if (queueName.equals(session.getQueueName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String getSmallestQueue() {
+    String smallest = null;
+    for (Map.Entry<String, Integer> entry : sessionsPerQueue.entrySet()) {
+      if (smallest == null || entry.getValue() < sessionsPerQueue.get(smallest)) {
+        smallest = entry.getKey();
+      }
+    }
+    return smallest;
+  }
+
+  /**
+   * Starts a new session on the given queue in the background, unless the queue already has the
+   * maximum number of sessions or recently failed to start one.
+   */
+  private synchronized void growPool(final String queue) {
+    Integer count = sessionsPerQueue.get(queue);
+    Long failure = lastGrowFailure.get(queue);
+    if (count == null || count >= maxSessionsPerQueue || poolExecutor.isShutdown()
+        || (failure != null && System.currentTimeMillis() - failure < GROW_RETRY_DELAY_MS)) {
+      return;
+    }
+    final TezSessionState sessionState = newPoolSession(queue);
+    LOG.info("Growing the pool of queue " + queue + " to " + (count + 1) + " sessions");
+    poolExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          openPoolSession(sessionState);
+          addIdleSession(sessionState);
+        } catch (Exception e) {
+          LOG.warn("Unable to start a new session on queue " + queue, e);
+          synchronized (TezSessionPoolManager.this) {
+            removeFromQueue(queue);
+            lastGrowFailure.put(queue, System.currentTimeMillis());
+            TezSessionPoolManager.this.notifyAll();
+          }
+        }
+      }
+    });
+  }
+
+  private synchronized void addIdleSession(TezSessionState sessionState) {
+    idleSessions.add(sessionState);
+    idleSince.put(sessionState, System.currentTimeMillis());
+    notifyAll();
+  }
+
+  private synchronized void removeFromQueue(String queue) {
+    sessionsPerQueue.put(queue, sessionsPerQueue.get(queue) - 1);
+  }
+
+  /**
+   * @return the number of sessions of the queue, idle, in use or starting.
+   */
+  synchronized int getSessionCount(String queue) {
+    Integer count = sessionsPerQueue.get(queue);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Closes the sessions above the minimum of their queue that have been idle for too long.
+   */
+  private void closeIdleSessions(long idleTimeout) {
+    List<TezSessionState> expired = new ArrayList<TezSessionState>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      for (Iterator<TezSessionState> it = idleSessions.iterator(); it.hasNext();) {
+        TezSessionState session = it.next();
+        String queue = session.getQueueName();
+        if (sessionsPerQueue.get(queue) > minSessionsPerQueue
+            && now - idleSince.get(session) >= idleTimeout) {
+          it.remove();
+          idleSince.remove(session);
+          removeFromQueue(queue);
+          expired.add(session);
         }
-        TezSessionState sessionState = createSession(TezSessionState.makeSessionId());
-        sessionState.setQueueName(queue);
-        sessionState.setDefault();
-        LOG.info("Created new tez session for queue: " + queue +
-            " with session id: " + sessionState.getSessionId());
-        defaultQueuePool.put(sessionState);
-        blockingQueueLength++;
+      }
+    }
+    for (TezSessionState session : expired) {
+      LOG.info("Closing idle session " + session.getSessionId() + " of queue "
+          + session.getQueueName());
+      try {
+        session.close(false);
+      } catch (Exception e) {
+        LOG.warn("Unable to close idle session " + session.getSessionId(), e);
       }
     }
   }
@@ -119,17 +321,20 @@ private TezSessionState getSession(HiveConf conf, boolean doOpen,
      * their own credentials. We expect that with the new security model, things will
      * run as user hive in most cases.
      */
-    if (forceCreate || !(this.inited)
-        || ((queueName != null) && (!queueName.isEmpty()))
-        || (nonDefaultUser) || (defaultQueuePool == null) || (blockingQueueLength <= 0)) {
+    boolean poolQueue;
+    synchronized (this) {
+      poolQueue = inited && !sessionsPerQueue.isEmpty()
+          && ((queueName == null) || queueName.isEmpty()
+          || sessionsPerQueue.containsKey(queueName));
+    }
+    if (forceCreate || !poolQueue || (nonDefaultUser)) {
       LOG.info("QueueName: " + queueName + " nonDefaultUser: " + nonDefaultUser +
-          " defaultQueuePool: " + defaultQueuePool +
-          " blockingQueueLength: " + blockingQueueLength);
+          " inited: " + inited + " default queues: " + sessionsPerQueue.keySet());
       return getNewSessionState(conf, queueName, doOpen);
     }
 
-    LOG.info("Choosing a session from the defaultQueuePool");
-    return defaultQueuePool.take();
+    LOG.info("Choosing a session from the default queue pool");
+    return takePoolSession((queueName == null || queueName.isEmpty()) ? null : queueName);
   }
 
   /**
@@ -165,7 +370,7 @@ public void returnSession(TezSessionState tezSessionState)
       if (sessionState != null) {
         sessionState.setTezSession(null);
       }
-      defaultQueuePool.put(tezSessionState);
+      addIdleSession(tezSessionState);
     }
     // non default session nothing changes. The user can continue to use the existing
     // session in the SessionState
@@ -182,6 +387,7 @@ public void stop() throws Exception {
     if ((sessionPool == null) || (this.inited == false)) {
       return;
     }
+    poolExecutor.shutdownNow();
 
     // we can just stop all the sessions
     for (TezSessionState sessionState: TezSessionState.getOpenSessions()) {
@@ -258,6 +464,11 @@ private boolean canWorkWithSameSession(TezSessionState session, HiveConf conf)
 
   public TezSessionState getSession(TezSessionState session, HiveConf conf,
       boolean doOpen, boolean forceCreate) throws Exception {
+    if (session != null && session.isDefault()) {
+      // A previous query did not give its session of the pool back, hand it over now
+      returnSession(session);
+      session = null;
+    }
     if (canWorkWithSameSession(session, conf)) {
       return session;
     }
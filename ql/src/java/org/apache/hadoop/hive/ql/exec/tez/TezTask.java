@@ -170,6 +170,7 @@ public int execute(DriverContext driverContext) {
       Set<StatusGetOpts> statusGetOpts = EnumSet.of(StatusGetOpts.GET_COUNTERS);
       counters = client.getDAGStatus(statusGetOpts).getDAGCounters();
       TezSessionPoolManager.getInstance().returnSession(session);
+      session = null;
 
       if (LOG.isInfoEnabled() && counters != null
           && conf.getBoolVar(conf, HiveConf.ConfVars.TEZ_EXEC_SUMMARY)) {
@@ -198,6 +199,14 @@ public int execute(DriverContext driverContext) {
         // rc will only be overwritten if close errors out
         rc = close(work, rc);
       }
+      if (session != null && session.isDefault()) {
+        // failed query, give the session back to the pool for the next one
+        try {
+          TezSessionPoolManager.getInstance().returnSession(session);
+        } catch (Exception e) {
+          LOG.warn("Failed to return tez session " + session.getSessionId() + " to the pool", e);
+        }
+      }
     }
     return rc;
   }
@@ -269,6 +269,13 @@ public void init(Configuration hiveConf, FileSplit split) throws ClassNotFoundEx
     colsToInclude = ColumnProjectionUtils.getReadColumnIDs(hiveConf);
   }
   
+  /**
+   * @return the deserializer of the partition of the split, once initialized from it
+   */
+  public Deserializer getDeserializer() {
+    return deserializer;
+  }
+
   /**
    * Creates a Vectorized row batch and the column vectors.
    *
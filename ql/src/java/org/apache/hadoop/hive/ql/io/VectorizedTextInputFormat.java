@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedInputFormatInterface;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.TextInputFormat;
+
+/**
+ * A TextInputFormat that reads the lines of delimited text files into vectorized row batches
+ * in vector mode.
+ *
+ * The vectorizer uses it in place of TextInputFormat for the partitions of LazySimpleSerDe
+ * tables that {@link VectorizedTextRecordReader#isVectorizable} accepts.
+ */
+public class VectorizedTextInputFormat extends TextInputFormat
+    implements VectorizedInputFormatInterface {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public RecordReader<LongWritable, Text> getRecordReader(InputSplit split, JobConf job,
+      Reporter reporter) throws IOException {
+    if (!Utilities.isVectorMode(job)) {
+      return super.getRecordReader(split, job, reporter);
+    }
+    reporter.setStatus(split.toString());
+    return (RecordReader) new VectorizedTextRecordReader(job, (FileSplit) split,
+        super.getRecordReader(split, job, reporter));
+  }
+}
@@ -0,0 +1,485 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.lazy.LazyByte;
+import org.apache.hadoop.hive.serde2.lazy.LazyInteger;
+import org.apache.hadoop.hive.serde2.lazy.LazyLong;
+import org.apache.hadoop.hive.serde2.lazy.LazyShort;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe.SerDeParameters;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.RecordReader;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Reads the lines of a delimited text file into vectorized row batches.
+ *
+ * Every line is copied once into a buffer of the batch, and scanned once for the field
+ * delimiters, up to the last column the query reads. Numeric, boolean and date fields are
+ * parsed from the bytes of the line straight into their column vector, and string fields
+ * reference the buffer. Fields are parsed as LazySimpleSerDe does: a field equal to the null
+ * sequence, or that can not be parsed as the type of its column, is null, and so are the
+ * columns missing at the end of a line.
+ */
+public class VectorizedTextRecordReader implements RecordReader<NullWritable, VectorizedRowBatch> {
+
+  private final RecordReader<LongWritable, Text> lineReader;
+  private final LongWritable lineKey;
+  private final Text line;
+  private final VectorizedRowBatchCtx rbCtx;
+  private final LineParser parser;
+
+  public VectorizedTextRecordReader(Configuration conf, FileSplit split,
+      RecordReader<LongWritable, Text> lineReader) throws IOException {
+    this.lineReader = lineReader;
+    lineKey = lineReader.createKey();
+    line = lineReader.createValue();
+    try {
+      rbCtx = new VectorizedRowBatchCtx();
+      rbCtx.init(conf, split);
+    } catch (Exception e) {
+      throw new IOException("Unable to initialize the vectorized reader of " + split, e);
+    }
+    parser = new LineParser(((LazySimpleSerDe) rbCtx.getDeserializer()).getSerdeParams());
+  }
+
+  /**
+   * @param props the properties of a partition, or of a table without partitions
+   * @return whether the rows of the partition can be read by this reader
+   */
+  public static boolean isVectorizable(Properties props) {
+    if (props.getProperty(serdeConstants.ESCAPE_CHAR) != null
+        || Boolean.parseBoolean(props.getProperty(
+            serdeConstants.SERIALIZATION_LAST_COLUMN_TAKES_REST))) {
+      return false;
+    }
+    try {
+      String encoding = props.getProperty(serdeConstants.SERIALIZATION_ENCODING);
+      if (encoding != null && !Charsets.UTF_8.equals(Charset.forName(encoding))) {
+        return false;
+      }
+      if (Integer.parseInt(props.getProperty(serdeConstants.HEADER_COUNT, "0")) != 0
+          || Integer.parseInt(props.getProperty(serdeConstants.FOOTER_COUNT, "0")) != 0) {
+        return false;
+      }
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    String columnTypes = props.getProperty(serdeConstants.LIST_COLUMN_TYPES);
+    if (columnTypes == null) {
+      return false;
+    }
+    for (TypeInfo type : TypeInfoUtils.getTypeInfosFromTypeString(columnTypes)) {
+      if (getKind(type) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * How the fields of a column are parsed.
+   */
+  enum Kind {
+    BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, STRING, DATE
+  }
+
+  /**
+   * @return how the fields of the given type are parsed, or null if they are not supported
+   */
+  static Kind getKind(TypeInfo type) {
+    if (type.getCategory() != Category.PRIMITIVE) {
+      return null;
+    }
+    PrimitiveCategory category = ((PrimitiveTypeInfo) type).getPrimitiveCategory();
+    switch (category) {
+    case BOOLEAN:
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case DATE:
+      return Kind.valueOf(category.name());
+    default:
+      // CHAR and VARCHAR fields are padded or truncated, binary fields are base64 encoded,
+      // timestamps and decimals need their full parsers
+      return null;
+    }
+  }
+
+  @Override
+  public boolean next(NullWritable key, VectorizedRowBatch batch) throws IOException {
+    batch.selectedInUse = false;
+    parser.startBatch(batch);
+    int row = 0;
+    while (row < VectorizedRowBatch.DEFAULT_SIZE && lineReader.next(lineKey, line)) {
+      parser.parse(line.getBytes(), line.getLength(), row, batch);
+      row++;
+    }
+    batch.size = row;
+    if (row == 0) {
+      return false;
+    }
+    try {
+      rbCtx.addPartitionColsToBatch(batch);
+    } catch (HiveException e) {
+      throw new IOException(e);
+    }
+    return true;
+  }
+
+  @Override
+  public NullWritable createKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public VectorizedRowBatch createValue() {
+    try {
+      return rbCtx.createVectorizedRowBatch();
+    } catch (HiveException e) {
+      throw new RuntimeException("Error creating a batch", e);
+    }
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return lineReader.getPos();
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return lineReader.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    lineReader.close();
+  }
+
+  /**
+   * Parses the lines of a batch into its column vectors.
+   */
+  static class LineParser {
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+      POWERS_OF_TEN[0] = 1;
+      for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+        POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+      }
+    }
+
+    private final byte separator;
+    private final byte[] nullSequence;
+    private final boolean extendedBooleanLiteral;
+    private final Kind[] kinds;
+
+    /** The columns the batch has a vector for, the others are not read by the query */
+    private boolean[] included;
+    /** Number of fields of a line to locate */
+    private int fieldCount;
+    /** The lines of the batch, which string columns refer to */
+    private byte[] buffer = new byte[64 * 1024];
+    private int bufferUsed;
+
+    LineParser(SerDeParameters params) {
+      separator = params.getSeparators()[0];
+      Text nullText = params.getNullSequence();
+      nullSequence = new byte[nullText.getLength()];
+      System.arraycopy(nullText.getBytes(), 0, nullSequence, 0, nullSequence.length);
+      extendedBooleanLiteral = params.isExtendedBooleanLiteral();
+      List<TypeInfo> types = params.getColumnTypes();
+      kinds = new Kind[types.size()];
+      for (int i = 0; i < kinds.length; i++) {
+        kinds[i] = getKind(types.get(i));
+      }
+    }
+
+    void startBatch(VectorizedRowBatch batch) {
+      bufferUsed = 0;
+      if (included == null) {
+        included = new boolean[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+          included[i] = batch.cols[i] != null;
+          if (included[i]) {
+            fieldCount = i + 1;
+          }
+        }
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        if (included[i]) {
+          batch.cols[i].reset();
+        }
+      }
+    }
+
+    void parse(byte[] bytes, int length, int row, VectorizedRowBatch batch) {
+      if (bufferUsed + length > buffer.length) {
+        // The vectors keep referring to the previous buffer for the rows already parsed
+        buffer = new byte[Math.max(buffer.length, length) * 2];
+        bufferUsed = 0;
+      }
+      int start = bufferUsed;
+      int end = start + length;
+      System.arraycopy(bytes, 0, buffer, start, length);
+      bufferUsed = end;
+
+      byte[] data = buffer;
+      int field = 0;
+      int fieldStart = start;
+      for (int i = start; field < fieldCount; i++) {
+        if (i == end || data[i] == separator) {
+          if (included[field]) {
+            setField(batch.cols[field], kinds[field], row, fieldStart, i - fieldStart);
+          }
+          field++;
+          fieldStart = i + 1;
+          if (i == end) {
+            break;
+          }
+        }
+      }
+      // Columns missing from the line
+      for (; field < fieldCount; field++) {
+        if (included[field]) {
+          setNull(batch.cols[field], row);
+        }
+      }
+    }
+
+    private void setField(ColumnVector vector, Kind kind, int row, int start, int length) {
+      byte[] data = buffer;
+      if (isNullSequence(data, start, length)) {
+        setNull(vector, row);
+        return;
+      }
+      try {
+        switch (kind) {
+        case STRING:
+          ((BytesColumnVector) vector).setRef(row, data, start, length);
+          return;
+        case BOOLEAN:
+          int value = parseBoolean(data, start, length);
+          if (value < 0) {
+            setNull(vector, row);
+          } else {
+            ((LongColumnVector) vector).vector[row] = value;
+          }
+          return;
+        case BYTE:
+          ((LongColumnVector) vector).vector[row] = LazyByte.parseByte(data, start, length);
+          return;
+        case SHORT:
+          ((LongColumnVector) vector).vector[row] = LazyShort.parseShort(data, start, length);
+          return;
+        case INT:
+          ((LongColumnVector) vector).vector[row] = LazyInteger.parseInt(data, start, length);
+          return;
+        case LONG:
+          ((LongColumnVector) vector).vector[row] = LazyLong.parseLong(data, start, length);
+          return;
+        case FLOAT:
+          ((DoubleColumnVector) vector).vector[row] =
+              Float.parseFloat(Text.decode(data, start, length));
+          return;
+        case DOUBLE:
+          ((DoubleColumnVector) vector).vector[row] = parseDouble(data, start, length);
+          return;
+        case DATE:
+          ((LongColumnVector) vector).vector[row] = parseDate(data, start, length);
+          return;
+        default:
+          throw new IllegalStateException("Unexpected column kind " + kind);
+        }
+      } catch (IllegalArgumentException e) {
+        // Includes NumberFormatException
+        setNull(vector, row);
+      } catch (IOException e) {
+        // Not UTF-8
+        setNull(vector, row);
+      }
+    }
+
+    private boolean isNullSequence(byte[] data, int start, int length) {
+      if (length != nullSequence.length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[start + i] != nullSequence[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static void setNull(ColumnVector vector, int row) {
+      vector.noNulls = false;
+      vector.isNull[row] = true;
+    }
+
+    /**
+     * @return 1 for true, 0 for false, -1 for values LazyBoolean reads as null
+     */
+    private int parseBoolean(byte[] data, int start, int length) {
+      if (length == 4 && (data[start] | 0x20) == 't' && (data[start + 1] | 0x20) == 'r'
+          && (data[start + 2] | 0x20) == 'u' && (data[start + 3] | 0x20) == 'e') {
+        return 1;
+      }
+      if (length == 5 && (data[start] | 0x20) == 'f' && (data[start + 1] | 0x20) == 'a'
+          && (data[start + 2] | 0x20) == 'l' && (data[start + 3] | 0x20) == 's'
+          && (data[start + 4] | 0x20) == 'e') {
+        return 0;
+      }
+      if (extendedBooleanLiteral && length == 1) {
+        byte c = data[start];
+        if (c == '1' || c == 't' || c == 'T') {
+          return 1;
+        }
+        if (c == '0' || c == 'f' || c == 'F') {
+          return 0;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Parses plain decimal numbers of up to 15 digits with a single division, which is exact
+     * as both operands are, and leaves the other notations to Double.parseDouble.
+     */
+    static double parseDouble(byte[] data, int start, int length) throws IOException {
+      int i = start;
+      int end = start + length;
+      boolean negative = false;
+      if (i < end && (data[i] == '-' || data[i] == '+')) {
+        negative = data[i] == '-';
+        i++;
+      }
+      long mantissa = 0;
+      int digits = 0;
+      int scale = -1;
+      for (; i < end; i++) {
+        byte c = data[i];
+        if (c >= '0' && c <= '9') {
+          mantissa = mantissa * 10 + (c - '0');
+          digits++;
+          if (scale >= 0) {
+            scale++;
+          }
+        } else if (c == '.' && scale < 0) {
+          scale = 0;
+        } else {
+          break;
+        }
+      }
+      if (i < end || digits == 0 || digits > 15) {
+        return Double.parseDouble(Text.decode(data, start, length));
+      }
+      double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+      return negative ? -value : value;
+    }
+
+    /**
+     * Parses yyyy-mm-dd dates of the Gregorian calendar into days since epoch, and leaves the
+     * other ones to Date.valueOf, as LazyDate does.
+     */
+    static long parseDate(byte[] data, int start, int length) throws IOException {
+      if (length == 10 && data[start + 4] == '-' && data[start + 7] == '-') {
+        int year = parseDigits(data, start, 4);
+        int month = parseDigits(data, start + 5, 2);
+        int day = parseDigits(data, start + 8, 2);
+        if (year > 1582 && month >= 1 && month <= 12 && day >= 1
+            && day <= daysInMonth(year, month)) {
+          return daysSinceEpoch(year, month, day);
+        }
+      }
+      return DateWritable.dateToDays(Date.valueOf(Text.decode(data, start, length)));
+    }
+
+    /**
+     * @return the value of the given number of digits, or -1 if they are not all digits
+     */
+    private static int parseDigits(byte[] data, int start, int count) {
+      int value = 0;
+      for (int i = start; i < start + count; i++) {
+        int digit = data[i] - '0';
+        if (digit < 0 || digit > 9) {
+          return -1;
+        }
+        value = value * 10 + digit;
+      }
+      return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+      switch (month) {
+      case 2:
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return leap ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+      }
+    }
+
+    /**
+     * Days from 1970-01-01 to the given date of the proleptic Gregorian calendar.
+     */
+    static long daysSinceEpoch(int year, int month, int day) {
+      int y = month <= 2 ? year - 1 : year;
+      int era = y / 400;
+      int yearOfEra = y - era * 400;
+      int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+      int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+      return era * 146097L + dayOfEra - 719468;
+    }
+  }
+}
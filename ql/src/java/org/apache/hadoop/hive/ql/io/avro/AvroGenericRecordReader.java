@@ -92,7 +92,7 @@ public AvroGenericRecordReader(JobConf job, FileSplit split, Reporter reporter)
    * @return  Reader schema for the Avro object, or null if it has not been provided.
    * @throws AvroSerdeException
    */
-  private Schema getSchema(JobConf job, FileSplit split) throws AvroSerdeException, IOException {
+  static Schema getSchema(JobConf job, FileSplit split) throws AvroSerdeException, IOException {
     // Inside of a MR job, we can pull out the actual properties
     if(AvroSerdeUtils.insideMRJob(job)) {
       MapWork mapWork = Utilities.getMapWork(job);
@@ -133,7 +133,7 @@ private Schema getSchema(JobConf job, FileSplit split) throws AvroSerdeException
     return null;
   }
 
-  private boolean pathIsInPartition(Path split, String partitionPath) {
+  private static boolean pathIsInPartition(Path split, String partitionPath) {
     boolean schemeless = split.toUri().getScheme() == null;
     if (schemeless) {
       String schemelessPartitionPath = new Path(partitionPath).toUri().getPath();
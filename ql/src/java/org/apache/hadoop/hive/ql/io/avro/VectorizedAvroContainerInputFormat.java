@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.io.avro;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedInputFormatInterface;
+import org.apache.hadoop.hive.serde2.avro.AvroGenericRecordWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * An AvroContainerInputFormat that decodes Avro records into vectorized row batches in vector
+ * mode.
+ *
+ * The vectorizer uses it in place of AvroContainerInputFormat for the partitions that
+ * {@link VectorizedAvroRecordReader#isVectorizable} accepts.
+ */
+public class VectorizedAvroContainerInputFormat extends AvroContainerInputFormat
+    implements VectorizedInputFormatInterface {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public RecordReader<NullWritable, AvroGenericRecordWritable>
+    getRecordReader(InputSplit inputSplit, JobConf jc, Reporter reporter) throws IOException {
+    if (!Utilities.isVectorMode(jc)) {
+      return super.getRecordReader(inputSplit, jc, reporter);
+    }
+    return (RecordReader) new VectorizedAvroRecordReader(jc, (FileSplit) inputSplit);
+  }
+}
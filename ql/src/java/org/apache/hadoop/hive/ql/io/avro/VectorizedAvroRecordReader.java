@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.io.avro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.mapred.FsInput;
+import org.apache.avro.util.Utf8;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.avro.AvroSerdeException;
+import org.apache.hadoop.hive.serde2.avro.AvroSerdeUtils;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+
+/**
+ * Decodes the records of an Avro container file straight into vectorized row batches.
+ *
+ * The records are read with a projection of the table schema to the columns of the query, so
+ * the resolving decoder skips the other fields in the encoded data, and the fields of the
+ * projection are decoded into their column vectors by a plan compiled once per file schema,
+ * without building GenericRecords. Only tables whose fields are all of primitive types, or
+ * nullable unions of them, are read this way.
+ */
+public class VectorizedAvroRecordReader implements RecordReader<NullWritable, VectorizedRowBatch> {
+
+  private final JobConf job;
+  private final FileSplit split;
+  private final VectorizedRowBatchCtx rbCtx;
+  private final Schema tableSchema;
+  private DataFileReader<VectorizedRowBatch> reader;
+  private BatchDatumReader datumReader;
+  private long start;
+  private long stop;
+
+  public VectorizedAvroRecordReader(JobConf job, FileSplit split) throws IOException {
+    this.job = job;
+    this.split = split;
+    try {
+      rbCtx = new VectorizedRowBatchCtx();
+      rbCtx.init(job, split);
+      tableSchema = AvroGenericRecordReader.getSchema(job, split);
+    } catch (Exception e) {
+      throw new IOException("Unable to initialize the vectorized reader of " + split, e);
+    }
+  }
+
+  /**
+   * @param props the properties of a partition, or of a table without partitions
+   * @return whether the rows of the partition can be read by this reader
+   */
+  public static boolean isVectorizable(Properties props) {
+    Schema schema;
+    try {
+      schema = AvroSerdeUtils.determineSchemaOrThrowException(props);
+    } catch (IOException e) {
+      return false;
+    } catch (AvroSerdeException e) {
+      return false;
+    }
+    if (schema.getType() != Schema.Type.RECORD) {
+      return false;
+    }
+    for (Schema.Field field : schema.getFields()) {
+      if (getKind(field.schema()) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the type a field of the given schema is decoded as, or null if it is not supported
+   */
+  static Schema.Type getKind(Schema schema) {
+    if (AvroSerdeUtils.isNullableType(schema)) {
+      schema = AvroSerdeUtils.getOtherTypeFromNullableType(schema);
+    }
+    // Decimals, chars and varchars are bytes and strings with a logical type
+    if (schema.getProp("logicalType") != null) {
+      return null;
+    }
+    switch (schema.getType()) {
+    case BOOLEAN:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case STRING:
+    case BYTES:
+    case ENUM:
+      return schema.getType();
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Opens the file once the columns the query reads are known from the first batch.
+   */
+  private void open(VectorizedRowBatch batch) throws IOException {
+    boolean[] included = new boolean[batch.cols.length];
+    for (int i = 0; i < included.length; i++) {
+      included[i] = batch.cols[i] != null;
+    }
+    datumReader = new BatchDatumReader(tableSchema, included);
+    reader = new DataFileReader<VectorizedRowBatch>(new FsInput(split.getPath(), job),
+        datumReader);
+    reader.sync(split.getStart());
+    start = reader.tell();
+    stop = split.getStart() + split.getLength();
+  }
+
+  @Override
+  public boolean next(NullWritable key, VectorizedRowBatch batch) throws IOException {
+    if (reader == null) {
+      open(batch);
+    }
+    batch.selectedInUse = false;
+    datumReader.startBatch(batch);
+    int row = 0;
+    while (row < VectorizedRowBatch.DEFAULT_SIZE && reader.hasNext() && !reader.pastSync(stop)) {
+      datumReader.row = row;
+      reader.next(batch);
+      row++;
+    }
+    batch.size = row;
+    if (row == 0) {
+      return false;
+    }
+    try {
+      rbCtx.addPartitionColsToBatch(batch);
+    } catch (HiveException e) {
+      throw new IOException(e);
+    }
+    return true;
+  }
+
+  @Override
+  public NullWritable createKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public VectorizedRowBatch createValue() {
+    try {
+      return rbCtx.createVectorizedRowBatch();
+    } catch (HiveException e) {
+      throw new RuntimeException("Error creating a batch", e);
+    }
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return reader == null ? split.getStart() : reader.tell();
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (reader == null || stop == start) {
+      return 0.0f;
+    }
+    return Math.min(1.0f, (getPos() - start) / (float) (stop - start));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  /**
+   * Decodes the records of a file into the row of a batch given by {@link #row}.
+   */
+  static class BatchDatumReader implements DatumReader<VectorizedRowBatch> {
+    private final Schema tableSchema;
+    private final boolean[] included;
+    /** The table schema, with only the fields of the included columns */
+    private Schema projection;
+    /** The column of each field of the projection */
+    private Column[] columns;
+    private ResolvingDecoder decoder;
+    int row;
+
+    /**
+     * @param tableSchema the schema of the table, or null to read the files with theirs
+     * @param included whether each column of the table is read
+     */
+    BatchDatumReader(Schema tableSchema, boolean[] included) {
+      this.tableSchema = tableSchema;
+      this.included = included;
+    }
+
+    @Override
+    public void setSchema(Schema writerSchema) {
+      if (projection == null) {
+        compile(tableSchema == null ? writerSchema : tableSchema);
+      }
+      try {
+        // Resolves the projection against the schema of the file once
+        decoder = DecoderFactory.get().resolvingDecoder(writerSchema, projection, null);
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to resolve " + writerSchema + " with " + projection, e);
+      }
+    }
+
+    private void compile(Schema schema) {
+      List<Schema.Field> fields = new ArrayList<Schema.Field>();
+      List<Column> columnList = new ArrayList<Column>();
+      for (Schema.Field field : schema.getFields()) {
+        int index = field.pos();
+        if (index < included.length && included[index]) {
+          fields.add(new Schema.Field(field.name(), field.schema(), field.doc(),
+              field.defaultValue()));
+          columnList.add(new Column(index, field.schema()));
+        }
+      }
+      projection = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(),
+          schema.isError());
+      projection.setFields(fields);
+      columns = columnList.toArray(new Column[columnList.size()]);
+    }
+
+    void startBatch(VectorizedRowBatch batch) {
+      for (Column column : columns) {
+        ColumnVector vector = batch.cols[column.index];
+        vector.reset();
+        if (vector instanceof BytesColumnVector) {
+          ((BytesColumnVector) vector).initBuffer();
+        }
+      }
+    }
+
+    @Override
+    public VectorizedRowBatch read(VectorizedRowBatch batch, Decoder in) throws IOException {
+      decoder.configure(in);
+      for (Schema.Field field : decoder.readFieldOrder()) {
+        columns[field.pos()].read(decoder, batch.cols, row);
+      }
+      decoder.drain();
+      return batch;
+    }
+  }
+
+  /**
+   * Decodes a field into its column vector.
+   */
+  static class Column {
+    private final int index;
+    private final Schema.Type kind;
+    /** The branch of a nullable union holding nulls, -1 if the field is not nullable */
+    private final int nullBranch;
+    private final byte[][] symbols;
+    private final Utf8 utf8 = new Utf8();
+    private ByteBuffer bytes;
+
+    Column(int index, Schema schema) {
+      this.index = index;
+      kind = getKind(schema);
+      if (AvroSerdeUtils.isNullableType(schema)) {
+        nullBranch = schema.getTypes().get(0).getType() == Schema.Type.NULL ? 0 : 1;
+        schema = AvroSerdeUtils.getOtherTypeFromNullableType(schema);
+      } else {
+        nullBranch = -1;
+      }
+      if (kind == Schema.Type.ENUM) {
+        List<String> names = schema.getEnumSymbols();
+        symbols = new byte[names.size()][];
+        for (int i = 0; i < symbols.length; i++) {
+          symbols[i] = new Utf8(names.get(i)).getBytes();
+        }
+      } else {
+        symbols = null;
+      }
+    }
+
+    void read(ResolvingDecoder in, ColumnVector[] cols, int row) throws IOException {
+      ColumnVector vector = cols[index];
+      if (nullBranch >= 0 && in.readIndex() == nullBranch) {
+        in.readNull();
+        vector.noNulls = false;
+        vector.isNull[row] = true;
+        return;
+      }
+      switch (kind) {
+      case BOOLEAN:
+        ((LongColumnVector) vector).vector[row] = in.readBoolean() ? 1 : 0;
+        break;
+      case INT:
+        ((LongColumnVector) vector).vector[row] = in.readInt();
+        break;
+      case LONG:
+        ((LongColumnVector) vector).vector[row] = in.readLong();
+        break;
+      case FLOAT:
+        ((DoubleColumnVector) vector).vector[row] = in.readFloat();
+        break;
+      case DOUBLE:
+        ((DoubleColumnVector) vector).vector[row] = in.readDouble();
+        break;
+      case STRING:
+        in.readString(utf8);
+        ((BytesColumnVector) vector).setVal(row, utf8.getBytes(), 0, utf8.getByteLength());
+        break;
+      case BYTES:
+        bytes = in.readBytes(bytes);
+        ((BytesColumnVector) vector).setVal(row, bytes.array(),
+            bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        break;
+      case ENUM:
+        byte[] symbol = symbols[in.readEnum()];
+        ((BytesColumnVector) vector).setRef(row, symbol, 0, symbol.length);
+        break;
+      default:
+        throw new IllegalStateException("Unexpected field type " + kind);
+      }
+    }
+  }
+}
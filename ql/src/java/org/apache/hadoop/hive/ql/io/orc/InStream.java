@@ -20,6 +20,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -113,6 +114,17 @@ public void seek(long desired) {
         desired + " is outside of the data");
     }
 
+    @Override
+    OrcColumnCache.CachedStream cache() {
+      ByteBuffer data = ByteBuffer.allocateDirect((int) length);
+      for(int i = 0; i < bytes.length; ++i) {
+        data.position((int) offsets[i]);
+        data.put(bytes[i].duplicate());
+      }
+      data.clear();
+      return new OrcColumnCache.CachedStream(data, null, null);
+    }
+
     @Override
     public String toString() {
       return "uncompressed stream " + name + " position: " + currentOffset +
@@ -343,6 +355,36 @@ private void seek(long desired) throws IOException {
         desired);
     }
 
+    @Override
+    OrcColumnCache.CachedStream cache() throws IOException {
+      byte[] data = new byte[bufferSize];
+      int dataLength = 0;
+      long[] chunkOffsets = new long[16];
+      int[] chunkStarts = new int[16];
+      int chunks = 0;
+      while (currentOffset < length) {
+        if (chunks == chunkOffsets.length) {
+          chunkOffsets = Arrays.copyOf(chunkOffsets, chunks * 2);
+          chunkStarts = Arrays.copyOf(chunkStarts, chunks * 2);
+        }
+        chunkOffsets[chunks] = currentOffset;
+        chunkStarts[chunks] = dataLength;
+        chunks++;
+        readHeader();
+        int chunkLength = uncompressed.remaining();
+        if (data.length - dataLength < chunkLength) {
+          data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + chunkLength));
+        }
+        uncompressed.get(data, dataLength, chunkLength);
+        dataLength += chunkLength;
+      }
+      ByteBuffer direct = ByteBuffer.allocateDirect(dataLength);
+      direct.put(data, 0, dataLength);
+      direct.clear();
+      return new OrcColumnCache.CachedStream(direct, Arrays.copyOf(chunkOffsets, chunks),
+          Arrays.copyOf(chunkStarts, chunks));
+    }
+
     private String rangeString() {
       StringBuilder builder = new StringBuilder();
       for(int i=0; i < offsets.length; ++i) {
@@ -367,8 +409,92 @@ public String toString() {
     }
   }
 
+  /**
+   * A stream read from the decompressed bytes of a whole stream, kept by the column cache.
+   */
+  private static class DecompressedStream extends InStream {
+    private final String name;
+    private final OrcColumnCache.CachedStream cached;
+    private final ByteBuffer data;
+
+    DecompressedStream(String name, OrcColumnCache.CachedStream cached) {
+      this.name = name;
+      this.cached = cached;
+      this.data = cached.getData().duplicate();
+    }
+
+    @Override
+    public int read() {
+      if (data.remaining() == 0) {
+        return -1;
+      }
+      return 0xff & data.get();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (data.remaining() == 0) {
+        return -1;
+      }
+      int actualLength = Math.min(length, data.remaining());
+      data.get(buffer, offset, actualLength);
+      return actualLength;
+    }
+
+    @Override
+    public int available() {
+      return data.remaining();
+    }
+
+    @Override
+    public void close() {
+      data.position(data.limit());
+    }
+
+    @Override
+    public void seek(PositionProvider index) throws IOException {
+      long position = index.getNext();
+      if (cached.isCompressed()) {
+        // Positions in compressed streams are the offset of a compression chunk, then the
+        // number of bytes to skip in its decompressed bytes
+        position = cached.getDecompressedOffset(position) + index.getNext();
+      }
+      if (position < 0 || position > data.limit()) {
+        throw new IOException("Seek outside of data in " + this + " to " + position);
+      }
+      data.position((int) position);
+    }
+
+    @Override
+    OrcColumnCache.CachedStream cache() {
+      return cached;
+    }
+
+    @Override
+    public String toString() {
+      return "cached stream " + name + " position: " + data.position() + " length: "
+          + data.limit();
+    }
+  }
+
   public abstract void seek(PositionProvider index) throws IOException;
 
+  /**
+   * Reads the whole stream, which must not have been read yet, for the column cache.
+   * @return the decompressed bytes of the stream
+   */
+  abstract OrcColumnCache.CachedStream cache() throws IOException;
+
+  /**
+   * Create an input stream over the decompressed bytes of a stream kept by the column cache.
+   * @param name the name of the stream
+   * @param cached the bytes of the stream
+   * @return an input stream
+   */
+  public static InStream create(String name, OrcColumnCache.CachedStream cached) {
+    return new DecompressedStream(name, cached);
+  }
+
   /**
    * Create an input stream from a list of buffers.
    * @param name the name of the stream
@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.io.orc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.common.metrics.Metrics;
+import org.apache.hadoop.hive.conf.HiveConf;
+
+/**
+ * A cache of the decompressed data streams of ORC columns, shared by the readers of the process,
+ * so that the tasks run one after the other in a reused container read the columns of hot tables
+ * from memory instead of reading and decompressing them again.
+ *
+ * The streams of a column in a stripe are cached together when a reader reads them whole, and
+ * evicted in least recently used order once their total size goes over
+ * hive.exec.orc.column.cache.size. Their bytes are kept in direct buffers, out of the heap.
+ * Files are identified by their path, length and modification time, so a file that is replaced
+ * is not read from the cache.
+ *
+ * The hits, misses and evictions of the cache are published through {@link Metrics}.
+ */
+class OrcColumnCache {
+  private static final Log LOG = LogFactory.getLog(OrcColumnCache.class);
+
+  private static OrcColumnCache instance;
+
+  private final long maxSize;
+  // Guarded by this
+  private final LinkedHashMap<Key, CachedColumn> columns =
+      new LinkedHashMap<Key, CachedColumn>(16, 0.75f, true);
+  private long size;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  OrcColumnCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @return the cache of the process, or null if hive.exec.orc.column.cache.size is not
+   *         positive. The cache is sized by the configuration it is first requested with.
+   */
+  static synchronized OrcColumnCache getInstance(Configuration conf) {
+    if (conf == null) {
+      return null;
+    }
+    long maxSize = HiveConf.getLongVar(conf, HiveConf.ConfVars.HIVE_ORC_COLUMN_CACHE_SIZE);
+    if (maxSize <= 0) {
+      return null;
+    }
+    if (instance == null) {
+      LOG.info("Caching up to " + maxSize + " bytes of ORC columns");
+      try {
+        Metrics.init();
+      } catch (Exception e) {
+        LOG.warn("Unable to publish the metrics of the ORC column cache", e);
+      }
+      instance = new OrcColumnCache(maxSize);
+    }
+    return instance;
+  }
+
+  /**
+   * @return the streams of the column, or null if they are not cached
+   */
+  CachedColumn get(Key key) {
+    CachedColumn column;
+    synchronized (this) {
+      column = columns.get(key);
+    }
+    if (column == null) {
+      misses.incrementAndGet();
+      incrementCounter("misses", 1);
+    } else {
+      hits.incrementAndGet();
+      incrementCounter("hits", 1);
+    }
+    return column;
+  }
+
+  void put(Key key, CachedColumn column) {
+    long columnSize = column.getSize();
+    if (columnSize > maxSize) {
+      return;
+    }
+    int evicted = 0;
+    synchronized (this) {
+      CachedColumn previous = columns.put(key, column);
+      if (previous != null) {
+        size -= previous.getSize();
+      }
+      size += columnSize;
+      Iterator<CachedColumn> it = columns.values().iterator();
+      while (size > maxSize && it.hasNext()) {
+        CachedColumn eldest = it.next();
+        if (eldest == column) {
+          continue;
+        }
+        size -= eldest.getSize();
+        it.remove();
+        evicted++;
+      }
+    }
+    if (evicted > 0) {
+      evictions.addAndGet(evicted);
+      incrementCounter("evictions", evicted);
+    }
+  }
+
+  synchronized long getSize() {
+    return size;
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the fraction of the lookups that found their column
+   */
+  double getHitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  private static void incrementCounter(String metric, long increment) {
+    String counter = "orc_column_cache_" + metric;
+    try {
+      Metrics.incrementCounter(counter, increment);
+    } catch (IOException e) {
+      LOG.warn("Unable to update metric " + counter + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Identifies a column of a stripe of a file.
+   */
+  static final class Key {
+    private final String file;
+    private final long length;
+    private final long modificationTime;
+    private final long stripeOffset;
+    private final int column;
+
+    Key(String file, long length, long modificationTime, long stripeOffset, int column) {
+      this.file = file;
+      this.length = length;
+      this.modificationTime = modificationTime;
+      this.stripeOffset = stripeOffset;
+      this.column = column;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return file.equals(key.file) && length == key.length
+          && modificationTime == key.modificationTime && stripeOffset == key.stripeOffset
+          && column == key.column;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = file.hashCode();
+      result = 31 * result + (int) (length ^ (length >>> 32));
+      result = 31 * result + (int) (modificationTime ^ (modificationTime >>> 32));
+      result = 31 * result + (int) (stripeOffset ^ (stripeOffset >>> 32));
+      return 31 * result + column;
+    }
+
+    @Override
+    public String toString() {
+      return file + " stripe at " + stripeOffset + " column " + column;
+    }
+  }
+
+  /**
+   * The data streams of a column in a stripe.
+   */
+  static final class CachedColumn {
+    private final Map<StreamName, CachedStream> streams;
+    private final long size;
+
+    CachedColumn(Map<StreamName, CachedStream> streams) {
+      this.streams = streams;
+      long total = 0;
+      for (CachedStream stream : streams.values()) {
+        total += stream.getSize();
+      }
+      size = total;
+    }
+
+    Map<StreamName, CachedStream> getStreams() {
+      return streams;
+    }
+
+    long getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * The decompressed bytes of a stream. The positions of the row index in compressed streams
+   * start with the offset of a compression chunk, which is mapped to the offset of its
+   * decompressed bytes.
+   */
+  static final class CachedStream {
+    private final ByteBuffer data;
+    private final long[] chunkOffsets;
+    private final int[] chunkStarts;
+
+    /**
+     * @param data the decompressed bytes of the stream
+     * @param chunkOffsets the offsets of the compression chunks in the stream, null if it is
+     *        not compressed
+     * @param chunkStarts the offsets of the decompressed bytes of each chunk in data
+     */
+    CachedStream(ByteBuffer data, long[] chunkOffsets, int[] chunkStarts) {
+      this.data = data;
+      this.chunkOffsets = chunkOffsets;
+      this.chunkStarts = chunkStarts;
+    }
+
+    ByteBuffer getData() {
+      return data;
+    }
+
+    boolean isCompressed() {
+      return chunkOffsets != null;
+    }
+
+    /**
+     * @return the offset in the decompressed bytes of the chunk at the given offset of the
+     *         compressed stream, or the end of the data past the last chunk
+     */
+    long getDecompressedOffset(long chunkOffset) throws IOException {
+      int chunk = Arrays.binarySearch(chunkOffsets, chunkOffset);
+      if (chunk >= 0) {
+        return chunkStarts[chunk];
+      }
+      if (-chunk - 1 == chunkOffsets.length) {
+        return data.limit();
+      }
+      throw new IOException("No compression chunk at " + chunkOffset);
+    }
+
+    long getSize() {
+      long arrays = chunkOffsets == null ? 0 : chunkOffsets.length * 12L;
+      return data.capacity() + arrays;
+    }
+  }
+}
@@ -38,6 +38,7 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
@@ -112,6 +113,11 @@ class RecordReaderImpl implements RecordReader {
   private final ByteBufferAllocatorPool pool = new ByteBufferAllocatorPool();
   private final ZeroCopyReaderShim zcr;
 
+  private final OrcColumnCache columnCache;
+  private final Path path;
+  private final long fileLength;
+  private final long fileModificationTime;
+
   // this is an implementation copied from ElasticByteBufferPool in hadoop-2,
   // which lacks a clear()/clean() operation
   public final static class ByteBufferAllocatorPool implements ByteBufferPoolShim {
@@ -241,6 +247,7 @@ static int[] mapSargColumns(List<PredicateLeaf> sargLeaves,
                    Configuration conf
                   ) throws IOException {
     this.file = fileSystem.open(path);
+    this.path = path;
     this.codec = codec;
     this.types = types;
     this.bufferSize = bufferSize;
@@ -280,6 +287,16 @@ static int[] mapSargColumns(List<PredicateLeaf> sargLeaves,
       this.zcr = null;
     }
 
+    columnCache = OrcColumnCache.getInstance(conf);
+    if (columnCache != null) {
+      FileStatus status = fileSystem.getFileStatus(path);
+      fileLength = status.getLen();
+      fileModificationTime = status.getModificationTime();
+    } else {
+      fileLength = 0;
+      fileModificationTime = 0;
+    }
+
     firstRow = skippedRows;
     totalRowCount = rows;
     reader = createTreeReader(path, 0, types, included, conf);
@@ -2636,8 +2653,10 @@ private void readStripe() throws IOException {
 
     // if we haven't skipped the whole stripe, read the data
     if (rowInStripe < rowCountInStripe) {
-      // if we aren't projecting columns or filtering rows, just read it all
-      if (included == null && includedRowGroups == null) {
+      if (columnCache != null) {
+        readCachedDataStreams(stripe);
+      } else if (included == null && includedRowGroups == null) {
+        // if we aren't projecting columns or filtering rows, just read it all
         readAllDataStreams(stripe);
       } else {
         readPartialDataStreams(stripe);
@@ -3043,6 +3062,76 @@ private void readPartialDataStreams(StripeInformation stripe
         streams);
   }
 
+  /**
+   * Reads the data streams of the stripe through the column cache: the cached columns are not
+   * read from the file, and the columns read whole are added to the cache.
+   */
+  private void readCachedDataStreams(StripeInformation stripe) throws IOException {
+    boolean[] missing = new boolean[types.size()];
+    boolean isAnyMissing = false;
+    for(int column = 0; column < missing.length; ++column) {
+      if (included != null && !included[column]) {
+        continue;
+      }
+      OrcColumnCache.CachedColumn cached = columnCache.get(getCacheKey(stripe, column));
+      if (cached == null) {
+        missing[column] = true;
+        isAnyMissing = true;
+      } else {
+        for(Map.Entry<StreamName, OrcColumnCache.CachedStream> entry:
+            cached.getStreams().entrySet()) {
+          streams.put(entry.getKey(),
+              InStream.create(entry.getKey().toString(), entry.getValue()));
+        }
+      }
+    }
+    if (!isAnyMissing) {
+      return;
+    }
+
+    List<OrcProto.Stream> streamList = stripeFooter.getStreamsList();
+    List<DiskRange> chunks =
+        planReadPartialDataStreams(streamList,
+            indexes, missing, includedRowGroups, codec != null,
+            stripeFooter.getColumnsList(), types, bufferSize);
+    mergeDiskRanges(chunks);
+    bufferChunks = readDiskRanges(file, stripe.getOffset(), chunks);
+    createStreams(streamList, bufferChunks, missing, codec, bufferSize, streams);
+    if (includedRowGroups != null) {
+      // only the selected row groups were read
+      return;
+    }
+
+    // decompress the streams read once, for this reader and the next ones
+    Map<Integer, Map<StreamName, OrcColumnCache.CachedStream>> read =
+        new TreeMap<Integer, Map<StreamName, OrcColumnCache.CachedStream>>();
+    for(int column = 0; column < missing.length; ++column) {
+      if (missing[column]) {
+        read.put(column, new HashMap<StreamName, OrcColumnCache.CachedStream>());
+      }
+    }
+    for(OrcProto.Stream stream: streamList) {
+      int column = stream.getColumn();
+      if (missing[column] &&
+          StreamName.getArea(stream.getKind()) == StreamName.Area.DATA) {
+        StreamName name = new StreamName(column, stream.getKind());
+        OrcColumnCache.CachedStream cached = streams.get(name).cache();
+        streams.put(name, InStream.create(name.toString(), cached));
+        read.get(column).put(name, cached);
+      }
+    }
+    for(Map.Entry<Integer, Map<StreamName, OrcColumnCache.CachedStream>> entry:
+        read.entrySet()) {
+      columnCache.put(getCacheKey(stripe, entry.getKey()),
+          new OrcColumnCache.CachedColumn(entry.getValue()));
+    }
+  }
+
+  private OrcColumnCache.Key getCacheKey(StripeInformation stripe, int column) {
+    return new OrcColumnCache.Key(path.toString(), fileLength, fileModificationTime,
+        stripe.getOffset(), column);
+  }
+
   @Override
   public boolean hasNext() throws IOException {
     return rowInStripe < rowCountInStripe;
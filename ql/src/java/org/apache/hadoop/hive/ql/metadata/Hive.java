@@ -99,6 +99,7 @@
 import org.apache.hadoop.hive.ql.index.HiveIndexHandler;
 import org.apache.hadoop.hive.ql.io.AcidUtils;
 import org.apache.hadoop.hive.ql.optimizer.listbucketingpruner.ListBucketingPrunerUtils;
+import org.apache.hadoop.hive.ql.optimizer.ppr.PartitionPrunerCache;
 import org.apache.hadoop.hive.ql.plan.AddPartitionDesc;
 import org.apache.hadoop.hive.ql.plan.DropTableDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
@@ -457,6 +458,7 @@ public void alterTable(String tblName, Table newTbl, boolean cascade)
       }
       newTbl.checkValidity();
       getMSC().alter_table(names[0], names[1], newTbl.getTTable(), cascade);
+      PartitionPrunerCache.invalidate(names[0], names[1]);
     } catch (MetaException e) {
       throw new HiveException("Unable to alter table. " + e.getMessage(), e);
     } catch (TException e) {
@@ -531,6 +533,7 @@ public void alterPartition(String dbName, String tblName, Partition newPart)
       }
       newPart.checkValidity();
       getMSC().alter_partition(dbName, tblName, newPart.getTPartition());
+      PartitionPrunerCache.invalidate(dbName, tblName);
 
     } catch (MetaException e) {
       throw new HiveException("Unable to alter partition. " + e.getMessage(), e);
@@ -564,6 +567,7 @@ public void alterPartitions(String tblName, List<Partition> newParts)
         newTParts.add(tmpPart.getTPartition());
       }
       getMSC().alter_partitions(names[0], names[1], newTParts);
+      PartitionPrunerCache.invalidate(names[0], names[1]);
     } catch (MetaException e) {
       throw new HiveException("Unable to alter partition. " + e.getMessage(), e);
     } catch (TException e) {
@@ -607,6 +611,7 @@ public void renamePartition(Table tbl, Map<String, String> oldPartSpec, Partitio
       }
       getMSC().renamePartition(tbl.getDbName(), tbl.getTableName(), pvals,
           newPart.getTPartition());
+      PartitionPrunerCache.invalidate(tbl.getDbName(), tbl.getTableName());
 
     } catch (InvalidOperationException e){
       throw new HiveException("Unable to rename partition. " + e.getMessage(), e);
@@ -992,6 +997,7 @@ public void dropTable(String dbName, String tableName, boolean deleteData,
       boolean ignoreUnknownTab, boolean ifPurge) throws HiveException {
     try {
       getMSC().dropTable(dbName, tableName, deleteData, ignoreUnknownTab, ifPurge);
+      PartitionPrunerCache.invalidate(dbName, tableName);
     } catch (NoSuchObjectException e) {
       if (!ignoreUnknownTab) {
         throw new HiveException(e);
@@ -1618,8 +1624,10 @@ public void loadTable(Path loadPath, String tableName, boolean replace,
    */
   public Partition createPartition(Table tbl, Map<String, String> partSpec) throws HiveException {
     try {
-      return new Partition(tbl, getMSC().add_partition(
+      Partition part = new Partition(tbl, getMSC().add_partition(
           Partition.createMetaPartitionObject(tbl, partSpec, null)));
+      PartitionPrunerCache.invalidate(tbl.getDbName(), tbl.getTableName());
+      return part;
     } catch (Exception e) {
       LOG.error(StringUtils.stringifyException(e));
       throw new HiveException(e);
@@ -1641,6 +1649,7 @@ public List<Partition> createPartitions(AddPartitionDesc addPartitionDesc) throw
           : getMSC().add_partitions(in, addPartitionDesc.isIfNotExists(), true)) {
         out.add(new Partition(tbl, outPart));
       }
+      PartitionPrunerCache.invalidate(tbl.getDbName(), tbl.getTableName());
     } catch (Exception e) {
       LOG.error(StringUtils.stringifyException(e));
       throw new HiveException(e);
@@ -1743,6 +1752,7 @@ public Partition getPartition(Table tbl, Map<String, String> partSpec,
                     + " with partition spec : " + partSpec);
           try {
             tpart = getMSC().appendPartition(tbl.getDbName(), tbl.getTableName(), pvals);
+            PartitionPrunerCache.invalidate(tbl.getDbName(), tbl.getTableName());
           } catch (AlreadyExistsException aee) {
             LOG.debug("Caught already exists exception, trying to alter partition instead");
             tpart = getMSC().getPartitionWithAuthInfo(tbl.getDbName(),
@@ -1819,7 +1829,9 @@ public boolean dropPartition(String tblName, List<String> part_vals, boolean del
   public boolean dropPartition(String db_name, String tbl_name,
       List<String> part_vals, boolean deleteData) throws HiveException {
     try {
-      return getMSC().dropPartition(db_name, tbl_name, part_vals, deleteData);
+      boolean dropped = getMSC().dropPartition(db_name, tbl_name, part_vals, deleteData);
+      PartitionPrunerCache.invalidate(db_name, tbl_name);
+      return dropped;
     } catch (NoSuchObjectException e) {
       throw new HiveException("Partition or table doesn't exist.", e);
     } catch (Exception e) {
@@ -1848,6 +1860,7 @@ public List<Partition> dropPartitions(String dbName, String tblName,
       }
       List<org.apache.hadoop.hive.metastore.api.Partition> tParts = getMSC().dropPartitions(
           dbName, tblName, partExprs, deleteData, ignoreProtection, ifExists);
+      PartitionPrunerCache.invalidate(dbName, tblName);
       return convertFromMetastore(tbl, tParts, null);
     } catch (NoSuchObjectException e) {
       throw new HiveException("Partition or table doesn't exist.", e);
@@ -2664,6 +2677,8 @@ public void exchangeTablePartitions(Map<String, String> partitionSpecs,
     try {
       getMSC().exchange_partition(partitionSpecs, sourceDb, sourceTable, destDb,
         destinationTableName);
+      PartitionPrunerCache.invalidate(sourceDb, sourceTable);
+      PartitionPrunerCache.invalidate(destDb, destinationTableName);
     } catch (Exception ex) {
       LOG.error(StringUtils.stringifyException(ex));
       throw new HiveException(ex);
@@ -45,6 +45,11 @@
 import org.apache.hadoop.hive.ql.exec.vector.VectorizationContextRegion;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedInputFormatInterface;
 import org.apache.hadoop.hive.ql.exec.vector.expressions.aggregates.VectorAggregateExpression;
+import org.apache.hadoop.hive.ql.io.VectorizedTextInputFormat;
+import org.apache.hadoop.hive.ql.io.VectorizedTextRecordReader;
+import org.apache.hadoop.hive.ql.io.avro.AvroContainerInputFormat;
+import org.apache.hadoop.hive.ql.io.avro.VectorizedAvroContainerInputFormat;
+import org.apache.hadoop.hive.ql.io.avro.VectorizedAvroRecordReader;
 import org.apache.hadoop.hive.ql.lib.DefaultGraphWalker;
 import org.apache.hadoop.hive.ql.lib.DefaultRuleDispatcher;
 import org.apache.hadoop.hive.ql.lib.Dispatcher;
@@ -118,12 +123,16 @@
 import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.avro.AvroSerDe;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.TextInputFormat;
 import org.apache.hadoop.util.ReflectionUtils;
 
 public class Vectorizer implements PhysicalPlanResolver {
@@ -336,6 +345,9 @@ private boolean validateMapWork(MapWork mapWork, boolean isTez) throws SemanticE
       // Validate the input format
       for (String path : mapWork.getPathToPartitionInfo().keySet()) {
         PartitionDesc pd = mapWork.getPathToPartitionInfo().get(path);
+        if (getVectorizedInputFormat(pd) != null) {
+          continue;
+        }
         List<Class<?>> interfaceList =
             Arrays.asList(pd.getInputFileFormatClass().getInterfaces());
         if (!interfaceList.contains(VectorizedInputFormatInterface.class)) {
@@ -364,9 +376,39 @@ private boolean validateMapWork(MapWork mapWork, boolean isTez) throws SemanticE
       return true;
     }
 
+    /**
+     * @return the vectorized input format that can read the partition in place of its row mode
+     *         input format, or null if there is none
+     */
+    private Class<? extends InputFormat> getVectorizedInputFormat(PartitionDesc pd) {
+      Class<? extends InputFormat> inputFormat = pd.getInputFileFormatClass();
+      if (inputFormat == TextInputFormat.class && HiveConf.getBoolVar(pctx.getConf(),
+          HiveConf.ConfVars.HIVE_VECTORIZATION_TEXT_ENABLED)) {
+        if (LazySimpleSerDe.class.getName().equals(pd.getSerdeClassName())
+            && VectorizedTextRecordReader.isVectorizable(pd.getProperties())) {
+          return VectorizedTextInputFormat.class;
+        }
+        LOG.info("Text input of " + pd.getTableName() + " can not be vectorized");
+      } else if (inputFormat == AvroContainerInputFormat.class && HiveConf.getBoolVar(
+          pctx.getConf(), HiveConf.ConfVars.HIVE_VECTORIZATION_AVRO_ENABLED)) {
+        if (AvroSerDe.class.getName().equals(pd.getSerdeClassName())
+            && VectorizedAvroRecordReader.isVectorizable(pd.getProperties())) {
+          return VectorizedAvroContainerInputFormat.class;
+        }
+        LOG.info("Avro input of " + pd.getTableName() + " can not be vectorized");
+      }
+      return null;
+    }
+
     private void vectorizeMapWork(MapWork mapWork) throws SemanticException {
       LOG.info("Vectorizing MapWork...");
       mapWork.setVectorMode(true);
+      for (PartitionDesc pd : mapWork.getPathToPartitionInfo().values()) {
+        Class<? extends InputFormat> inputFormat = getVectorizedInputFormat(pd);
+        if (inputFormat != null) {
+          pd.setInputFileFormatClass(inputFormat);
+        }
+      }
       Map<Rule, NodeProcessor> opRules = new LinkedHashMap<Rule, NodeProcessor>();
       MapWorkVectorizationNodeProcessor vnp = new MapWorkVectorizationNodeProcessor(mapWork);
       addMapWorkRules(opRules, vnp);
@@ -120,7 +120,11 @@ static synchronized public ObjectPair<PrimitiveObjectInspector, ExprNodeEvaluato
     return ObjectPair.create((PrimitiveObjectInspector)evaluateResultOI, evaluator);
   }
 
-  static synchronized public Object evaluateExprOnPart(
+  /**
+   * Evaluates a prepared expression on one partition. Not synchronized: a handle returned by
+   * {@link #prepareExpr} must only be used by one thread at a time.
+   */
+  static public Object evaluateExprOnPart(
       ObjectPair<PrimitiveObjectInspector, ExprNodeEvaluator> pair, Object partColValues)
           throws HiveException {
     return pair.getFirst().getPrimitiveJavaObject(pair.getSecond().evaluate(partColValues));
@@ -22,6 +22,9 @@
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.PartitionExpressionProxy;
 import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.ql.exec.Utilities;
@@ -32,9 +35,21 @@
 /**
  * The basic implementation of PartitionExpressionProxy that uses ql package classes.
  */
-public class PartitionExpressionForMetastore implements PartitionExpressionProxy {
+public class PartitionExpressionForMetastore implements PartitionExpressionProxy, Configurable {
   private static final Log LOG = LogFactory.getLog(PartitionExpressionForMetastore.class);
 
+  private Configuration conf;
+
+  @Override
+  public void setConf(Configuration conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
   @Override
   public String convertExprToFilter(byte[] exprBytes) throws MetaException {
     return deserializeExpr(exprBytes).getExprString();
@@ -47,8 +62,15 @@ public boolean filterPartitionsByExpr(List<String> partColumnNames,
     ExprNodeGenericFuncDesc expr = deserializeExpr(exprBytes);
     try {
       long startTime = System.nanoTime(), len = partitionNames.size();
-      boolean result = PartitionPruner.prunePartitionNames(
-          partColumnNames, partColumnTypeInfos, expr, defaultPartitionName, partitionNames);
+      int numThreads = 1, minPerThread = 0;
+      if (conf != null) {
+        numThreads = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_THREADS);
+        minPerThread = HiveConf.getIntVar(
+            conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_THREAD_MIN_PARTITIONS);
+      }
+      boolean result = PartitionPruner.prunePartitionNames(partColumnNames,
+          partColumnTypeInfos, expr, defaultPartitionName, partitionNames,
+          numThreads, minPerThread);
       double timeMs = (System.nanoTime() - startTime) / 1000000.0;
       LOG.debug("Pruning " + len + " partition names took " + timeMs + "ms");
       return result;
@@ -26,6 +26,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -52,6 +58,7 @@
 import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDescUtils;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
@@ -63,6 +70,8 @@
 import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * The transformation step that does partition pruning.
  *
@@ -73,6 +82,17 @@ public class PartitionPruner implements Transform {
   public static final String CLASS_NAME = PartitionPruner.class.getName();
   public static final Log LOG = LogFactory.getLog(CLASS_NAME);
 
+  /**
+   * Threads evaluating pruning expressions, shared by all the queries of the process and bounded
+   * by the number of processors, as the evaluation is CPU bound. When all of them are busy, the
+   * calling thread evaluates its chunk itself.
+   */
+  private static final ThreadPoolExecutor PRUNER_POOL = new ThreadPoolExecutor(0,
+      Runtime.getRuntime().availableProcessors(), 60, TimeUnit.SECONDS,
+      new SynchronousQueue<Runnable>(),
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("PartitionPruner-%d").build(),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+
   /*
    * (non-Javadoc)
    *
@@ -368,8 +388,27 @@ private static PrunedPartitionList getPartitionsFromServer(Table tab,
       if (!doEvalClientSide) {
         perfLogger.PerfLogBegin(CLASS_NAME, PerfLogger.PARTITION_RETRIEVING);
         try {
-          hasUnknownPartitions = Hive.get().getPartitionsByExpr(
-              tab, compactExpr, conf, partitions);
+          // Results for non-deterministic expressions can change from one call to the next.
+          PartitionPrunerCache cache = ExprNodeDescUtils.isDeterministic(compactExpr)
+              ? PartitionPrunerCache.getInstance(conf) : null;
+          String user = cache == null ? null : PartitionPrunerCache.getCurrentUser();
+          String cacheKey = null;
+          Boolean cached = null;
+          if (user != null) {
+            cacheKey = cache.makeKey(tab, user, compactExpr.getExprString(),
+                conf.getVar(HiveConf.ConfVars.DEFAULTPARTITIONNAME));
+            cached = cache.get(cacheKey, tab, partitions);
+          }
+          if (cached != null) {
+            LOG.debug("Using cached pruning result for " + tab.getTableName());
+            hasUnknownPartitions = cached;
+          } else {
+            hasUnknownPartitions = Hive.get().getPartitionsByExpr(
+                tab, compactExpr, conf, partitions);
+            if (cacheKey != null) {
+              cache.put(cacheKey, partitions, hasUnknownPartitions);
+            }
+          }
         } catch (IMetaStoreClient.IncompatibleMetastoreException ime) {
           // TODO: backward compat for Hive <= 0.12. Can be removed later.
           LOG.warn("Metastore doesn't support getPartitionsByExpr", ime);
@@ -424,8 +463,10 @@ static private boolean pruneBySequentialScan(Table tab, List<Partition> partitio
     List<String> partCols = extractPartColNames(tab);
     List<PrimitiveTypeInfo> partColTypeInfos = extractPartColTypes(tab);
 
-    boolean hasUnknownPartitions = prunePartitionNames(
-        partCols, partColTypeInfos, prunerExpr, defaultPartitionName, partNames);
+    boolean hasUnknownPartitions = prunePartitionNames(partCols, partColTypeInfos, prunerExpr,
+        defaultPartitionName, partNames,
+        HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_THREADS),
+        HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_THREAD_MIN_PARTITIONS));
     perfLogger.PerfLogEnd(CLASS_NAME, PerfLogger.PRUNE_LISTING);
 
     perfLogger.PerfLogBegin(CLASS_NAME, PerfLogger.PARTITION_RETRIEVING);
@@ -466,6 +507,85 @@ private static List<PrimitiveTypeInfo> extractPartColTypes(Table tab) {
   public static boolean prunePartitionNames(List<String> partColumnNames,
       List<PrimitiveTypeInfo> partColumnTypeInfos, ExprNodeGenericFuncDesc prunerExpr,
       String defaultPartitionName, List<String> partNames) throws HiveException, MetaException {
+    return prunePartitionNames(partColumnNames, partColumnTypeInfos, prunerExpr,
+        defaultPartitionName, partNames, 1, 0);
+  }
+
+  /**
+   * Prunes partition names to see if they match the prune expression, splitting the names
+   * between several threads if there are enough of them.
+   * @param partColumnNames name of partition columns
+   * @param partColumnTypeInfos types of partition columns
+   * @param prunerExpr The expression to match.
+   * @param defaultPartitionName name of default partition
+   * @param partNames Partition names to filter. The list is modified in place.
+   * @param numThreads maximum number of threads to use.
+   * @param minPerThread minimum number of names given to each thread.
+   * @return Whether the list has any partitions for which the expression may or may not match.
+   */
+  public static boolean prunePartitionNames(final List<String> partColumnNames,
+      final List<PrimitiveTypeInfo> partColumnTypeInfos, ExprNodeGenericFuncDesc prunerExpr,
+      final String defaultPartitionName, List<String> partNames, int numThreads,
+      int minPerThread) throws HiveException, MetaException {
+    int numNames = partNames.size();
+    int numChunks = Math.min(numThreads, numNames / Math.max(minPerThread, 1));
+    if (numChunks <= 1) {
+      return prunePartitionNamesInternal(partColumnNames, partColumnTypeInfos, prunerExpr,
+          defaultPartitionName, partNames);
+    }
+
+    int chunkSize = (numNames + numChunks - 1) / numChunks;
+    List<List<String>> chunks = new ArrayList<List<String>>(numChunks);
+    for (int i = 0; i < numNames; i += chunkSize) {
+      chunks.add(new LinkedList<String>(partNames.subList(i, Math.min(numNames, i + chunkSize))));
+    }
+    LOG.debug("Pruning " + numNames + " partition names with " + chunks.size() + " threads");
+
+    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(chunks.size());
+    try {
+      for (final List<String> chunk : chunks) {
+        // UDFs keep state, so every thread gets its own copy of the expression.
+        final ExprNodeGenericFuncDesc expr = (ExprNodeGenericFuncDesc) prunerExpr.clone();
+        futures.add(PRUNER_POOL.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            return prunePartitionNamesInternal(partColumnNames, partColumnTypeInfos, expr,
+                defaultPartitionName, chunk);
+          }
+        }));
+      }
+      boolean hasUnknownPartitions = false;
+      for (Future<Boolean> future : futures) {
+        hasUnknownPartitions |= future.get();
+      }
+      partNames.clear();
+      for (List<String> chunk : chunks) {
+        partNames.addAll(chunk);
+      }
+      return hasUnknownPartitions;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HiveException("Interrupted while pruning partitions", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof HiveException) {
+        throw (HiveException) cause;
+      }
+      if (cause instanceof MetaException) {
+        throw (MetaException) cause;
+      }
+      throw new HiveException(cause);
+    } finally {
+      // Only does something on failure, the other chunks are not needed then
+      for (Future<Boolean> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static boolean prunePartitionNamesInternal(List<String> partColumnNames,
+      List<PrimitiveTypeInfo> partColumnTypeInfos, ExprNodeGenericFuncDesc prunerExpr,
+      String defaultPartitionName, List<String> partNames) throws HiveException, MetaException {
     // Prepare the expression to filter on the columns.
     ObjectPair<PrimitiveObjectInspector, ExprNodeEvaluator> handle =
         PartExprEvalUtils.prepareExpr(prunerExpr, partColumnNames, partColumnTypeInfos);
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.optimizer.ppr;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.metadata.Partition;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.apache.hadoop.hive.shims.Utils;
+import org.apache.hadoop.security.UserGroupInformation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of partition pruning results shared by all the sessions in the process. An entry is
+ * keyed by the table, the version of its partition set and the compacted pruning expression,
+ * and holds the partitions the metastore returned for that expression. The partition set
+ * version is the table's last DDL time plus a number that every partition DDL done through
+ * {@link org.apache.hadoop.hive.ql.metadata.Hive} in this process raises, so such DDL makes
+ * older entries unreachable. Changes made by other processes are only picked up once the
+ * entries expire.
+ *
+ * The numbers of the least recently used tables are dropped past {@link #MAX_VERSIONS} tables.
+ * Tables without a number of their own then get the highest number dropped, so that the entries
+ * cached under an older number of a dropped table stay unreachable.
+ *
+ * The partitions are cached after the metastore checked read access and the filter hooks of the
+ * client dropped the partitions the user may not see, so results are also keyed by the user.
+ */
+public class PartitionPrunerCache {
+  private static final Log LOG = LogFactory.getLog(PartitionPrunerCache.class);
+
+  private static final char SEP = '\u0001';
+
+  /** Maximum number of tables whose partition set version is kept. */
+  static final int MAX_VERSIONS = 10000;
+
+  /** Last version given to a table; versions are never given twice. */
+  private static long lastVersion;
+
+  /** Version of the tables without one of their own, the highest version dropped. */
+  private static long droppedVersion;
+
+  /** Partition set versions of the tables changed in this process, in access order. */
+  private static final Map<String, Long> versions =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          if (size() <= MAX_VERSIONS) {
+            return false;
+          }
+          droppedVersion = Math.max(droppedVersion, eldest.getValue());
+          return true;
+        }
+      };
+
+  private static PartitionPrunerCache instance;
+
+  /**
+   * The metastore partitions matching an expression.
+   */
+  private static class Result {
+    final List<org.apache.hadoop.hive.metastore.api.Partition> partitions;
+    final boolean hasUnknownPartitions;
+
+    Result(List<org.apache.hadoop.hive.metastore.api.Partition> partitions,
+        boolean hasUnknownPartitions) {
+      this.partitions = partitions;
+      this.hasUnknownPartitions = hasUnknownPartitions;
+    }
+  }
+
+  private final Cache<String, Result> results;
+
+  PartitionPrunerCache(int maxSize, long ttlMs) {
+    results = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+  }
+
+  /**
+   * @return the shared cache, or null if caching is disabled in the given configuration.
+   */
+  public static synchronized PartitionPrunerCache getInstance(HiveConf conf) {
+    int maxSize = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_CACHE_SIZE);
+    if (maxSize <= 0) {
+      return null;
+    }
+    if (instance == null) {
+      long ttlMs = HiveConf.getTimeVar(
+          conf, HiveConf.ConfVars.HIVE_PARTITION_PRUNER_CACHE_TTL, TimeUnit.MILLISECONDS);
+      LOG.info("Creating partition pruner cache with max size " + maxSize
+          + " and TTL " + ttlMs + "ms");
+      instance = new PartitionPrunerCache(maxSize, ttlMs);
+    }
+    return instance;
+  }
+
+  /**
+   * Makes every cached result for the table unreachable. Called after the partitions of the
+   * table, or the table itself, have been changed.
+   */
+  public static void invalidate(String dbName, String tableName) {
+    synchronized (versions) {
+      versions.put(tableKey(dbName, tableName), ++lastVersion);
+    }
+  }
+
+  /**
+   * @return a number that changes whenever the partitions of the table are changed through this
+   *         process.
+   */
+  public static long getVersion(String dbName, String tableName) {
+    synchronized (versions) {
+      Long version = versions.get(tableKey(dbName, tableName));
+      return version == null ? droppedVersion : version;
+    }
+  }
+
+  static int getTableCount() {
+    synchronized (versions) {
+      return versions.size();
+    }
+  }
+
+  /**
+   * Builds the key for a pruning result. The key has to be built before the metastore is
+   * called, so that a result computed concurrently with a DDL is stored under the old version.
+   */
+  String makeKey(Table tab, String user, String exprString, String defaultPartitionName) {
+    return new StringBuilder(tableKey(tab.getDbName(), tab.getTableName()))
+        .append(SEP).append(tab.getParameters().get(hive_metastoreConstants.DDL_TIME))
+        .append(SEP).append(getVersion(tab.getDbName(), tab.getTableName()))
+        .append(SEP).append(user)
+        .append(SEP).append(defaultPartitionName)
+        .append(SEP).append(exprString).toString();
+  }
+
+  /**
+   * The metastore checks access for the user and groups of the process, while filter hooks may
+   * filter for the user of the session, so both are part of the identity.
+   * @return the identity the partitions are fetched for, or null to not cache them.
+   */
+  static String getCurrentUser() {
+    try {
+      UserGroupInformation ugi = Utils.getUGI();
+      StringBuilder sb = new StringBuilder(ugi.getUserName());
+      for (String group : ugi.getGroupNames()) {
+        sb.append(',').append(group);
+      }
+      return sb.append(SEP).append(SessionState.getUserFromAuthenticator()).toString();
+    } catch (Exception e) {
+      LOG.warn("Unable to get the current user, not caching the pruning result", e);
+      return null;
+    }
+  }
+
+  /**
+   * Looks up a pruning result.
+   * @param partitions receives the cached partitions, bound to the given table object.
+   * @return null if nothing is cached under the key; otherwise whether the result has
+   *         partitions the expression could not be evaluated on.
+   */
+  Boolean get(String key, Table tab, List<Partition> partitions) throws HiveException {
+    Result result = results.getIfPresent(key);
+    if (result == null) {
+      return null;
+    }
+    for (org.apache.hadoop.hive.metastore.api.Partition tPart : result.partitions) {
+      partitions.add(new Partition(tab, new org.apache.hadoop.hive.metastore.api.Partition(tPart)));
+    }
+    return result.hasUnknownPartitions;
+  }
+
+  void put(String key, List<Partition> partitions, boolean hasUnknownPartitions) {
+    List<org.apache.hadoop.hive.metastore.api.Partition> tParts =
+        new ArrayList<org.apache.hadoop.hive.metastore.api.Partition>(partitions.size());
+    for (Partition part : partitions) {
+      tParts.add(new org.apache.hadoop.hive.metastore.api.Partition(part.getTPartition()));
+    }
+    results.put(key, new Result(tParts, hasUnknownPartitions));
+  }
+
+  private static String tableKey(String dbName, String tableName) {
+    return dbName.toLowerCase() + "." + tableName.toLowerCase();
+  }
+}
@@ -6339,8 +6339,7 @@ private Operator genFileSinkPlan(String dest, QB qb, Operator input)
 
       if (tblDesc == null) {
         if (qb.getIsQuery()) {
-          String fileFormat = HiveConf.getVar(conf, HiveConf.ConfVars.HIVEQUERYRESULTFILEFORMAT);
-          table_desc = PlanUtils.getDefaultQueryOutputTableDesc(cols, colTypes, fileFormat);
+          table_desc = PlanUtils.getQueryResultTableDesc(conf, cols, colTypes);
         } else {
           table_desc = PlanUtils.getDefaultTableDesc(qb.getLLocalDirectoryDesc(), cols, colTypes);
         }
@@ -115,8 +115,7 @@ public void compile(final ParseContext pCtx, final List<Task<? extends Serializa
 
       TableDesc resultTab = pCtx.getFetchTabledesc();
       if (resultTab == null) {
-        String resFileFormat = HiveConf.getVar(conf, HiveConf.ConfVars.HIVEQUERYRESULTFILEFORMAT);
-        resultTab = PlanUtils.getDefaultQueryOutputTableDesc(cols, colTypes, resFileFormat);
+        resultTab = PlanUtils.getQueryResultTableDesc(conf, cols, colTypes);
       }
 
       FetchWork fetch = new FetchWork(loadFileDesc.getSourcePath(),
@@ -313,8 +312,7 @@ protected void genColumnStatsTask(QB qb, List<LoadTableDesc> loadTableWork,
     String cols = loadFileWork.get(0).getColumns();
     String colTypes = loadFileWork.get(0).getColumnTypes();
 
-    String resFileFormat = HiveConf.getVar(conf, HiveConf.ConfVars.HIVEQUERYRESULTFILEFORMAT);
-    TableDesc resultTab = PlanUtils.getDefaultQueryOutputTableDesc(cols, colTypes, resFileFormat);
+    TableDesc resultTab = PlanUtils.getQueryResultTableDesc(conf, cols, colTypes);
 
     fetch = new FetchWork(loadFileWork.get(0).getSourcePath(),
         resultTab, qb.getParseInfo().getOuterQueryLimit());
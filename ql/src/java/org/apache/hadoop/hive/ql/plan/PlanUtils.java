@@ -61,6 +61,7 @@
 import org.apache.hadoop.hive.serde2.MetadataTypedColumnsetSerDe;
 import org.apache.hadoop.hive.serde2.binarysortable.BinarySortableSerDe;
 import org.apache.hadoop.hive.serde2.columnar.ColumnarSerDe;
+import org.apache.hadoop.hive.serde2.columnar.LazyBinaryColumnarSerDe;
 import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
 import org.apache.hadoop.hive.serde2.lazybinary.LazyBinarySerDe;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
@@ -279,6 +280,25 @@ public static TableDesc getTableDesc(
     return new TableDesc(inputFormat, outputFormat, properties);
   }
 
+  /**
+   * Generate the table descriptor the result of a query is written with by the final file sink
+   * and read back with by the fetch task.
+   */
+  public static TableDesc getQueryResultTableDesc(HiveConf conf, String cols, String colTypes) {
+    if (!HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVEQUERYRESULTBINARYCOLUMNAR)) {
+      return getDefaultQueryOutputTableDesc(cols, colTypes,
+          HiveConf.getVar(conf, HiveConf.ConfVars.HIVEQUERYRESULTFILEFORMAT));
+    }
+    Properties properties = Utilities.makeProperties(
+        serdeConstants.SERIALIZATION_FORMAT, "" + Utilities.ctrlaCode,
+        serdeConstants.LIST_COLUMNS, cols,
+        serdeConstants.SERIALIZATION_LIB, LazyBinaryColumnarSerDe.class.getName());
+    if (colTypes != null) {
+      properties.setProperty(serdeConstants.LIST_COLUMN_TYPES, colTypes);
+    }
+    return new TableDesc(RCFileInputFormat.class, RCFileOutputFormat.class, properties);
+  }
+
   public static TableDesc getDefaultQueryOutputTableDesc(String cols, String colTypes,
       String fileFormat) {
     TableDesc tblDesc = getTableDesc(LazySimpleSerDe.class, "" + Utilities.ctrlaCode, cols, colTypes,
@@ -22,7 +22,9 @@
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.ObjectPair;
 import org.apache.hadoop.hive.common.ValidTxnList;
+import org.apache.hadoop.hive.common.metrics.Metrics;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.api.CompactionRequest;
 import org.apache.hadoop.hive.metastore.api.CompactionType;
@@ -40,10 +42,21 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringUtils;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -54,7 +67,14 @@ public class Initiator extends CompactorThread {
   static final private String CLASS_NAME = Initiator.class.getName();
   static final private Log LOG = LogFactory.getLog(CLASS_NAME);
 
+  static final private String METRIC_PREFIX = "compactor.initiator.";
+
   private long checkInterval;
+  private ExecutorService checkExecutor;
+
+  // Watermarks of the tables and partitions that did not need compacting when last checked.
+  private final Map<String, ObjectPair<Long, Long>> checkedWatermarks =
+      new ConcurrentHashMap<String, ObjectPair<Long, Long>>();
 
   @Override
   public void run() {
@@ -76,14 +96,17 @@ public void run() {
         // don't doom the entire thread.
         try {
           ShowCompactResponse currentCompactions = txnHandler.showCompact(new ShowCompactRequest());
-          ValidTxnList txns = TxnHandler.createValidTxnList(txnHandler.getOpenTxns(), 0);
+          final ValidTxnList txns = TxnHandler.createValidTxnList(txnHandler.getOpenTxns(), 0);
           Set<CompactionInfo> potentials = txnHandler.findPotentialCompactions(abortedThreshold);
           LOG.debug("Found " + potentials.size() + " potential compactions, " +
               "checking to see if we should compact any of them");
-          for (CompactionInfo ci : potentials) {
+          forgetWatermarksNotIn(potentials);
+          List<Future<Void>> checks = new ArrayList<Future<Void>>(potentials.size());
+          int unchanged = 0;
+          for (final CompactionInfo ci : potentials) {
             LOG.debug("Checking to see if we should compact " + ci.getFullPartitionName());
             try {
-              Table t = resolveTable(ci);
+              final Table t = resolveTable(ci);
               // check if no compaction set for this table
               if (noAutoCompactSet(t)) {
                 LOG.info("Table " + tableName(t) + " marked true so we will not compact it.");
@@ -99,13 +122,26 @@ public void run() {
                 continue;
               }
 
-              // Figure out who we should run the file operations as
-              Partition p = resolvePartition(ci);
-              StorageDescriptor sd = resolveStorageDescriptor(t, p);
-              String runAs = findUserToRunAs(sd.getLocation(), t);
+              // Nothing has been committed to this table or partition since we last found it
+              // did not need compacting, so the answer has not changed.
+              if (isUnchangedSinceLastCheck(ci)) {
+                LOG.debug("No transactions completed on " + ci.getFullPartitionName() +
+                    " since it was last checked, skipping it");
+                ++unchanged;
+                continue;
+              }
 
-              CompactionType compactionNeeded = checkForCompaction(ci, txns, sd, runAs);
-              if (compactionNeeded != null) requestCompaction(ci, runAs, compactionNeeded);
+              // The metastore calls are done here as the raw store is not thread safe; the file
+              // system work is handed to the check threads.
+              Partition p = resolvePartition(ci);
+              final StorageDescriptor sd = resolveStorageDescriptor(t, p);
+              checks.add(checkExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  checkPotentialCompaction(ci, t, sd, txns);
+                  return null;
+                }
+              }));
             } catch (Throwable t) {
               LOG.error("Caught exception while trying to determine if we should compact " +
                   ci.getFullPartitionName() + ".  Marking clean to avoid repeated failures, " +
@@ -113,6 +149,14 @@ public void run() {
               txnHandler.markCleaned(ci);
             }
           }
+          for (Future<Void> check : checks) {
+            check.get();
+          }
+          long cycleTime = System.currentTimeMillis() - startedAt;
+          LOG.info("Checked " + checks.size() + " of " + potentials.size() +
+              " potential compactions in " + cycleTime + "ms, " + unchanged +
+              " were unchanged since the last check");
+          updateCycleMetrics(cycleTime, potentials.size(), checks.size(), unchanged);
 
           // Check for timed out remote workers.
           recoverFailedCompactions(true);
@@ -132,6 +176,8 @@ public void run() {
     } catch (Throwable t) {
       LOG.error("Caught an exception in the main loop of compactor initiator, exiting " +
           StringUtils.stringifyException(t));
+    } finally {
+      checkExecutor.shutdownNow();
     }
   }
 
@@ -140,6 +186,70 @@ public void init(AtomicBoolean stop, AtomicBoolean looped) throws MetaException
     super.init(stop, looped);
     checkInterval =
         conf.getTimeVar(HiveConf.ConfVars.HIVE_COMPACTOR_CHECK_INTERVAL, TimeUnit.MILLISECONDS) ;
+    int threads = HiveConf.getIntVar(conf, HiveConf.ConfVars.HIVE_COMPACTOR_INITIATOR_THREADS);
+    if (threads > 1) {
+      checkExecutor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("Initiator-check-%d").build());
+    } else {
+      checkExecutor = MoreExecutors.sameThreadExecutor();
+    }
+  }
+
+  /**
+   * Decides whether a table or partition needs compacting and requests the compaction if so.
+   * Runs on the check threads.
+   */
+  private void checkPotentialCompaction(CompactionInfo ci, Table t, StorageDescriptor sd,
+                                        ValidTxnList txns) throws MetaException {
+    try {
+      // Figure out who we should run the file operations as
+      String runAs = findUserToRunAs(sd.getLocation(), t);
+
+      CompactionType compactionNeeded = checkForCompaction(ci, txns, sd, runAs);
+      if (compactionNeeded != null) {
+        requestCompaction(ci, runAs, compactionNeeded);
+      } else if (!ci.tooManyAborts) {
+        checkedWatermarks.put(ci.getFullPartitionName(), watermark(ci));
+      }
+    } catch (Throwable e) {
+      LOG.error("Caught exception while trying to determine if we should compact " +
+          ci.getFullPartitionName() + ".  Marking clean to avoid repeated failures, " +
+          "" + StringUtils.stringifyException(e));
+      txnHandler.markCleaned(ci);
+    }
+  }
+
+  private static ObjectPair<Long, Long> watermark(CompactionInfo ci) {
+    return ObjectPair.create(ci.completedTxnComponents, ci.highestCompletedTxnId);
+  }
+
+  private boolean isUnchangedSinceLastCheck(CompactionInfo ci) {
+    if (ci.tooManyAborts) return false;
+    ObjectPair<Long, Long> last = checkedWatermarks.get(ci.getFullPartitionName());
+    return last != null && last.equals(watermark(ci));
+  }
+
+  // Drop the watermarks of tables and partitions that are no longer compaction candidates, so
+  // that the map does not grow without bound.
+  private void forgetWatermarksNotIn(Set<CompactionInfo> potentials) {
+    Set<String> names = new HashSet<String>(potentials.size());
+    for (CompactionInfo ci : potentials) {
+      names.add(ci.getFullPartitionName());
+    }
+    checkedWatermarks.keySet().retainAll(names);
+  }
+
+  private void updateCycleMetrics(long cycleTime, int potentials, int checked, int unchanged) {
+    try {
+      Metrics.incrementCounter(METRIC_PREFIX + "cycles");
+      Metrics.incrementCounter(METRIC_PREFIX + "cycle_time_total_ms", cycleTime);
+      Metrics.set(METRIC_PREFIX + "last_cycle_time_ms", cycleTime);
+      Metrics.set(METRIC_PREFIX + "last_potential_compactions", potentials);
+      Metrics.set(METRIC_PREFIX + "last_checked", checked);
+      Metrics.set(METRIC_PREFIX + "last_skipped_unchanged", unchanged);
+    } catch (IOException e) {
+      LOG.warn("Unable to update initiator metrics: " + e.getMessage());
+    }
   }
 
   private void recoverFailedCompactions(boolean remoteOnly) throws MetaException {
@@ -276,6 +386,11 @@ private void requestCompaction(CompactionInfo ci, String runAs, CompactionType t
     if (ci.partName != null) rqst.setPartitionname(ci.partName);
     rqst.setRunas(runAs);
     txnHandler.compact(rqst);
+    try {
+      Metrics.incrementCounter(METRIC_PREFIX + "compactions_requested");
+    } catch (IOException e) {
+      LOG.warn("Unable to update initiator metrics: " + e.getMessage());
+    }
   }
 
   // Because TABLE_NO_AUTO_COMPACT was originally assumed to be NO_AUTO_COMPACT and then was moved
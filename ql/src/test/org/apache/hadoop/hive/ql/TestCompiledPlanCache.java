@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the keys of the compiled plan cache.
+ */
+public class TestCompiledPlanCache {
+  private static final String QUERY = "select key from src where key = 1";
+  private static final String SHARED_QUERY = "select * from plan_cache_shared";
+
+  private HiveConf conf;
+  private CompiledPlanCache cache;
+
+  @Before
+  public void setUp() {
+    conf = new HiveConf(getClass());
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_ENABLED, false);
+    SessionState.start(conf);
+    cache = new CompiledPlanCache(10, 60000);
+  }
+
+  @Test
+  public void disabledByDefault() {
+    Assert.assertNull(CompiledPlanCache.getInstance(new HiveConf()));
+  }
+
+  @Test
+  public void perQuerySettingsAreIgnored() {
+    String key = cache.makeKey(QUERY, conf, "user");
+    Assert.assertNotNull(key);
+    conf.setVar(HiveConf.ConfVars.HIVEQUERYID, "another_query");
+    conf.set("mapreduce.workflow.name", QUERY);
+    Assert.assertEquals(key, cache.makeKey(QUERY, conf, "user"));
+  }
+
+  @Test
+  public void sessionSettingsAndUserArePartOfTheKey() {
+    String key = cache.makeKey(QUERY, conf, "user");
+    Assert.assertFalse(key.equals(cache.makeKey(QUERY, conf, "other")));
+    conf.setBoolVar(HiveConf.ConfVars.HIVEOPTPPD, !conf.getBoolVar(HiveConf.ConfVars.HIVEOPTPPD));
+    Assert.assertFalse(key.equals(cache.makeKey(QUERY, conf, "user")));
+  }
+
+  @Test
+  public void sessionsShareKeys() {
+    String key = cache.makeKey(QUERY, conf, "user");
+    HiveConf otherConf = new HiveConf(getClass());
+    otherConf.setBoolVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_ENABLED, false);
+    SessionState.start(otherConf);
+    // Both sessions have their own id and scratch directories
+    Assert.assertFalse(conf.getVar(HiveConf.ConfVars.HIVESESSIONID).equals(
+        otherConf.getVar(HiveConf.ConfVars.HIVESESSIONID)));
+    Assert.assertNotNull(otherConf.get("_hive.local.session.path"));
+    Assert.assertFalse(otherConf.get("_hive.local.session.path").equals(
+        conf.get("_hive.local.session.path")));
+    Assert.assertEquals(key, cache.makeKey(QUERY, otherConf, "user"));
+  }
+
+  private static Driver createDriver(HiveConf conf) {
+    SessionState.start(new HiveConf(conf));
+    Driver driver = new Driver(SessionState.get().getConf(), "user");
+    driver.init();
+    return driver;
+  }
+
+  @Test
+  public void plansAreSharedBySessions() throws Exception {
+    HiveConf cacheConf = new HiveConf(Driver.class);
+    cacheConf.setBoolVar(HiveConf.ConfVars.HIVE_SUPPORT_CONCURRENCY, false);
+    cacheConf.setIntVar(HiveConf.ConfVars.HIVE_COMPILED_PLAN_CACHE_SIZE, 10);
+    CompiledPlanCache shared = CompiledPlanCache.getInstance(cacheConf);
+    Driver driver = createDriver(cacheConf);
+    Assert.assertEquals(0, driver.run(
+        "create table if not exists plan_cache_shared(i int, s string)").getResponseCode());
+    try {
+      Assert.assertEquals(0, driver.compile(SHARED_QUERY));
+      String key = shared.makeKey(SHARED_QUERY, SessionState.get().getConf(), "user");
+      CompiledPlanCache.CachedPlan cached = shared.get(key, SessionState.get().getConf());
+      Assert.assertNotNull(cached);
+      driver.close();
+
+      // Another session compiles the query to the cached plan, instead of caching its own
+      driver = createDriver(cacheConf);
+      HiveConf sessionConf = SessionState.get().getConf();
+      Assert.assertEquals(key, shared.makeKey(SHARED_QUERY, sessionConf, "user"));
+      Assert.assertEquals(0, driver.compile(SHARED_QUERY));
+      Assert.assertSame(cached, shared.get(key, sessionConf));
+
+      // DDL on the table drops the plan, the next compilation caches a new one
+      Assert.assertEquals(0, driver.run(
+          "alter table plan_cache_shared set tblproperties ('k'='v')").getResponseCode());
+      Assert.assertNull(shared.get(key, sessionConf));
+      Assert.assertEquals(0, driver.compile(SHARED_QUERY));
+      CompiledPlanCache.CachedPlan recompiled = shared.get(key, sessionConf);
+      Assert.assertNotNull(recompiled);
+      Assert.assertNotSame(cached, recompiled);
+    } finally {
+      driver.run("drop table plan_cache_shared");
+      driver.close();
+    }
+  }
+
+  @Test
+  public void notCachedWithAuthorization() {
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_AUTHORIZATION_ENABLED, true);
+    Assert.assertNull(cache.makeKey(QUERY, conf, "user"));
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.exec.Task;
+import org.apache.hadoop.hive.ql.parse.ASTNode;
+import org.apache.hadoop.hive.ql.parse.AbstractSemanticAnalyzerHook;
+import org.apache.hadoop.hive.ql.parse.HiveSemanticAnalyzerHookContext;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for the compilation of queries from several sessions at the same time.
+ */
+public class TestParallelCompilation {
+  private static final String QUERY = "select upper(s) from parallel_compile where i > 1";
+
+  /**
+   * Counts the queries being analyzed, and waits for the other queries when asked to.
+   */
+  public static class ConcurrencyCheckingHook extends AbstractSemanticAnalyzerHook {
+    static final AtomicInteger running = new AtomicInteger();
+    static final AtomicInteger maxRunning = new AtomicInteger();
+    static volatile CountDownLatch started;
+
+    @Override
+    public ASTNode preAnalyze(HiveSemanticAnalyzerHookContext context, ASTNode ast)
+        throws SemanticException {
+      int n = running.incrementAndGet();
+      int max = maxRunning.get();
+      while (n > max && !maxRunning.compareAndSet(max, n)) {
+        max = maxRunning.get();
+      }
+      CountDownLatch latch = started;
+      if (latch != null) {
+        latch.countDown();
+        try {
+          latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new SemanticException(e);
+        }
+      }
+      return ast;
+    }
+
+    @Override
+    public void postAnalyze(HiveSemanticAnalyzerHookContext context,
+        List<Task<? extends Serializable>> rootTasks) throws SemanticException {
+      running.decrementAndGet();
+    }
+  }
+
+  private static HiveConf createConf(boolean parallel) {
+    HiveConf conf = new HiveConf(Driver.class);
+    conf.setVar(HiveConf.ConfVars.SEMANTIC_ANALYZER_HOOK,
+        ConcurrencyCheckingHook.class.getName());
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SUPPORT_CONCURRENCY, false);
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SERVER2_PARALLEL_COMPILATION, parallel);
+    return conf;
+  }
+
+  private static Driver createDriver(HiveConf conf) {
+    SessionState.start(new HiveConf(conf));
+    Driver driver = new Driver(SessionState.get().getConf());
+    driver.init();
+    return driver;
+  }
+
+  @BeforeClass
+  public static void onetimeSetup() throws Exception {
+    Driver driver = createDriver(createConf(false));
+    Assert.assertEquals(0, driver.run(
+        "create table if not exists parallel_compile(i int, s string)").getResponseCode());
+  }
+
+  @AfterClass
+  public static void onetimeTeardown() throws Exception {
+    createDriver(createConf(false)).run("drop table parallel_compile");
+  }
+
+  @Before
+  public void setUp() {
+    ConcurrencyCheckingHook.running.set(0);
+    ConcurrencyCheckingHook.maxRunning.set(0);
+    ConcurrencyCheckingHook.started = null;
+  }
+
+  /**
+   * Compiles, or runs, the given commands, each in its own session and thread.
+   * @return the response codes, in the order of the commands.
+   */
+  private static List<Integer> inSessions(final HiveConf conf, List<String> commands,
+      final boolean run) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(commands.size());
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (final String command : commands) {
+        results.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            Driver driver = createDriver(conf);
+            try {
+              return run ? driver.run(command).getResponseCode()
+                  : driver.compileAndRespond(command).getResponseCode();
+            } finally {
+              driver.close();
+            }
+          }
+        }));
+      }
+      List<Integer> codes = new ArrayList<Integer>();
+      for (Future<Integer> result : results) {
+        codes.add(result.get(60, TimeUnit.SECONDS));
+      }
+      return codes;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<String> repeat(String command, int times) {
+    List<String> commands = new ArrayList<String>();
+    for (int i = 0; i < times; i++) {
+      commands.add(command);
+    }
+    return commands;
+  }
+
+  @Test
+  public void serializedByDefault() throws Exception {
+    for (int code : inSessions(createConf(false), repeat(QUERY, 4), false)) {
+      Assert.assertEquals(0, code);
+    }
+    Assert.assertEquals(1, ConcurrencyCheckingHook.maxRunning.get());
+  }
+
+  @Test
+  public void compiledAtTheSameTime() throws Exception {
+    // Every query waits in the hook until the other one is being compiled too
+    ConcurrencyCheckingHook.started = new CountDownLatch(2);
+    for (int code : inSessions(createConf(true), repeat(QUERY, 2), false)) {
+      Assert.assertEquals(0, code);
+    }
+    Assert.assertEquals(2, ConcurrencyCheckingHook.maxRunning.get());
+  }
+
+  @Test
+  public void functionsRegisteredWhileCompiling() throws Exception {
+    // Temporary functions are registered in a registry shared by all the sessions
+    HiveConf conf = createConf(true);
+    List<String> commands = new ArrayList<String>();
+    for (int i = 0; i < 8; i++) {
+      commands.add(QUERY);
+      commands.add("create temporary function parallel_compile_" + i
+          + " as 'org.apache.hadoop.hive.ql.udf.UDFAscii'");
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int code : inSessions(conf, commands, true)) {
+        Assert.assertEquals(0, code);
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.HiveFileFormatUtils;
+import org.apache.hadoop.hive.ql.io.RCFileInputFormat;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.FileSinkDesc;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.serde2.SerDeUtils;
+import org.apache.hadoop.hive.serde2.columnar.LazyBinaryColumnarSerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.Test;
+
+/**
+ * Tests query results written with hive.query.result.binary.columnar and read back by the
+ * fetch task.
+ */
+public class TestQueryResultBinaryColumnar {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    HiveConf conf = new HiveConf(getClass());
+    conf.setBoolVar(HiveConf.ConfVars.HIVEQUERYRESULTBINARYCOLUMNAR, true);
+    TableDesc tableDesc = PlanUtils.getQueryResultTableDesc(conf, "i,s", "int:string");
+    Assert.assertEquals(RCFileInputFormat.class, tableDesc.getInputFileFormatClass());
+    Assert.assertEquals(LazyBinaryColumnarSerDe.class.getName(), tableDesc.getSerdeClassName());
+
+    Path dir = new Path(System.getProperty("test.tmp.dir", System.getProperty("java.io.tmpdir")),
+        "query_result_binary_columnar");
+    FileSystem fs = dir.getFileSystem(conf);
+    fs.delete(dir, true);
+
+    // Writes the rows like the final file sink of a query does
+    LazyBinaryColumnarSerDe serde = new LazyBinaryColumnarSerDe();
+    SerDeUtils.initializeSerDe(serde, conf, tableDesc.getProperties(), null);
+    ObjectInspector rowOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Arrays.asList("i", "s"), Arrays.<ObjectInspector>asList(
+            PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+            PrimitiveObjectInspectorFactory.javaStringObjectInspector));
+    FileSinkOperator.RecordWriter writer = HiveFileFormatUtils.getHiveRecordWriter(
+        new JobConf(conf), tableDesc, serde.getSerializedClass(),
+        new FileSinkDesc(dir, tableDesc, false), new Path(dir, "000000_0"), Reporter.NULL);
+    Object[][] rows = {{1, "one"}, {2, null}, {null, "three"}, {4, ""}};
+    for (Object[] row : rows) {
+      writer.write(serde.serialize(Arrays.asList(row), rowOI));
+    }
+    writer.close(false);
+
+    FetchTask task = (FetchTask) TaskFactory.get(new FetchWork(dir, tableDesc), conf);
+    task.initialize(conf, null, null);
+    task.setMaxRows(3);
+    List<String> results = new ArrayList<String>();
+    List<String> batch = new ArrayList<String>();
+    while (task.fetch(batch)) {
+      results.addAll(batch);
+      batch.clear();
+    }
+    task.clearFetch();
+    Assert.assertEquals(Arrays.asList("1\tone", "2\tNULL", "NULL\tthree", "4\t"), results);
+    fs.delete(dir, true);
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.exec;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.io.RCFile;
+import org.apache.hadoop.hive.ql.io.RCFileInputFormat;
+import org.apache.hadoop.hive.ql.io.RCFileOutputFormat;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.columnar.BytesRefArrayWritable;
+import org.apache.hadoop.hive.serde2.columnar.BytesRefWritable;
+import org.apache.hadoop.hive.serde2.columnar.ColumnarSerDe;
+import org.apache.hadoop.hive.serde2.objectinspector.InspectableObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TextInputFormat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSplitPrefetcher {
+
+  private File dir;
+  private JobConf job;
+  private TextInputFormat inputFormat;
+  private SplitPrefetcher prefetcher;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = new File(System.getProperty("java.io.tmpdir"),
+        "TestSplitPrefetcher-" + System.nanoTime());
+    Assert.assertTrue(dir.mkdirs());
+    // More rows per file than the queue of a split holds
+    for (int file = 0; file < 5; file++) {
+      List<String> lines = new ArrayList<String>();
+      for (int i = 0; i < SplitPrefetcher.QUEUE_SIZE * 2; i++) {
+        lines.add(file + ":" + i);
+      }
+      FileUtils.writeLines(new File(dir, "00000" + file + "_0"), lines);
+    }
+    job = new JobConf();
+    FileInputFormat.setInputPaths(job, new Path(dir.toURI()));
+    inputFormat = new TextInputFormat();
+    inputFormat.configure(job);
+    prefetcher = new SplitPrefetcher(3);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    prefetcher.close();
+    FileUtils.deleteDirectory(dir);
+  }
+
+  private static char fileNumber(InputSplit split) {
+    return ((FileSplit) split).getPath().getName().charAt(5);
+  }
+
+  @Test
+  public void testRecordsInSplitOrder() throws Exception {
+    InputSplit[] splits = inputFormat.getSplits(job, 1);
+    prefetcher.setSplits(inputFormat, job, splits);
+    for (InputSplit split : splits) {
+      SplitPrefetcher.Reader reader = prefetcher.nextReader();
+      int count = 0;
+      while (reader.next(reader.createKey(), reader.createValue())) {
+        Text value = (Text) reader.getCurrentValue();
+        Assert.assertEquals(fileNumber(split) + ":" + count, value.toString());
+        count++;
+      }
+      reader.close();
+      Assert.assertEquals(SplitPrefetcher.QUEUE_SIZE * 2, count);
+    }
+    Assert.assertNull(prefetcher.nextReader());
+  }
+
+  @Test
+  public void testRestartWithOtherSplits() throws Exception {
+    InputSplit[] splits = inputFormat.getSplits(job, 1);
+    prefetcher.setSplits(inputFormat, job, splits);
+    SplitPrefetcher.Reader reader = prefetcher.nextReader();
+    Assert.assertTrue(reader.next(null, null));
+
+    // The pending reads are cancelled, the new splits read from the start
+    prefetcher.setSplits(inputFormat, job, new InputSplit[] {splits[4]});
+    reader = prefetcher.nextReader();
+    Assert.assertTrue(reader.next(null, null));
+    Assert.assertEquals(fileNumber(splits[4]) + ":0", reader.getCurrentValue().toString());
+    Assert.assertNull(prefetcher.nextReader());
+  }
+
+  @Test
+  public void testOnlySelfContainedFormats() {
+    Assert.assertTrue(SplitPrefetcher.canPrefetch(TextInputFormat.class));
+    Assert.assertFalse(SplitPrefetcher.canPrefetch(RCFileInputFormat.class));
+  }
+
+  @Test
+  public void testRCFileRowGroupsThroughFetchOperator() throws Exception {
+    // More columns than a new value holds, and many row groups per file
+    int columns = 12, rows = 100;
+    File rcDir = new File(dir, "rcfile");
+    Assert.assertTrue(rcDir.mkdirs());
+    JobConf conf = new JobConf();
+    RCFileOutputFormat.setColumnNumber(conf, columns);
+    conf.setInt(RCFile.RECORD_INTERVAL_CONF_STR, 10);
+    StringBuilder names = new StringBuilder();
+    StringBuilder types = new StringBuilder();
+    for (int c = 0; c < columns; c++) {
+      names.append(c == 0 ? "" : ",").append("c").append(c);
+      types.append(c == 0 ? "" : ":").append(serdeConstants.STRING_TYPE_NAME);
+    }
+    for (int file = 0; file < 3; file++) {
+      RCFile.Writer writer = new RCFile.Writer(FileSystem.getLocal(conf), conf,
+          new Path(new File(rcDir, "00000" + file + "_0").toURI()));
+      for (int i = 0; i < rows; i++) {
+        BytesRefArrayWritable row = new BytesRefArrayWritable(columns);
+        for (int c = 0; c < columns; c++) {
+          byte[] bytes = (file + ":" + i + ":" + c).getBytes("UTF-8");
+          row.set(c, new BytesRefWritable(bytes, 0, bytes.length));
+        }
+        writer.append(row);
+      }
+      writer.close();
+    }
+
+    Properties props = new Properties();
+    props.setProperty(serdeConstants.SERIALIZATION_LIB, ColumnarSerDe.class.getName());
+    props.setProperty(serdeConstants.LIST_COLUMNS, names.toString());
+    props.setProperty(serdeConstants.LIST_COLUMN_TYPES, types.toString());
+    TableDesc table = new TableDesc(RCFileInputFormat.class, RCFileOutputFormat.class, props);
+    JobConf fetchJob = new JobConf();
+    HiveConf.setIntVar(fetchJob, HiveConf.ConfVars.HIVEFETCHTASKREADERTHREADS, 4);
+    FetchOperator fetch = new FetchOperator(new FetchWork(new Path(rcDir.toURI()), table),
+        fetchJob);
+
+    Map<String, Integer> nextRow = new HashMap<String, Integer>();
+    int count = 0;
+    InspectableObject row;
+    while ((row = fetch.getNextRow()) != null) {
+      List<?> values = (List<?>) ObjectInspectorUtils.copyToStandardJavaObject(row.o, row.oi);
+      Assert.assertEquals(columns, values.size());
+      String file = values.get(0).toString().split(":")[0];
+      Integer expected = nextRow.get(file);
+      expected = expected == null ? 0 : expected;
+      for (int c = 0; c < columns; c++) {
+        Assert.assertEquals(file + ":" + expected + ":" + c, values.get(c));
+      }
+      nextRow.put(file, expected + 1);
+      count++;
+    }
+    fetch.clearFetchContext();
+    Assert.assertEquals(3 * rows, count);
+  }
+}
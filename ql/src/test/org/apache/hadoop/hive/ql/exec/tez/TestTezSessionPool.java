@@ -20,14 +20,18 @@
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.tez.dag.api.TezException;
 
 public class TestTezSessionPool {
 
@@ -112,6 +116,88 @@ public void testSessionPoolGetInOrder() {
     }
   }
 
+  @Test
+  public void testQueueAffinityAndGrowth() throws Exception {
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SERVER2_ENABLE_DOAS, false);
+    conf.setVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_DEFAULT_QUEUES, "a,b");
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_SESSIONS_PER_DEFAULT_QUEUE, 1);
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_MAX_SESSIONS_PER_DEFAULT_QUEUE, 2);
+
+    poolManager = new TestTezSessionPoolManager();
+    poolManager.setupPool(conf);
+    poolManager.startPool();
+
+    HiveConf queueConf = new HiveConf(conf);
+    queueConf.set("tez.queue.name", "b");
+    TezSessionState first = poolManager.getSession(null, queueConf, true);
+    assertEquals("b", first.getQueueName());
+    assertTrue(first.isDefault());
+    // The only session of b is in use, the pool starts another one
+    TezSessionState second = poolManager.getSession(null, queueConf, true);
+    assertEquals("b", second.getQueueName());
+    assertTrue(second.isDefault());
+    assertNotSame(first, second);
+
+    poolManager.returnSession(first);
+    poolManager.returnSession(second);
+    poolManager.stop();
+  }
+
+  @Test
+  public void testIdleSessionsShrinkToDefaultSize() throws Exception {
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SERVER2_ENABLE_DOAS, false);
+    conf.setVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_DEFAULT_QUEUES, "a");
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_SESSIONS_PER_DEFAULT_QUEUE, 1);
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_MAX_SESSIONS_PER_DEFAULT_QUEUE, 3);
+    conf.setTimeVar(HiveConf.ConfVars.HIVE_SERVER2_TEZ_SESSION_POOL_IDLE_TIMEOUT, 1,
+        TimeUnit.SECONDS);
+
+    final List<TezSessionState> closed =
+        Collections.synchronizedList(new ArrayList<TezSessionState>());
+    poolManager = new TestTezSessionPoolManager() {
+      @Override
+      public TezSessionState createSession(String sessionId) {
+        return new SampleTezSessionState(sessionId) {
+          @Override
+          public void close(boolean keepTmpDir) throws TezException, IOException {
+            closed.add(this);
+            super.close(keepTmpDir);
+          }
+        };
+      }
+    };
+    poolManager.setupPool(conf);
+    poolManager.startPool();
+
+    // Queries running at the same time grow the pool to its maximum
+    List<TezSessionState> inUse = new ArrayList<TezSessionState>();
+    for (int i = 0; i < 3; i++) {
+      inUse.add(poolManager.getSession(null, conf, true));
+    }
+    assertEquals(3, poolManager.getSessionCount("a"));
+    for (TezSessionState session : inUse) {
+      poolManager.returnSession(session);
+    }
+
+    // The sessions above the default size are closed once idle past the timeout
+    long deadline = System.currentTimeMillis() + 30000;
+    while (poolManager.getSessionCount("a") > 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+    }
+    assertEquals(1, poolManager.getSessionCount("a"));
+    assertEquals(2, closed.size());
+
+    // The last session stays open, however long it is idle
+    Thread.sleep(3000);
+    assertEquals(1, poolManager.getSessionCount("a"));
+    assertEquals(2, closed.size());
+    TezSessionState session = poolManager.getSession(null, conf, true);
+    assertTrue(inUse.contains(session));
+    assertFalse(closed.contains(session));
+    poolManager.returnSession(session);
+    poolManager.stop();
+  }
+
   public class SessionThread implements Runnable {
 
     @Override
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.ql.io;
+
+import java.sql.Date;
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.io.VectorizedTextRecordReader.LineParser;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
+import org.junit.Test;
+
+public class TestVectorizedTextRecordReader {
+
+  private static Properties tableProperties(String names, String types) {
+    Properties props = new Properties();
+    props.setProperty(serdeConstants.LIST_COLUMNS, names);
+    props.setProperty(serdeConstants.LIST_COLUMN_TYPES, types);
+    props.setProperty(serdeConstants.FIELD_DELIM, ",");
+    return props;
+  }
+
+  private static void parse(LineParser parser, VectorizedRowBatch batch, int row, String line) {
+    byte[] bytes = line.getBytes();
+    parser.parse(bytes, bytes.length, row, batch);
+  }
+
+  @Test
+  public void testParseFields() throws Exception {
+    Properties props = tableProperties("b,i,l,d,s,dt",
+        "boolean,int,bigint,double,string,date");
+    Assert.assertTrue(VectorizedTextRecordReader.isVectorizable(props));
+    LineParser parser = new LineParser(
+        LazySimpleSerDe.initSerdeParams(new Configuration(), props, "test"));
+
+    VectorizedRowBatch batch = new VectorizedRowBatch(6);
+    batch.cols[0] = new LongColumnVector();
+    batch.cols[1] = new LongColumnVector();
+    batch.cols[2] = new LongColumnVector();
+    batch.cols[3] = new DoubleColumnVector();
+    // The query does not read the string column, batch.cols[4] stays null
+    batch.cols[5] = new LongColumnVector();
+    parser.startBatch(batch);
+    parse(parser, batch, 0, "TRUE,12,-9000000000,-1.25,skipped,2014-02-28");
+    parse(parser, batch, 1, "x,\\N,12x,1e3,skipped,2014-02-30,extra");
+    parse(parser, batch, 2, "false,7");
+
+    LongColumnVector b = (LongColumnVector) batch.cols[0];
+    LongColumnVector i = (LongColumnVector) batch.cols[1];
+    LongColumnVector l = (LongColumnVector) batch.cols[2];
+    DoubleColumnVector d = (DoubleColumnVector) batch.cols[3];
+    LongColumnVector dt = (LongColumnVector) batch.cols[5];
+    Assert.assertEquals(1, b.vector[0]);
+    Assert.assertEquals(12, i.vector[0]);
+    Assert.assertEquals(-9000000000L, l.vector[0]);
+    Assert.assertEquals(-1.25, d.vector[0]);
+    Assert.assertEquals(DateWritable.dateToDays(Date.valueOf("2014-02-28")), dt.vector[0]);
+
+    Assert.assertTrue(b.isNull[1]);
+    Assert.assertTrue(i.isNull[1]);
+    Assert.assertTrue(l.isNull[1]);
+    Assert.assertEquals(1000.0, d.vector[1]);
+    // Out of range days roll over, as with Date.valueOf
+    Assert.assertEquals(DateWritable.dateToDays(Date.valueOf("2014-03-02")), dt.vector[1]);
+
+    Assert.assertEquals(0, b.vector[2]);
+    Assert.assertEquals(7, i.vector[2]);
+    Assert.assertTrue(l.isNull[2]);
+    Assert.assertTrue(d.isNull[2]);
+    Assert.assertTrue(dt.isNull[2]);
+  }
+
+  @Test
+  public void testStringsReferToTheLines() throws Exception {
+    Properties props = tableProperties("a,b", "string,string");
+    LineParser parser = new LineParser(
+        LazySimpleSerDe.initSerdeParams(new Configuration(), props, "test"));
+    VectorizedRowBatch batch = new VectorizedRowBatch(2);
+    batch.cols[0] = new BytesColumnVector();
+    batch.cols[1] = new BytesColumnVector();
+    parser.startBatch(batch);
+    parse(parser, batch, 0, "a,");
+    parse(parser, batch, 1, "bc,d");
+
+    BytesColumnVector first = (BytesColumnVector) batch.cols[0];
+    BytesColumnVector second = (BytesColumnVector) batch.cols[1];
+    Assert.assertEquals("a", new String(first.vector[0], first.start[0], first.length[0]));
+    Assert.assertEquals(0, second.length[0]);
+    Assert.assertFalse(second.isNull[0]);
+    Assert.assertEquals("bc", new String(first.vector[1], first.start[1], first.length[1]));
+    Assert.assertEquals("d", new String(second.vector[1], second.start[1], second.length[1]));
+  }
+
+  @Test
+  public void testParseDoubleAndDate() throws Exception {
+    String[] doubles = {"0.1", "-123.456", "+7", "1.", ".5", "123456789012345678", "1E-7"};
+    for (String value : doubles) {
+      byte[] bytes = value.getBytes();
+      Assert.assertEquals(Double.parseDouble(value),
+          LineParser.parseDouble(bytes, 0, bytes.length));
+    }
+    String[] dates = {"1970-01-01", "2000-02-29", "1600-12-31", "1969-12-31"};
+    for (String value : dates) {
+      byte[] bytes = value.getBytes();
+      Assert.assertEquals(DateWritable.dateToDays(Date.valueOf(value)),
+          LineParser.parseDate(bytes, 0, bytes.length));
+    }
+  }
+
+  @Test
+  public void testNotVectorizable() {
+    Properties props = tableProperties("a,b", "int,decimal(10,2)");
+    Assert.assertFalse(VectorizedTextRecordReader.isVectorizable(props));
+    props = tableProperties("a,b", "int,string");
+    props.setProperty(serdeConstants.ESCAPE_CHAR, "\\");
+    Assert.assertFalse(VectorizedTextRecordReader.isVectorizable(props));
+    props = tableProperties("a,b", "int,string");
+    props.setProperty(serdeConstants.HEADER_COUNT, "1");
+    Assert.assertFalse(VectorizedTextRecordReader.isVectorizable(props));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.io.avro;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.avro.AvroSerdeUtils;
+import org.junit.Test;
+
+public class TestVectorizedAvroRecordReader {
+
+  private static final String TABLE_SCHEMA = "{\"type\":\"record\",\"name\":\"t\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"name\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"k\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"name\":\"score\",\"type\":\"double\"}]}";
+
+  // The files have an extra field and a score of type float, promoted to double
+  private static final String FILE_SCHEMA = "{\"type\":\"record\",\"name\":\"t\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"payload\",\"type\":\"bytes\"},"
+      + "{\"name\":\"name\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"k\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"name\":\"score\",\"type\":\"float\"}]}";
+
+  private static Properties schemaProperties(String schema) {
+    Properties props = new Properties();
+    props.setProperty(AvroSerdeUtils.AvroTableProperties.SCHEMA_LITERAL.getPropName(), schema);
+    return props;
+  }
+
+  @Test
+  public void testIsVectorizable() {
+    Assert.assertTrue(VectorizedAvroRecordReader.isVectorizable(schemaProperties(TABLE_SCHEMA)));
+    Assert.assertFalse(VectorizedAvroRecordReader.isVectorizable(schemaProperties(
+        "{\"type\":\"record\",\"name\":\"t\",\"fields\":["
+        + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}")));
+    Assert.assertFalse(VectorizedAvroRecordReader.isVectorizable(schemaProperties(
+        "{\"type\":\"record\",\"name\":\"t\",\"fields\":[{\"name\":\"price\",\"type\":"
+        + "{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":5,\"scale\":2}}]}")));
+    Assert.assertFalse(VectorizedAvroRecordReader.isVectorizable(new Properties()));
+  }
+
+  @Test
+  public void testProjectionAndResolution() throws Exception {
+    Schema fileSchema = new Schema.Parser().parse(FILE_SCHEMA);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(fileSchema));
+    writer.create(fileSchema, out);
+    for (int i = 0; i < 3; i++) {
+      GenericRecord record = new GenericData.Record(fileSchema);
+      record.put("id", (long) i);
+      record.put("payload", ByteBuffer.wrap(new byte[] {(byte) i}));
+      record.put("name", i == 1 ? null : "name" + i);
+      record.put("kind", new GenericData.EnumSymbol(fileSchema.getField("kind").schema(),
+          i == 2 ? "B" : "A"));
+      record.put("score", i * 0.5f);
+      writer.append(record);
+    }
+    writer.close();
+
+    // Reads name, kind and score, the id column is not projected
+    VectorizedRowBatch batch = new VectorizedRowBatch(4);
+    batch.cols[1] = new BytesColumnVector();
+    batch.cols[2] = new BytesColumnVector();
+    batch.cols[3] = new DoubleColumnVector();
+    VectorizedAvroRecordReader.BatchDatumReader datumReader =
+        new VectorizedAvroRecordReader.BatchDatumReader(new Schema.Parser().parse(TABLE_SCHEMA),
+            new boolean[] {false, true, true, true});
+    DataFileStream<VectorizedRowBatch> reader = new DataFileStream<VectorizedRowBatch>(
+        new ByteArrayInputStream(out.toByteArray()), datumReader);
+    datumReader.startBatch(batch);
+    while (reader.hasNext()) {
+      reader.next(batch);
+      datumReader.row++;
+    }
+    reader.close();
+    Assert.assertEquals(3, datumReader.row);
+
+    BytesColumnVector names = (BytesColumnVector) batch.cols[1];
+    Assert.assertEquals("name0", new String(names.vector[0], names.start[0], names.length[0],
+        "UTF-8"));
+    Assert.assertFalse(names.noNulls);
+    Assert.assertTrue(names.isNull[1]);
+    Assert.assertEquals("name2", new String(names.vector[2], names.start[2], names.length[2],
+        "UTF-8"));
+    BytesColumnVector kinds = (BytesColumnVector) batch.cols[2];
+    Assert.assertEquals("B", new String(kinds.vector[2], kinds.start[2], kinds.length[2],
+        "UTF-8"));
+    Assert.assertEquals(0.5, ((DoubleColumnVector) batch.cols[3]).vector[1], 0.0);
+  }
+}
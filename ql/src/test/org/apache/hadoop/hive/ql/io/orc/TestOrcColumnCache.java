@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.io.orc;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+public class TestOrcColumnCache {
+
+  public static class Row {
+    Integer i;
+    String s;
+
+    Row(int i) {
+      this.i = i;
+      this.s = "value " + (i % 100);
+    }
+  }
+
+  private static final int ROWS = 30000;
+
+  Path workDir = new Path(System.getProperty("test.tmp.dir",
+      "target" + File.separator + "test" + File.separator + "tmp"));
+
+  Configuration conf;
+  FileSystem fs;
+  Path testFilePath;
+
+  @Rule
+  public TestName testCaseName = new TestName();
+
+  @Before
+  public void openFileSystem() throws Exception {
+    conf = new Configuration();
+    conf.setLong(HiveConf.ConfVars.HIVE_ORC_COLUMN_CACHE_SIZE.varname, 64L * 1024 * 1024);
+    fs = FileSystem.getLocal(conf);
+    testFilePath = new Path(workDir, "TestOrcColumnCache." +
+        testCaseName.getMethodName() + ".orc");
+    fs.delete(testFilePath, false);
+  }
+
+  private void writeFile(CompressionKind compression) throws Exception {
+    ObjectInspector inspector;
+    synchronized (TestOrcColumnCache.class) {
+      inspector = ObjectInspectorFactory.getReflectionObjectInspector
+          (Row.class, ObjectInspectorFactory.ObjectInspectorOptions.JAVA);
+    }
+    Writer writer = OrcFile.createWriter(testFilePath,
+                                         OrcFile.writerOptions(conf)
+                                         .inspector(inspector)
+                                         .stripeSize(50000)
+                                         .compress(compression)
+                                         .bufferSize(1000)
+                                         .rowIndexStride(1000));
+    for (int i = 0; i < ROWS; i++) {
+      writer.addRow(new Row(i));
+    }
+    writer.close();
+  }
+
+  private static void checkRow(int expected, Object row) {
+    OrcStruct struct = (OrcStruct) row;
+    assertEquals(expected, ((IntWritable) struct.getFieldValue(0)).get());
+    assertEquals("value " + (expected % 100), ((Text) struct.getFieldValue(1)).toString());
+  }
+
+  private void checkCachedReads(CompressionKind compression) throws Exception {
+    writeFile(compression);
+    OrcColumnCache cache = OrcColumnCache.getInstance(conf);
+    assertNotNull(cache);
+    Reader reader = OrcFile.createReader(testFilePath,
+        OrcFile.readerOptions(conf).filesystem(fs));
+
+    for (int pass = 0; pass < 2; pass++) {
+      long hits = cache.getHits();
+      RecordReader rows = reader.rows();
+      Object row = null;
+      for (int i = 0; i < ROWS; i++) {
+        assertTrue(rows.hasNext());
+        row = rows.next(row);
+        checkRow(i, row);
+      }
+      assertFalse(rows.hasNext());
+      rows.close();
+      assertEquals(pass == 0, cache.getHits() == hits);
+    }
+
+    // Seeks through the row index in the cached streams
+    RecordReader rows = reader.rows();
+    long hits = cache.getHits();
+    for (int i : new int[] {25123, 1000, 17999, 0}) {
+      rows.seekToRow(i);
+      checkRow(i, rows.next(null));
+    }
+    rows.close();
+    assertTrue(cache.getHits() > hits);
+    assertTrue(cache.getSize() > 0);
+  }
+
+  @Test
+  public void testUncompressed() throws Exception {
+    checkCachedReads(CompressionKind.NONE);
+  }
+
+  @Test
+  public void testCompressed() throws Exception {
+    checkCachedReads(CompressionKind.ZLIB);
+  }
+
+  @Test
+  public void testDisabled() {
+    assertNull(OrcColumnCache.getInstance(new Configuration()));
+  }
+
+  @Test
+  public void testEviction() {
+    OrcColumnCache cache = new OrcColumnCache(100);
+    OrcColumnCache.Key first = new OrcColumnCache.Key("file", 1, 1, 3, 1);
+    OrcColumnCache.Key second = new OrcColumnCache.Key("file", 1, 1, 3, 2);
+    cache.put(first, column(60));
+    cache.put(second, column(30));
+    // first is now the most recently used
+    assertNotNull(cache.get(first));
+    cache.put(new OrcColumnCache.Key("file", 1, 1, 3, 3), column(30));
+    assertNull(cache.get(second));
+    assertNotNull(cache.get(first));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(90, cache.getSize());
+    assertEquals(0.5, cache.getHitRate(), 0.001);
+    // a new version of the file is not read from the cache
+    assertNull(cache.get(new OrcColumnCache.Key("file", 1, 2, 3, 1)));
+  }
+
+  private static OrcColumnCache.CachedColumn column(int size) {
+    Map<StreamName, OrcColumnCache.CachedStream> streams =
+        new HashMap<StreamName, OrcColumnCache.CachedStream>();
+    streams.put(new StreamName(0, OrcProto.Stream.Kind.DATA),
+        new OrcColumnCache.CachedStream(ByteBuffer.allocate(size), null, null));
+    return new OrcColumnCache.CachedColumn(streams);
+  }
+}
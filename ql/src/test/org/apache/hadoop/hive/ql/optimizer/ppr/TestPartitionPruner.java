@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.optimizer.ppr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Test;
+
+/**
+ * Tests for the parallel evaluation and caching of partition pruning results.
+ */
+public class TestPartitionPruner {
+  private static final String DEFAULT_PARTITION_NAME = "__HIVE_DEFAULT_PARTITION__";
+
+  private static final List<String> PART_COLS = Arrays.asList("p");
+  private static final List<PrimitiveTypeInfo> PART_COL_TYPES =
+      Arrays.asList(TypeInfoFactory.intTypeInfo);
+
+  /** p &gt; bound */
+  private static ExprNodeGenericFuncDesc greaterThan(int bound) throws Exception {
+    List<ExprNodeDesc> children = new ArrayList<ExprNodeDesc>();
+    children.add(new ExprNodeColumnDesc(TypeInfoFactory.intTypeInfo, "p", null, true));
+    children.add(new ExprNodeConstantDesc(TypeInfoFactory.intTypeInfo, bound));
+    return ExprNodeGenericFuncDesc.newInstance(new GenericUDFOPGreaterThan(), children);
+  }
+
+  private static List<String> partNames(int count) {
+    List<String> names = new ArrayList<String>(count);
+    for (int i = 0; i < count; ++i) {
+      names.add("p=" + i);
+    }
+    return names;
+  }
+
+  @Test
+  public void parallelPruningMatchesSerial() throws Exception {
+    List<String> serial = partNames(1000);
+    PartitionPruner.prunePartitionNames(PART_COLS, PART_COL_TYPES, greaterThan(499),
+        DEFAULT_PARTITION_NAME, serial);
+
+    List<String> parallel = partNames(1000);
+    boolean hasUnknown = PartitionPruner.prunePartitionNames(PART_COLS, PART_COL_TYPES,
+        greaterThan(499), DEFAULT_PARTITION_NAME, parallel, 4, 100);
+
+    Assert.assertFalse(hasUnknown);
+    Assert.assertEquals(500, parallel.size());
+    Assert.assertEquals(serial, parallel);
+    Assert.assertEquals("p=500", parallel.get(0));
+  }
+
+  @Test
+  public void defaultPartitionIsDropped() throws Exception {
+    List<String> names = partNames(300);
+    names.add(150, "p=" + DEFAULT_PARTITION_NAME);
+    PartitionPruner.prunePartitionNames(PART_COLS, PART_COL_TYPES, greaterThan(100),
+        DEFAULT_PARTITION_NAME, names, 3, 10);
+    Assert.assertEquals(199, names.size());
+    Assert.assertFalse(names.contains("p=" + DEFAULT_PARTITION_NAME));
+  }
+
+  @Test
+  public void cacheKeyChangesOnInvalidate() {
+    PartitionPrunerCache cache = new PartitionPrunerCache(10, 60000);
+    Table tab = new Table("db", "pruner_cache_tbl");
+    String before = cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME);
+    Assert.assertEquals(before, cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME));
+    Assert.assertFalse(
+        before.equals(cache.makeKey(tab, "user", "(p > 2)", DEFAULT_PARTITION_NAME)));
+
+    PartitionPrunerCache.invalidate("DB", "Pruner_Cache_Tbl");
+    Assert.assertFalse(
+        before.equals(cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME)));
+  }
+
+  @Test
+  public void versionsOfDroppedTablesAreNotReused() {
+    PartitionPrunerCache cache = new PartitionPrunerCache(10, 60000);
+    Table tab = new Table("db", "pruner_dropped_tbl");
+    String before = cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME);
+    PartitionPrunerCache.invalidate("db", "pruner_dropped_tbl");
+    String changed = cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME);
+    Assert.assertFalse(before.equals(changed));
+
+    // Changes to other tables push the version of the table out
+    for (int i = 0; i < PartitionPrunerCache.MAX_VERSIONS; i++) {
+      PartitionPrunerCache.invalidate("db", "pruner_other_tbl_" + i);
+    }
+    Assert.assertEquals(PartitionPrunerCache.MAX_VERSIONS, PartitionPrunerCache.getTableCount());
+    String dropped = cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME);
+    Assert.assertFalse(before.equals(dropped));
+
+    PartitionPrunerCache.invalidate("db", "pruner_dropped_tbl");
+    String after = cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME);
+    Assert.assertFalse(before.equals(after));
+    Assert.assertFalse(changed.equals(after));
+    Assert.assertFalse(dropped.equals(after));
+  }
+
+  @Test
+  public void cachedResultsArePerUser() {
+    PartitionPrunerCache cache = new PartitionPrunerCache(10, 60000);
+    Table tab = new Table("db", "pruner_cache_tbl");
+    Assert.assertFalse(cache.makeKey(tab, "user", "(p > 1)", DEFAULT_PARTITION_NAME)
+        .equals(cache.makeKey(tab, "other", "(p > 1)", DEFAULT_PARTITION_NAME)));
+    Assert.assertNotNull(PartitionPrunerCache.getCurrentUser());
+  }
+
+  @Test
+  public void concurrentPruningSharesThePool() throws Exception {
+    // More chunks than processors run on the calling thread rather than failing
+    int chunks = 4 * Runtime.getRuntime().availableProcessors();
+    List<String> names = partNames(chunks * 10);
+    PartitionPruner.prunePartitionNames(PART_COLS, PART_COL_TYPES, greaterThan(9),
+        DEFAULT_PARTITION_NAME, names, chunks, 10);
+    Assert.assertEquals(chunks * 10 - 10, names.size());
+  }
+}
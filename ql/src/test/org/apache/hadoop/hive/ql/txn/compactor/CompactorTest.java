@@ -85,6 +85,13 @@ protected void startInitiator() throws Exception {
     startThread('i', true);
   }
 
+  /**
+   * Runs one pass of the given initiator, so that a test can run several passes of the same one.
+   */
+  protected void startInitiator(Initiator initiator) throws Exception {
+    startThread(initiator, true, new AtomicBoolean());
+  }
+
   protected void startWorker() throws Exception {
     startThread('w', true);
   }
@@ -224,7 +231,6 @@ private void startThread(char type, boolean stopAfterOne) throws Exception {
 
   private void startThread(char type, boolean stopAfterOne, AtomicBoolean looped)
     throws Exception {
-    TxnDbUtil.setConfValues(conf);
     CompactorThread t = null;
     switch (type) {
       case 'i': t = new Initiator(); break;
@@ -232,6 +238,12 @@ private void startThread(char type, boolean stopAfterOne, AtomicBoolean looped)
       case 'c': t = new Cleaner(); break;
       default: throw new RuntimeException("Huh? Unknown thread type.");
     }
+    startThread(t, stopAfterOne, looped);
+  }
+
+  private void startThread(CompactorThread t, boolean stopAfterOne, AtomicBoolean looped)
+    throws Exception {
+    TxnDbUtil.setConfValues(conf);
     t.setThreadId((int) t.getId());
     t.setHiveConf(conf);
     stop.set(stopAfterOne);
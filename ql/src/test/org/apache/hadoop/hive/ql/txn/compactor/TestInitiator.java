@@ -28,8 +28,10 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -625,5 +627,98 @@ public void twoTxnsOnSamePartitionGenerateOneCompactionRequest() throws Exceptio
     Assert.assertEquals(CompactionType.MAJOR, compacts.get(0).getType());
   }
 
+  @Test
+  public void compactPartitionsInParallel() throws Exception {
+    conf.setIntVar(HiveConf.ConfVars.HIVE_COMPACTOR_INITIATOR_THREADS, 3);
+    Table t = newTable("default", "cpip", true);
+    String[] days = {"monday", "tuesday", "wednesday"};
+    for (String day : days) {
+      Partition p = newPartition(t, day);
+      addBaseFile(t, p, 20L, 20);
+      addDeltaFile(t, p, 21L, 22L, 2);
+      addDeltaFile(t, p, 23L, 24L, 2);
+    }
+
+    burnThroughTransactions(23);
+
+    for (String day : days) {
+      long txnid = openTxn();
+      LockComponent comp = new LockComponent(LockType.SHARED_WRITE, LockLevel.PARTITION, "default");
+      comp.setTablename("cpip");
+      comp.setPartitionname("ds=" + day);
+      List<LockComponent> components = new ArrayList<LockComponent>(1);
+      components.add(comp);
+      LockRequest req = new LockRequest(components, "me", "localhost");
+      req.setTxnid(txnid);
+      txnHandler.lock(req);
+      txnHandler.commitTxn(new CommitTxnRequest(txnid));
+    }
+
+    startInitiator();
+
+    ShowCompactResponse rsp = txnHandler.showCompact(new ShowCompactRequest());
+    List<ShowCompactResponseElement> compacts = rsp.getCompacts();
+    Assert.assertEquals(3, compacts.size());
+    Set<String> partNames = new HashSet<String>();
+    for (ShowCompactResponseElement compact : compacts) {
+      Assert.assertEquals("initiated", compact.getState());
+      Assert.assertEquals(CompactionType.MAJOR, compact.getType());
+      partNames.add(compact.getPartitionname());
+    }
+    Assert.assertEquals(3, partNames.size());
+  }
+
+  private void commitTxnOnPartition(String tableName, String partName) throws Exception {
+    long txnid = openTxn();
+    LockComponent comp = new LockComponent(LockType.SHARED_WRITE, LockLevel.PARTITION, "default");
+    comp.setTablename(tableName);
+    comp.setPartitionname(partName);
+    List<LockComponent> components = new ArrayList<LockComponent>(1);
+    components.add(comp);
+    LockRequest req = new LockRequest(components, "me", "localhost");
+    req.setTxnid(txnid);
+    txnHandler.lock(req);
+    txnHandler.commitTxn(new CommitTxnRequest(txnid));
+  }
+
+  @Test
+  public void unchangedPartitionsNotCheckedAgain() throws Exception {
+    Table t = newTable("default", "upnca", true);
+    Partition untouched = newPartition(t, "untouched");
+    Partition touched = newPartition(t, "touched");
+    for (Partition p : new Partition[] {untouched, touched}) {
+      addBaseFile(t, p, 50L, 50);
+      addDeltaFile(t, p, 51L, 52L, 2);
+    }
+
+    burnThroughTransactions(53);
+    commitTxnOnPartition("upnca", "ds=untouched");
+    commitTxnOnPartition("upnca", "ds=touched");
+
+    // Neither partition has enough deltas to be compacted
+    Initiator initiator = new Initiator();
+    startInitiator(initiator);
+    Assert.assertEquals(0, txnHandler.showCompact(new ShowCompactRequest()).getCompactsSize());
+
+    // Both partitions now have enough deltas to be compacted, but only one of them had a
+    // transaction committed to it since the first pass, so the other one is not checked again.
+    for (Partition p : new Partition[] {untouched, touched}) {
+      addDeltaFile(t, p, 53L, 53L, 28);
+    }
+    commitTxnOnPartition("upnca", "ds=touched");
+    startInitiator(initiator);
+
+    List<ShowCompactResponseElement> compacts =
+        txnHandler.showCompact(new ShowCompactRequest()).getCompacts();
+    Assert.assertEquals(1, compacts.size());
+    Assert.assertEquals("upnca", compacts.get(0).getTablename());
+    Assert.assertEquals("ds=touched", compacts.get(0).getPartitionname());
+    Assert.assertEquals(CompactionType.MAJOR, compacts.get(0).getType());
+
+    // A new initiator has no watermarks, so it checks the untouched partition too
+    startInitiator();
+    Assert.assertEquals(2, txnHandler.showCompact(new ShowCompactRequest()).getCompactsSize());
+  }
+
   // TODO test compactions with legacy file types
 }
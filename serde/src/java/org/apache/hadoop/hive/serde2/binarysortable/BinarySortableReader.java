@@ -0,0 +1,374 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.binarysortable;
+package org.apache.hadoop.hive.serde2.binarysortable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Reads rows in the format of {@link BinarySortableSerDe} with a reader per field, chosen once
+ * from the type and sort order of the field, reusing the writables of the previous row.
+ *
+ * Complex, char and varchar fields are read by {@link BinarySortableSerDe#deserialize}. A reader
+ * keeps buffers, it is not thread safe.
+ */
+final class BinarySortableReader {
+
+  private final FieldReader[] readers;
+
+  BinarySortableReader(List<TypeInfo> columnTypes, boolean[] columnSortOrderIsDesc) {
+    readers = new FieldReader[columnTypes.size()];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = createReader(columnTypes.get(i), columnSortOrderIsDesc[i]);
+    }
+  }
+
+  /**
+   * Reads the fields of a row in the given list, reusing the objects it holds.
+   */
+  void read(InputByteBuffer in, List<Object> row) throws IOException {
+    for (int i = 0; i < readers.length; i++) {
+      row.set(i, readers[i].read(in, row.get(i)));
+    }
+  }
+
+  private static FieldReader createReader(TypeInfo type, boolean invert) {
+    if (type.getCategory() != TypeInfo.Category.PRIMITIVE) {
+      return new GenericReader(type, invert);
+    }
+    switch (((PrimitiveTypeInfo) type).getPrimitiveCategory()) {
+    case BOOLEAN:
+      return new BooleanReader(invert);
+    case BYTE:
+      return new ByteReader(invert);
+    case SHORT:
+      return new ShortReader(invert);
+    case INT:
+      return new IntReader(invert);
+    case LONG:
+      return new LongReader(invert);
+    case FLOAT:
+      return new FloatReader(invert);
+    case DOUBLE:
+      return new DoubleReader(invert);
+    case STRING:
+      return new StringReader(invert);
+    case BINARY:
+      return new BinaryReader(invert);
+    case DATE:
+      return new DateReader(invert);
+    case TIMESTAMP:
+      return new TimestampReader(invert);
+    case DECIMAL:
+      return new DecimalReader(invert);
+    default:
+      return new GenericReader(type, invert);
+    }
+  }
+
+  /**
+   * Reads a field, with its null marker.
+   */
+  abstract static class FieldReader {
+    protected final boolean invert;
+
+    FieldReader(boolean invert) {
+      this.invert = invert;
+    }
+
+    abstract Object read(InputByteBuffer in, Object reuse) throws IOException;
+
+    final int readInt(InputByteBuffer in) throws IOException {
+      int v = in.read(invert) ^ 0x80;
+      for (int i = 0; i < 3; i++) {
+        v = (v << 8) + (in.read(invert) & 0xff);
+      }
+      return v;
+    }
+
+    final long readLong(InputByteBuffer in) throws IOException {
+      long v = in.read(invert) ^ 0x80;
+      for (int i = 0; i < 7; i++) {
+        v = (v << 8) + (in.read(invert) & 0xff);
+      }
+      return v;
+    }
+  }
+
+  /**
+   * Reads the fields of the types without a reader of their own through the serde.
+   */
+  static class GenericReader extends FieldReader {
+    private final TypeInfo type;
+
+    GenericReader(TypeInfo type, boolean invert) {
+      super(invert);
+      this.type = type;
+    }
+
+    @Override
+    Object read(InputByteBuffer in, Object reuse) throws IOException {
+      return BinarySortableSerDe.deserialize(in, type, invert, reuse);
+    }
+  }
+
+  /**
+   * Reads the null marker of a primitive field, then its value.
+   */
+  abstract static class PrimitiveReader extends FieldReader {
+    PrimitiveReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    final Object read(InputByteBuffer in, Object reuse) throws IOException {
+      if (in.read(invert) == 0) {
+        return null;
+      }
+      return readValue(in, reuse);
+    }
+
+    abstract Object readValue(InputByteBuffer in, Object reuse) throws IOException;
+  }
+
+  static class BooleanReader extends PrimitiveReader {
+    BooleanReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      BooleanWritable r = reuse == null ? new BooleanWritable() : (BooleanWritable) reuse;
+      r.set(in.read(invert) == 2);
+      return r;
+    }
+  }
+
+  static class ByteReader extends PrimitiveReader {
+    ByteReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      ByteWritable r = reuse == null ? new ByteWritable() : (ByteWritable) reuse;
+      r.set((byte) (in.read(invert) ^ 0x80));
+      return r;
+    }
+  }
+
+  static class ShortReader extends PrimitiveReader {
+    ShortReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      ShortWritable r = reuse == null ? new ShortWritable() : (ShortWritable) reuse;
+      int v = in.read(invert) ^ 0x80;
+      r.set((short) ((v << 8) + (in.read(invert) & 0xff)));
+      return r;
+    }
+  }
+
+  static class IntReader extends PrimitiveReader {
+    IntReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      IntWritable r = reuse == null ? new IntWritable() : (IntWritable) reuse;
+      r.set(readInt(in));
+      return r;
+    }
+  }
+
+  static class LongReader extends PrimitiveReader {
+    LongReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      LongWritable r = reuse == null ? new LongWritable() : (LongWritable) reuse;
+      r.set(readLong(in));
+      return r;
+    }
+  }
+
+  static class FloatReader extends PrimitiveReader {
+    FloatReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      FloatWritable r = reuse == null ? new FloatWritable() : (FloatWritable) reuse;
+      // readInt flipped the sign bit back; negative numbers have all their bits flipped
+      int v = readInt(in);
+      r.set(Float.intBitsToFloat(v < 0 ? ~v ^ (1 << 31) : v));
+      return r;
+    }
+  }
+
+  static class DoubleReader extends PrimitiveReader {
+    DoubleReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      DoubleWritable r = reuse == null ? new DoubleWritable() : (DoubleWritable) reuse;
+      // readLong flipped the sign bit back; negative numbers have all their bits flipped
+      long v = readLong(in);
+      r.set(Double.longBitsToDouble(v < 0 ? ~v ^ (1L << 63) : v));
+      return r;
+    }
+  }
+
+  static class StringReader extends PrimitiveReader {
+    StringReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      Text r = reuse == null ? new Text() : (Text) reuse;
+      return BinarySortableSerDe.deserializeText(in, invert, r);
+    }
+  }
+
+  static class BinaryReader extends PrimitiveReader {
+    private final Text text = new Text();
+
+    BinaryReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      BytesWritable r = reuse == null ? new BytesWritable() : (BytesWritable) reuse;
+      // Binary values are escaped like strings
+      BinarySortableSerDe.deserializeText(in, invert, text);
+      r.set(text.getBytes(), 0, text.getLength());
+      return r;
+    }
+  }
+
+  static class DateReader extends PrimitiveReader {
+    DateReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      DateWritable r = reuse == null ? new DateWritable() : (DateWritable) reuse;
+      r.set(readInt(in));
+      return r;
+    }
+  }
+
+  static class TimestampReader extends PrimitiveReader {
+    private final byte[] bytes = new byte[TimestampWritable.BINARY_SORTABLE_LENGTH];
+
+    TimestampReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      TimestampWritable r = reuse == null ? new TimestampWritable() : (TimestampWritable) reuse;
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = in.read(invert);
+      }
+      r.setBinarySortable(bytes, 0);
+      return r;
+    }
+  }
+
+  /**
+   * Reads decimals written by {@link BinarySortableWriter.DecimalWriter}.
+   */
+  static class DecimalReader extends PrimitiveReader {
+    /** Digits of unscaled values that always fit in a long */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private byte[] digits = new byte[MAX_LONG_DIGITS];
+
+    DecimalReader(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    Object readValue(InputByteBuffer in, Object reuse) throws IOException {
+      HiveDecimalWritable r = reuse == null ? new HiveDecimalWritable()
+          : (HiveDecimalWritable) reuse;
+      boolean positive = in.read(invert) != 0;
+      int factor = readInt(in);
+      if (!positive) {
+        factor = -factor;
+      }
+
+      boolean digitsInvert = positive ? invert : !invert;
+      int length = 0;
+      byte b;
+      while ((b = in.read(digitsInvert)) != 0) {
+        if (length == digits.length) {
+          digits = Arrays.copyOf(digits, length * 2);
+        }
+        digits[length++] = b;
+      }
+
+      BigDecimal bd;
+      if (length <= MAX_LONG_DIGITS) {
+        long unscaled = 0;
+        for (int i = 0; i < length; i++) {
+          unscaled = unscaled * 10 + (digits[i] - '0');
+        }
+        bd = BigDecimal.valueOf(positive ? unscaled : -unscaled, length - factor);
+      } else {
+        BigInteger unscaled = new BigInteger(
+            new String(digits, 0, length, BinarySortableSerDe.decimalCharSet));
+        bd = new BigDecimal(positive ? unscaled : unscaled.negate(), length - factor);
+      }
+      r.set(HiveDecimal.create(bd));
+      return r;
+    }
+  }
+}
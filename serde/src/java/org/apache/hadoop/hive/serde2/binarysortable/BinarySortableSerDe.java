@@ -126,7 +126,11 @@ public class BinarySortableSerDe extends AbstractSerDe {
   boolean[] columnSortOrderIsDesc;
 
   private static byte[] decimalBuffer = null;
-  private static Charset decimalCharSet = Charset.forName("US-ASCII");
+  static final Charset decimalCharSet = Charset.forName("US-ASCII");
+
+  BinarySortableReader reader;
+  BinarySortableWriter writer;
+  ObjectInspector writerObjectInspector;
 
   @Override
   public void initialize(Configuration conf, Properties tbl)
@@ -165,6 +169,7 @@ public void initialize(Configuration conf, Properties tbl)
       columnSortOrderIsDesc[i] = (columnSortOrder != null && columnSortOrder
           .charAt(i) == '-');
     }
+    reader = new BinarySortableReader(columnTypes, columnSortOrderIsDesc);
   }
 
   @Override
@@ -186,10 +191,7 @@ public Object deserialize(Writable blob) throws SerDeException {
     inputByteBuffer.reset(data.getBytes(), 0, data.getLength());
 
     try {
-      for (int i = 0; i < columnNames.size(); i++) {
-        row.set(i, deserialize(inputByteBuffer, columnTypes.get(i),
-            columnSortOrderIsDesc[i], row.get(i)));
-      }
+      reader.read(inputByteBuffer, row);
     } catch (IOException e) {
       throw new SerDeException(e);
     }
@@ -598,13 +600,13 @@ static Text deserializeText(InputByteBuffer buffer, boolean invert, Text r)
   @Override
   public Writable serialize(Object obj, ObjectInspector objInspector) throws SerDeException {
     output.reset();
-    StructObjectInspector soi = (StructObjectInspector) objInspector;
-    List<? extends StructField> fields = soi.getAllStructFieldRefs();
-
-    for (int i = 0; i < columnNames.size(); i++) {
-      serialize(output, soi.getStructFieldData(obj, fields.get(i)),
-          fields.get(i).getFieldObjectInspector(), columnSortOrderIsDesc[i]);
+    if (objInspector != writerObjectInspector) {
+      // The writers of the fields are chosen once per object inspector, which rarely changes
+      writer = new BinarySortableWriter((StructObjectInspector) objInspector, columnNames.size(),
+          columnSortOrderIsDesc);
+      writerObjectInspector = objInspector;
     }
+    writer.write(output, obj);
 
     serializeBytesWritable.set(output.getData(), 0, output.getLength());
     return serializeBytesWritable;
@@ -735,9 +737,7 @@ static void serialize(ByteStream.Output buffer, Object o, ObjectInspector oi,
       case BINARY: {
         BinaryObjectInspector baoi = (BinaryObjectInspector) poi;
         BytesWritable ba = baoi.getPrimitiveWritableObject(o);
-        byte[] toSer = new byte[ba.getLength()];
-        System.arraycopy(ba.getBytes(), 0, toSer, 0, ba.getLength());
-        serializeBytes(buffer, toSer, ba.getLength(), invert);
+        serializeBytes(buffer, ba.getBytes(), ba.getLength(), invert);
         return;
       }
       case  DATE: {
@@ -0,0 +1,493 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.binarysortable;
+package org.apache.hadoop.hive.serde2.binarysortable;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BinaryObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BooleanObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ByteObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DateObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DoubleObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.FloatObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveCharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveDecimalObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveVarcharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.IntObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ShortObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.TimestampObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Writes rows in the format of {@link BinarySortableSerDe} with a writer per field, chosen once
+ * from the object inspector and sort order of the field, instead of dispatching on the object
+ * inspector of every field of every row.
+ *
+ * The primitive writers do not allocate: binary and timestamp values are written straight from
+ * their writables, and the digits of decimals with less than 19 digits are formatted in a buffer
+ * of the writer. Complex fields are written by {@link BinarySortableSerDe#serialize}.
+ *
+ * A writer keeps buffers, it is not thread safe.
+ */
+public final class BinarySortableWriter {
+
+  private final FieldWriter[] writers;
+  private final StructObjectInspector soi;
+  private final List<? extends StructField> fields;
+
+  /**
+   * @param fieldOis the object inspectors of the fields written
+   * @param columnSortOrderIsDesc whether each field is sorted in descending order
+   */
+  public BinarySortableWriter(List<? extends ObjectInspector> fieldOis,
+      boolean[] columnSortOrderIsDesc) {
+    writers = new FieldWriter[fieldOis.size()];
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = createWriter(fieldOis.get(i), columnSortOrderIsDesc[i]);
+    }
+    soi = null;
+    fields = null;
+  }
+
+  /**
+   * @param soi the object inspector of the rows written
+   * @param numFields the number of leading fields of the rows that are written
+   * @param columnSortOrderIsDesc whether each field is sorted in descending order
+   */
+  public BinarySortableWriter(StructObjectInspector soi, int numFields,
+      boolean[] columnSortOrderIsDesc) {
+    this.soi = soi;
+    this.fields = soi.getAllStructFieldRefs();
+    writers = new FieldWriter[numFields];
+    for (int i = 0; i < numFields; i++) {
+      writers[i] = createWriter(fields.get(i).getFieldObjectInspector(),
+          columnSortOrderIsDesc[i]);
+    }
+  }
+
+  /**
+   * Writes the fields of a row, whose object inspectors are those the writer was created with.
+   */
+  public void writeFields(Output out, Object[] fieldData) throws SerDeException {
+    for (int i = 0; i < writers.length; i++) {
+      writers[i].write(out, fieldData[i]);
+    }
+  }
+
+  /**
+   * Writes a row of the struct object inspector the writer was created with.
+   */
+  public void write(Output out, Object row) throws SerDeException {
+    for (int i = 0; i < writers.length; i++) {
+      writers[i].write(out, soi.getStructFieldData(row, fields.get(i)));
+    }
+  }
+
+  private static FieldWriter createWriter(ObjectInspector oi, boolean invert) {
+    if (oi.getCategory() != ObjectInspector.Category.PRIMITIVE) {
+      return new GenericWriter(oi, invert);
+    }
+    PrimitiveObjectInspector poi = (PrimitiveObjectInspector) oi;
+    switch (poi.getPrimitiveCategory()) {
+    case VOID:
+      return new VoidWriter(invert);
+    case BOOLEAN:
+      return new BooleanWriter((BooleanObjectInspector) poi, invert);
+    case BYTE:
+      return new ByteWriter((ByteObjectInspector) poi, invert);
+    case SHORT:
+      return new ShortWriter((ShortObjectInspector) poi, invert);
+    case INT:
+      return new IntWriter((IntObjectInspector) poi, invert);
+    case LONG:
+      return new LongWriter((LongObjectInspector) poi, invert);
+    case FLOAT:
+      return new FloatWriter((FloatObjectInspector) poi, invert);
+    case DOUBLE:
+      return new DoubleWriter((DoubleObjectInspector) poi, invert);
+    case STRING:
+      return new StringWriter((StringObjectInspector) poi, invert);
+    case CHAR:
+      return new CharWriter((HiveCharObjectInspector) poi, invert);
+    case VARCHAR:
+      return new VarcharWriter((HiveVarcharObjectInspector) poi, invert);
+    case BINARY:
+      return new BinaryWriter((BinaryObjectInspector) poi, invert);
+    case DATE:
+      return new DateWriter((DateObjectInspector) poi, invert);
+    case TIMESTAMP:
+      return new TimestampWriter((TimestampObjectInspector) poi, invert);
+    case DECIMAL:
+      return new DecimalWriter((HiveDecimalObjectInspector) poi, invert);
+    default:
+      return new GenericWriter(oi, invert);
+    }
+  }
+
+  /**
+   * Writes a field, with its null marker, in the order of the field.
+   */
+  abstract static class FieldWriter {
+    /** Xor-ed with every byte written, 0xff to invert the bytes of descending fields */
+    protected final int mask;
+
+    FieldWriter(boolean invert) {
+      mask = invert ? 0xff : 0;
+    }
+
+    abstract void write(Output out, Object o) throws SerDeException;
+
+    final void writeInt(Output out, int v) {
+      out.write((v >> 24) ^ 0x80 ^ mask);
+      out.write((v >> 16) ^ mask);
+      out.write((v >> 8) ^ mask);
+      out.write(v ^ mask);
+    }
+
+    final void writeLong(Output out, long v) {
+      writeInt(out, (int) (v >> 32));
+      out.write((int) (v >> 24) ^ mask);
+      out.write((int) (v >> 16) ^ mask);
+      out.write((int) (v >> 8) ^ mask);
+      out.write((int) v ^ mask);
+    }
+
+    /**
+     * Writes bytes null terminated, with \0 escaped to \1\1 and \1 to \1\2.
+     */
+    static void writeBytes(Output out, byte[] data, int offset, int length, int mask) {
+      for (int i = offset, end = offset + length; i < end; i++) {
+        byte b = data[i];
+        if (b == 0 || b == 1) {
+          out.write(1 ^ mask);
+          out.write((b + 1) ^ mask);
+        } else {
+          out.write(b ^ mask);
+        }
+      }
+      out.write(mask);
+    }
+  }
+
+  /**
+   * Writes the fields of the types without a writer of their own through the serde.
+   */
+  static class GenericWriter extends FieldWriter {
+    private final ObjectInspector oi;
+    private final boolean invert;
+
+    GenericWriter(ObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+      this.invert = invert;
+    }
+
+    @Override
+    void write(Output out, Object o) throws SerDeException {
+      BinarySortableSerDe.serialize(out, o, oi, invert);
+    }
+  }
+
+  /**
+   * Writes the null marker of a primitive field, then its value.
+   */
+  abstract static class PrimitiveWriter extends FieldWriter {
+    PrimitiveWriter(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    final void write(Output out, Object o) throws SerDeException {
+      if (o == null) {
+        out.write(mask);
+        return;
+      }
+      out.write(1 ^ mask);
+      writeValue(out, o);
+    }
+
+    abstract void writeValue(Output out, Object o) throws SerDeException;
+  }
+
+  static class VoidWriter extends PrimitiveWriter {
+    VoidWriter(boolean invert) {
+      super(invert);
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+    }
+  }
+
+  static class BooleanWriter extends PrimitiveWriter {
+    private final BooleanObjectInspector oi;
+
+    BooleanWriter(BooleanObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      out.write((oi.get(o) ? 2 : 1) ^ mask);
+    }
+  }
+
+  static class ByteWriter extends PrimitiveWriter {
+    private final ByteObjectInspector oi;
+
+    ByteWriter(ByteObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      out.write(oi.get(o) ^ 0x80 ^ mask);
+    }
+  }
+
+  static class ShortWriter extends PrimitiveWriter {
+    private final ShortObjectInspector oi;
+
+    ShortWriter(ShortObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      short v = oi.get(o);
+      out.write((v >> 8) ^ 0x80 ^ mask);
+      out.write(v ^ mask);
+    }
+  }
+
+  static class IntWriter extends PrimitiveWriter {
+    private final IntObjectInspector oi;
+
+    IntWriter(IntObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      writeInt(out, oi.get(o));
+    }
+  }
+
+  static class LongWriter extends PrimitiveWriter {
+    private final LongObjectInspector oi;
+
+    LongWriter(LongObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      writeLong(out, oi.get(o));
+    }
+  }
+
+  static class FloatWriter extends PrimitiveWriter {
+    private final FloatObjectInspector oi;
+
+    FloatWriter(FloatObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      int v = Float.floatToIntBits(oi.get(o));
+      // Flip all the bits of negative numbers, and the sign bit of positive ones; writeInt
+      // flips the sign bit again
+      v = (v & (1 << 31)) != 0 ? ~v ^ (1 << 31) : v;
+      writeInt(out, v);
+    }
+  }
+
+  static class DoubleWriter extends PrimitiveWriter {
+    private final DoubleObjectInspector oi;
+
+    DoubleWriter(DoubleObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      long v = Double.doubleToLongBits(oi.get(o));
+      // Flip all the bits of negative numbers, and the sign bit of positive ones; writeLong
+      // flips the sign bit again
+      v = (v & (1L << 63)) != 0 ? ~v ^ (1L << 63) : v;
+      writeLong(out, v);
+    }
+  }
+
+  static class StringWriter extends PrimitiveWriter {
+    private final StringObjectInspector oi;
+
+    StringWriter(StringObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      Text t = oi.getPrimitiveWritableObject(o);
+      writeBytes(out, t.getBytes(), 0, t.getLength(), mask);
+    }
+  }
+
+  static class CharWriter extends PrimitiveWriter {
+    private final HiveCharObjectInspector oi;
+
+    CharWriter(HiveCharObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      // Trailing spaces are ignored by char comparisons
+      Text t = oi.getPrimitiveWritableObject(o).getStrippedValue();
+      writeBytes(out, t.getBytes(), 0, t.getLength(), mask);
+    }
+  }
+
+  static class VarcharWriter extends PrimitiveWriter {
+    private final HiveVarcharObjectInspector oi;
+
+    VarcharWriter(HiveVarcharObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      Text t = oi.getPrimitiveWritableObject(o).getTextValue();
+      writeBytes(out, t.getBytes(), 0, t.getLength(), mask);
+    }
+  }
+
+  static class BinaryWriter extends PrimitiveWriter {
+    private final BinaryObjectInspector oi;
+
+    BinaryWriter(BinaryObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      BytesWritable b = oi.getPrimitiveWritableObject(o);
+      writeBytes(out, b.getBytes(), 0, b.getLength(), mask);
+    }
+  }
+
+  static class DateWriter extends PrimitiveWriter {
+    private final DateObjectInspector oi;
+
+    DateWriter(DateObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      writeInt(out, oi.getPrimitiveWritableObject(o).getDays());
+    }
+  }
+
+  static class TimestampWriter extends PrimitiveWriter {
+    private final TimestampObjectInspector oi;
+    private final byte[] bytes = new byte[TimestampWritable.BINARY_SORTABLE_LENGTH];
+
+    TimestampWriter(TimestampObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      oi.getPrimitiveWritableObject(o).writeBinarySortable(bytes, 0);
+      for (int i = 0; i < bytes.length; i++) {
+        out.write(bytes[i] ^ mask);
+      }
+    }
+  }
+
+  /**
+   * Writes the sign, the position of the decimal point and the digits of decimals, as described
+   * in {@link BinarySortableSerDe#serialize}.
+   */
+  static class DecimalWriter extends PrimitiveWriter {
+    /** Unscaled values of less than 63 bits are formatted without allocating */
+    private static final int MAX_LONG_DIGITS = 19;
+
+    private final HiveDecimalObjectInspector oi;
+    private final byte[] digits = new byte[MAX_LONG_DIGITS];
+
+    DecimalWriter(HiveDecimalObjectInspector oi, boolean invert) {
+      super(invert);
+      this.oi = oi;
+    }
+
+    @Override
+    void writeValue(Output out, Object o) {
+      HiveDecimal dec = oi.getPrimitiveJavaObject(o);
+      int sign = dec.signum();
+      int factor = dec.precision() - dec.scale();
+      factor = sign == 1 ? factor : -factor;
+      out.write((sign + 1) ^ mask);
+      writeInt(out, factor);
+
+      // The digits of negative numbers are inverted for them to sort in reverse
+      int digitMask = sign == -1 ? mask ^ 0xff : mask;
+      BigInteger unscaled = dec.unscaledValue();
+      if (unscaled.bitLength() < 63) {
+        long v = Math.abs(unscaled.longValue());
+        int start = digits.length;
+        do {
+          digits[--start] = (byte) ('0' + v % 10);
+          v /= 10;
+        } while (v != 0);
+        writeBytes(out, digits, start, digits.length - start, digitMask);
+      } else {
+        byte[] text = unscaled.abs().toString().getBytes(BinarySortableSerDe.decimalCharSet);
+        writeBytes(out, text, 0, text.length, digitMask);
+      }
+    }
+  }
+}
@@ -236,13 +236,20 @@ public byte[] getBytes() {
    */
   public byte[] getBinarySortable() {
     byte[] b = new byte[BINARY_SORTABLE_LENGTH];
+    writeBinarySortable(b, 0);
+    return b;
+  }
+
+  /**
+   * Writes the binary sortable representation of getBinarySortable() to the given array.
+   */
+  public void writeBinarySortable(byte[] b, int offset) {
     int nanos = getNanos();
     // We flip the highest-order bit of the seven-byte representation of seconds to make negative
     // values come before positive ones.
     long seconds = getSeconds() ^ SEVEN_BYTE_LONG_SIGN_FLIP;
-    sevenByteLongToBytes(seconds, b, 0);
-    intToBytes(nanos, b, 7);
-    return b;
+    sevenByteLongToBytes(seconds, b, offset);
+    intToBytes(nanos, b, offset + 7);
   }
 
   /**
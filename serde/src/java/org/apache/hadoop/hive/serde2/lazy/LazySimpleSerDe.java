@@ -181,10 +181,18 @@ public byte getEscapeChar() {
     public boolean[] getNeedsEscape() {
       return needsEscape;
     }
+
+    public boolean isExtendedBooleanLiteral() {
+      return extendedBooleanLiteral;
+    }
   }
 
   SerDeParameters serdeParams = null;
 
+  public SerDeParameters getSerdeParams() {
+    return serdeParams;
+  }
+
   /**
    * Initialize the SerDe given the parameters. serialization.format: separator
    * char or byte code (only supports byte-value up to 127) columns:
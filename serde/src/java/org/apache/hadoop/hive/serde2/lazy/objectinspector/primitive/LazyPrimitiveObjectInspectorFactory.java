@@ -19,8 +19,7 @@
 package org.apache.hadoop.hive.serde2.lazy.objectinspector.primitive;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
@@ -80,12 +79,13 @@ private LazyPrimitiveObjectInspectorFactory() {
 
   // Lazy object inspectors for string/char/varchar will all be cached in the same map.
   // Map key will be list of [typeInfo, isEscaped, escapeChar]
-  private static HashMap<ArrayList<Object>, AbstractPrimitiveLazyObjectInspector> cachedLazyStringTypeOIs =
-      new HashMap<ArrayList<Object>, AbstractPrimitiveLazyObjectInspector>();
+  private static ConcurrentHashMap<ArrayList<Object>, AbstractPrimitiveLazyObjectInspector>
+      cachedLazyStringTypeOIs =
+      new ConcurrentHashMap<ArrayList<Object>, AbstractPrimitiveLazyObjectInspector>();
 
-  private static Map<PrimitiveTypeInfo, AbstractPrimitiveLazyObjectInspector<?>>
+  private static ConcurrentHashMap<PrimitiveTypeInfo, AbstractPrimitiveLazyObjectInspector<?>>
      cachedPrimitiveLazyObjectInspectors =
-    new HashMap<PrimitiveTypeInfo, AbstractPrimitiveLazyObjectInspector<?>>();
+    new ConcurrentHashMap<PrimitiveTypeInfo, AbstractPrimitiveLazyObjectInspector<?>>();
   static {
     cachedPrimitiveLazyObjectInspectors.put(TypeInfoFactory.getPrimitiveTypeInfo(serdeConstants.BOOLEAN_TYPE_NAME),
         LAZY_BOOLEAN_OBJECT_INSPECTOR);
@@ -157,8 +157,9 @@ public static AbstractPrimitiveLazyObjectInspector<?> getLazyObjectInspector(
           "Primitve type " + typeInfo.getPrimitiveCategory() + " should not take parameters");
     }
 
-    cachedPrimitiveLazyObjectInspectors.put(typeInfo, poi);
-    return poi;
+    AbstractPrimitiveLazyObjectInspector<?> prev =
+        cachedPrimitiveLazyObjectInspectors.putIfAbsent(typeInfo, poi);
+    return prev == null ? poi : prev;
   }
 
   public static LazyStringObjectInspector getLazyStringObjectInspector(boolean escaped, byte escapeChar) {
@@ -170,7 +171,11 @@ public static LazyStringObjectInspector getLazyStringObjectInspector(boolean esc
         .get(signature);
     if (result == null) {
       result = new LazyStringObjectInspector(escaped, escapeChar);
-      cachedLazyStringTypeOIs.put(signature, result);
+      LazyStringObjectInspector prev =
+          (LazyStringObjectInspector) cachedLazyStringTypeOIs.putIfAbsent(signature, result);
+      if (prev != null) {
+        result = prev;
+      }
     }
     return result;
   }
@@ -185,7 +190,11 @@ public static LazyHiveCharObjectInspector getLazyHiveCharObjectInspector(
         .get(signature);
     if (result == null) {
       result = new LazyHiveCharObjectInspector(typeInfo, escaped, escapeChar);
-      cachedLazyStringTypeOIs.put(signature, result);
+      LazyHiveCharObjectInspector prev =
+          (LazyHiveCharObjectInspector) cachedLazyStringTypeOIs.putIfAbsent(signature, result);
+      if (prev != null) {
+        result = prev;
+      }
     }
     return result;
   }
@@ -200,7 +209,11 @@ public static LazyHiveVarcharObjectInspector getLazyHiveVarcharObjectInspector(
         .get(signature);
     if (result == null) {
       result = new LazyHiveVarcharObjectInspector(typeInfo, escaped, escapeChar);
-      cachedLazyStringTypeOIs.put(signature, result);
+      LazyHiveVarcharObjectInspector prev =
+          (LazyHiveVarcharObjectInspector) cachedLazyStringTypeOIs.putIfAbsent(signature, result);
+      if (prev != null) {
+        result = prev;
+      }
     }
     return result;
   }
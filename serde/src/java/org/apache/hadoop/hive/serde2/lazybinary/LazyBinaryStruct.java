@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hive.serde2.lazybinary;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -103,15 +104,31 @@ public void init(ByteArrayRef bytes, int start, int length) {
   boolean extraFieldWarned = false;
 
   /**
-   * Parse the byte[] and fill fieldStart, fieldLength, fieldInited and
-   * fieldIsNull.
+   * The number of fields whose fieldStart, fieldLength and fieldIsNull are
+   * known. Fields are located on demand, so that reading the first fields of a
+   * wide row does not walk through the others. Only valid when the data is
+   * parsed.
    */
-  private void parse() {
+  int parsedFieldCount;
 
-    List<? extends StructField> fieldRefs = ((StructObjectInspector) oi)
-        .getAllStructFieldRefs();
+  /**
+   * Where the parsing of the next field resumes: the null byte of its group of
+   * eight fields, the end of the previous field, and the number of fields found
+   * within the data so far.
+   */
+  byte nullByte;
+  int lastFieldByteEnd;
+  int fieldsInData;
+
+  /**
+   * Prepare the parsing of the byte[]: the fields are then located by
+   * parseUpTo.
+   */
+  private void parse() {
 
     if (fields == null) {
+      List<? extends StructField> fieldRefs = ((StructObjectInspector) oi)
+          .getAllStructFieldRefs();
       fields = new LazyBinaryObject[fieldRefs.size()];
       for (int i = 0; i < fields.length; i++) {
         ObjectInspector insp = fieldRefs.get(i).getFieldObjectInspector();
@@ -123,19 +140,35 @@ private void parse() {
       fieldLength = new int[fields.length];
     }
 
+    nullByte = bytes.getData()[start];
+    lastFieldByteEnd = start + 1;
+    fieldsInData = 0;
+    parsedFieldCount = 0;
+    Arrays.fill(fieldInited, false);
+    parsed = true;
+    if (fields.length == 0) {
+      checkFieldCount();
+    }
+  }
+
+  /**
+   * Fill fieldStart, fieldLength and fieldIsNull up to the given field.
+   */
+  private void parseUpTo(int fieldID) {
+
+    List<? extends StructField> fieldRefs = ((StructObjectInspector) oi)
+        .getAllStructFieldRefs();
+
     /**
      * Please note that one null byte is followed by eight fields, then more
      * null byte and fields.
      */
 
-    int fieldId = 0;
     int structByteEnd = start + length;
     byte[] bytes = this.bytes.getData();
 
-    byte nullByte = bytes[start];
-    int lastFieldByteEnd = start + 1;
-    // Go through all bytes in the byte[]
-    for (int i = 0; i < fields.length; i++) {
+    // Go through the bytes of the fields not located yet
+    for (int i = parsedFieldCount; i <= fieldID; i++) {
       fieldIsNull[i] = true;
       if ((nullByte & (1 << (i % 8))) != 0) {
         fieldIsNull[i] = false;
@@ -148,7 +181,7 @@ private void parse() {
 
       // count how many fields are there
       if (lastFieldByteEnd <= structByteEnd) {
-        fieldId++;
+        fieldsInData++;
       }
       // next byte is a null byte if there are more bytes to go
       if (7 == (i % 8)) {
@@ -162,6 +195,19 @@ private void parse() {
         }
       }
     }
+    parsedFieldCount = fieldID + 1;
+
+    if (parsedFieldCount == fields.length) {
+      checkFieldCount();
+    }
+  }
+
+  /**
+   * Warn about the bytes left over, or missing, once all the fields are
+   * located.
+   */
+  private void checkFieldCount() {
+    int structByteEnd = start + length;
 
     // Extra bytes at the end?
     if (!extraFieldWarned && lastFieldByteEnd < structByteEnd) {
@@ -174,11 +220,8 @@ private void parse() {
     if (!missingFieldWarned && lastFieldByteEnd > structByteEnd) {
       missingFieldWarned = true;
       LOG.info("Missing fields! Expected " + fields.length + " fields but "
-          + "only got " + fieldId + "! Ignoring similar problems.");
+          + "only got " + fieldsInData + "! Ignoring similar problems.");
     }
-
-    Arrays.fill(fieldInited, false);
-    parsed = true;
   }
 
   /**
@@ -198,6 +241,9 @@ public Object getField(int fieldID) {
     if (!parsed) {
       parse();
     }
+    if (fieldID >= parsedFieldCount) {
+      parseUpTo(fieldID);
+    }
     return uncheckedGetField(fieldID);
   }
 
@@ -247,7 +293,7 @@ public short getShort() {
 
   /**
    * Get the field out of the row without checking parsed. This is called by
-   * both getField and getFieldsAsList.
+   * getField, getFieldsAsList and the list of getFieldsAsLazyList.
    *
    * @param fieldID
    *          The id of the field starting from 0.
@@ -277,6 +323,9 @@ public ArrayList<Object> getFieldsAsList() {
     if (!parsed) {
       parse();
     }
+    if (parsedFieldCount < fields.length) {
+      parseUpTo(fields.length - 1);
+    }
     if (cachedList == null) {
       cachedList = new ArrayList<Object>(fields.length);
       for (int i = 0; i < fields.length; i++) {
@@ -291,6 +340,34 @@ public ArrayList<Object> getFieldsAsList() {
     return cachedList;
   }
 
+  private LazyFieldList lazyList;
+
+  /**
+   * Get the fields as a List which decodes a field only when it is read, for
+   * the callers that expect rows as lists but may not read all the fields. The
+   * list is reused and follows the data the struct is initialized with.
+   *
+   * @return The fields as a List.
+   */
+  public List<Object> getFieldsAsLazyList() {
+    if (lazyList == null) {
+      lazyList = new LazyFieldList();
+    }
+    return lazyList;
+  }
+
+  private class LazyFieldList extends AbstractList<Object> {
+    @Override
+    public Object get(int index) {
+      return getField(index);
+    }
+
+    @Override
+    public int size() {
+      return ((StructObjectInspector) oi).getAllStructFieldRefs().size();
+    }
+  }
+
   @Override
   public Object getObject() {
     return this;
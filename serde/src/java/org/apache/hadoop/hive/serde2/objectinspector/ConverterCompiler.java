@@ -0,0 +1,518 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.objectinspector;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.IdentityConverter;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.AbstractPrimitiveWritableObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BinaryObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BooleanObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ByteObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DateObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DoubleObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.FloatObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.IntObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ShortObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.TimestampObjectInspector;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Builds converters specialized for the shapes of their input and output ObjectInspectors.
+ *
+ * The converters of {@link ObjectInspectorConverters} find out how to read their input on every
+ * call: a primitive value is read through a switch on its category, and written back through the
+ * output ObjectInspector, and the fields of a struct are looked up in lists. The converters built
+ * here decide all that once, for the common shapes of the rows converted from the schema of a
+ * partition to the schema of its table:
+ * <ul>
+ * <li>a primitive to a Writable of the same type, read with the getter of its type, or copied
+ * from the Writable of the input for strings, dates, timestamps and binaries;</li>
+ * <li>a number to a Writable of another numeric type;</li>
+ * <li>a struct to a standard struct, with one compiled converter per field.</li>
+ * </ul>
+ * Like those of ObjectInspectorConverters, the converters own and reuse their result. Other
+ * shapes get the converters of ObjectInspectorConverters, which produce the same results.
+ */
+public final class ConverterCompiler {
+
+  /**
+   * Returns a converter that converts objects from one OI to another OI. The returned (converted)
+   * object belongs to this converter, so that it can be reused across different calls.
+   */
+  public static Converter compile(ObjectInspector inputOI, ObjectInspector outputOI) {
+    if (inputOI.equals(outputOI)) {
+      return new IdentityConverter();
+    }
+    Converter converter = null;
+    if (outputOI.getCategory() == Category.PRIMITIVE
+        && inputOI.getCategory() == Category.PRIMITIVE) {
+      converter = compilePrimitive((PrimitiveObjectInspector) inputOI,
+          (PrimitiveObjectInspector) outputOI);
+    } else if (outputOI instanceof StandardStructObjectInspector
+        && inputOI instanceof StructObjectInspector) {
+      converter = new StructConverter((StructObjectInspector) inputOI,
+          (StandardStructObjectInspector) outputOI);
+    }
+    if (converter == null) {
+      converter = ObjectInspectorConverters.getConverter(inputOI, outputOI);
+    }
+    return converter;
+  }
+
+  private static Converter compilePrimitive(PrimitiveObjectInspector inputOI,
+      PrimitiveObjectInspector outputOI) {
+    if (!(outputOI instanceof AbstractPrimitiveWritableObjectInspector)) {
+      return null;
+    }
+    PrimitiveCategory inputCategory = inputOI.getPrimitiveCategory();
+    PrimitiveCategory outputCategory = outputOI.getPrimitiveCategory();
+    if (inputCategory == outputCategory) {
+      switch (outputCategory) {
+      case BOOLEAN:
+        return new BooleanCopier((BooleanObjectInspector) inputOI);
+      case BYTE:
+        return new ByteCopier((ByteObjectInspector) inputOI);
+      case SHORT:
+        return new ShortCopier((ShortObjectInspector) inputOI);
+      case INT:
+        return new IntCopier((IntObjectInspector) inputOI);
+      case LONG:
+        return new LongCopier((LongObjectInspector) inputOI);
+      case FLOAT:
+        return new FloatCopier((FloatObjectInspector) inputOI);
+      case DOUBLE:
+        return new DoubleCopier((DoubleObjectInspector) inputOI);
+      default:
+        break;
+      }
+      // Only the Writable of the input can be copied without allocating
+      if (inputOI.preferWritable()) {
+        switch (outputCategory) {
+        case STRING:
+          return new TextCopier((StringObjectInspector) inputOI);
+        case DATE:
+          return new DateCopier((DateObjectInspector) inputOI);
+        case TIMESTAMP:
+          return new TimestampCopier((TimestampObjectInspector) inputOI);
+        case BINARY:
+          return new BinaryCopier((BinaryObjectInspector) inputOI);
+        default:
+          break;
+        }
+      }
+      return null;
+    }
+    if (isNumber(inputCategory) && isNumber(outputCategory)) {
+      return new NumberConverter(inputOI, outputCategory);
+    }
+    return null;
+  }
+
+  private static boolean isNumber(PrimitiveCategory category) {
+    switch (category) {
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  static class BooleanCopier implements Converter {
+    private final BooleanObjectInspector inputOI;
+    private final BooleanWritable result = new BooleanWritable();
+
+    BooleanCopier(BooleanObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class ByteCopier implements Converter {
+    private final ByteObjectInspector inputOI;
+    private final ByteWritable result = new ByteWritable();
+
+    ByteCopier(ByteObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class ShortCopier implements Converter {
+    private final ShortObjectInspector inputOI;
+    private final ShortWritable result = new ShortWritable();
+
+    ShortCopier(ShortObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class IntCopier implements Converter {
+    private final IntObjectInspector inputOI;
+    private final IntWritable result = new IntWritable();
+
+    IntCopier(IntObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class LongCopier implements Converter {
+    private final LongObjectInspector inputOI;
+    private final LongWritable result = new LongWritable();
+
+    LongCopier(LongObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class FloatCopier implements Converter {
+    private final FloatObjectInspector inputOI;
+    private final FloatWritable result = new FloatWritable();
+
+    FloatCopier(FloatObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class DoubleCopier implements Converter {
+    private final DoubleObjectInspector inputOI;
+    private final DoubleWritable result = new DoubleWritable();
+
+    DoubleCopier(DoubleObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.get(input));
+      return result;
+    }
+  }
+
+  static class TextCopier implements Converter {
+    private final StringObjectInspector inputOI;
+    private final Text result = new Text();
+
+    TextCopier(StringObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.getPrimitiveWritableObject(input));
+      return result;
+    }
+  }
+
+  static class DateCopier implements Converter {
+    private final DateObjectInspector inputOI;
+    private final DateWritable result = new DateWritable();
+
+    DateCopier(DateObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.getPrimitiveWritableObject(input));
+      return result;
+    }
+  }
+
+  /**
+   * Copies the value into a timestamp of its own: TimestampWritable.set keeps a reference to the
+   * bytes or to the timestamp of its argument, which the reader overwrites with the next row.
+   */
+  static class TimestampCopier implements Converter {
+    private final TimestampObjectInspector inputOI;
+    private final Timestamp timestamp = new Timestamp(0);
+    private final TimestampWritable result = new TimestampWritable();
+
+    TimestampCopier(TimestampObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      Timestamp t = inputOI.getPrimitiveWritableObject(input).getTimestamp();
+      timestamp.setTime(t.getTime());
+      timestamp.setNanos(t.getNanos());
+      result.set(timestamp);
+      return result;
+    }
+  }
+
+  static class BinaryCopier implements Converter {
+    private final BinaryObjectInspector inputOI;
+    private final BytesWritable result = new BytesWritable();
+
+    BinaryCopier(BinaryObjectInspector inputOI) {
+      this.inputOI = inputOI;
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      result.set(inputOI.getPrimitiveWritableObject(input));
+      return result;
+    }
+  }
+
+  /**
+   * Converts a number to a Writable of another numeric type, with the casts of
+   * {@link org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils}.
+   * Integers are carried as a long, and floating point numbers as a double, which holds them
+   * exactly.
+   */
+  static class NumberConverter implements Converter {
+    private final PrimitiveObjectInspector inputOI;
+    private final PrimitiveCategory inputCategory;
+    private final PrimitiveCategory outputCategory;
+    private final boolean floatingInput;
+    private final Object result;
+
+    NumberConverter(PrimitiveObjectInspector inputOI, PrimitiveCategory outputCategory) {
+      this.inputOI = inputOI;
+      this.inputCategory = inputOI.getPrimitiveCategory();
+      this.outputCategory = outputCategory;
+      floatingInput = inputCategory == PrimitiveCategory.FLOAT
+          || inputCategory == PrimitiveCategory.DOUBLE;
+      switch (outputCategory) {
+      case BYTE:
+        result = new ByteWritable();
+        break;
+      case SHORT:
+        result = new ShortWritable();
+        break;
+      case INT:
+        result = new IntWritable();
+        break;
+      case LONG:
+        result = new LongWritable();
+        break;
+      case FLOAT:
+        result = new FloatWritable();
+        break;
+      default:
+        result = new DoubleWritable();
+        break;
+      }
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      if (floatingInput) {
+        double value = inputCategory == PrimitiveCategory.FLOAT
+            ? ((FloatObjectInspector) inputOI).get(input)
+            : ((DoubleObjectInspector) inputOI).get(input);
+        switch (outputCategory) {
+        case BYTE:
+          ((ByteWritable) result).set((byte) (int) value);
+          break;
+        case SHORT:
+          ((ShortWritable) result).set((short) (int) value);
+          break;
+        case INT:
+          ((IntWritable) result).set((int) value);
+          break;
+        case LONG:
+          ((LongWritable) result).set((long) value);
+          break;
+        case FLOAT:
+          ((FloatWritable) result).set((float) value);
+          break;
+        default:
+          ((DoubleWritable) result).set(value);
+          break;
+        }
+      } else {
+        long value;
+        switch (inputCategory) {
+        case BYTE:
+          value = ((ByteObjectInspector) inputOI).get(input);
+          break;
+        case SHORT:
+          value = ((ShortObjectInspector) inputOI).get(input);
+          break;
+        case INT:
+          value = ((IntObjectInspector) inputOI).get(input);
+          break;
+        default:
+          value = ((LongObjectInspector) inputOI).get(input);
+          break;
+        }
+        switch (outputCategory) {
+        case BYTE:
+          ((ByteWritable) result).set((byte) value);
+          break;
+        case SHORT:
+          ((ShortWritable) result).set((short) value);
+          break;
+        case INT:
+          ((IntWritable) result).set((int) value);
+          break;
+        case LONG:
+          ((LongWritable) result).set(value);
+          break;
+        case FLOAT:
+          // Through a double, as PrimitiveObjectInspectorUtils.getFloat
+          ((FloatWritable) result).set((float) (double) value);
+          break;
+        default:
+          ((DoubleWritable) result).set((double) value);
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Converts a struct to a standard struct, setting the fields of its output list directly. The
+   * fields missing from the input stay null.
+   */
+  static class StructConverter implements Converter {
+    private final StructObjectInspector inputOI;
+    private final StructField[] inputFields;
+    private final Converter[] fieldConverters;
+    private final List<Object> output;
+
+    @SuppressWarnings("unchecked")
+    StructConverter(StructObjectInspector inputOI, StandardStructObjectInspector outputOI) {
+      this.inputOI = inputOI;
+      List<? extends StructField> inputFieldRefs = inputOI.getAllStructFieldRefs();
+      List<? extends StructField> outputFieldRefs = outputOI.getAllStructFieldRefs();
+      int minFields = Math.min(inputFieldRefs.size(), outputFieldRefs.size());
+      inputFields = new StructField[minFields];
+      fieldConverters = new Converter[minFields];
+      for (int f = 0; f < minFields; f++) {
+        inputFields[f] = inputFieldRefs.get(f);
+        fieldConverters[f] = compile(inputFields[f].getFieldObjectInspector(),
+            outputFieldRefs.get(f).getFieldObjectInspector());
+      }
+      output = (List<Object>) outputOI.create();
+    }
+
+    @Override
+    public Object convert(Object input) {
+      if (input == null) {
+        return null;
+      }
+      for (int f = 0; f < inputFields.length; f++) {
+        Object inputFieldValue = inputOI.getStructFieldData(input, inputFields[f]);
+        output.set(f, fieldConverters[f].convert(inputFieldValue));
+      }
+      return output;
+    }
+  }
+
+  private ConverterCompiler() {
+    // prevent instantiation
+  }
+}
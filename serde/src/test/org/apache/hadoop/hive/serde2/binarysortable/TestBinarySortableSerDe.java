@@ -29,12 +29,14 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ByteStream.Output;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.hive.serde2.SerDeUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory.ObjectInspectorOptions;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.BytesWritable;
 
@@ -246,4 +248,42 @@ public void testBinarySortableSerDe() throws Throwable {
     }
   }
 
+  public void testWriterMatchesSerialize() throws Throwable {
+    Random r = new Random(5678);
+    StructObjectInspector rowOI = (StructObjectInspector) ObjectInspectorFactory
+        .getReflectionObjectInspector(MyTestClass.class, ObjectInspectorOptions.JAVA);
+    List<? extends StructField> fields = rowOI.getAllStructFieldRefs();
+    boolean[] desc = new boolean[fields.size()];
+    for (int i = 0; i < desc.length; i++) {
+      desc[i] = r.nextBoolean();
+    }
+    BinarySortableWriter writer = new BinarySortableWriter(rowOI, fields.size(), desc);
+
+    Output expected = new Output();
+    Output actual = new Output();
+    for (int i = 0; i < 200; i++) {
+      MyTestClass t = new MyTestClass(Byte.valueOf((byte) r.nextInt()),
+          Short.valueOf((short) r.nextInt()), Integer.valueOf(r.nextInt()),
+          Long.valueOf(r.nextLong()), Float.valueOf(r.nextFloat() * 10 - 5),
+          Double.valueOf(r.nextDouble() * 10 - 5), getRandString(r), getRandHiveDecimal(r),
+          getRandDate(r), new MyTestInnerStruct(r.nextInt(5) - 2, r.nextInt(5) - 2),
+          getRandIntegerArray(r), getRandBA(r, i % 5));
+      if (i % 7 == 0) {
+        t.myInt = null;
+        t.myDecimal = null;
+      }
+      expected.reset();
+      for (int j = 0; j < fields.size(); j++) {
+        BinarySortableSerDe.serialize(expected, rowOI.getStructFieldData(t, fields.get(j)),
+            fields.get(j).getFieldObjectInspector(), desc[j]);
+      }
+      actual.reset();
+      writer.write(actual, t);
+      assertEquals(expected.getLength(), actual.getLength());
+      for (int j = 0; j < expected.getLength(); j++) {
+        assertEquals("Byte " + j + " of row " + i, expected.getData()[j], actual.getData()[j]);
+      }
+    }
+  }
+
 }
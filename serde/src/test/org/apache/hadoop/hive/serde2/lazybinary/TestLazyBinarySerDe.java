@@ -618,4 +618,56 @@ public void testLazyBinaryObjectInspector() throws Throwable {
 
   }
 
+  /**
+   * Test that fields read out of order, and through the lazy list, match the
+   * fields of the fully parsed struct, across the null bytes of the row.
+   */
+  public void testFieldsLocatedOnDemand() throws Throwable {
+    int numFields = 11;
+    StringBuilder names = new StringBuilder();
+    StringBuilder types = new StringBuilder();
+    List<String> fieldNames = new ArrayList<String>();
+    List<ObjectInspector> fieldOIs = new ArrayList<ObjectInspector>();
+    for (int i = 0; i < numFields; i++) {
+      names.append(i == 0 ? "" : ",").append("f").append(i);
+      types.append(i == 0 ? "" : ",").append(i % 2 == 0 ? "int" : "string");
+      fieldNames.add("f" + i);
+      fieldOIs.add(i % 2 == 0 ? PrimitiveObjectInspectorFactory.javaIntObjectInspector
+          : PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+    }
+    SerDe serde = getSerDe(names.toString(), types.toString());
+    StructObjectInspector rowOI =
+        ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+
+    List<Object> row1 = new ArrayList<Object>();
+    List<Object> row2 = new ArrayList<Object>();
+    for (int i = 0; i < numFields; i++) {
+      row1.add(i % 3 == 1 ? null : (i % 2 == 0 ? (Object) i : "v" + i));
+      row2.add(i % 2 == 0 ? (Object) (i * 100) : "w" + i);
+    }
+    BytesWritable bytes1 = new BytesWritable();
+    bytes1.set((BytesWritable) serde.serialize(row1, rowOI));
+    BytesWritable bytes2 = (BytesWritable) serde.serialize(row2, rowOI);
+
+    LazyBinaryStruct struct = (LazyBinaryStruct) serde.deserialize(bytes1);
+    List<Object> lazyList = struct.getFieldsAsLazyList();
+    assertEquals(numFields, lazyList.size());
+    // The last field first, past a null byte, then the first ones
+    assertEquals("v9", lazyList.get(9).toString());
+    assertEquals("0", lazyList.get(0).toString());
+    assertNull(lazyList.get(10));
+    assertNull(struct.getField(1));
+    List<Object> fields = struct.getFieldsAsList();
+    for (int i = 0; i < numFields; i++) {
+      assertEquals(row1.get(i) == null ? null : row1.get(i).toString(),
+          fields.get(i) == null ? null : fields.get(i).toString());
+    }
+
+    // The list follows the row the struct is reused for
+    struct = (LazyBinaryStruct) serde.deserialize(bytes2);
+    assertSame(lazyList, struct.getFieldsAsLazyList());
+    assertEquals("1000", lazyList.get(10).toString());
+    assertEquals("w1", lazyList.get(1).toString());
+  }
+
 }
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.objectinspector;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * TestConverterCompiler.
+ *
+ */
+public class TestConverterCompiler extends TestCase {
+
+  private static final ObjectInspector[] JAVA_NUMBER_OIS = {
+      PrimitiveObjectInspectorFactory.javaByteObjectInspector,
+      PrimitiveObjectInspectorFactory.javaShortObjectInspector,
+      PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+      PrimitiveObjectInspectorFactory.javaLongObjectInspector,
+      PrimitiveObjectInspectorFactory.javaFloatObjectInspector,
+      PrimitiveObjectInspectorFactory.javaDoubleObjectInspector};
+
+  private static final Object[][] NUMBERS = {
+      {(byte) 0, (byte) -7, Byte.MAX_VALUE},
+      {(short) 0, (short) -300, Short.MIN_VALUE},
+      {0, -70000, Integer.MAX_VALUE},
+      {0L, 123456789012345L, Long.MIN_VALUE + 1},
+      {0.0f, -2.5f, 3.4e9f},
+      {0.0d, 1.0e20d, -98765.4321d}};
+
+  private static final ObjectInspector[] WRITABLE_NUMBER_OIS = {
+      PrimitiveObjectInspectorFactory.writableByteObjectInspector,
+      PrimitiveObjectInspectorFactory.writableShortObjectInspector,
+      PrimitiveObjectInspectorFactory.writableIntObjectInspector,
+      PrimitiveObjectInspectorFactory.writableLongObjectInspector,
+      PrimitiveObjectInspectorFactory.writableFloatObjectInspector,
+      PrimitiveObjectInspectorFactory.writableDoubleObjectInspector};
+
+  public void testNumbersConvertLikeObjectInspectorConverters() {
+    for (int i = 0; i < JAVA_NUMBER_OIS.length; i++) {
+      for (ObjectInspector outputOI : WRITABLE_NUMBER_OIS) {
+        Converter expected = ObjectInspectorConverters.getConverter(JAVA_NUMBER_OIS[i], outputOI);
+        Converter compiled = ConverterCompiler.compile(JAVA_NUMBER_OIS[i], outputOI);
+        for (Object number : NUMBERS[i]) {
+          assertEquals(JAVA_NUMBER_OIS[i].getTypeName() + " to " + outputOI.getTypeName(),
+              expected.convert(number), compiled.convert(number));
+        }
+        assertNull(compiled.convert(null));
+      }
+    }
+  }
+
+  public void testResultIsReused() {
+    Converter converter = ConverterCompiler.compile(
+        PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+        PrimitiveObjectInspectorFactory.writableIntObjectInspector);
+    assertTrue(converter instanceof ConverterCompiler.IntCopier);
+    Object first = converter.convert(1);
+    assertEquals(new IntWritable(1), first);
+    assertSame(first, converter.convert(2));
+    assertEquals(new IntWritable(2), first);
+  }
+
+  public void testTimestampIsCopied() {
+    Converter converter = ConverterCompiler.compile(
+        PrimitiveObjectInspectorFactory.writableTimestampObjectInspector,
+        PrimitiveObjectInspectorFactory.writableTimestampObjectInspector);
+    assertTrue(converter instanceof ConverterCompiler.TimestampCopier);
+    Timestamp first = Timestamp.valueOf("2014-01-01 10:20:30.123456789");
+    Timestamp second = Timestamp.valueOf("2015-06-15 01:02:03.987654321");
+
+    // A reader deserializes every row into the same buffer
+    byte[] buffer = new TimestampWritable(first).getBytes();
+    TimestampWritable input = new TimestampWritable(buffer, 0);
+    Object converted = converter.convert(input);
+    byte[] next = new TimestampWritable(second).getBytes();
+    System.arraycopy(next, 0, buffer, 0, Math.min(next.length, buffer.length));
+    assertEquals(first, ((TimestampWritable) converted).getTimestamp());
+
+    // or into the same timestamp
+    Timestamp row = new Timestamp(first.getTime());
+    row.setNanos(first.getNanos());
+    input = new TimestampWritable(row);
+    converted = converter.convert(input);
+    row.setTime(second.getTime());
+    row.setNanos(second.getNanos());
+    assertEquals(first, ((TimestampWritable) converted).getTimestamp());
+    assertEquals(second, ((TimestampWritable) converter.convert(input)).getTimestamp());
+  }
+
+  public void testUnsupportedShapesFallBack() {
+    // A Java string would have to be encoded to a Text
+    Converter converter = ConverterCompiler.compile(
+        PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+        PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+    assertFalse(converter instanceof ConverterCompiler.TextCopier);
+    assertEquals(new Text("abc"), converter.convert("abc"));
+  }
+
+  public void testStructs() {
+    StructObjectInspector inputOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Arrays.asList("a", "b", "c"), Arrays.<ObjectInspector>asList(
+            PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+            PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+            PrimitiveObjectInspectorFactory.javaFloatObjectInspector));
+    // The table has a wider first column and one more column than the partition
+    StructObjectInspector outputOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Arrays.asList("a", "b", "c", "d"), Arrays.<ObjectInspector>asList(
+            PrimitiveObjectInspectorFactory.writableLongObjectInspector,
+            PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+            PrimitiveObjectInspectorFactory.writableDoubleObjectInspector,
+            PrimitiveObjectInspectorFactory.writableIntObjectInspector));
+
+    Converter expected = ObjectInspectorConverters.getConverter(inputOI, outputOI);
+    Converter compiled = ConverterCompiler.compile(inputOI, outputOI);
+    assertTrue(compiled instanceof ConverterCompiler.StructConverter);
+
+    List<Object> row = Arrays.<Object>asList(5, new Text("x"), 1.5f);
+    assertEquals(expected.convert(row), compiled.convert(row));
+    row = Arrays.<Object>asList(null, new Text("y"), -2.0f);
+    List<?> converted = (List<?>) compiled.convert(row);
+    assertEquals(expected.convert(row), converted);
+    assertNull(converted.get(0));
+    assertNull(converted.get(3));
+    assertNull(compiled.convert(null));
+  }
+}
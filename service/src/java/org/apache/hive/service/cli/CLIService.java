@@ -364,7 +364,8 @@ public OperationStatus getOperationStatus(OperationHandle opHandle)
      * (duration: HIVE_SERVER2_LONG_POLLING_TIMEOUT).
      * However, if the background operation is complete, we return immediately.
      */
-    if (operation.shouldRunAsync()) {
+    if (operation.shouldRunAsync() && operation.getBackgroundHandle() != null) {
+      // There is no background handle if the result came from the query result cache
       HiveConf conf = operation.getParentSession().getHiveConf();
       long timeout = HiveConf.getTimeVar(conf,
           HiveConf.ConfVars.HIVE_SERVER2_LONG_POLLING_TIMEOUT, TimeUnit.MILLISECONDS);
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hive.service.cli.thrift.TBinaryColumn;
+import org.apache.hive.service.cli.thrift.TColumn;
+import org.apache.hive.service.cli.thrift.TRow;
+import org.apache.hive.service.cli.thrift.TRowSet;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+/**
+ * Compresses the row sets HS2 returns for a query, and decompresses them on the client.
+ *
+ * The codec is negotiated when a session is opened: the client puts {@link #COMPRESSOR_KEY}
+ * with a codec class name in the session configuration, and the server echoes it back in the
+ * configuration of the open session response if it accepts it. Only then are the query
+ * output row sets of the session compressed.
+ *
+ * A compressed row set keeps the start offset of the original one and carries a single binary
+ * column with a single value, the codec compressed compact protocol encoding of the original
+ * row set. This fits the existing thrift definitions, so no protocol version bump is needed.
+ */
+public class RowSetCompressor {
+  private static final Log LOG = LogFactory.getLog(RowSetCompressor.class);
+
+  public static final String COMPRESSOR_KEY = "hive.server2.thrift.resultset.compressor";
+
+  private static final ByteBuffer NO_NULLS = ByteBuffer.wrap(new byte[0]);
+
+  private final CompressionCodec codec;
+
+  private RowSetCompressor(CompressionCodec codec) {
+    this.codec = codec;
+  }
+
+  /**
+   * Creates the compressor for the given codec class.
+   */
+  public static RowSetCompressor create(String codecClassName, Configuration conf)
+      throws ClassNotFoundException {
+    Class<? extends CompressionCodec> codecClass =
+        conf.getClassByName(codecClassName).asSubclass(CompressionCodec.class);
+    return new RowSetCompressor(ReflectionUtils.newInstance(codecClass, conf));
+  }
+
+  /**
+   * Server side of the negotiation.
+   * @param codecClassName the codec the client asked for, may be null.
+   * @return the compressor to use for the session, or null if the client did not ask for one
+   *         or the server does not allow the one it asked for.
+   */
+  public static RowSetCompressor negotiate(String codecClassName, HiveConf conf) {
+    if (codecClassName == null || codecClassName.isEmpty()) {
+      return null;
+    }
+    for (String allowed :
+        conf.getVar(HiveConf.ConfVars.HIVE_SERVER2_THRIFT_RESULTSET_COMPRESSORS).split(",")) {
+      if (allowed.trim().equals(codecClassName)) {
+        try {
+          return create(codecClassName, conf);
+        } catch (Exception e) {
+          LOG.warn("Unable to load result set compressor " + codecClassName, e);
+          return null;
+        }
+      }
+    }
+    LOG.info("Client asked for result set compressor " + codecClassName
+        + " which is not allowed by " + HiveConf.ConfVars.HIVE_SERVER2_THRIFT_RESULTSET_COMPRESSORS);
+    return null;
+  }
+
+  public String getCodecClassName() {
+    return codec.getClass().getName();
+  }
+
+  public TRowSet compress(TRowSet rowSet) throws HiveSQLException {
+    Compressor compressor = CodecPool.getCompressor(codec);
+    try {
+      byte[] serialized = new TSerializer(new TCompactProtocol.Factory()).serialize(rowSet);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(serialized.length / 4 + 64);
+      OutputStream out = codec.createOutputStream(bytes, compressor);
+      out.write(serialized);
+      out.close();
+
+      List<ByteBuffer> values = new ArrayList<ByteBuffer>(1);
+      values.add(ByteBuffer.wrap(bytes.toByteArray()));
+      TRowSet compressed = new TRowSet(rowSet.getStartRowOffset(), new ArrayList<TRow>());
+      compressed.addToColumns(TColumn.binaryVal(new TBinaryColumn(values, NO_NULLS)));
+      return compressed;
+    } catch (TException e) {
+      throw new HiveSQLException("Unable to compress row set", e);
+    } catch (IOException e) {
+      throw new HiveSQLException("Unable to compress row set", e);
+    } finally {
+      CodecPool.returnCompressor(compressor);
+    }
+  }
+
+  public TRowSet decompress(TRowSet compressed) throws HiveSQLException {
+    if (compressed.getColumnsSize() != 1 || !compressed.getColumns().get(0).isSetBinaryVal()
+        || compressed.getColumns().get(0).getBinaryVal().getValuesSize() != 1) {
+      throw new HiveSQLException("Row set is not compressed with " + getCodecClassName());
+    }
+    // Decompresses from the buffer thrift deserialized the response into, without copying
+    // the compressed bytes; the decompressed bytes are then copied once more to be decoded
+    ByteBuffer buffer = compressed.getColumns().get(0).getBinaryVal().getValues().get(0);
+    Decompressor decompressor = CodecPool.getDecompressor(codec);
+    try {
+      InputStream in = codec.createInputStream(new ByteArrayInputStream(buffer.array(),
+          buffer.arrayOffset() + buffer.position(), buffer.remaining()), decompressor);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.remaining() * 4);
+      IOUtils.copyBytes(in, bytes, 64 * 1024, true);
+
+      TRowSet rowSet = new TRowSet();
+      new TDeserializer(new TCompactProtocol.Factory()).deserialize(rowSet, bytes.toByteArray());
+      return rowSet;
+    } catch (TException e) {
+      throw new HiveSQLException("Unable to decompress row set", e);
+    } catch (IOException e) {
+      throw new HiveSQLException("Unable to decompress row set", e);
+    } finally {
+      CodecPool.returnDecompressor(decompressor);
+    }
+  }
+}
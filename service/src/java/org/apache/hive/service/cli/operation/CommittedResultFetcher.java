@@ -0,0 +1,256 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.operation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.QueryPlan;
+import org.apache.hadoop.hive.ql.exec.FetchTask;
+import org.apache.hadoop.hive.ql.exec.TaskFactory;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+
+/**
+ * Reads the result of a query while its last job is still running.
+ *
+ * The tasks writing the result of a query commit their output files, one per task, in the
+ * temporary directory of the result; the job moves them to the result directory once it
+ * succeeds. This reads every committed file as soon as it appears, with the fetch work of the
+ * query, and the files of the tasks it has not read yet from the result directory once the query
+ * is complete. When a task is run more than once, only the output of its first committed attempt
+ * is read, which assumes the attempts of a task produce the same rows.
+ *
+ * Subdirectories of the result are only read once the query is complete.
+ */
+class CommittedResultFetcher {
+  private static final Log LOG = LogFactory.getLog(CommittedResultFetcher.class);
+
+  private final QueryPlan plan;
+  private final HiveConf conf;
+  private final FetchWork work;
+  private final Path resultDir;
+  private final Path committedDir;
+
+  /** Tasks whose output has been, or is being, read. */
+  private final Set<String> fetchedTasks = new HashSet<String>();
+  private FetchTask current;
+  private Path currentPath;
+  private boolean currentIsFinal;
+  private String currentTask;
+  private int currentRows;
+  private int totalRows;
+
+  private CommittedResultFetcher(QueryPlan plan, HiveConf conf, FetchWork work) {
+    this.plan = plan;
+    this.conf = conf;
+    this.work = work;
+    this.resultDir = work.getTblDir();
+    this.committedDir = Utilities.toTempPath(resultDir);
+  }
+
+  /**
+   * @param conf a copy of the configuration of the query, not changed while it runs
+   * @return a fetcher for the result of the query, or null if its result is not written by a
+   *         job or is not read as is.
+   */
+  static CommittedResultFetcher create(QueryPlan plan, HiveConf conf) {
+    FetchTask fetchTask = plan.getFetchTask();
+    if (fetchTask == null || plan.getRootTasks().isEmpty()) {
+      return null;
+    }
+    FetchWork work = fetchTask.getWork();
+    if (!work.isNotPartitioned() || work.getSource() != work.getSink()
+        || work.getSplitSample() != null || work.getLeastNumRows() > 0) {
+      return null;
+    }
+    return new CommittedResultFetcher(plan, conf, work);
+  }
+
+  /**
+   * Fetches the rows of the files committed since the previous call.
+   * @param finished whether the query is complete, and its result directory final
+   * @return whether any row was fetched
+   */
+  boolean fetch(List<Object> rows, int maxRows, boolean finished) throws Exception {
+    int limit = work.getLimit();
+    List<Object> batch = new ArrayList<Object>();
+    while (rows.size() < maxRows && (limit < 0 || totalRows < limit)) {
+      if (current == null && !openNextFile(finished)) {
+        break;
+      }
+      int wanted = maxRows - rows.size();
+      if (limit >= 0) {
+        wanted = Math.min(wanted, limit - totalRows);
+      }
+      batch.clear();
+      boolean fetched;
+      try {
+        current.setMaxRows(wanted);
+        fetched = current.fetch(batch);
+      } catch (IOException e) {
+        if (!reopenFromResultDir(e)) {
+          throw e;
+        }
+        continue;
+      }
+      rows.addAll(batch);
+      currentRows += batch.size();
+      totalRows += batch.size();
+      // A file gone before any row was read was moved by the job before it could be opened
+      if (!fetched && (currentRows > 0 || !reopenFromResultDir(null))) {
+        closeCurrent();
+      }
+    }
+    return !rows.isEmpty();
+  }
+
+  /**
+   * Restarts the fetch from the first row.
+   */
+  void reset() throws Exception {
+    closeCurrent();
+    fetchedTasks.clear();
+    totalRows = 0;
+  }
+
+  void close() {
+    try {
+      closeCurrent();
+    } catch (Exception e) {
+      LOG.warn("Unable to close the fetch of " + currentPath, e);
+    }
+  }
+
+  private boolean openNextFile(boolean finished) throws IOException {
+    FileSystem fs = resultDir.getFileSystem(conf);
+    FileStatus[] files = null;
+    boolean isFinal = finished;
+    if (!finished) {
+      files = listStatus(fs, committedDir);
+    }
+    if (files == null) {
+      // Complete, or the job just moved its output to the result directory
+      files = listStatus(fs, resultDir);
+      isFinal = true;
+    }
+    if (files == null) {
+      return false;
+    }
+    Arrays.sort(files);
+    for (FileStatus file : files) {
+      String name = file.getPath().getName();
+      if (name.startsWith("_") || name.startsWith(".")) {
+        continue;
+      }
+      boolean isDir = file.isDir();
+      if (isDir && !isFinal) {
+        // May still be written to
+        continue;
+      }
+      String task = isDir ? name : Utilities.getTaskIdFromFilename(name);
+      if (fetchedTasks.add(task)) {
+        open(file.getPath(), task, isFinal);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void open(Path path, String task, boolean isFinal) {
+    FetchWork fileWork = new FetchWork(path, work.getTblDesc());
+    fileWork.setSerializationNullFormat(work.getSerializationNullFormat());
+    current = (FetchTask) TaskFactory.get(fileWork, conf);
+    current.initialize(conf, plan, null);
+    currentPath = path;
+    currentIsFinal = isFinal;
+    currentTask = task;
+    currentRows = 0;
+  }
+
+  /**
+   * Continues the fetch of the current task from the result directory, if the job moved its
+   * output there while it was read.
+   * @return whether the fetch continues
+   */
+  private boolean reopenFromResultDir(IOException error) throws Exception {
+    if (currentIsFinal || currentPath.getFileSystem(conf).exists(currentPath)) {
+      return false;
+    }
+    FileStatus[] files = listStatus(resultDir.getFileSystem(conf), resultDir);
+    Path moved = null;
+    if (files != null) {
+      for (FileStatus file : files) {
+        String name = file.getPath().getName();
+        if (!file.isDir() && currentTask.equals(Utilities.getTaskIdFromFilename(name))) {
+          moved = file.getPath();
+          break;
+        }
+      }
+    }
+    if (moved == null) {
+      if (error != null) {
+        LOG.warn("Output of task " + currentTask + " is gone from " + currentPath, error);
+      }
+      return false;
+    }
+    LOG.info("Output of task " + currentTask + " moved to " + moved + ", resuming after "
+        + currentRows + " rows");
+    int skip = currentRows;
+    closeCurrent();
+    open(moved, currentTask, true);
+    List<Object> skipped = new ArrayList<Object>();
+    while (currentRows < skip) {
+      skipped.clear();
+      current.setMaxRows(skip - currentRows);
+      if (!current.fetch(skipped)) {
+        break;
+      }
+      currentRows += skipped.size();
+    }
+    return true;
+  }
+
+  private void closeCurrent() throws Exception {
+    if (current != null) {
+      current.clearFetch();
+      current = null;
+    }
+  }
+
+  private static FileStatus[] listStatus(FileSystem fs, Path dir) throws IOException {
+    try {
+      // Hadoop 1 returns null for missing directories
+      return fs.listStatus(dir);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+  }
+}
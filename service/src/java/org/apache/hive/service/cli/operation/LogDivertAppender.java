@@ -17,13 +17,13 @@
  */
 
 package org.apache.hive.service.cli.operation;
-import java.io.CharArrayWriter;
 import java.util.regex.Pattern;
 
 import org.apache.hadoop.hive.ql.exec.Task;
+import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Logger;
-import org.apache.log4j.WriterAppender;
+import org.apache.log4j.PatternLayout;
 import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
 
@@ -31,8 +31,13 @@
 
 /**
  * An Appender to divert logs from individual threads to the LogObject they belong to.
+ *
+ * The appender is attached to the root logger, so every log event of HiveServer2 goes through
+ * it. Unlike other appenders it does not serialize them: events of threads without an operation
+ * log are dropped before they are filtered or formatted, and the others are formatted by the
+ * calling thread, with its own copy of the layout, into the buffer of its operation log.
  */
-public class LogDivertAppender extends WriterAppender {
+public class LogDivertAppender extends AppenderSkeleton {
   private static final Logger LOG = Logger.getLogger(LogDivertAppender.class.getName());
   private final OperationManager operationManager;
 
@@ -66,12 +71,20 @@ public int decide(LoggingEvent ev) {
     }
   }
 
-  /** This is where the log message will go to */
-  private final CharArrayWriter writer = new CharArrayWriter();
+  /** Copies of a PatternLayout, which can not format events of several threads at once */
+  private final ThreadLocal<Layout> threadLayout = new ThreadLocal<Layout>() {
+    @Override
+    protected Layout initialValue() {
+      Layout layout = getLayout();
+      if (layout instanceof PatternLayout) {
+        return new PatternLayout(((PatternLayout) layout).getConversionPattern());
+      }
+      return null;
+    }
+  };
 
   public LogDivertAppender(Layout layout, OperationManager operationManager, boolean isVerbose) {
     setLayout(layout);
-    setWriter(writer);
     setName("LogDivertAppender");
     this.operationManager = operationManager;
 
@@ -90,21 +103,63 @@ public LogDivertAppender(Layout layout, OperationManager operationManager, boole
   }
 
   /**
-   * Overrides WriterAppender.subAppend(), which does the real logging. No need
-   * to worry about concurrency since log4j calls this synchronously.
+   * Overrides AppenderSkeleton.doAppend(), which holds the lock of the appender while
+   * filtering and appending the event.
    */
   @Override
-  protected void subAppend(LoggingEvent event) {
-    super.subAppend(event);
-    // That should've gone into our writer. Notify the LogContext.
-    String logOutput = writer.toString();
-    writer.reset();
+  public void doAppend(LoggingEvent event) {
+    OperationLog log = operationManager.getOperationLogByThread();
+    if (log == null || closed || !isAsSevereAsThreshold(event.getLevel())) {
+      return;
+    }
+    for (Filter filter = getFirstFilter(); filter != null; filter = filter.getNext()) {
+      int decision = filter.decide(event);
+      if (decision == Filter.DENY) {
+        return;
+      }
+      if (decision == Filter.ACCEPT) {
+        break;
+      }
+    }
+    append(event);
+  }
 
+  @Override
+  protected void append(LoggingEvent event) {
     OperationLog log = operationManager.getOperationLogByThread();
     if (log == null) {
-      LOG.debug(" ---+++=== Dropped log event from thread " + event.getThreadName());
       return;
     }
+    String logOutput;
+    Layout layout = threadLayout.get();
+    if (layout != null) {
+      logOutput = layout.format(event);
+    } else {
+      layout = getLayout();
+      synchronized (layout) {
+        logOutput = layout.format(event);
+      }
+    }
+    if (layout.ignoresThrowable()) {
+      String[] throwableLines = event.getThrowableStrRep();
+      if (throwableLines != null) {
+        StringBuilder output = new StringBuilder(logOutput);
+        for (String line : throwableLines) {
+          output.append(line).append(Layout.LINE_SEP);
+        }
+        logOutput = output.toString();
+      }
+    }
     log.writeOperationLog(logOutput);
   }
+
+  @Override
+  public boolean requiresLayout() {
+    return true;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
 }
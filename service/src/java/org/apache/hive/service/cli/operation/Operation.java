@@ -18,7 +18,6 @@
 package org.apache.hive.service.cli.operation;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.util.EnumSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -184,38 +183,16 @@ protected void createOperationLog() {
           opHandle.getHandleIdentifier().toString());
       isOperationLogEnabled = true;
 
-      // create log file
-      try {
-        if (operationLogFile.exists()) {
-          LOG.warn("The operation log file should not exist, but it is already there: " +
-              operationLogFile.getAbsolutePath());
-          operationLogFile.delete();
-        }
-        if (!operationLogFile.createNewFile()) {
-          // the log file already exists and cannot be deleted.
-          // If it can be read/written, keep its contents and use it.
-          if (!operationLogFile.canRead() || !operationLogFile.canWrite()) {
-            LOG.warn("The already existed operation log file cannot be recreated, " +
-                "and it cannot be read or written: " + operationLogFile.getAbsolutePath());
-            isOperationLogEnabled = false;
-            return;
-          }
-        }
-      } catch (Exception e) {
-        LOG.warn("Unable to create operation log file: " + operationLogFile.getAbsolutePath(), e);
+      // The log file is only created once the log of the operation is spilled to it
+      if (operationLogFile.exists() && !operationLogFile.delete()) {
+        LOG.warn("The operation log file should not exist, but it is already there and " +
+            "cannot be deleted: " + operationLogFile.getAbsolutePath());
         isOperationLogEnabled = false;
         return;
       }
 
-      // create OperationLog object with above log file
-      try {
-        operationLog = new OperationLog(opHandle.toString(), operationLogFile);
-      } catch (FileNotFoundException e) {
-        LOG.warn("Unable to instantiate OperationLog object for operation: " +
-            opHandle, e);
-        isOperationLogEnabled = false;
-        return;
-      }
+      operationLog = new OperationLog(opHandle.toString(), operationLogFile,
+          parentSession.getHiveConf());
 
       // register this operationLog to current thread
       OperationLog.setCurrentOperationLog(operationLog);
@@ -21,28 +21,59 @@
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hive.service.cli.FetchOrientation;
 import org.apache.hive.service.cli.HiveSQLException;
-import org.apache.hive.service.cli.OperationHandle;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * OperationLog wraps the actual operation log file, and provides interface
- * for accessing, reading, writing, and removing the file.
+ * OperationLog keeps the log of an operation, and provides interface
+ * for reading, writing, and removing it.
+ *
+ * The log is appended to a bounded in-memory buffer by the threads of the operation, and
+ * spilled to the log file of the operation in the background once the buffer is full, so that
+ * logging never waits for the disk and the file is only created for operations that log a lot.
+ * Reads serve the spilled lines from the file, then the lines still in memory.
  */
 public class OperationLog {
   private static final Log LOG = LogFactory.getLog(OperationLog.class.getName());
 
+  /** The buffer holds that many times its size before the logging thread spills it itself. */
+  private static final int MAX_BUFFERED_RATIO = 4;
+
   private final String operationName;
-  private final LogFile logFile;
+  private final File file;
+  private final int bufferSize;
+
+  // Guarded by this
+  private final StringBuilder buffer = new StringBuilder();
+  /** Text taken from the buffer and being written to the file. */
+  private String spilling;
+  /** Number of characters of the log written to the file. */
+  private long spilled;
+  private boolean isSpillQueued;
+  private boolean isSpillFailed;
+  private boolean isRemoved;
+  private BufferedReader in;
+  /** Number of characters of the log read by in. */
+  private long inPosition;
+  /** Number of characters of the log already returned to the client. */
+  private long readPosition;
 
-  public OperationLog(String name, File file) throws FileNotFoundException{
+  // Guarded by spillLock, which is never acquired while holding this
+  private final Object spillLock = new Object();
+  private Writer out;
+
+  public OperationLog(String name, File file, HiveConf hiveConf) {
     operationName = name;
-    logFile = new LogFile(file);
+    this.file = file;
+    bufferSize = hiveConf.getIntVar(HiveConf.ConfVars.HIVE_SERVER2_LOGGING_OPERATION_BUFFER_SIZE);
   }
 
   /**
@@ -69,121 +100,243 @@ public static void removeCurrentOperationLog() {
   }
 
   /**
-   * Write operation execution logs into log file
-   * @param operationLogMessage one line of log emitted from log4j
+   * Write operation execution logs
+   * @param operationLogMessage one or more lines of log emitted from log4j
    */
   public void writeOperationLog(String operationLogMessage) {
-    logFile.write(operationLogMessage);
+    boolean queueSpill = false;
+    boolean spillNow = false;
+    synchronized (this) {
+      if (isRemoved) {
+        return;
+      }
+      int maxBuffered = bufferSize * MAX_BUFFERED_RATIO;
+      if (isSpillFailed && buffer.length() >= maxBuffered) {
+        // Keep the memory of the operation bounded
+        return;
+      }
+      buffer.append(operationLogMessage);
+      if (!isSpillFailed && buffer.length() >= bufferSize) {
+        if (buffer.length() >= maxBuffered) {
+          // The spiller is behind, slow the logging thread down rather than growing the buffer
+          spillNow = true;
+        } else if (!isSpillQueued) {
+          isSpillQueued = true;
+          queueSpill = true;
+        }
+      }
+    }
+    if (spillNow) {
+      spill();
+    } else if (queueSpill) {
+      Spiller.INSTANCE.queue(this);
+    }
   }
 
   /**
-   * Read operation execution logs from log file
+   * Read operation execution logs
    * @param fetchOrientation one of Enum FetchOrientation values
    * @param maxRows the max number of fetched lines from log
    * @return
    * @throws HiveSQLException
    */
-  public List<String> readOperationLog(FetchOrientation fetchOrientation, long maxRows)
-      throws HiveSQLException{
-    return logFile.read(fetchOrientation, maxRows);
+  public synchronized List<String> readOperationLog(FetchOrientation fetchOrientation,
+      long maxRows) throws HiveSQLException {
+    if (isRemoved) {
+      throw new HiveSQLException("The operation has been closed and its log file " +
+          file.getAbsolutePath() + " has been removed.");
+    }
+    // read again from the beginning of the log
+    if (fetchOrientation.equals(FetchOrientation.FETCH_FIRST)) {
+      resetIn();
+      readPosition = 0;
+    }
+
+    List<String> logs = new ArrayList<String>();
+    // if maxRows <= 0, read all lines of the log.
+    while (logs.size() < maxRows || maxRows <= 0) {
+      String line = readPosition < spilled ? readSpilledLine() : readBufferedLine();
+      if (line == null) {
+        break;
+      }
+      logs.add(line);
+    }
+    return logs;
   }
 
   /**
    * Close this OperationLog when operation is closed. The log file will be removed.
    */
   public void close() {
-    logFile.remove();
+    synchronized (spillLock) {
+      synchronized (this) {
+        isRemoved = true;
+        buffer.setLength(0);
+        buffer.trimToSize();
+        resetIn();
+      }
+      try {
+        if (out != null) {
+          out.close();
+        }
+        if (file.exists()) {
+          FileUtils.forceDelete(file);
+        }
+      } catch (Exception e) {
+        LOG.error("Failed to remove corresponding log file of operation: " + operationName, e);
+      }
+    }
   }
 
   /**
-   * Wrapper for read/write the operation log file
+   * Writes the buffered log to the file.
    */
-  private class LogFile {
-    private File file;
-    private BufferedReader in;
-    private PrintStream out;
-    private volatile boolean isRemoved;
-
-    LogFile(File file) throws FileNotFoundException {
-      this.file = file;
-      in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-      out = new PrintStream(new FileOutputStream(file));
-      isRemoved = false;
-    }
-
-    synchronized void write(String msg) {
-      // write log to the file
-      out.print(msg);
+  void spill() {
+    synchronized (spillLock) {
+      String text;
+      synchronized (this) {
+        isSpillQueued = false;
+        if (isRemoved || isSpillFailed || buffer.length() == 0) {
+          return;
+        }
+        text = buffer.toString();
+        buffer.setLength(0);
+        spilling = text;
+      }
+      boolean isWritten = false;
+      try {
+        if (out == null) {
+          out = new BufferedWriter(
+              new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8));
+        }
+        out.write(text);
+        out.flush();
+        isWritten = true;
+      } catch (IOException e) {
+        LOG.warn("Unable to write the log of operation " + operationName + " to " +
+            file.getAbsolutePath() + ", keeping at most " + bufferSize * MAX_BUFFERED_RATIO +
+            " characters of it in memory", e);
+      } finally {
+        synchronized (this) {
+          spilling = null;
+          if (isWritten) {
+            spilled += text.length();
+          } else {
+            isSpillFailed = true;
+            buffer.insert(0, text);
+          }
+        }
+      }
     }
+  }
 
-    synchronized List<String> read(FetchOrientation fetchOrientation, long maxRows)
-        throws HiveSQLException{
-      // reset the BufferReader, if fetching from the beginning of the file
-      if (fetchOrientation.equals(FetchOrientation.FETCH_FIRST)) {
+  private String readSpilledLine() throws HiveSQLException {
+    try {
+      if (in == null || inPosition > readPosition) {
         resetIn();
+        in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
       }
-
-      return readResults(maxRows);
-    }
-
-    void remove() {
-      try {
-        if (in != null) {
-          in.close();
+      // Lines read from memory since the last read from the file
+      while (inPosition < readPosition) {
+        long skipped = in.skip(readPosition - inPosition);
+        if (skipped <= 0) {
+          throw new EOFException("Unexpected end of file at " + inPosition);
         }
-        if (out != null) {
-          out.close();
+        inPosition += skipped;
+      }
+      // The file holds complete lines up to spilled
+      StringBuilder line = new StringBuilder();
+      int c;
+      while ((c = in.read()) >= 0) {
+        inPosition++;
+        if (c == '\n') {
+          break;
         }
-        FileUtils.forceDelete(file);
-        isRemoved = true;
-      } catch (Exception e) {
-        LOG.error("Failed to remove corresponding log file of operation: " + operationName, e);
+        line.append((char) c);
       }
+      readPosition = inPosition;
+      return stripCarriageReturn(line);
+    } catch (FileNotFoundException e) {
+      throw new HiveSQLException("Operation Log file " + file.getAbsolutePath() +
+          " is not found.", e);
+    } catch (IOException e) {
+      throw new HiveSQLException("Reading operation log file encountered an exception: ", e);
     }
+  }
 
-    private void resetIn() {
-      if (in != null) {
-        IOUtils.cleanup(LOG, in);
-        in = null;
+  private String readBufferedLine() {
+    int offset = (int) (readPosition - spilled);
+    CharSequence text = buffer;
+    if (spilling != null) {
+      if (offset < spilling.length()) {
+        text = spilling;
+      } else {
+        offset -= spilling.length();
       }
     }
+    // Lines are only read once complete
+    int end = indexOf(text, '\n', offset);
+    if (end < 0) {
+      return null;
+    }
+    readPosition += end + 1 - offset;
+    return stripCarriageReturn(new StringBuilder(text.subSequence(offset, end)));
+  }
 
-    private List<String> readResults(long nLines) throws HiveSQLException {
-      if (in == null) {
-        try {
-          in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-        } catch (FileNotFoundException e) {
-          if (isRemoved) {
-            throw new HiveSQLException("The operation has been closed and its log file " +
-                file.getAbsolutePath() + " has been removed.", e);
-          } else {
-            throw new HiveSQLException("Operation Log file " + file.getAbsolutePath() +
-                " is not found.", e);
-          }
-        }
+  private static int indexOf(CharSequence text, char c, int from) {
+    for (int i = from; i < text.length(); i++) {
+      if (text.charAt(i) == c) {
+        return i;
       }
+    }
+    return -1;
+  }
 
-      List<String> logs = new ArrayList<String>();
-      String line = "";
-      // if nLines <= 0, read all lines in log file.
-      for (int i = 0; i < nLines || nLines <= 0; i++) {
+  private static String stripCarriageReturn(StringBuilder line) {
+    int length = line.length();
+    if (length > 0 && line.charAt(length - 1) == '\r') {
+      line.setLength(length - 1);
+    }
+    return line.toString();
+  }
+
+  private void resetIn() {
+    if (in != null) {
+      IOUtils.cleanup(LOG, in);
+      in = null;
+    }
+    inPosition = 0;
+  }
+
+  /**
+   * The daemon thread spilling the full buffers of all the operation logs.
+   */
+  private static class Spiller extends Thread {
+    private static final Spiller INSTANCE = new Spiller();
+
+    private final BlockingQueue<OperationLog> queue = new LinkedBlockingQueue<OperationLog>();
+
+    private Spiller() {
+      super("HiveServer2-Operation-Log-Spiller");
+      setDaemon(true);
+      start();
+    }
+
+    void queue(OperationLog log) {
+      queue.add(log);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
         try {
-          line = in.readLine();
-          if (line == null) {
-            break;
-          } else {
-            logs.add(line);
-          }
-        } catch (IOException e) {
-          if (isRemoved) {
-            throw new HiveSQLException("The operation has been closed and its log file " +
-                file.getAbsolutePath() + " has been removed.", e);
-          } else {
-            throw new HiveSQLException("Reading operation log file encountered an exception: ", e);
-          }
+          queue.take().spill();
+        } catch (InterruptedException e) {
+          return;
+        } catch (Throwable t) {
+          LOG.error("Unable to spill an operation log", t);
         }
       }
-      return logs;
     }
   }
 }
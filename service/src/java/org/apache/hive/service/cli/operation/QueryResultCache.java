@@ -0,0 +1,336 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.operation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.TableType;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.ql.CompiledPlanCache;
+import org.apache.hadoop.hive.ql.QueryPlan;
+import org.apache.hadoop.hive.ql.exec.FunctionInfo;
+import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
+import org.apache.hadoop.hive.ql.hooks.ReadEntity;
+import org.apache.hadoop.hive.ql.hooks.WriteEntity;
+import org.apache.hadoop.hive.ql.metadata.Partition;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hadoop.hive.ql.parse.ASTNode;
+import org.apache.hadoop.hive.ql.parse.HiveParser;
+import org.apache.hadoop.hive.ql.parse.ParseDriver;
+import org.apache.hadoop.hive.ql.parse.ParseUtils;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.udf.UDFType;
+import org.apache.hive.common.util.AnnotationUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Cache of query results shared by all the sessions of a HiveServer2. A query is cached under
+ * the user running it, the current database, the protocol version its rows are encoded for, the
+ * settings of the session and its normalized syntax tree. Along with the rows the cache keeps a
+ * snapshot of the inputs of the query: the last DDL time of every table and partition it read,
+ * and the number, total length and latest modification time of the files under their data
+ * directories. A cached result is only served while the inputs of a newly compiled query still
+ * match the snapshot, so data written by other processes is never served stale. Writes done
+ * through this server drop the affected results right away. The results of queries reading
+ * transactional tables are not cached, as what they see depends on the open transactions, nor
+ * are those of queries reading temporary tables, which only exist in their session. The settings
+ * naming the session are left out of the key, so that results are shared by the sessions.
+ *
+ * A query served from the cache is still compiled, and thus authorized, and still run by the
+ * driver, without its tasks, so that it takes its locks and runs the hooks of the session.
+ */
+public class QueryResultCache {
+  private static final Log LOG = LogFactory.getLog(QueryResultCache.class);
+
+  private static final char SEP = '\u0001';
+
+  private static QueryResultCache instance;
+
+  /**
+   * The rows of a query as returned by the driver, and what they were computed from.
+   */
+  static class CachedResult {
+    final String snapshot;
+    final List<Object> rows;
+    final Set<String> tables;
+
+    CachedResult(String snapshot, List<Object> rows, Set<String> tables) {
+      this.snapshot = snapshot;
+      this.rows = rows;
+      this.tables = tables;
+    }
+  }
+
+  private final Cache<String, CachedResult> results;
+  private final int maxEntryRows;
+
+  QueryResultCache(long maxRows, int maxEntryRows, long ttlMs) {
+    this.maxEntryRows = maxEntryRows;
+    results = CacheBuilder.newBuilder().maximumWeight(maxRows)
+        .weigher(new Weigher<String, CachedResult>() {
+          @Override
+          public int weigh(String key, CachedResult result) {
+            return result.rows.size() + 1;
+          }
+        })
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+  }
+
+  /**
+   * @return the shared cache, or null if caching is disabled in the given configuration.
+   */
+  public static synchronized QueryResultCache getInstance(HiveConf conf) {
+    if (!HiveConf.getBoolVar(conf, HiveConf.ConfVars.HIVE_SERVER2_QUERY_RESULT_CACHE_ENABLED)) {
+      return null;
+    }
+    if (instance == null) {
+      int maxRows = HiveConf.getIntVar(conf,
+          HiveConf.ConfVars.HIVE_SERVER2_QUERY_RESULT_CACHE_MAX_ROWS);
+      int maxEntryRows = HiveConf.getIntVar(conf,
+          HiveConf.ConfVars.HIVE_SERVER2_QUERY_RESULT_CACHE_MAX_ENTRY_ROWS);
+      long ttlMs = HiveConf.getTimeVar(conf,
+          HiveConf.ConfVars.HIVE_SERVER2_QUERY_RESULT_CACHE_TTL, TimeUnit.MILLISECONDS);
+      LOG.info("Creating query result cache with max rows " + maxRows + ", max entry rows "
+          + maxEntryRows + " and TTL " + ttlMs + "ms");
+      instance = new QueryResultCache(maxRows, maxEntryRows, ttlMs);
+    }
+    return instance;
+  }
+
+  int getMaxEntryRows() {
+    return maxEntryRows;
+  }
+
+  Map<String, CachedResult> asMap() {
+    return results.asMap();
+  }
+
+  /**
+   * Builds the key of a compiled query.
+   * @return the key, or null if the results of the query can not be cached.
+   */
+  String makeKey(String command, QueryPlan plan, String userName, String currentDb,
+      int protocol, HiveConf conf) {
+    if (!HiveOperation.QUERY.getOperationName().equals(plan.getOperationName())
+        || plan.getFetchTask() == null || plan.getInputs().isEmpty()) {
+      return null;
+    }
+    for (WriteEntity output : plan.getOutputs()) {
+      if (output.getType() != WriteEntity.Type.DFS_DIR
+          && output.getType() != WriteEntity.Type.LOCAL_DIR) {
+        return null;
+      }
+    }
+    ASTNode tree;
+    try {
+      tree = ParseUtils.findRootNonNullToken(new ParseDriver().parse(command));
+    } catch (Exception e) {
+      return null;
+    }
+    if (!isDeterministic(tree)) {
+      return null;
+    }
+    return new StringBuilder(userName == null ? "" : userName)
+        .append(SEP).append(currentDb)
+        .append(SEP).append(protocol)
+        .append(SEP).append(CompiledPlanCache.getSessionSettings(conf))
+        .append(SEP).append(tree.toStringTree()).toString();
+  }
+
+  /**
+   * Describes the current state of the inputs of a compiled query.
+   * @return the snapshot, or null if the inputs of the query can not be tracked.
+   */
+  String makeSnapshot(QueryPlan plan, HiveConf conf) {
+    // Sorted so the same inputs always give the same snapshot
+    TreeMap<String, String> states = new TreeMap<String, String>();
+    try {
+      for (ReadEntity input : plan.getInputs()) {
+        switch (input.getType()) {
+        case TABLE:
+          Table table = input.getTable();
+          // Temporary tables of different sessions share their names
+          if (isTransactional(table) || table.isTemporary()) {
+            return null;
+          }
+          String state = table.getParameters().get(hive_metastoreConstants.DDL_TIME);
+          if (table.getTableType() != TableType.VIRTUAL_VIEW && !table.isPartitioned()) {
+            state += "/" + getFilesState(table.getDataLocation(), conf);
+          }
+          states.put(input.getName(), state);
+          break;
+        case PARTITION:
+          Partition part = input.getPartition();
+          if (isTransactional(part.getTable())) {
+            return null;
+          }
+          states.put(input.getName(), part.getParameters().get(hive_metastoreConstants.DDL_TIME)
+              + "/" + getFilesState(part.getDataLocation(), conf));
+          break;
+        default:
+          return null;
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to get the state of the inputs of " + plan.getQueryId(), e);
+      return null;
+    }
+    return states.toString();
+  }
+
+  /**
+   * @return the result cached under the key if it was computed from inputs in the given state,
+   *         otherwise null.
+   */
+  CachedResult get(String key, String snapshot) {
+    CachedResult result = results.getIfPresent(key);
+    if (result == null) {
+      return null;
+    }
+    if (!result.snapshot.equals(snapshot)) {
+      results.invalidate(key);
+      return null;
+    }
+    return result;
+  }
+
+  void put(String key, String snapshot, List<Object> rows, QueryPlan plan) {
+    Set<String> tables = new HashSet<String>();
+    for (ReadEntity input : plan.getInputs()) {
+      if (input.getTable() != null) {
+        tables.add(tableName(input.getTable()));
+      }
+    }
+    results.put(key, new CachedResult(snapshot, rows, tables));
+  }
+
+  /**
+   * Drops the results read from any of the tables written by the given query.
+   */
+  void invalidate(Collection<WriteEntity> outputs) {
+    Set<String> tables = new HashSet<String>();
+    for (WriteEntity output : outputs) {
+      if (output.getTable() != null) {
+        tables.add(tableName(output.getTable()));
+      }
+    }
+    if (tables.isEmpty()) {
+      return;
+    }
+    Iterator<CachedResult> it = results.asMap().values().iterator();
+    while (it.hasNext()) {
+      for (String table : it.next().tables) {
+        if (tables.contains(table)) {
+          it.remove();
+          break;
+        }
+      }
+    }
+  }
+
+  private static boolean isDeterministic(ASTNode node) {
+    switch (node.getType()) {
+    case HiveParser.TOK_FUNCTION:
+    case HiveParser.TOK_FUNCTIONDI:
+    case HiveParser.TOK_FUNCTIONSTAR:
+      if (node.getChild(0).getType() != HiveParser.Identifier) {
+        // Casts name the target type instead of a function
+        break;
+      }
+      FunctionInfo info;
+      try {
+        info = FunctionRegistry.getFunctionInfo(node.getChild(0).getText());
+      } catch (Exception e) {
+        return false;
+      }
+      if (info == null) {
+        return false;
+      }
+      if (info.isGenericUDF()) {
+        if (!FunctionRegistry.isDeterministic(info.getGenericUDF())) {
+          return false;
+        }
+      } else {
+        UDFType type = AnnotationUtils.getAnnotation(info.getFunctionClass(), UDFType.class);
+        if (type != null && (!type.deterministic() || type.stateful())) {
+          return false;
+        }
+      }
+      break;
+    default:
+      break;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if (!isDeterministic((ASTNode) node.getChild(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTransactional(Table table) {
+    return "true".equalsIgnoreCase(
+        table.getParameters().get(hive_metastoreConstants.TABLE_IS_TRANSACTIONAL));
+  }
+
+  /**
+   * Describes the files under a data directory, at any depth, by their number, total length and
+   * latest modification time, so that files added, removed, appended to or replaced are seen.
+   */
+  private static String getFilesState(Path path, HiveConf conf) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    try {
+      FileUtils.listStatusRecursively(fs, fs.getFileStatus(path), files);
+    } catch (FileNotFoundException e) {
+      return "-1";
+    }
+    long length = 0;
+    long modificationTime = 0;
+    for (FileStatus file : files) {
+      length += file.getLen();
+      modificationTime = Math.max(modificationTime, file.getModificationTime());
+    }
+    return files.size() + ":" + length + ":" + modificationTime;
+  }
+
+  private static String tableName(Table table) {
+    return (table.getDbName() + "." + table.getTableName()).toLowerCase();
+  }
+}
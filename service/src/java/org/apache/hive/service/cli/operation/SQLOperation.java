@@ -29,12 +29,14 @@
 import java.util.Properties;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Schema;
 import org.apache.hadoop.hive.ql.CommandNeedRetryException;
 import org.apache.hadoop.hive.ql.Driver;
+import org.apache.hadoop.hive.ql.QueryPlan;
 import org.apache.hadoop.hive.ql.exec.ExplainTask;
 import org.apache.hadoop.hive.ql.exec.Task;
 import org.apache.hadoop.hive.ql.metadata.Hive;
@@ -76,6 +78,25 @@ public class SQLOperation extends ExecuteStatementOperation {
   private SerDe serde = null;
   private boolean fetchStarted = false;
 
+  private QueryResultCache resultCache;
+  private String resultCacheKey;
+  private String resultCacheSnapshot;
+  /** Result served from the cache instead of running the query, if any. */
+  private QueryResultCache.CachedResult cachedResult;
+  private int cachedResultPos;
+  /** Rows fetched so far that will be put in the cache once the result is complete. */
+  private List<Object> rowsToCache;
+
+  /** How long to wait between two checks for new rows of a running query. */
+  private static final long STREAM_POLL_INTERVAL_MS = 500;
+  /** Whether rows can be fetched while the query is still running. */
+  private boolean streamResults;
+  private long streamPollTimeout;
+  /** Reads the result of the query while it runs, if it is written by a job. */
+  private CommittedResultFetcher committedResultFetcher;
+  /** Whether rows have been fetched from committedResultFetcher instead of the driver. */
+  private boolean streamStarted;
+
   public SQLOperation(HiveSession parentSession, String statement, Map<String,
       String> confOverlay, boolean runInBackground) {
     // TODO: call setRemoteUser in ExecuteStatementOperation or higher.
@@ -127,6 +148,21 @@ public void prepare(HiveConf sqlOperationConf) throws HiveSQLException {
           break;
         }
       }
+
+      resultCache = QueryResultCache.getInstance(sqlOperationConf);
+      if (resultCache != null && hasResultSet()) {
+        lookupCachedResult(sqlOperationConf, subStatement);
+      }
+
+      if (hasResultSet() && cachedResult == null && shouldRunAsync()
+          && sqlOperationConf.getBoolVar(HiveConf.ConfVars.HIVE_SERVER2_RESULTSET_STREAMING)) {
+        streamResults = true;
+        streamPollTimeout = HiveConf.getTimeVar(sqlOperationConf,
+            HiveConf.ConfVars.HIVE_SERVER2_LONG_POLLING_TIMEOUT, TimeUnit.MILLISECONDS);
+        // Own copy of the configuration, the query changes its own while it runs
+        committedResultFetcher =
+            CommittedResultFetcher.create(driver.getPlan(), new HiveConf(sqlOperationConf));
+      }
     } catch (HiveSQLException e) {
       setState(OperationState.ERROR);
       throw e;
@@ -136,6 +172,28 @@ public void prepare(HiveConf sqlOperationConf) throws HiveSQLException {
     }
   }
 
+  private void lookupCachedResult(HiveConf sqlOperationConf, String command) {
+    QueryPlan plan = driver.getPlan();
+    resultCacheKey = resultCache.makeKey(command, plan, getParentSession().getUserName(),
+        SessionState.get().getCurrentDatabase(), getProtocolVersion().getValue(),
+        sqlOperationConf);
+    if (resultCacheKey != null) {
+      resultCacheSnapshot = resultCache.makeSnapshot(plan, sqlOperationConf);
+    }
+    if (resultCacheSnapshot == null) {
+      resultCacheKey = null;
+      return;
+    }
+    cachedResult = resultCache.get(resultCacheKey, resultCacheSnapshot);
+    if (cachedResult != null) {
+      LOG.info("Serving the result of " + plan.getQueryId() + " from the query result cache");
+      // The driver still runs the query, for its locks and hooks, but has no task to launch
+      plan.getRootTasks().clear();
+    } else {
+      rowsToCache = new ArrayList<Object>();
+    }
+  }
+
   private void runQuery(HiveConf sqlOperationConf) throws HiveSQLException {
     try {
       // In Hive server mode, we are not able to retry in the FetchTask
@@ -146,6 +204,9 @@ private void runQuery(HiveConf sqlOperationConf) throws HiveSQLException {
       if (0 != response.getResponseCode()) {
         throw toSQLException("Error while processing statement", response);
       }
+      if (resultCache != null) {
+        resultCache.invalidate(driver.getPlan().getOutputs());
+      }
     } catch (HiveSQLException e) {
       // If the operation was cancelled by another thread,
       // Driver#run will return a non-zero response code.
@@ -228,7 +289,8 @@ public Object run() throws HiveSQLException {
       try {
         // This submit blocks if no background threads are available to run this operation
         Future<?> backgroundHandle =
-            getParentSession().getSessionManager().submitBackgroundOperation(backgroundOperation);
+            getParentSession().getSessionManager().submitBackgroundOperation(backgroundOperation,
+                getParentSession().getUserName());
         setBackgroundHandle(backgroundHandle);
       } catch (RejectedExecutionException rejected) {
         setState(OperationState.ERROR);
@@ -285,6 +347,10 @@ private void cleanup(OperationState state) throws HiveSQLException {
         backgroundHandle.cancel(true);
       }
     }
+    if (committedResultFetcher != null) {
+      committedResultFetcher.close();
+      committedResultFetcher = null;
+    }
     if (driver != null) {
       driver.close();
       driver.destroy();
@@ -310,7 +376,9 @@ public void close() throws HiveSQLException {
 
   @Override
   public TableSchema getResultSetSchema() throws HiveSQLException {
-    assertState(OperationState.FINISHED);
+    if (!isStreamingRows()) {
+      assertState(OperationState.FINISHED);
+    }
     if (resultSchema == null) {
       resultSchema = new TableSchema(driver.getSchema());
     }
@@ -322,22 +390,48 @@ public TableSchema getResultSetSchema() throws HiveSQLException {
   @Override
   public RowSet getNextRowSet(FetchOrientation orientation, long maxRows) throws HiveSQLException {
     validateDefaultFetchOrientation(orientation);
+    if (isStreamingRows()) {
+      return getNextStreamedRowSet(orientation, maxRows);
+    }
     assertState(OperationState.FINISHED);
 
     RowSet rowSet = RowSetFactory.create(resultSchema, getProtocolVersion());
 
     try {
+      if (cachedResult != null) {
+        return getNextCachedRowSet(orientation, maxRows, rowSet);
+      }
+      if (streamStarted) {
+        if (orientation.equals(FetchOrientation.FETCH_FIRST)) {
+          // The result is complete, read it again through the driver
+          streamStarted = false;
+          rowsToCache = null;
+          driver.resetFetch();
+        } else {
+          // Rest of the rows, from the files not read while the query was running
+          committedResultFetcher.fetch(convey, (int) maxRows, true);
+          cacheRows(convey);
+          return decode(convey, rowSet);
+        }
+      }
       /* if client is requesting fetch-from-start and its not the first time reading from this operation
        * then reset the fetch position to beginning
        */
       if (orientation.equals(FetchOrientation.FETCH_FIRST) && fetchStarted) {
         driver.resetFetch();
+        rowsToCache = null;
       }
       fetchStarted = true;
       driver.setMaxRows((int) maxRows);
       if (driver.getResults(convey)) {
+        cacheRows(convey);
         return decode(convey, rowSet);
       }
+      if (rowsToCache != null) {
+        // All the rows have been fetched
+        resultCache.put(resultCacheKey, resultCacheSnapshot, rowsToCache, driver.getPlan());
+        rowsToCache = null;
+      }
       return rowSet;
     } catch (IOException e) {
       throw new HiveSQLException(e);
@@ -350,6 +444,67 @@ public RowSet getNextRowSet(FetchOrientation orientation, long maxRows) throws H
     }
   }
 
+  private boolean isStreamingRows() {
+    return streamResults && getStatus().getState() == OperationState.RUNNING;
+  }
+
+  /**
+   * Returns the rows the query committed so far, waiting up to the long polling timeout for some.
+   * An empty row set does not mean the end of the result as long as the query is running.
+   */
+  private RowSet getNextStreamedRowSet(FetchOrientation orientation, long maxRows)
+      throws HiveSQLException {
+    RowSet rowSet = RowSetFactory.create(resultSchema, getProtocolVersion());
+    long deadline = System.currentTimeMillis() + streamPollTimeout;
+    try {
+      if (committedResultFetcher != null && orientation.equals(FetchOrientation.FETCH_FIRST)) {
+        committedResultFetcher.reset();
+        rowsToCache = null;
+      }
+      while (isStreamingRows()) {
+        if (committedResultFetcher != null) {
+          streamStarted = true;
+          if (committedResultFetcher.fetch(convey, (int) maxRows, false)) {
+            cacheRows(convey);
+            return decode(convey, rowSet);
+          }
+        }
+        if (System.currentTimeMillis() >= deadline) {
+          break;
+        }
+        Thread.sleep(STREAM_POLL_INTERVAL_MS);
+      }
+      return rowSet;
+    } catch (Exception e) {
+      throw new HiveSQLException(e);
+    } finally {
+      convey.clear();
+    }
+  }
+
+  private RowSet getNextCachedRowSet(FetchOrientation orientation, long maxRows, RowSet rowSet)
+      throws Exception {
+    if (orientation.equals(FetchOrientation.FETCH_FIRST)) {
+      cachedResultPos = 0;
+    }
+    List<Object> rows = cachedResult.rows;
+    int end = (int) Math.min(rows.size(), cachedResultPos + maxRows);
+    List<Object> batch = rows.subList(cachedResultPos, end);
+    cachedResultPos = end;
+    return decode(batch, rowSet);
+  }
+
+  private void cacheRows(List<Object> rows) {
+    if (rowsToCache == null) {
+      return;
+    }
+    if (rowsToCache.size() + rows.size() > resultCache.getMaxEntryRows()) {
+      rowsToCache = null;
+      return;
+    }
+    rowsToCache.addAll(rows);
+  }
+
   private RowSet decode(List<Object> rows, RowSet rowSet) throws Exception {
     if (driver.isFetchingTable()) {
       return prepareFromRow(rows, rowSet);
@@ -0,0 +1,409 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.common.metrics.Metrics;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hive.service.server.ThreadFactoryWithGarbageCleanup;
+
+/**
+ * The workload pools that run the background operations of HiveServer2.
+ *
+ * Besides the default pool, sized by hive.server2.async.exec.threads, named pools can be
+ * declared with hive.server2.async.exec.pools, and users or groups mapped to them with
+ * hive.server2.async.exec.pool.mapping, so that for instance long ETL statements can not take
+ * the threads of interactive users. In every pool, queued operations start by descending
+ * priority, then in submission order. Priorities are given to users and groups by
+ * hive.server2.async.exec.priority.mapping in the configuration of the server, so that a
+ * session can not raise its own. A user never runs more than
+ * hive.server2.async.exec.user.limit operations at the same time: further operations of the
+ * user wait in the queue while those of other users overtake them.
+ *
+ * The time operations spend queued and running is published per pool through {@link Metrics}.
+ */
+public class BackgroundOperationPools {
+  private static final Log LOG = LogFactory.getLog(BackgroundOperationPools.class);
+
+  public static final String DEFAULT_POOL = "default";
+
+  private static final String USER_PREFIX = "user:";
+  private static final String GROUP_PREFIX = "group:";
+
+  private final Map<String, Pool> pools = new LinkedHashMap<String, Pool>();
+  private final Map<String, String> userToPool = new HashMap<String, String>();
+  private final Map<String, String> groupToPool = new HashMap<String, String>();
+  private final Map<String, Integer> userToPriority = new HashMap<String, Integer>();
+  private final Map<String, Integer> groupToPriority = new HashMap<String, Integer>();
+
+  public BackgroundOperationPools(HiveConf hiveConf) {
+    int queueSize = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_WAIT_QUEUE_SIZE);
+    long keepAliveTime = HiveConf.getTimeVar(
+        hiveConf, ConfVars.HIVE_SERVER2_ASYNC_EXEC_KEEPALIVE_TIME, TimeUnit.SECONDS);
+    int userLimit = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_USER_LIMIT);
+
+    addPool(DEFAULT_POOL, hiveConf.getIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_THREADS),
+        queueSize, keepAliveTime, userLimit);
+    for (String spec : hiveConf.getVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_POOLS).split(",")) {
+      spec = spec.trim();
+      if (spec.isEmpty()) {
+        continue;
+      }
+      int colon = spec.indexOf(':');
+      if (colon < 1) {
+        throw new IllegalArgumentException("Invalid background operation pool " + spec
+            + ", expected name:threads");
+      }
+      addPool(spec.substring(0, colon).trim(),
+          Integer.parseInt(spec.substring(colon + 1).trim()), queueSize, keepAliveTime, userLimit);
+    }
+
+    String mappings = hiveConf.getVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_POOL_MAPPING);
+    for (String mapping : mappings.split(",")) {
+      mapping = mapping.trim();
+      if (mapping.isEmpty()) {
+        continue;
+      }
+      int eq = mapping.indexOf('=');
+      String pool = eq < 0 ? null : mapping.substring(eq + 1).trim();
+      if (pool == null || !pools.containsKey(pool)) {
+        throw new IllegalArgumentException("Invalid background operation pool mapping "
+            + mapping + ", expected user:name=pool or group:name=pool with a declared pool");
+      }
+      String principal = mapping.substring(0, eq).trim();
+      if (principal.startsWith(USER_PREFIX)) {
+        userToPool.put(principal.substring(USER_PREFIX.length()), pool);
+      } else if (principal.startsWith(GROUP_PREFIX)) {
+        groupToPool.put(principal.substring(GROUP_PREFIX.length()), pool);
+      } else {
+        throw new IllegalArgumentException("Invalid background operation pool mapping "
+            + mapping + ", expected user:name=pool or group:name=pool");
+      }
+    }
+
+    String priorities = hiveConf.getVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_PRIORITY_MAPPING);
+    for (String mapping : priorities.split(",")) {
+      mapping = mapping.trim();
+      if (mapping.isEmpty()) {
+        continue;
+      }
+      int eq = mapping.indexOf('=');
+      Integer priority = null;
+      try {
+        priority = eq < 0 ? null : Integer.valueOf(mapping.substring(eq + 1).trim());
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      String principal = eq < 0 ? "" : mapping.substring(0, eq).trim();
+      if (priority != null && principal.startsWith(USER_PREFIX)) {
+        userToPriority.put(principal.substring(USER_PREFIX.length()), priority);
+      } else if (priority != null && principal.startsWith(GROUP_PREFIX)) {
+        groupToPriority.put(principal.substring(GROUP_PREFIX.length()), priority);
+      } else {
+        throw new IllegalArgumentException("Invalid background operation priority mapping "
+            + mapping + ", expected user:name=priority or group:name=priority");
+      }
+    }
+  }
+
+  private void addPool(String name, int threads, int queueSize, long keepAliveTime,
+      int userLimit) {
+    if (pools.containsKey(name)) {
+      throw new IllegalArgumentException("Background operation pool " + name
+          + " is declared twice");
+    }
+    LOG.info("HiveServer2: Background operation pool " + name + " with " + threads
+        + " threads, wait queue size " + queueSize + " and per user limit " + userLimit);
+    pools.put(name, new Pool(name, threads, queueSize, keepAliveTime, userLimit));
+  }
+
+  /**
+   * @return the name of the pool running the operations of the given user.
+   */
+  String getPoolName(String userName) {
+    if (userName == null) {
+      return DEFAULT_POOL;
+    }
+    String pool = userToPool.get(userName);
+    if (pool != null) {
+      return pool;
+    }
+    if (!groupToPool.isEmpty()) {
+      for (String group : getGroupNames(userName)) {
+        pool = groupToPool.get(group);
+        if (pool != null) {
+          return pool;
+        }
+      }
+    }
+    return DEFAULT_POOL;
+  }
+
+  /**
+   * @return the priority of the operations of the given user in the queue of their pool.
+   */
+  int getPriority(String userName) {
+    if (userName == null) {
+      return 0;
+    }
+    Integer priority = userToPriority.get(userName);
+    if (priority != null) {
+      return priority;
+    }
+    if (!groupToPriority.isEmpty()) {
+      for (String group : getGroupNames(userName)) {
+        Integer groupPriority = groupToPriority.get(group);
+        if (groupPriority != null && (priority == null || groupPriority > priority)) {
+          priority = groupPriority;
+        }
+      }
+    }
+    return priority == null ? 0 : priority;
+  }
+
+  private static String[] getGroupNames(String userName) {
+    try {
+      return UserGroupInformation.createRemoteUser(userName).getGroupNames();
+    } catch (Exception e) {
+      LOG.warn("Unable to get the groups of " + userName, e);
+      return new String[0];
+    }
+  }
+
+  Pool getPool(String name) {
+    return pools.get(name);
+  }
+
+  /**
+   * Queues an operation in the pool of the user, with the priority of the user.
+   * @throws RejectedExecutionException if the wait queue of the pool is full
+   */
+  public Future<?> submit(Runnable r, String userName) {
+    return pools.get(getPoolName(userName)).submit(r, userName, getPriority(userName));
+  }
+
+  /**
+   * Stops accepting operations and cancels those still queued, the running ones complete.
+   */
+  public void shutdown() {
+    for (Pool pool : pools.values()) {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Waits for the running operations of all the pools to complete.
+   */
+  public void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Pool pool : pools.values()) {
+      pool.executor.awaitTermination(
+          Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * A pool of threads, with its queue of operations waiting for one.
+   */
+  static class Pool {
+    private final String name;
+    private final int threads;
+    private final int queueSize;
+    private final int userLimit;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by this
+    private final TreeSet<Operation> queue = new TreeSet<Operation>();
+    private final Map<String, Integer> runningPerUser = new HashMap<String, Integer>();
+    private int running;
+
+    Pool(String name, int threads, int queueSize, long keepAliveTime, int userLimit) {
+      this.name = name;
+      this.threads = threads;
+      this.queueSize = queueSize;
+      this.userLimit = userLimit;
+      // At most #threads operations are handed to the executor at any time, the others wait in
+      // the queue of the pool, so the executor never needs to queue anything itself
+      executor = new ThreadPoolExecutor(threads, threads, keepAliveTime, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryWithGarbageCleanup("HiveServer2-Background-Pool-" + name));
+      executor.allowCoreThreadTimeOut(true);
+    }
+
+    Future<?> submit(Runnable r, String userName, int priority) {
+      Operation op = new Operation(r, userName, priority, sequence.getAndIncrement());
+      synchronized (this) {
+        if (executor.isShutdown() || queue.size() >= queueSize) {
+          incrementCounter("rejected_operations", 1);
+          throw new RejectedExecutionException("The wait queue of background operation pool "
+              + name + " is full");
+        }
+        queue.add(op);
+        incrementCounter("submitted_operations", 1);
+        dispatch();
+      }
+      return op;
+    }
+
+    /**
+     * Starts the queued operations that can run, in priority order.
+     */
+    private synchronized void dispatch() {
+      if (executor.isShutdown()) {
+        return;
+      }
+      Iterator<Operation> it = queue.iterator();
+      while (running < threads && it.hasNext()) {
+        Operation op = it.next();
+        if (!op.isCancelled() && userLimit > 0 && getRunning(op.userName) >= userLimit) {
+          continue;
+        }
+        it.remove();
+        if (op.isCancelled()) {
+          continue;
+        }
+        running++;
+        runningPerUser.put(op.userName, getRunning(op.userName) + 1);
+        op.dispatchTime = System.currentTimeMillis();
+        incrementCounter("queue_time_total_ms", op.dispatchTime - op.submitTime);
+        executor.execute(op);
+      }
+    }
+
+    private synchronized void finished(Operation op) {
+      running--;
+      int userRunning = getRunning(op.userName) - 1;
+      if (userRunning == 0) {
+        runningPerUser.remove(op.userName);
+      } else {
+        runningPerUser.put(op.userName, userRunning);
+      }
+      incrementCounter("run_time_total_ms", System.currentTimeMillis() - op.dispatchTime);
+      dispatch();
+    }
+
+    private synchronized void cancelled(Operation op) {
+      if (op.dispatchTime == 0) {
+        // Never started, drop it from the queue right away
+        queue.remove(op);
+      }
+    }
+
+    private int getRunning(String userName) {
+      Integer count = runningPerUser.get(userName);
+      return count == null ? 0 : count;
+    }
+
+    synchronized int getQueued() {
+      return queue.size();
+    }
+
+    synchronized int getRunning() {
+      return running;
+    }
+
+    void shutdown() {
+      List<Operation> queued;
+      synchronized (this) {
+        executor.shutdown();
+        queued = new ArrayList<Operation>(queue);
+        queue.clear();
+      }
+      if (!queued.isEmpty()) {
+        LOG.info("HiveServer2: Cancelling " + queued.size() + " queued operations of background"
+            + " operation pool " + name);
+      }
+      for (Operation op : queued) {
+        // Whoever waits for the operation gets a CancellationException
+        op.cancel(false);
+      }
+    }
+
+    private void incrementCounter(String metric, long increment) {
+      String counter = "hs2_pool_" + name + "_" + metric;
+      try {
+        Metrics.incrementCounter(counter, increment);
+      } catch (IOException e) {
+        LOG.warn("Unable to update metric " + counter + ": " + e.getMessage());
+      }
+    }
+
+    /**
+     * An operation of the pool, ordered by descending priority, then submission order.
+     */
+    private class Operation extends FutureTask<Object> implements Comparable<Operation> {
+      private final String userName;
+      private final int priority;
+      private final long seq;
+      private final long submitTime = System.currentTimeMillis();
+      private long dispatchTime;
+
+      Operation(Runnable r, String userName, int priority, long seq) {
+        super(r, null);
+        this.userName = userName == null ? "" : userName;
+        this.priority = priority;
+        this.seq = seq;
+      }
+
+      @Override
+      public void run() {
+        try {
+          super.run();
+        } finally {
+          finished(this);
+        }
+      }
+
+      @Override
+      protected void done() {
+        if (isCancelled()) {
+          cancelled(this);
+        }
+      }
+
+      @Override
+      public int compareTo(Operation other) {
+        if (priority != other.priority) {
+          return priority > other.priority ? -1 : 1;
+        }
+        return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@
 
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.ql.session.SessionState;
+import org.apache.hive.service.cli.RowSetCompressor;
 import org.apache.hive.service.cli.SessionHandle;
 import org.apache.hive.service.cli.operation.OperationManager;
 import org.apache.hive.service.cli.thrift.TProtocolVersion;
@@ -96,4 +97,10 @@ public interface HiveSessionBase {
   void setIpAddress(String ipAddress);
 
   long getLastAccessTime();
+
+  /**
+   * @return the compressor negotiated for the query results of the session, or null if they
+   *         are sent uncompressed.
+   */
+  RowSetCompressor getRowSetCompressor();
 }
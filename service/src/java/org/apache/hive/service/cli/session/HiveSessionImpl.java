@@ -87,6 +87,7 @@ public class HiveSessionImpl implements HiveSession {
   private File sessionLogDir;
 
   private volatile long lastAccessTime;
+  private RowSetCompressor rowSetCompressor;
 
   public HiveSessionImpl(TProtocolVersion protocol, String username, String password,
       HiveConf serverhiveConf, String ipAddress) {
@@ -207,6 +208,8 @@ private void configureSession(Map<String, String> sessionConfMap) throws Excepti
         SetProcessor.setVariable(key.substring(4), entry.getValue());
       } else if (key.startsWith("use:")) {
         SessionState.get().setCurrentDatabase(entry.getValue());
+      } else if (key.equals(RowSetCompressor.COMPRESSOR_KEY)) {
+        rowSetCompressor = RowSetCompressor.negotiate(entry.getValue(), hiveConf);
       } else {
         hiveConf.verifyAndSet(key, entry.getValue());
       }
@@ -675,6 +678,11 @@ protected HiveSession getSession() {
     return this;
   }
 
+  @Override
+  public RowSetCompressor getRowSetCompressor() {
+    return rowSetCompressor;
+  }
+
   @Override
   public String getIpAddress() {
     return ipAddress;
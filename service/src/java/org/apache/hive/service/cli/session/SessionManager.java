@@ -26,8 +26,6 @@
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
@@ -58,7 +56,7 @@ public class SessionManager extends CompositeService {
   private final Map<SessionHandle, HiveSession> handleToSession =
       new ConcurrentHashMap<SessionHandle, HiveSession>();
   private final OperationManager operationManager = new OperationManager();
-  private ThreadPoolExecutor backgroundOperationPool;
+  private BackgroundOperationPools backgroundOperationPools;
   private boolean isOperationLogEnabled;
   private File operationLogRootDir;
 
@@ -92,23 +90,9 @@ public synchronized void init(HiveConf hiveConf) {
   }
 
   private void createBackgroundOperationPool() {
-    int poolSize = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_THREADS);
-    LOG.info("HiveServer2: Background operation thread pool size: " + poolSize);
-    int poolQueueSize = hiveConf.getIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_WAIT_QUEUE_SIZE);
-    LOG.info("HiveServer2: Background operation thread wait queue size: " + poolQueueSize);
-    long keepAliveTime = HiveConf.getTimeVar(
-        hiveConf, ConfVars.HIVE_SERVER2_ASYNC_EXEC_KEEPALIVE_TIME, TimeUnit.SECONDS);
-    LOG.info(
-        "HiveServer2: Background operation thread keepalive time: " + keepAliveTime + " seconds");
-
-    // Create a thread pool with #poolSize threads
-    // Threads terminate when they are idle for more than the keepAliveTime
-    // A bounded blocking queue is used to queue incoming operations, if #operations > poolSize
-    String threadPoolName = "HiveServer2-Background-Pool";
-    backgroundOperationPool = new ThreadPoolExecutor(poolSize, poolSize,
-        keepAliveTime, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(poolQueueSize),
-        new ThreadFactoryWithGarbageCleanup(threadPoolName));
-    backgroundOperationPool.allowCoreThreadTimeOut(true);
+    // One pool of threads per workload, each with a bounded queue of the operations waiting
+    // for a thread. Threads terminate when they are idle for more than the keepalive time.
+    backgroundOperationPools = new BackgroundOperationPools(hiveConf);
 
     checkInterval = HiveConf.getTimeVar(
         hiveConf, ConfVars.HIVE_SERVER2_SESSION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
@@ -195,24 +179,28 @@ private void sleepInterval(long interval) {
         }
       }
     };
-    backgroundOperationPool.execute(timeoutChecker);
+    // Runs for the lifetime of the server, so it gets its own thread instead of a pool slot
+    Thread timeoutCheckerThread = new ThreadFactoryWithGarbageCleanup(
+        "HiveServer2-Session-Timeout-Checker").newThread(timeoutChecker);
+    timeoutCheckerThread.setDaemon(true);
+    timeoutCheckerThread.start();
   }
 
   @Override
   public synchronized void stop() {
     super.stop();
     shutdown = true;
-    if (backgroundOperationPool != null) {
-      backgroundOperationPool.shutdown();
+    if (backgroundOperationPools != null) {
+      backgroundOperationPools.shutdown();
       long timeout = hiveConf.getTimeVar(
           ConfVars.HIVE_SERVER2_ASYNC_EXEC_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
       try {
-        backgroundOperationPool.awaitTermination(timeout, TimeUnit.SECONDS);
+        backgroundOperationPools.awaitTermination(timeout, TimeUnit.SECONDS);
       } catch (InterruptedException e) {
         LOG.warn("HIVE_SERVER2_ASYNC_EXEC_SHUTDOWN_TIMEOUT = " + timeout +
             " seconds has been exceeded. RUNNING background operations will be shut down", e);
       }
-      backgroundOperationPool = null;
+      backgroundOperationPools = null;
     }
     cleanupLoggingRootDir();
   }
@@ -392,7 +380,15 @@ private void executeSessionHooks(HiveSession session) throws Exception {
   }
 
   public Future<?> submitBackgroundOperation(Runnable r) {
-    return backgroundOperationPool.submit(r);
+    return submitBackgroundOperation(r, null);
+  }
+
+  /**
+   * Queues a background operation in the workload pool of the given user, with the priority of
+   * the user.
+   */
+  public Future<?> submitBackgroundOperation(Runnable r, String userName) {
+    return backgroundOperationPools.submit(r, userName);
   }
 
   public int getOpenSessionCount() {
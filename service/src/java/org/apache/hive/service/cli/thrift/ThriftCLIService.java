@@ -236,7 +236,14 @@ public TOpenSessionResp OpenSession(TOpenSessionReq req) throws TException {
       SessionHandle sessionHandle = getSessionHandle(req, resp);
       resp.setSessionHandle(sessionHandle.toTSessionHandle());
       // TODO: set real configuration map
-      resp.setConfiguration(new HashMap<String, String>());
+      Map<String, String> configuration = new HashMap<String, String>();
+      RowSetCompressor compressor =
+          cliService.getSessionManager().getSession(sessionHandle).getRowSetCompressor();
+      if (compressor != null) {
+        // Tell the client its results will be compressed
+        configuration.put(RowSetCompressor.COMPRESSOR_KEY, compressor.getCodecClassName());
+      }
+      resp.setConfiguration(configuration);
       resp.setStatus(OK_STATUS);
     } catch (Exception e) {
       LOG.warn("Error opening session: ", e);
@@ -598,12 +605,17 @@ public TGetResultSetMetadataResp GetResultSetMetadata(TGetResultSetMetadataReq r
   public TFetchResultsResp FetchResults(TFetchResultsReq req) throws TException {
     TFetchResultsResp resp = new TFetchResultsResp();
     try {
-      RowSet rowSet = cliService.fetchResults(
-          new OperationHandle(req.getOperationHandle()),
+      OperationHandle opHandle = new OperationHandle(req.getOperationHandle());
+      FetchType fetchType = FetchType.getFetchType(req.getFetchType());
+      RowSet rowSet = cliService.fetchResults(opHandle,
           FetchOrientation.getFetchOrientation(req.getOrientation()),
-          req.getMaxRows(),
-          FetchType.getFetchType(req.getFetchType()));
-      resp.setResults(rowSet.toTRowSet());
+          req.getMaxRows(), fetchType);
+      RowSetCompressor compressor = fetchType == FetchType.QUERY_OUTPUT
+          ? cliService.getSessionManager().getOperationManager().getOperation(opHandle)
+              .getParentSession().getRowSetCompressor()
+          : null;
+      resp.setResults(compressor == null
+          ? rowSet.toTRowSet() : compressor.compress(rowSet.toTRowSet()));
       resp.setHasMoreRows(false);
       resp.setStatus(OK_STATUS);
     } catch (Exception e) {
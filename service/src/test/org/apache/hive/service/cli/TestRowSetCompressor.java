@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli;
+
+import java.util.Iterator;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hive.service.cli.thrift.TRowSet;
+import org.junit.Test;
+
+public class TestRowSetCompressor {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    TableSchema schema = new TableSchema()
+        .addPrimitiveColumn("id", Type.INT_TYPE, null)
+        .addStringColumn("name", null);
+    ColumnBasedSet rows = new ColumnBasedSet(schema);
+    for (int i = 0; i < 1000; i++) {
+      rows.addRow(new Object[] {i, i % 10 == 0 ? null : "name" + i});
+    }
+    rows.setStartOffset(42);
+
+    RowSetCompressor compressor =
+        RowSetCompressor.negotiate(DefaultCodec.class.getName(), new HiveConf());
+    Assert.assertNotNull(compressor);
+    TRowSet compressed = compressor.compress(rows.toTRowSet());
+    Assert.assertEquals(42, compressed.getStartRowOffset());
+    Assert.assertEquals(1, compressed.getColumnsSize());
+
+    ColumnBasedSet result = new ColumnBasedSet(compressor.decompress(compressed));
+    Assert.assertEquals(42, result.getStartOffset());
+    Assert.assertEquals(1000, result.numRows());
+    Iterator<Object[]> it = result.iterator();
+    for (int i = 0; i < 1000; i++) {
+      Object[] row = it.next();
+      Assert.assertEquals(i, row[0]);
+      Assert.assertEquals(i % 10 == 0 ? null : "name" + i, row[1]);
+    }
+  }
+
+  @Test
+  public void testNegotiation() throws Exception {
+    HiveConf conf = new HiveConf();
+    Assert.assertNull(RowSetCompressor.negotiate(null, conf));
+    Assert.assertNull(RowSetCompressor.negotiate("org.example.NoSuchCodec", conf));
+    conf.setVar(HiveConf.ConfVars.HIVE_SERVER2_THRIFT_RESULTSET_COMPRESSORS, "");
+    Assert.assertNull(RowSetCompressor.negotiate(DefaultCodec.class.getName(), conf));
+  }
+}
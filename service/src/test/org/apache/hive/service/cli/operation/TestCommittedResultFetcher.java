@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.operation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.QueryPlan;
+import org.apache.hadoop.hive.ql.exec.DDLTask;
+import org.apache.hadoop.hive.ql.exec.FetchTask;
+import org.apache.hadoop.hive.ql.exec.Task;
+import org.apache.hadoop.hive.ql.exec.TaskFactory;
+import org.apache.hadoop.hive.ql.plan.FetchWork;
+import org.apache.hadoop.hive.ql.plan.PlanUtils;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCommittedResultFetcher {
+
+  private HiveConf conf;
+  private File baseDir;
+  private File resultDir;
+  private File committedDir;
+  private CommittedResultFetcher fetcher;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new HiveConf();
+    SessionState.start(conf);
+    baseDir = new File(System.getProperty("java.io.tmpdir"),
+        "TestCommittedResultFetcher-" + System.nanoTime());
+    resultDir = new File(baseDir, "-ext-10001");
+    committedDir = new File(baseDir, "_tmp.-ext-10001");
+    Assert.assertTrue(committedDir.mkdirs());
+
+    FetchWork work = new FetchWork(new Path(resultDir.toURI()),
+        PlanUtils.getDefaultQueryOutputTableDesc("key", "string", "TextFile"));
+    QueryPlan plan = new QueryPlan();
+    ArrayList<Task<? extends Serializable>> rootTasks =
+        new ArrayList<Task<? extends Serializable>>();
+    rootTasks.add(new DDLTask());
+    plan.setRootTasks(rootTasks);
+    plan.setFetchTask((FetchTask) TaskFactory.get(work, conf));
+    fetcher = CommittedResultFetcher.create(plan, conf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    fetcher.close();
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  private static void write(File dir, String name, String... rows) throws IOException {
+    FileUtils.writeLines(new File(dir, name), Arrays.asList(rows));
+  }
+
+  @Test
+  public void testRowsOfCommittedTasks() throws Exception {
+    List<Object> rows = new ArrayList<Object>();
+    Assert.assertFalse(fetcher.fetch(rows, 10, false));
+
+    write(committedDir, "000000_0", "a", "b");
+    // Still written by a task, not committed yet
+    write(committedDir, "_tmp.000001_0", "x");
+    Assert.assertTrue(fetcher.fetch(rows, 10, false));
+    Assert.assertEquals(Arrays.<Object>asList("a", "b"), rows);
+
+    rows.clear();
+    write(committedDir, "000001_0", "c");
+    // Second attempt of a task already read
+    write(committedDir, "000000_1", "a", "b");
+    Assert.assertTrue(fetcher.fetch(rows, 10, false));
+    Assert.assertEquals(Arrays.<Object>asList("c"), rows);
+
+    // The job completes, keeping the output of the second attempt
+    new File(committedDir, "_tmp.000001_0").delete();
+    new File(committedDir, "000000_0").delete();
+    Assert.assertTrue(committedDir.renameTo(resultDir));
+    write(resultDir, "000002_0", "d");
+    rows.clear();
+    Assert.assertTrue(fetcher.fetch(rows, 10, true));
+    Assert.assertEquals(Arrays.<Object>asList("d"), rows);
+    rows.clear();
+    Assert.assertFalse(fetcher.fetch(rows, 10, true));
+  }
+
+  @Test
+  public void testBatchesAndReset() throws Exception {
+    write(committedDir, "000000_0", "a", "b", "c");
+    List<Object> rows = new ArrayList<Object>();
+    Assert.assertTrue(fetcher.fetch(rows, 2, false));
+    Assert.assertEquals(Arrays.<Object>asList("a", "b"), rows);
+
+    fetcher.reset();
+    rows.clear();
+    Assert.assertTrue(fetcher.fetch(rows, 10, false));
+    Assert.assertEquals(Arrays.<Object>asList("a", "b", "c"), rows);
+  }
+}
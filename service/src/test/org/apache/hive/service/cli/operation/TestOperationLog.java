@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.operation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hive.service.cli.FetchOrientation;
+import org.apache.hive.service.cli.HiveSQLException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestOperationLog {
+
+  private HiveConf conf;
+  private File file;
+
+  @Before
+  public void setUp() {
+    conf = new HiveConf();
+    file = new File(System.getProperty("java.io.tmpdir"),
+        "TestOperationLog-" + System.nanoTime());
+  }
+
+  private static List<String> lines(int from, int to) {
+    List<String> lines = new ArrayList<String>();
+    for (int i = from; i < to; i++) {
+      lines.add("line " + i);
+    }
+    return lines;
+  }
+
+  @Test
+  public void testShortLogStaysInMemory() throws Exception {
+    OperationLog log = new OperationLog("op", file, conf);
+    log.writeOperationLog("line 0\nline 1\n");
+    log.writeOperationLog("line 2\r\n");
+    Assert.assertEquals(lines(0, 2), log.readOperationLog(FetchOrientation.FETCH_NEXT, 2));
+    Assert.assertEquals(lines(2, 3), log.readOperationLog(FetchOrientation.FETCH_NEXT, 0));
+    Assert.assertTrue(log.readOperationLog(FetchOrientation.FETCH_NEXT, 0).isEmpty());
+    Assert.assertEquals(lines(0, 3), log.readOperationLog(FetchOrientation.FETCH_FIRST, 0));
+    Assert.assertFalse(file.exists());
+    log.close();
+  }
+
+  @Test
+  public void testReadsAcrossSpills() throws Exception {
+    conf.setIntVar(HiveConf.ConfVars.HIVE_SERVER2_LOGGING_OPERATION_BUFFER_SIZE, 32);
+    OperationLog log = new OperationLog("op", file, conf);
+    List<String> read = new ArrayList<String>();
+    for (int i = 0; i < 200; i++) {
+      log.writeOperationLog("line " + i + "\n");
+      if (i % 7 == 0) {
+        read.addAll(log.readOperationLog(FetchOrientation.FETCH_NEXT, 3));
+      }
+      if (i % 50 == 0) {
+        log.spill();
+      }
+    }
+    read.addAll(log.readOperationLog(FetchOrientation.FETCH_NEXT, 0));
+    Assert.assertEquals(lines(0, 200), read);
+    Assert.assertTrue(file.exists());
+    Assert.assertEquals(lines(0, 200), log.readOperationLog(FetchOrientation.FETCH_FIRST, 0));
+
+    log.close();
+    Assert.assertFalse(file.exists());
+    try {
+      log.readOperationLog(FetchOrientation.FETCH_NEXT, 0);
+      Assert.fail("The log is closed");
+    } catch (HiveSQLException e) {
+      // expected
+    }
+  }
+}
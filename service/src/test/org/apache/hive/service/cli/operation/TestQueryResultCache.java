@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.operation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.ql.QueryPlan;
+import org.apache.hadoop.hive.ql.hooks.ReadEntity;
+import org.apache.hadoop.hive.ql.hooks.WriteEntity;
+import org.apache.hadoop.hive.ql.lockmgr.EmbeddedLockManager;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.apache.hive.service.cli.OperationHandle;
+import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.cli.SessionHandle;
+import org.apache.hive.service.cli.thrift.EmbeddedThriftBinaryCLIService;
+import org.apache.hive.service.cli.thrift.ThriftCLIServiceClient;
+import org.junit.Test;
+
+public class TestQueryResultCache {
+
+  private static QueryPlan readPlan(Table... tables) {
+    QueryPlan plan = new QueryPlan();
+    HashSet<ReadEntity> inputs = new HashSet<ReadEntity>();
+    for (Table table : tables) {
+      inputs.add(new ReadEntity(table));
+    }
+    plan.setInputs(inputs);
+    return plan;
+  }
+
+  private static List<Object> rows(Object... rows) {
+    return new ArrayList<Object>(Arrays.asList(rows));
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    Assert.assertNull(QueryResultCache.getInstance(new HiveConf()));
+  }
+
+  @Test
+  public void testSnapshotMismatch() {
+    QueryResultCache cache = new QueryResultCache(100, 10, 60000);
+    cache.put("q", "s1", rows("a", "b"), readPlan(new Table("db", "t")));
+    Assert.assertEquals(2, cache.get("q", "s1").rows.size());
+    // The inputs changed since the result was computed
+    Assert.assertNull(cache.get("q", "s2"));
+    Assert.assertNull(cache.get("q", "s1"));
+  }
+
+  @Test
+  public void testInvalidateOnWrite() {
+    QueryResultCache cache = new QueryResultCache(100, 10, 60000);
+    cache.put("q1", "s", rows("a"), readPlan(new Table("db", "t1")));
+    cache.put("q2", "s", rows("b"), readPlan(new Table("db", "t2")));
+
+    List<WriteEntity> outputs = new ArrayList<WriteEntity>();
+    outputs.add(new WriteEntity(new Table("DB", "T1"), WriteEntity.WriteType.INSERT));
+    cache.invalidate(outputs);
+    Assert.assertNull(cache.get("q1", "s"));
+    Assert.assertNotNull(cache.get("q2", "s"));
+  }
+
+  private static void append(File file, String data) throws IOException {
+    FileOutputStream out = new FileOutputStream(file, true);
+    try {
+      out.write(data.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+  }
+
+  @Test
+  public void testSnapshotOfNestedFiles() throws Exception {
+    File dir = new File(System.getProperty("java.io.tmpdir"),
+        "TestQueryResultCache-" + System.nanoTime());
+    File nested = new File(dir, "delta_1/bucket_0");
+    Assert.assertTrue(nested.getParentFile().mkdirs());
+    try {
+      append(nested, "a\n");
+      Table table = new Table("db", "t");
+      table.setDataLocation(new Path(dir.getAbsolutePath()));
+      QueryPlan plan = readPlan(table);
+      HiveConf conf = new HiveConf();
+      QueryResultCache cache = new QueryResultCache(100, 10, 60000);
+
+      String snapshot = cache.makeSnapshot(plan, conf);
+      Assert.assertNotNull(snapshot);
+      Assert.assertEquals(snapshot, cache.makeSnapshot(plan, conf));
+      // Neither the directory of the table nor the one of the file changes on an append
+      append(nested, "b\n");
+      Assert.assertFalse(snapshot.equals(cache.makeSnapshot(plan, conf)));
+
+      table.getParameters().put(hive_metastoreConstants.TABLE_IS_TRANSACTIONAL, "true");
+      Assert.assertNull(cache.makeSnapshot(plan, conf));
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  /**
+   * @return the results cached for queries reading the given table.
+   */
+  private static List<QueryResultCache.CachedResult> getResults(QueryResultCache cache,
+      String table) {
+    List<QueryResultCache.CachedResult> found = new ArrayList<QueryResultCache.CachedResult>();
+    for (Map.Entry<String, QueryResultCache.CachedResult> entry : cache.asMap().entrySet()) {
+      if (entry.getValue().tables.contains(table)) {
+        found.add(entry.getValue());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Runs a query and fetches all its rows, so that its result gets cached.
+   * @return the number of rows.
+   */
+  private static int runQuery(ThriftCLIServiceClient client, SessionHandle session,
+      String query) throws Exception {
+    OperationHandle operation = client.executeStatement(session, query, null);
+    int numRows = 0;
+    RowSet rowSet;
+    do {
+      rowSet = client.fetchResults(operation);
+      numRows += rowSet.numRows();
+    } while (rowSet.numRows() > 0);
+    client.closeOperation(operation);
+    return numRows;
+  }
+
+  @Test
+  public void testSharedBySessions() throws Exception {
+    HiveConf conf = new HiveConf();
+    conf.setBoolVar(HiveConf.ConfVars.HIVE_SERVER2_QUERY_RESULT_CACHE_ENABLED, true);
+    conf.setVar(HiveConf.ConfVars.HIVE_LOCK_MANAGER, EmbeddedLockManager.class.getName());
+    EmbeddedThriftBinaryCLIService service = new EmbeddedThriftBinaryCLIService();
+    service.init(conf);
+    ThriftCLIServiceClient client = new ThriftCLIServiceClient(service);
+    QueryResultCache cache = QueryResultCache.getInstance(conf);
+    String query = "select * from result_cache_shared";
+
+    SessionHandle first = client.openSession(null, null, null);
+    client.executeStatement(first, "drop table if exists result_cache_shared", null);
+    client.executeStatement(first,
+        "create table result_cache_shared (key int, value string)", null);
+    File dataFile = new File(conf.get("test.data.files"), "kv1.txt");
+    client.executeStatement(first,
+        "load data local inpath '" + dataFile + "' into table result_cache_shared", null);
+    SessionHandle second = client.openSession(null, null, null);
+    try {
+      Assert.assertEquals(500, runQuery(client, first, query));
+      List<QueryResultCache.CachedResult> cached =
+          getResults(cache, "default.result_cache_shared");
+      Assert.assertEquals(1, cached.size());
+
+      // Served from the result cached by the first session, which is neither replaced nor
+      // joined by a result of the second one
+      Assert.assertEquals(500, runQuery(client, second, query));
+      List<QueryResultCache.CachedResult> after =
+          getResults(cache, "default.result_cache_shared");
+      Assert.assertEquals(1, after.size());
+      Assert.assertSame(cached.get(0), after.get(0));
+    } finally {
+      client.executeStatement(first, "drop table result_cache_shared", null);
+      client.closeSession(second);
+      client.closeSession(first);
+    }
+  }
+}
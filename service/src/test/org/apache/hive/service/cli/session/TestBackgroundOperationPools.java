@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hive.service.cli.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestBackgroundOperationPools {
+
+  private HiveConf conf;
+  private BackgroundOperationPools pools;
+  private CountDownLatch release;
+  private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+  @Before
+  public void setUp() {
+    conf = new HiveConf();
+    conf.setIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_THREADS, 1);
+    conf.setIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_WAIT_QUEUE_SIZE, 3);
+    conf.setVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_POOLS, "etl:2");
+    conf.setVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_POOL_MAPPING, "user:loader=etl");
+    conf.setVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_PRIORITY_MAPPING, "user:boss=5,user:vip=10");
+    release = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    if (pools != null) {
+      pools.shutdown();
+    }
+  }
+
+  private Runnable operation(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        started.add(name);
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+  }
+
+  private void awaitStarted(int count) throws InterruptedException {
+    for (int i = 0; i < 100 && started.size() < count; i++) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(count, started.size());
+  }
+
+  @Test
+  public void testPoolMapping() {
+    pools = new BackgroundOperationPools(conf);
+    Assert.assertEquals("etl", pools.getPoolName("loader"));
+    Assert.assertEquals(BackgroundOperationPools.DEFAULT_POOL, pools.getPoolName("analyst"));
+    Assert.assertEquals(BackgroundOperationPools.DEFAULT_POOL, pools.getPoolName(null));
+  }
+
+  @Test
+  public void testPriorityMapping() {
+    pools = new BackgroundOperationPools(conf);
+    Assert.assertEquals(10, pools.getPriority("vip"));
+    Assert.assertEquals(0, pools.getPriority("analyst"));
+    Assert.assertEquals(0, pools.getPriority(null));
+
+    conf.setVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_PRIORITY_MAPPING, "user:boss=high");
+    try {
+      new BackgroundOperationPools(conf);
+      Assert.fail("The priority is not a number");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testShutdownCancelsQueuedOperations() throws Exception {
+    pools = new BackgroundOperationPools(conf);
+    Future<?> running = pools.submit(operation("running"), "analyst");
+    awaitStarted(1);
+    Future<?> queued = pools.submit(operation("queued"), "analyst");
+    pools.shutdown();
+    Assert.assertTrue(queued.isCancelled());
+    Assert.assertEquals(0, pools.getPool(BackgroundOperationPools.DEFAULT_POOL).getQueued());
+    try {
+      pools.submit(operation("rejected"), "analyst");
+      Assert.fail("The pools are shut down");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    // The running operation completes
+    release.countDown();
+    running.get();
+    Assert.assertEquals(1, started.size());
+  }
+
+  @Test
+  public void testPriorityOrderAndQueueLimit() throws Exception {
+    pools = new BackgroundOperationPools(conf);
+    pools.submit(operation("running"), "analyst");
+    awaitStarted(1);
+    pools.submit(operation("low"), "analyst");
+    pools.submit(operation("high"), "boss");
+    Future<?> cancelled = pools.submit(operation("cancelled"), "vip");
+    try {
+      pools.submit(operation("rejected"), "analyst");
+      Assert.fail("The wait queue of the default pool is full");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    // The loader runs in its own pool, unaffected by the full default pool
+    pools.submit(operation("etl"), "loader");
+    awaitStarted(2);
+
+    cancelled.cancel(false);
+    BackgroundOperationPools.Pool pool = pools.getPool(BackgroundOperationPools.DEFAULT_POOL);
+    Assert.assertEquals(2, pool.getQueued());
+    release.countDown();
+    awaitStarted(4);
+    Assert.assertEquals("high", started.get(2));
+    Assert.assertEquals("low", started.get(3));
+  }
+
+  @Test
+  public void testUserLimit() throws Exception {
+    conf.setIntVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_USER_LIMIT, 1);
+    conf.setVar(ConfVars.HIVE_SERVER2_ASYNC_EXEC_POOL_MAPPING, "user:loader=etl,user:other=etl");
+    pools = new BackgroundOperationPools(conf);
+    pools.submit(operation("first"), "loader");
+    pools.submit(operation("second"), "loader");
+    // Overtakes the second operation of the loader, which waits for the first one
+    pools.submit(operation("other"), "other");
+    awaitStarted(2);
+    Assert.assertTrue(started.contains("other"));
+    Assert.assertEquals(1, pools.getPool("etl").getQueued());
+    release.countDown();
+    awaitStarted(3);
+    Assert.assertEquals("second", started.get(2));
+  }
+}